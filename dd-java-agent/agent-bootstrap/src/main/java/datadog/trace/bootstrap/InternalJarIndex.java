@@ -0,0 +1,235 @@
+package datadog.trace.bootstrap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only index of the entries of the agent jar, backed by a memory-mapped view of the jar. The
+ * central directory is read once, and shared by the handlers of all the internal jars, so that
+ * reading an entry is a map lookup followed by a copy, inflating it if it's compressed.
+ */
+final class InternalJarIndex {
+
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int END_SIZE = 22;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_LOCATOR_SIZE = 20;
+  private static final int CENTRAL_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int LOCAL_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+
+  private static File lastFile;
+  private static InternalJarIndex lastIndex;
+
+  private final ByteBuffer jar;
+  private final Map<String, Entry> entries;
+
+  private InternalJarIndex(final ByteBuffer jar, final Map<String, Entry> entries) {
+    this.jar = jar;
+    this.entries = entries;
+  }
+
+  /** @return the index of the jar, reusing the last one read if it's for the same file */
+  static synchronized InternalJarIndex of(final File file) throws IOException {
+    if (!file.equals(lastFile)) {
+      lastIndex = read(file);
+      lastFile = file;
+    }
+    return lastIndex;
+  }
+
+  private static InternalJarIndex read(final File file) throws IOException {
+    final MappedByteBuffer mapped;
+    try (final RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      // the mapping stays valid once the file is closed
+      mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+    }
+    final ByteBuffer jar = mapped.order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      return new InternalJarIndex(jar, readCentralDirectory(jar));
+    } catch (final IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new ZipException("Invalid jar " + file + ": " + e);
+    }
+  }
+
+  private static Map<String, Entry> readCentralDirectory(final ByteBuffer jar) throws ZipException {
+    final int end = findEnd(jar);
+    long count = jar.getShort(end + 10) & 0xFFFF;
+    long offset = jar.getInt(end + 16) & 0xFFFFFFFFL;
+    if (count == 0xFFFF || offset == 0xFFFFFFFFL) {
+      final int locator = end - ZIP64_LOCATOR_SIZE;
+      if (locator >= 0 && jar.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+        final int zip64End = toPosition(jar.getLong(locator + 8));
+        checkRange(jar, zip64End, 56, "zip64 end of central directory");
+        if (jar.getInt(zip64End) != ZIP64_END_SIGNATURE) {
+          throw new ZipException("Missing zip64 end of central directory");
+        }
+        count = jar.getLong(zip64End + 32);
+        offset = jar.getLong(zip64End + 48);
+      }
+    }
+
+    int position = toPosition(offset);
+    checkRange(jar, position, 0, "central directory");
+    if (count < 0 || count > (jar.limit() - position) / CENTRAL_HEADER_SIZE) {
+      throw new ZipException("Invalid number of entries " + count);
+    }
+    final Map<String, Entry> entries = new HashMap<>((int) (count * 4 / 3) + 1);
+    for (long i = 0; i < count; i++) {
+      checkRange(jar, position, CENTRAL_HEADER_SIZE, "central directory entry");
+      if (jar.getInt(position) != CENTRAL_SIGNATURE) {
+        throw new ZipException("Invalid central directory entry at " + position);
+      }
+      final int method = jar.getShort(position + 10) & 0xFFFF;
+      final long compressedSize = jar.getInt(position + 20) & 0xFFFFFFFFL;
+      final long size = jar.getInt(position + 24) & 0xFFFFFFFFL;
+      final int nameLength = jar.getShort(position + 28) & 0xFFFF;
+      final int extraLength = jar.getShort(position + 30) & 0xFFFF;
+      final int commentLength = jar.getShort(position + 32) & 0xFFFF;
+      final long header = jar.getInt(position + 42) & 0xFFFFFFFFL;
+      checkRange(
+          jar,
+          position + CENTRAL_HEADER_SIZE,
+          nameLength + extraLength + commentLength,
+          "central directory entry");
+      final String name = readName(jar, position + CENTRAL_HEADER_SIZE, nameLength);
+      // entries of 4GB or more aren't expected in the agent jar
+      if (compressedSize < Integer.MAX_VALUE && size < Integer.MAX_VALUE) {
+        entries.put(name, new Entry(header, (int) compressedSize, (int) size, method));
+      }
+      position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+    return entries;
+  }
+
+  private static int findEnd(final ByteBuffer jar) throws ZipException {
+    // the end of central directory record is only followed by a comment of up to 64k
+    final int last = jar.limit() - END_SIZE;
+    for (int position = last; position >= 0 && position >= last - 0xFFFF; position--) {
+      if (jar.getInt(position) == END_SIGNATURE) {
+        return position;
+      }
+    }
+    throw new ZipException("Missing end of central directory");
+  }
+
+  private static int toPosition(final long offset) throws ZipException {
+    if (offset < 0 || offset > Integer.MAX_VALUE) {
+      throw new ZipException("Unsupported offset " + offset);
+    }
+    return (int) offset;
+  }
+
+  /** @throws ZipException unless the jar has the given number of bytes at the position */
+  private static void checkRange(
+      final ByteBuffer jar, final long position, final long length, final String what)
+      throws ZipException {
+    if (position < 0 || length < 0 || position + length > jar.limit()) {
+      throw new ZipException("Invalid " + what + " at " + position);
+    }
+  }
+
+  private static String readName(final ByteBuffer jar, final int position, final int length) {
+    final byte[] bytes = new byte[length];
+    final ByteBuffer view = jar.duplicate();
+    view.position(position);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  Set<String> names() {
+    return entries.keySet();
+  }
+
+  boolean contains(final String name) {
+    return entries.containsKey(name);
+  }
+
+  /** @return the content of the entry, or null if the jar has no such entry */
+  byte[] read(final String name) throws IOException {
+    final Entry entry = entries.get(name);
+    if (null == entry) {
+      return null;
+    }
+    final int header = toPosition(entry.header);
+    checkRange(jar, header, LOCAL_HEADER_SIZE, "local header for " + name);
+    if (jar.getInt(header) != LOCAL_SIGNATURE) {
+      throw new ZipException("Invalid local header for " + name);
+    }
+    final int data =
+        header
+            + LOCAL_HEADER_SIZE
+            + (jar.getShort(header + 26) & 0xFFFF)
+            + (jar.getShort(header + 28) & 0xFFFF);
+    checkRange(
+        jar, data, entry.method == STORED ? entry.size : entry.compressedSize, "data of " + name);
+    final ByteBuffer view = jar.duplicate();
+    view.position(data);
+    if (entry.method == STORED) {
+      final byte[] bytes = new byte[entry.size];
+      view.get(bytes);
+      return bytes;
+    } else if (entry.method == DEFLATED) {
+      final byte[] compressed = new byte[entry.compressedSize];
+      view.get(compressed);
+      return inflate(name, compressed, entry.size);
+    }
+    throw new ZipException("Unsupported compression method " + entry.method + " for " + name);
+  }
+
+  private static byte[] inflate(final String name, final byte[] compressed, final int size)
+      throws ZipException {
+    final byte[] bytes = new byte[size];
+    final Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      int read = 0;
+      while (read < size && !inflater.finished()) {
+        final int inflated = inflater.inflate(bytes, read, size - read);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        read += inflated;
+      }
+      if (read != size) {
+        throw new ZipException("Truncated entry " + name);
+      }
+      return bytes;
+    } catch (final DataFormatException e) {
+      throw new ZipException("Invalid entry " + name + ": " + e.getMessage());
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static final class Entry {
+    final long header;
+    final int compressedSize;
+    final int size;
+    final int method;
+
+    Entry(final long header, final int compressedSize, final int size, final int method) {
+      this.header = header;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.method = method;
+    }
+  }
+}
@@ -1,21 +1,16 @@
 package datadog.trace.bootstrap;
 
-import datadog.trace.api.Pair;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.WeakReference;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
 import java.security.Permission;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,29 +18,24 @@ public class InternalJarURLHandler extends URLStreamHandler {
 
   private static final Logger log = LoggerFactory.getLogger(InternalJarURLHandler.class);
 
-  private static final WeakReference<Pair<String, JarEntry>> NULL = new WeakReference<>(null);
+  private static final byte[] EMPTY = new byte[0];
 
   private final String name;
   private final FileNotInInternalJar notFound;
   private final Set<String> packages = new HashSet<>();
-  private final JarFile bootstrapJarFile;
-
-  private WeakReference<Pair<String, JarEntry>> cache = NULL;
+  private final InternalJarIndex bootstrapJarIndex;
 
   InternalJarURLHandler(final String internalJarFileName, final URL bootstrapJarLocation) {
     this.name = internalJarFileName;
     this.notFound = new FileNotInInternalJar(internalJarFileName);
     final String filePrefix = internalJarFileName + "/";
-    JarFile jarFile = null;
+    InternalJarIndex jarIndex = null;
     try {
       if (bootstrapJarLocation != null) {
-        jarFile = new JarFile(new File(bootstrapJarLocation.toURI()), false);
-        final Enumeration<JarEntry> entries = jarFile.entries();
-        while (entries.hasMoreElements()) {
-          final JarEntry entry = entries.nextElement();
-          String name = entry.getName();
+        jarIndex = InternalJarIndex.of(new File(bootstrapJarLocation.toURI()));
+        for (final String name : jarIndex.names()) {
           if (name.startsWith(filePrefix)) {
-            if (entry.isDirectory() && !name.contains("/META-INF/")) {
+            if (name.endsWith("/") && !name.contains("/META-INF/")) {
               int prefix = filePrefix.length();
               if (name.length() > prefix) {
                 String dir = name.substring(prefix, name.length() - 1);
@@ -63,7 +53,7 @@ public class InternalJarURLHandler extends URLStreamHandler {
     if (packages.isEmpty()) {
       log.warn("No internal jar entries found");
     }
-    this.bootstrapJarFile = jarFile;
+    this.bootstrapJarIndex = jarIndex;
   }
 
   Set<String> getPackages() {
@@ -81,37 +71,25 @@ public class InternalJarURLHandler extends URLStreamHandler {
       // "/" is used as the default url of the jar
       // This is called by the SecureClassLoader trying to obtain permissions
 
-      // nullInputStream() is not available until Java 11
-      return new InternalJarURLConnection(url, new ByteArrayInputStream(new byte[0]));
+      return new InternalJarURLConnection(url, null, null);
     }
-    // believe it or not, we're going to get called twice for this,
-    // and the key will be a new object each time.
-    Pair<String, JarEntry> pair = cache.get();
-    if (null == pair || !filename.equals(pair.getLeft())) {
-      String classFileName = this.name + filename + (filename.endsWith(".class") ? "data" : "");
-      JarEntry entry = bootstrapJarFile.getJarEntry(classFileName);
-      if (null != entry) {
-        pair = Pair.of(filename, entry);
-        // this mechanism intentionally does not ensure visibility of this write, because it doesn't
-        // matter
-        this.cache = new WeakReference<>(pair);
-      } else {
-        throw notFound;
-      }
-    } else {
-      // hack: just happen to know this only ever happens twice,
-      // so dismiss cache after a hit
-      this.cache = NULL;
+    String classFileName = this.name + filename + (filename.endsWith(".class") ? "data" : "");
+    if (null == bootstrapJarIndex || !bootstrapJarIndex.contains(classFileName)) {
+      throw notFound;
     }
-    return new InternalJarURLConnection(url, bootstrapJarFile.getInputStream(pair.getRight()));
+    // we get called twice for each class, but only read the entry once: when the class is defined
+    return new InternalJarURLConnection(url, bootstrapJarIndex, classFileName);
   }
 
   private static class InternalJarURLConnection extends URLConnection {
-    private final InputStream inputStream;
+    private final InternalJarIndex jarIndex;
+    private final String entryName;
 
-    private InternalJarURLConnection(final URL url, final InputStream inputStream) {
+    private InternalJarURLConnection(
+        final URL url, final InternalJarIndex jarIndex, final String entryName) {
       super(url);
-      this.inputStream = inputStream;
+      this.jarIndex = jarIndex;
+      this.entryName = entryName;
     }
 
     @Override
@@ -120,8 +98,10 @@ public class InternalJarURLHandler extends URLStreamHandler {
     }
 
     @Override
-    public InputStream getInputStream() {
-      return inputStream;
+    public InputStream getInputStream() throws IOException {
+      // nullInputStream() is not available until Java 11
+      final byte[] bytes = null == jarIndex ? EMPTY : jarIndex.read(entryName);
+      return new ByteArrayInputStream(null == bytes ? EMPTY : bytes);
     }
 
     @Override
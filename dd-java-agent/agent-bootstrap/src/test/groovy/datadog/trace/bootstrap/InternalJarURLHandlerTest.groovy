@@ -3,6 +3,12 @@ package datadog.trace.bootstrap
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Shared
 
+import java.util.jar.JarEntry
+import java.util.jar.JarFile
+import java.util.jar.JarOutputStream
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+
 class InternalJarURLHandlerTest extends DDSpecification {
 
   @Shared
@@ -90,4 +96,91 @@ class InternalJarURLHandlerTest extends DDSpecification {
     "parent" | '/x/y/Y.class'
     "parent" | '/x/y/z/Z.class'
   }
+
+  def "read stored and compressed entries"() {
+    setup:
+    File jar = File.createTempFile("internal", ".jar")
+    jar.deleteOnExit()
+    byte[] stored = "stored content".getBytes("UTF-8")
+    byte[] deflated = ("compressed content " * 100).getBytes("UTF-8")
+    new JarOutputStream(new FileOutputStream(jar)).withCloseable { out ->
+      out.putNextEntry(new JarEntry("inst/"))
+      out.putNextEntry(new JarEntry("inst/a/"))
+      def entry = new JarEntry("inst/a/Stored.classdata")
+      entry.setMethod(ZipEntry.STORED)
+      entry.setSize(stored.length)
+      entry.setCompressedSize(stored.length)
+      def crc = new CRC32()
+      crc.update(stored)
+      entry.setCrc(crc.getValue())
+      out.putNextEntry(entry)
+      out.write(stored)
+      out.putNextEntry(new JarEntry("inst/a/Deflated.classdata"))
+      out.write(deflated)
+      out.putNextEntry(new JarEntry("inst/a/Empty.classdata"))
+    }
+    InternalJarURLHandler handler = new InternalJarURLHandler("inst", jar.toURI().toURL())
+
+    expect:
+    handler.getPackages() == ['a'].toSet()
+    handler.openConnection(new URL("file:/a/Stored.class")).getInputStream().bytes == stored
+    handler.openConnection(new URL("file:/a/Deflated.class")).getInputStream().bytes == deflated
+    handler.openConnection(new URL("file:/a/Empty.class")).getInputStream().bytes.length == 0
+  }
+
+  def "corrupt jars are reported as IO exceptions"() {
+    setup:
+    byte[] bytes = new File(testJarLocation.toURI()).bytes
+    int centralDirectory = indexOf(bytes, [0x50, 0x4b, 0x01, 0x02] as byte[])
+    int endOfCentralDirectory = indexOf(bytes, [0x50, 0x4b, 0x05, 0x06] as byte[])
+    corrupt(bytes, centralDirectory, endOfCentralDirectory)
+    File jar = File.createTempFile("corrupt", ".jar")
+    jar.deleteOnExit()
+    jar.bytes = bytes
+
+    when:
+    def index = InternalJarIndex.of(jar)
+    index.names().each { index.read(it) }
+
+    then:
+    thrown IOException
+
+    where:
+    corrupt << [
+      // local header offset past the end of the jar
+      { byte[] b, int central, int end -> b[central + 45] = 0x7F },
+      // more entries than the central directory can hold
+      { byte[] b, int central, int end -> b[end + 10] = 0xFE as byte; b[end + 11] = 0x7F },
+      // central directory offset past the end of the jar
+      { byte[] b, int central, int end -> b[end + 19] = 0x7F },
+      // name longer than the central directory
+      { byte[] b, int central, int end -> b[central + 29] = 0x7F }
+    ]
+  }
+
+  static int indexOf(byte[] bytes, byte[] signature) {
+    for (int i = 0; i <= bytes.length - signature.length; i++) {
+      if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + signature.length), signature)) {
+        return i
+      }
+    }
+    return -1
+  }
+
+  def "read the same bytes as a jar file"() {
+    setup:
+    File jar = new File(testJarLocation.toURI())
+    InternalJarIndex index = InternalJarIndex.of(jar)
+    JarFile jarFile = new JarFile(jar, false)
+
+    expect:
+    jarFile.entries().toList().every { entry ->
+      index.contains(entry.name) && index.read(entry.name) == jarFile.getInputStream(entry).bytes
+    }
+    !index.contains("parent/a/Missing.classdata")
+    index.read("parent/a/Missing.classdata") == null
+
+    cleanup:
+    jarFile.close()
+  }
 }
@@ -0,0 +1,60 @@
+package datadog.trace.agent.tooling;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Deploys applications, each with its own class loader, into which the helpers of several
+ * instrumentations are injected, like in an application server hosting many applications.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HelperInjectorBenchmark {
+
+  @Param({"1", "100"})
+  int classLoaders;
+
+  private HelperInjector[] injectors;
+
+  @Setup
+  public void setup() {
+    injectors =
+        new HelperInjector[] {
+          new HelperInjector("first", Helper1.class.getName(), Helper2.class.getName()),
+          new HelperInjector("second", Helper3.class.getName()),
+          new HelperInjector("third", Helper4.class.getName(), Helper5.class.getName()),
+        };
+  }
+
+  @Benchmark
+  public Object deployApplications() {
+    ClassLoader classLoader = null;
+    for (int i = 0; i < classLoaders; i++) {
+      classLoader = new URLClassLoader(new URL[0], null);
+      for (HelperInjector injector : injectors) {
+        injector.transform(null, null, classLoader, null);
+      }
+    }
+    return classLoader;
+  }
+
+  public static class Helper1 {}
+
+  public static class Helper2 {}
+
+  public static class Helper3 {}
+
+  public static class Helper4 {}
+
+  public static class Helper5 {}
+}
@@ -0,0 +1,117 @@
+package datadog.trace.agent.tooling.bytebuddy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.pool.TypePool;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Replays the loading of the classes of the benchmark's class path, in class path order, resolving
+ * the hierarchy of each class like type matchers do. The {@code parses} counter tells how many
+ * types the pool had to parse again because they were no longer cached: compare the fixed capacity
+ * of the cache with its larger startup capacity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TypeResolutionBenchmark {
+
+  @Param({"64", "4096"})
+  int startupTypeCapacity;
+
+  @Param({"0", "256"})
+  int hotTypeCapacity;
+
+  private final List<String> classNames = new ArrayList<>();
+  private final ClassFileLocator locator =
+      ClassFileLocator.ForClassLoader.of(ClassLoader.getSystemClassLoader());
+
+  private DDCachingPoolStrategy poolStrategy;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Counters {
+    long parses;
+
+    public long parses() {
+      return parses;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void loadClassNames() throws IOException {
+    for (StringTokenizer paths =
+            new StringTokenizer(System.getProperty("java.class.path"), File.pathSeparator);
+        paths.hasMoreTokens(); ) {
+      String path = paths.nextToken();
+      if (path.endsWith(".jar") && new File(path).isFile()) {
+        try (JarFile jar = new JarFile(path)) {
+          for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+            String resource = entries.nextElement().getName();
+            if (resource.endsWith(".class")
+                && !resource.startsWith("META-INF/")
+                && !resource.endsWith("module-info.class")) {
+              classNames.add(resource.substring(0, resource.length() - 6).replace('/', '.'));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void createPoolStrategy() {
+    // each replay starts with an empty cache, like the agent does
+    poolStrategy = new DDCachingPoolStrategy(false, startupTypeCapacity, hotTypeCapacity);
+  }
+
+  @Benchmark
+  public int replayClassLoading(Counters counters) {
+    ClassLoader loader = ClassLoader.getSystemClassLoader();
+    int resolved = 0;
+    for (String className : classNames) {
+      // like the agent, use a new pool for each class being loaded
+      TypePool typePool = poolStrategy.typePool(locator, loader);
+      TypePool.Resolution resolution = typePool.describe(className);
+      if (resolution.isResolved()) {
+        resolved += resolveHierarchy(resolution.resolve());
+      }
+    }
+    counters.parses += poolStrategy.registrations();
+    return resolved;
+  }
+
+  private static int resolveHierarchy(TypeDefinition type) {
+    int resolved = 0;
+    try {
+      for (TypeDefinition t = type; null != t; t = t.getSuperClass()) {
+        for (TypeDescription.Generic i : t.getInterfaces()) {
+          resolved += resolveHierarchy(i);
+        }
+        resolved++;
+      }
+    } catch (Exception e) {
+      // missing optional dependency
+    }
+    return resolved;
+  }
+}
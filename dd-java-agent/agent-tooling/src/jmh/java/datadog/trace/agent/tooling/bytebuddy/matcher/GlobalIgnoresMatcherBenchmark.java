@@ -0,0 +1,120 @@
+package datadog.trace.agent.tooling.bytebuddy.matcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Matches the names of all the classes of the JDK and of the benchmark's class path, in a random
+ * order, against the global ignores, with more or fewer classes excluded by configuration. Run with
+ * {@code -prof gc}: matching should allocate nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GlobalIgnoresMatcherBenchmark {
+
+  @Param({"0", "16"})
+  int excludedClasses;
+
+  private ElementMatcher<TypeDescription> matcher;
+  private TypeDescription[] types;
+  private int next;
+
+  @Setup
+  public void setup() throws IOException {
+    List<String> excludes = new ArrayList<>();
+    for (int i = 0; i < excludedClasses; i++) {
+      excludes.add(i % 2 == 0 ? "com.example.excluded" + i + ".*" : "com.example.Excluded" + i);
+    }
+    matcher = GlobalIgnoresMatcher.globalIgnoresMatcher(false, excludes);
+
+    List<String> classNames = new ArrayList<>();
+    addJdkClasses(classNames);
+    addClassPath(classNames, System.getProperty("java.class.path"));
+    Collections.shuffle(classNames, new Random(0));
+    types = new TypeDescription[classNames.size()];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = new TypeDescription.Latent(classNames.get(i), 0, null);
+    }
+  }
+
+  @Benchmark
+  public boolean matchClassName() {
+    TypeDescription type = types[next];
+    next = next + 1 == types.length ? 0 : next + 1;
+    return matcher.matches(type);
+  }
+
+  private static void addJdkClasses(final List<String> classNames) throws IOException {
+    String bootClassPath = System.getProperty("sun.boot.class.path");
+    if (null != bootClassPath) {
+      addClassPath(classNames, bootClassPath);
+      return;
+    }
+    FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+    try (DirectoryStream<Path> modules = Files.newDirectoryStream(jrt.getPath("/modules"))) {
+      for (final Path module : modules) {
+        Files.walkFileTree(
+            module,
+            new SimpleFileVisitor<Path>() {
+              @Override
+              public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                addClassName(classNames, module.relativize(file).toString());
+                return FileVisitResult.CONTINUE;
+              }
+            });
+      }
+    }
+  }
+
+  private static void addClassPath(final List<String> classNames, final String classPath)
+      throws IOException {
+    for (StringTokenizer paths = new StringTokenizer(classPath, File.pathSeparator);
+        paths.hasMoreTokens(); ) {
+      String entry = paths.nextToken();
+      if (entry.endsWith(".jar") && new File(entry).isFile()) {
+        try (JarFile jar = new JarFile(entry)) {
+          for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+            addClassName(classNames, entries.nextElement().getName());
+          }
+        }
+      }
+    }
+  }
+
+  private static void addClassName(final List<String> classNames, final String resource) {
+    if (resource.endsWith(".class")
+        && !resource.startsWith("META-INF/")
+        && !resource.endsWith("module-info.class")) {
+      classNames.add(resource.substring(0, resource.length() - 6).replace('/', '.'));
+    }
+  }
+}
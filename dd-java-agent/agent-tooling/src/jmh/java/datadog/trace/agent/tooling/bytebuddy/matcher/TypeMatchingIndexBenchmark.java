@@ -0,0 +1,100 @@
+package datadog.trace.agent.tooling.bytebuddy.matcher;
+
+import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.named;
+import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.namedOneOf;
+import static net.bytebuddy.matcher.ElementMatchers.any;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Matches a loaded type against the type matchers of all the instrumentations, like the agent
+ * builder does for each class being loaded, with each instrumentation checking the name itself or
+ * with the instrumentations indexed by name. One in ten types is targeted by an instrumentation.
+ * The matchers are shared by all the benchmark threads, like by all the threads loading classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TypeMatchingIndexBenchmark {
+
+  @Param({"50", "200"})
+  int instrumentations;
+
+  private AgentBuilder.RawMatcher[] perInstrumentation;
+  private AgentBuilder.RawMatcher[] indexed;
+  private TypeDescription[] types;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+
+  @Setup
+  public void setup() {
+    TypeMatchingIndex index = new TypeMatchingIndex();
+    perInstrumentation = new AgentBuilder.RawMatcher[instrumentations];
+    indexed = new AgentBuilder.RawMatcher[instrumentations];
+    for (int i = 0; i < instrumentations; i++) {
+      ElementMatcher<TypeDescription> typeMatcher =
+          i % 2 == 0 ? named(targetName(i, 0)) : namedOneOf(targetName(i, 0), targetName(i, 1));
+      ElementMatcher<ClassLoader> classLoaderMatcher = any();
+      perInstrumentation[i] =
+          new AgentBuilder.RawMatcher.ForElementMatchers(typeMatcher, classLoaderMatcher);
+      indexed[i] = index.index(typeMatcher, classLoaderMatcher);
+    }
+    Random random = new Random(0);
+    types = new TypeDescription[1024];
+    for (int i = 0; i < types.length; i++) {
+      String name =
+          i % 10 == 0
+              ? targetName(random.nextInt(instrumentations), 0)
+              : "com.example.application.Type" + i;
+      types[i] =
+          new TypeDescription.Latent(
+              name,
+              Visibility.PUBLIC.getMask(),
+              TypeDescription.Generic.OBJECT,
+              Collections.<TypeDescription.Generic>emptyList());
+    }
+  }
+
+  private static String targetName(int instrumentation, int type) {
+    return "com.example.library" + instrumentation + ".Target" + type;
+  }
+
+  @Benchmark
+  public int perInstrumentation(Cursor cursor) {
+    return matchAll(perInstrumentation, cursor);
+  }
+
+  @Benchmark
+  public int indexed(Cursor cursor) {
+    return matchAll(indexed, cursor);
+  }
+
+  private int matchAll(AgentBuilder.RawMatcher[] matchers, Cursor cursor) {
+    // a different type each time, like each class being loaded
+    TypeDescription type = types[cursor.next++ & (types.length - 1)];
+    int matched = 0;
+    for (AgentBuilder.RawMatcher matcher : matchers) {
+      if (matcher.matches(type, null, null, null, null)) {
+        matched++;
+      }
+    }
+    return matched;
+  }
+}
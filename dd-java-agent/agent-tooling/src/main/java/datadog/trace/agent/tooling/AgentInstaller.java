@@ -2,17 +2,14 @@ package datadog.trace.agent.tooling;
 
 import static datadog.trace.agent.tooling.ClassLoaderMatcher.skipClassLoader;
 import static datadog.trace.agent.tooling.bytebuddy.matcher.GlobalIgnoresMatcher.globalIgnoresMatcher;
-import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.nameStartsWith;
-import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.namedOneOf;
 import static net.bytebuddy.matcher.ElementMatchers.any;
-import static net.bytebuddy.matcher.ElementMatchers.none;
 
+import datadog.trace.agent.tooling.bytebuddy.matcher.TypeMatchingIndex;
 import datadog.trace.agent.tooling.context.FieldBackedContextProvider;
 import datadog.trace.api.Config;
 import datadog.trace.bootstrap.FieldBackedContextAccessor;
 import datadog.trace.bootstrap.instrumentation.java.concurrent.ExcludeFilter;
 import java.lang.instrument.Instrumentation;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
@@ -25,7 +22,6 @@ import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
 import net.bytebuddy.description.type.TypeDefinition;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.DynamicType;
-import net.bytebuddy.matcher.ElementMatcher;
 import net.bytebuddy.utility.JavaModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -94,9 +90,8 @@ public class AgentInstaller {
             .ignore(any(), skipClassLoader());
 
     ignoredAgentBuilder =
-        ignoredAgentBuilder.or(globalIgnoresMatcher(skipAdditionalLibraryMatcher));
-
-    ignoredAgentBuilder = ignoredAgentBuilder.or(matchesConfiguredExcludes());
+        ignoredAgentBuilder.or(
+            globalIgnoresMatcher(skipAdditionalLibraryMatcher, Config.get().getExcludedClasses()));
 
     AgentBuilder agentBuilder = ignoredAgentBuilder;
     if (DEBUG) {
@@ -130,6 +125,8 @@ public class AgentInstaller {
     }
 
     Set<Instrumenter.TargetSystem> enabledSystems = getEnabledSystems();
+    TypeMatchingIndex typeIndex =
+        Config.get().isTypeMatchingIndexEnabled() ? new TypeMatchingIndex() : null;
     for (final Instrumenter instrumenter : loader) {
       if (!instrumenter.isApplicable(enabledSystems)) {
         if (DEBUG) {
@@ -142,7 +139,11 @@ public class AgentInstaller {
       }
 
       try {
-        agentBuilder = instrumenter.instrument(agentBuilder);
+        if (instrumenter instanceof Instrumenter.Default) {
+          agentBuilder = ((Instrumenter.Default) instrumenter).instrument(agentBuilder, typeIndex);
+        } else {
+          agentBuilder = instrumenter.instrument(agentBuilder);
+        }
         numInstrumenters++;
       } catch (final Exception | LinkageError e) {
         log.error("Unable to load instrumentation {}", instrumenter.getClass().getName(), e);
@@ -185,34 +186,6 @@ public class AgentInstaller {
     }
   }
 
-  private static ElementMatcher.Junction<Object> matchesConfiguredExcludes() {
-    final List<String> excludedClasses = Config.get().getExcludedClasses();
-    ElementMatcher.Junction matcher = none();
-    if (!excludedClasses.isEmpty()) {
-      List<String> literals = new ArrayList<>();
-      List<String> prefixes = new ArrayList<>();
-      // first accumulate by operation because a lot of work can be aggregated
-      for (String excludedClass : excludedClasses) {
-        excludedClass = excludedClass.trim();
-        if (excludedClass.endsWith("*")) {
-          // remove the trailing *
-          prefixes.add(excludedClass.substring(0, excludedClass.length() - 1));
-        } else {
-          literals.add(excludedClass);
-        }
-      }
-      if (!literals.isEmpty()) {
-        matcher = matcher.or(namedOneOf(literals));
-      }
-      for (String prefix : prefixes) {
-        // TODO - with a prefix tree this matching logic can be handled by a
-        // single longest common prefix query
-        matcher = matcher.or(nameStartsWith(prefix));
-      }
-    }
-    return matcher;
-  }
-
   static class RedefinitionLoggingListener implements AgentBuilder.RedefinitionStrategy.Listener {
 
     private static final Logger log = LoggerFactory.getLogger(RedefinitionLoggingListener.class);
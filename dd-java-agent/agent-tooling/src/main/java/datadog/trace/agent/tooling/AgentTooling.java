@@ -2,11 +2,13 @@ package datadog.trace.agent.tooling;
 
 import datadog.trace.agent.tooling.bytebuddy.DDCachingPoolStrategy;
 import datadog.trace.agent.tooling.bytebuddy.DDLocationStrategy;
+import datadog.trace.agent.tooling.muzzle.MuzzleCache;
 import datadog.trace.api.Config;
 import datadog.trace.api.Platform;
 import datadog.trace.bootstrap.WeakCache;
 import datadog.trace.bootstrap.WeakCache.Provider;
 import datadog.trace.bootstrap.WeakMap;
+import datadog.trace.core.DDTraceCoreInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +58,8 @@ public class AgentTooling {
   private static final DDLocationStrategy LOCATION_STRATEGY = new DDLocationStrategy();
   private static final DDCachingPoolStrategy POOL_STRATEGY =
       new DDCachingPoolStrategy(Config.get().isResolverUseLoadClassEnabled());
+  private static final MuzzleCache MUZZLE_CACHE =
+      MuzzleCache.load(Config.get().getMuzzleCacheFile(), DDTraceCoreInfo.VERSION);
 
   public static <K, V> WeakCache<K, V> newWeakCache() {
     return newWeakCache(DEFAULT_CACHE_CAPACITY);
@@ -72,4 +76,8 @@ public class AgentTooling {
   public static DDCachingPoolStrategy poolStrategy() {
     return POOL_STRATEGY;
   }
+
+  public static MuzzleCache muzzleCache() {
+    return MUZZLE_CACHE;
+  }
 }
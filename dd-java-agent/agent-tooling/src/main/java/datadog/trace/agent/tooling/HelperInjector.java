@@ -33,7 +33,12 @@ import net.bytebuddy.utility.JavaModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Injects instrumentation helper classes into the user's classloader. */
+/**
+ * Injects instrumentation helper classes into the user's classloader.
+ *
+ * <p>The bytes of the helper classes are read once, on first injection. Classes injected on the
+ * bootstrap classloader go through jars written to a single temporary folder per process.
+ */
 public class HelperInjector implements Transformer {
   private static final Logger log = LoggerFactory.getLogger(HelperInjector.class);
   // Need this because we can't put null into the injectedClassLoaders map.
@@ -55,6 +60,8 @@ public class HelperInjector implements Transformer {
 
   private final Set<String> helperClassNames;
   private final Map<String, byte[]> dynamicTypeMap = new LinkedHashMap<>();
+  // bytes of the helper classes, read on first injection
+  private volatile Map<String, byte[]> helperMap;
 
   private final Map<ClassLoader, Boolean> injectedClassLoaders =
       Collections.synchronizedMap(new WeakHashMap<ClassLoader, Boolean>());
@@ -92,21 +99,25 @@ public class HelperInjector implements Transformer {
   }
 
   private Map<String, byte[]> getHelperMap() throws IOException {
-    if (dynamicTypeMap.isEmpty()) {
-      final Map<String, byte[]> classnameToBytes = new LinkedHashMap<>();
+    Map<String, byte[]> classnameToBytes = helperMap;
+    if (null == classnameToBytes) {
+      if (dynamicTypeMap.isEmpty()) {
+        classnameToBytes = new LinkedHashMap<>();
 
-      final ClassFileLocator locator =
-          ClassFileLocator.ForClassLoader.of(Utils.getAgentClassLoader());
+        final ClassFileLocator locator =
+            ClassFileLocator.ForClassLoader.of(Utils.getAgentClassLoader());
 
-      for (final String helperClassName : helperClassNames) {
-        final byte[] classBytes = locator.locate(helperClassName).resolve();
-        classnameToBytes.put(helperClassName, classBytes);
+        for (final String helperClassName : helperClassNames) {
+          final byte[] classBytes = locator.locate(helperClassName).resolve();
+          classnameToBytes.put(helperClassName, classBytes);
+        }
+      } else {
+        classnameToBytes = dynamicTypeMap;
       }
-
-      return classnameToBytes;
-    } else {
-      return dynamicTypeMap;
+      // racing threads read the same bytes, so whichever map is kept doesn't matter
+      helperMap = classnameToBytes;
     }
+    return classnameToBytes;
   }
 
   @Override
@@ -161,12 +172,11 @@ public class HelperInjector implements Transformer {
 
   private Map<String, Class<?>> injectBootstrapClassLoader(
       final Map<String, byte[]> classnameToBytes) throws IOException {
-    // Mar 2020: Since we're proactively cleaning up tempDirs, we cannot share dirs per thread.
-    // If this proves expensive, we could do a per-process tempDir with
-    // a reference count -- but for now, starting simple.
+    // The jars appended to the bootstrap search path stay open, so they can only be deleted on
+    // exit or by the next JVM: share one folder for them rather than one folder per injection.
 
     // Failures to create a tempDir are propagated as IOException and handled by transform
-    final File tempDir = createTempDir();
+    final File tempDir = bootstrapTempDir();
     INJECTING_HELPERS.begin();
     try {
       return ClassInjector.UsingInstrumentation.of(
@@ -176,11 +186,20 @@ public class HelperInjector implements Transformer {
           .injectRaw(classnameToBytes);
     } finally {
       INJECTING_HELPERS.end();
-      // Delete fails silently
-      deleteTempDir(tempDir);
     }
   }
 
+  private static File bootstrapTempDir;
+
+  private static synchronized File bootstrapTempDir() throws IOException {
+    if (null == bootstrapTempDir || !bootstrapTempDir.isDirectory()) {
+      bootstrapTempDir = createTempDir();
+      // Fails silently while it still holds jars, which are then cleaned on the next boot
+      bootstrapTempDir.deleteOnExit();
+    }
+    return bootstrapTempDir;
+  }
+
   private Map<String, Class<?>> injectClassLoader(
       final ClassLoader classLoader, final Map<String, byte[]> classnameToBytes) {
     INJECTING_HELPERS.begin();
@@ -227,19 +246,6 @@ public class HelperInjector implements Transformer {
     }
   }
 
-  private static void deleteTempDir(final File file) {
-    // Not using Files.delete for deleting the directory because failures
-    // create Exceptions which may prove expensive.  Instead using the
-    // older File API which simply returns a boolean.
-    final boolean deleted = file.delete();
-    if (!deleted) {
-      file.deleteOnExit();
-      log.debug("file '{}' added to shutdown delete hook", file);
-    } else {
-      log.debug("file '{}' deleted", file);
-    }
-  }
-
   private static final String DATADOG_TEMP_JARS = "datadog-temp-jars";
   private static final int MAX_CLEANUP_MILLIS = 1_000;
 
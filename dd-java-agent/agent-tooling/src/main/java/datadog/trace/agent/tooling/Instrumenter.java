@@ -10,6 +10,7 @@ import static net.bytebuddy.matcher.ElementMatchers.not;
 
 import datadog.trace.agent.tooling.bytebuddy.DDTransformers;
 import datadog.trace.agent.tooling.bytebuddy.ExceptionHandlers;
+import datadog.trace.agent.tooling.bytebuddy.matcher.TypeMatchingIndex;
 import datadog.trace.agent.tooling.context.FieldBackedContextProvider;
 import datadog.trace.agent.tooling.context.InstrumentationContextProvider;
 import datadog.trace.agent.tooling.context.NoopContextProvider;
@@ -138,6 +139,12 @@ public interface Instrumenter {
 
     @Override
     public final AgentBuilder instrument(final AgentBuilder parentAgentBuilder) {
+      return instrument(parentAgentBuilder, null);
+    }
+
+    /** @param typeIndex indexes the instrumentation if it only matches exact type names */
+    final AgentBuilder instrument(
+        final AgentBuilder parentAgentBuilder, final TypeMatchingIndex typeIndex) {
       if (!isEnabled()) {
         log.debug("Instrumentation {} is disabled", this);
         return parentAgentBuilder;
@@ -145,16 +152,26 @@ public interface Instrumenter {
 
       lazyInit();
 
+      final ElementMatcher<? super TypeDescription> typeMatcher = typeMatcher();
+      final ElementMatcher<ClassLoader> classLoaderMatcher =
+          failSafe(
+              classLoaderMatcher(),
+              "Instrumentation class loader matcher unexpected exception: " + getClass().getName());
+      final AgentBuilder.RawMatcher indexedMatcher =
+          null == typeIndex ? null : typeIndex.index(typeMatcher, classLoaderMatcher);
+      final AgentBuilder.Identified.Narrowable narrowable;
+      if (null != indexedMatcher) {
+        narrowable = parentAgentBuilder.type(indexedMatcher);
+      } else {
+        narrowable =
+            parentAgentBuilder.type(
+                failSafe(
+                    typeMatcher,
+                    "Instrumentation type matcher unexpected exception: " + getClass().getName()),
+                classLoaderMatcher);
+      }
       AgentBuilder.Identified.Extendable agentBuilder =
-          parentAgentBuilder
-              .type(
-                  failSafe(
-                      typeMatcher(),
-                      "Instrumentation type matcher unexpected exception: " + getClass().getName()),
-                  failSafe(
-                      classLoaderMatcher(),
-                      "Instrumentation class loader matcher unexpected exception: "
-                          + getClass().getName()))
+          narrowable
               .and(NOT_DECORATOR_MATCHER)
               .and(new MuzzleMatcher())
               .transform(DDTransformers.defaultTransformers());
@@ -204,7 +221,9 @@ public interface Instrumenter {
          */
         final ReferenceMatcher muzzle = getInstrumentationMuzzle();
         if (null != muzzle) {
-          final boolean isMatch = muzzle.matches(classLoader);
+          final boolean isMatch =
+              AgentTooling.muzzleCache()
+                  .matches(muzzle, classLoader, Instrumenter.Default.this.getClass().getName());
           if (!isMatch) {
             if (log.isDebugEnabled()) {
               final List<Reference.Mismatch> mismatches =
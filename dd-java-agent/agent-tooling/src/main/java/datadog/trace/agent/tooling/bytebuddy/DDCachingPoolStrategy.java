@@ -4,11 +4,16 @@ import static datadog.trace.bootstrap.AgentClassLoading.LOCATING_CLASS;
 import static net.bytebuddy.agent.builder.AgentBuilder.PoolStrategy;
 
 import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.EvictionListener;
 import datadog.trace.agent.tooling.AgentTooling;
 import datadog.trace.api.Function;
 import datadog.trace.bootstrap.WeakCache;
+import datadog.trace.util.AgentTaskScheduler;
+import datadog.trace.util.AgentTaskScheduler.Task;
 import java.lang.ref.WeakReference;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 import net.bytebuddy.description.annotation.AnnotationList;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.method.MethodList;
@@ -41,6 +46,11 @@ import org.slf4j.LoggerFactory;
  *
  * <p>Eviction is handled almost entirely through a size restriction; however, softValues are still
  * used as a further safeguard.
+ *
+ * <p>While many types are being resolved, typically while the application starts, the cache grows
+ * so that the super types shared by many classes aren't parsed again and again. It shrinks back
+ * once types are resolved at a lower rate. Types hit often are moved to a small separate cache, so
+ * that they survive the churn of the types seen only once.
  */
 public class DDCachingPoolStrategy implements PoolStrategy {
   private static final Logger log = LoggerFactory.getLogger(DDCachingPoolStrategy.class);
@@ -50,6 +60,14 @@ public class DDCachingPoolStrategy implements PoolStrategy {
   static final int CONCURRENCY_LEVEL = 8;
   static final int LOADER_CAPACITY = 64;
   static final int TYPE_CAPACITY = 64;
+  static final int STARTUP_TYPE_CAPACITY = 4096;
+  static final int HOT_TYPE_CAPACITY = 256;
+
+  // hits after which a resolution moves to the hot cache
+  static final int HOT_TYPE_HITS = 8;
+  // resolutions registered per second above which the startup capacity is used
+  static final int STARTUP_REGISTRATION_RATE = 1000;
+  static final long ADAPT_FREQUENCY_SECONDS = 5;
 
   static final int BOOTSTRAP_HASH = 7236344; // Just a random number
 
@@ -67,11 +85,7 @@ public class DDCachingPoolStrategy implements PoolStrategy {
   /**
    * Single shared Type.Resolution cache -- uses a composite key -- conceptually of loader & name
    */
-  final ConcurrentMap<TypeCacheKey, TypePool.Resolution> sharedResolutionCache =
-      new ConcurrentLinkedHashMap.Builder<TypeCacheKey, TypePool.Resolution>()
-          .maximumWeightedCapacity(TYPE_CAPACITY)
-          .concurrencyLevel(CONCURRENCY_LEVEL)
-          .build();
+  final SharedResolutionCache sharedResolutionCache;
 
   /** Fast path for bootstrap */
   final SharedResolutionCacheAdapter bootstrapCacheProvider;
@@ -83,10 +97,24 @@ public class DDCachingPoolStrategy implements PoolStrategy {
   }
 
   public DDCachingPoolStrategy(boolean fallBackToLoadClass) {
+    this(fallBackToLoadClass, STARTUP_TYPE_CAPACITY, HOT_TYPE_CAPACITY);
+  }
+
+  DDCachingPoolStrategy(
+      final boolean fallBackToLoadClass, final int startupTypeCapacity, final int hotTypeCapacity) {
     this.fallBackToLoadClass = fallBackToLoadClass;
+    sharedResolutionCache = new SharedResolutionCache(startupTypeCapacity, hotTypeCapacity);
     bootstrapCacheProvider =
         new SharedResolutionCacheAdapter(
             BOOTSTRAP_HASH, null, sharedResolutionCache, fallBackToLoadClass);
+    if (startupTypeCapacity > TYPE_CAPACITY) {
+      AgentTaskScheduler.INSTANCE.weakScheduleAtFixedRate(
+          AdaptCapacityTask.INSTANCE,
+          sharedResolutionCache,
+          ADAPT_FREQUENCY_SECONDS,
+          ADAPT_FREQUENCY_SECONDS,
+          TimeUnit.SECONDS);
+    }
   }
 
   @Override
@@ -144,6 +172,110 @@ public class DDCachingPoolStrategy implements PoolStrategy {
     return sharedResolutionCache.size();
   }
 
+  /** @return the number of types which were parsed because they weren't cached */
+  final long registrations() {
+    return sharedResolutionCache.registrations.get();
+  }
+
+  /**
+   * Resolutions of types, split between the types hit often, which have a least recently used cache
+   * of their own so that a burst of new types doesn't evict them, and the others, which are kept in
+   * a cache sized for the current rate of resolutions.
+   */
+  static final class SharedResolutionCache {
+    private final int startupCapacity;
+    private final ConcurrentLinkedHashMap<TypeCacheKey, TypePool.Resolution> resolutions;
+    private final ConcurrentLinkedHashMap<TypeCacheKey, TypePool.Resolution> hotResolutions;
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong registrations = new AtomicLong();
+    final AtomicLong evictions = new AtomicLong();
+    final AtomicLong promotions = new AtomicLong();
+
+    // only accessed by the task adapting the capacity
+    private long lastRegistrations;
+
+    SharedResolutionCache(final int startupCapacity, final int hotCapacity) {
+      this.startupCapacity = Math.max(TYPE_CAPACITY, startupCapacity);
+      final EvictionListener<TypeCacheKey, TypePool.Resolution> evictionCounter =
+          new EvictionListener<TypeCacheKey, TypePool.Resolution>() {
+            @Override
+            public void onEviction(final TypeCacheKey key, final TypePool.Resolution value) {
+              evictions.incrementAndGet();
+            }
+          };
+      resolutions =
+          new ConcurrentLinkedHashMap.Builder<TypeCacheKey, TypePool.Resolution>()
+              .maximumWeightedCapacity(this.startupCapacity)
+              .concurrencyLevel(CONCURRENCY_LEVEL)
+              .listener(evictionCounter)
+              .build();
+      hotResolutions =
+          new ConcurrentLinkedHashMap.Builder<TypeCacheKey, TypePool.Resolution>()
+              .maximumWeightedCapacity(Math.max(1, hotCapacity))
+              .concurrencyLevel(CONCURRENCY_LEVEL)
+              .listener(evictionCounter)
+              .build();
+    }
+
+    TypePool.Resolution get(final TypeCacheKey key) {
+      TypePool.Resolution resolution = hotResolutions.get(key);
+      if (null == resolution) {
+        resolution = resolutions.get(key);
+        if (null == resolution) {
+          return null;
+        }
+        if (resolution instanceof CountingResolution
+            && ((CountingResolution) resolution).hit() >= HOT_TYPE_HITS
+            && hotResolutions.capacity() > 1) {
+          hotResolutions.put(key, resolution);
+          resolutions.remove(key, resolution);
+          promotions.incrementAndGet();
+        }
+      }
+      hits.incrementAndGet();
+      return resolution;
+    }
+
+    void put(final TypeCacheKey key, final TypePool.Resolution resolution) {
+      registrations.incrementAndGet();
+      resolutions.put(key, resolution);
+    }
+
+    long size() {
+      return resolutions.size() + hotResolutions.size();
+    }
+
+    void adaptCapacity() {
+      final long registered = registrations.get();
+      final long rate = (registered - lastRegistrations) / ADAPT_FREQUENCY_SECONDS;
+      lastRegistrations = registered;
+      final long capacity = rate >= STARTUP_REGISTRATION_RATE ? startupCapacity : TYPE_CAPACITY;
+      if (capacity != resolutions.capacity()) {
+        resolutions.setCapacity(capacity);
+        if (log.isDebugEnabled()) {
+          log.debug(
+              "Type resolution cache capacity set to {} -- hits={} registrations={} evictions={} promotions={}",
+              capacity,
+              hits.get(),
+              registered,
+              evictions.get(),
+              promotions.get());
+        }
+      }
+    }
+  }
+
+  // Important to use explicit class to avoid implicit hard references to target
+  private static final class AdaptCapacityTask implements Task<SharedResolutionCache> {
+    static final AdaptCapacityTask INSTANCE = new AdaptCapacityTask();
+
+    @Override
+    public void run(final SharedResolutionCache target) {
+      target.adaptCapacity();
+    }
+  }
+
   /**
    * TypeCacheKey is key for the sharedResolutionCache. Conceptually, it is a mix of ClassLoader &
    * class name.
@@ -227,13 +359,13 @@ public class DDCachingPoolStrategy implements PoolStrategy {
 
     private final int loaderHash;
     private final WeakReference<ClassLoader> loaderRef;
-    private final ConcurrentMap<TypeCacheKey, TypePool.Resolution> sharedResolutionCache;
+    private final SharedResolutionCache sharedResolutionCache;
     private final boolean fallBackToLoadClass;
 
     SharedResolutionCacheAdapter(
         final int loaderHash,
         final WeakReference<ClassLoader> loaderRef,
-        final ConcurrentMap<TypeCacheKey, TypePool.Resolution> sharedResolutionCache,
+        final SharedResolutionCache sharedResolutionCache,
         final boolean fallBackToLoadClass) {
       this.loaderHash = loaderHash;
       this.loaderRef = loaderRef;
@@ -282,7 +414,19 @@ public class DDCachingPoolStrategy implements PoolStrategy {
     }
   }
 
-  private static class CachingResolutionForMaybeLoadableType implements TypePool.Resolution {
+  /** Counts the hits of a cached resolution. */
+  private abstract static class CountingResolution implements TypePool.Resolution {
+    private static final AtomicIntegerFieldUpdater<CountingResolution> HITS =
+        AtomicIntegerFieldUpdater.newUpdater(CountingResolution.class, "hits");
+
+    private volatile int hits;
+
+    final int hit() {
+      return HITS.incrementAndGet(this);
+    }
+  }
+
+  private static class CachingResolutionForMaybeLoadableType extends CountingResolution {
     private final WeakReference<ClassLoader> loaderRef;
     private final String className;
     private volatile TypeDescription typeDescription = null;
@@ -341,7 +485,7 @@ public class DDCachingPoolStrategy implements PoolStrategy {
     }
   }
 
-  private static class CachingResolution implements TypePool.Resolution {
+  private static class CachingResolution extends CountingResolution {
     private final TypePool.Resolution delegate;
     private TypeDescription cachedResolution;
 
@@ -18,6 +18,8 @@ public class AdditionalLibraryIgnoresMatcher<T extends TypeDescription>
     return new AdditionalLibraryIgnoresMatcher<>();
   }
 
+  private static final ClassNameTrie IGNORES = ignoredLibraries(ClassNameTrie.builder(), 0).build();
+
   /**
    * Be very careful about the types of matchers used in this section as they are called on every
    * class load, so they must be fast. Generally speaking try to only use name matchers as they
@@ -25,294 +27,229 @@ public class AdditionalLibraryIgnoresMatcher<T extends TypeDescription>
    */
   @Override
   public boolean matches(final T target) {
-    final String name = target.getActualName();
-
-    if (name.startsWith("com.beust.jcommander.")
-        || name.startsWith("com.fasterxml.classmate.")
-        || name.startsWith("com.github.mustachejava.")
-        || name.startsWith("com.jayway.jsonpath.")
-        || name.startsWith("com.lightbend.lagom.")
-        || name.startsWith("javax.el.")
-        || name.startsWith("net.sf.cglib.")
-        || name.startsWith("org.apache.lucene.")
-        || name.startsWith("org.apache.tartarus.")
-        || name.startsWith("org.json.simple.")
-        || name.startsWith("org.yaml.snakeyaml.")) {
-      return true;
-    }
-
-    if (name.startsWith("org.springframework.")) {
-      if ((name.startsWith("org.springframework.aop.")
-              && !name.equals("org.springframework.aop.interceptor.AsyncExecutionInterceptor"))
-          || name.startsWith("org.springframework.cache.")
-          || name.startsWith("org.springframework.dao.")
-          || name.startsWith("org.springframework.ejb.")
-          || name.startsWith("org.springframework.expression.")
-          || name.startsWith("org.springframework.format.")
-          || name.startsWith("org.springframework.jca.")
-          || name.startsWith("org.springframework.jdbc.")
-          || name.startsWith("org.springframework.jmx.")
-          || name.startsWith("org.springframework.jndi.")
-          || name.startsWith("org.springframework.lang.")
-          || name.startsWith("org.springframework.messaging.")
-          || name.startsWith("org.springframework.objenesis.")
-          || name.startsWith("org.springframework.orm.")
-          || name.startsWith("org.springframework.remoting.")
-          || name.startsWith("org.springframework.scripting.")
-          || name.startsWith("org.springframework.stereotype.")
-          || name.startsWith("org.springframework.transaction.")
-          || name.startsWith("org.springframework.ui.")
-          || name.startsWith("org.springframework.validation.")) {
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.data.")) {
-        if (name.equals("org.springframework.data.repository.core.support.RepositoryFactorySupport")
-            || name.startsWith(
-                "org.springframework.data.convert.ClassGeneratingEntityInstantiator$")
-            || name.equals(
-                "org.springframework.data.jpa.repository.config.InspectionClassLoader")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.amqp.")) {
-        return false;
-      }
-
-      if (name.startsWith("org.springframework.beans.")) {
-        if (name.equals("org.springframework.beans.factory.support.DisposableBeanAdapter")
-            || name.startsWith(
-                "org.springframework.beans.factory.groovy.GroovyBeanDefinitionReader$")
-            || name.equals("org.springframework.beans.factory.support.AbstractBeanFactory")
-            || name.equals(
-                "org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory")
-            || name.equals(
-                "org.springframework.beans.factory.support.DefaultListableBeanFactory")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.boot.")) {
-        // More runnables to deal with
-        if (name.startsWith("org.springframework.boot.autoconfigure.BackgroundPreinitializer$")
-            || name.startsWith("org.springframework.boot.autoconfigure.condition.OnClassCondition$")
-            || name.startsWith("org.springframework.boot.web.embedded.netty.NettyWebServer$")
-            || name.startsWith("org.springframework.boot.web.embedded.tomcat.TomcatWebServer$1")
-            || name.startsWith(
-                "org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainer$")
-            || name.equals(
-                "org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedWebappClassLoader")
-            || name.equals(
-                "org.springframework.boot.web.embedded.tomcat.TomcatEmbeddedWebappClassLoader")
-            || name.equals(
-                "org.springframework.boot.context.embedded.EmbeddedWebApplicationContext")
-            || name.equals(
-                "org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext")
-            || name.equals(
-                "org.springframework.boot.context.embedded.AnnotationConfigEmbeddedWebApplicationContext")
-            || name.equals(
-                "org.springframework.boot.web.servlet.context.AnnotationConfigServletWebServerApplicationContext")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.cglib.")) {
-        // This class contains nested Callable instance that we'd happily not touch, but
-        // unfortunately our field injection code is not flexible enough to realize that, so instead
-        // we instrument this Callable to make tests happy.
-        if (name.startsWith("org.springframework.cglib.core.internal.LoadingCache$")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.context.")) {
-        // More runnables to deal with
-        if (name.startsWith("org.springframework.context.support.AbstractApplicationContext$")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.core.")) {
-        if (name.startsWith("org.springframework.core.task.")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.instrument.")) {
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.http.")) {
-        // There are some Mono implementation that get instrumented
-        if (name.startsWith("org.springframework.http.server.reactive.")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.jms.")) {
-        if (name.startsWith("org.springframework.jms.listener.")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.util.")) {
-        if (name.startsWith("org.springframework.util.concurrent.")) {
-          return false;
-        }
-        return true;
-      }
-
-      if (name.startsWith("org.springframework.web.")) {
-        if (name.startsWith("org.springframework.web.servlet.")
-            || name.startsWith("org.springframework.web.reactive.")
-            || name.startsWith("org.springframework.web.context.request.async.")
-            || name.equals(
-                "org.springframework.web.context.support.AbstractRefreshableWebApplicationContext")
-            || name.equals("org.springframework.web.context.support.GenericWebApplicationContext")
-            || name.equals("org.springframework.web.context.support.XmlWebApplicationContext")) {
-          return false;
-        }
-        return true;
-      }
+    return ClassNameTrie.outcome(IGNORES.apply(target.getActualName()), 0);
+  }
 
-      return false;
-    }
+  /**
+   * Adds the libraries to ignore as rules of the given kind: true for the classes to ignore, false
+   * for the classes to transform anyway.
+   */
+  static ClassNameTrie.Builder ignoredLibraries(
+      final ClassNameTrie.Builder ignores, final int kind) {
+    ignores.put(
+        kind,
+        true,
+        "com.beust.jcommander.*",
+        "com.fasterxml.classmate.*",
+        "com.github.mustachejava.*",
+        "com.jayway.jsonpath.*",
+        "com.lightbend.lagom.*",
+        "javax.el.*",
+        "net.sf.cglib.*",
+        "org.apache.lucene.*",
+        "org.apache.tartarus.*",
+        "org.json.simple.*",
+        "org.yaml.snakeyaml.*");
+
+    ignores.put(kind, false, "org.springframework.*");
+    ignores.put(
+        kind,
+        true,
+        "org.springframework.aop.*",
+        "org.springframework.cache.*",
+        "org.springframework.dao.*",
+        "org.springframework.ejb.*",
+        "org.springframework.expression.*",
+        "org.springframework.format.*",
+        "org.springframework.jca.*",
+        "org.springframework.jdbc.*",
+        "org.springframework.jmx.*",
+        "org.springframework.jndi.*",
+        "org.springframework.lang.*",
+        "org.springframework.messaging.*",
+        "org.springframework.objenesis.*",
+        "org.springframework.orm.*",
+        "org.springframework.remoting.*",
+        "org.springframework.scripting.*",
+        "org.springframework.stereotype.*",
+        "org.springframework.transaction.*",
+        "org.springframework.ui.*",
+        "org.springframework.validation.*");
+    ignores.put(kind, false, "org.springframework.aop.interceptor.AsyncExecutionInterceptor");
+
+    ignores.put(kind, true, "org.springframework.data.*");
+    ignores.put(
+        kind,
+        false,
+        "org.springframework.data.repository.core.support.RepositoryFactorySupport",
+        "org.springframework.data.convert.ClassGeneratingEntityInstantiator$*",
+        "org.springframework.data.jpa.repository.config.InspectionClassLoader");
+
+    ignores.put(kind, false, "org.springframework.amqp.*");
+
+    ignores.put(kind, true, "org.springframework.beans.*");
+    ignores.put(
+        kind,
+        false,
+        "org.springframework.beans.factory.support.DisposableBeanAdapter",
+        "org.springframework.beans.factory.groovy.GroovyBeanDefinitionReader$*",
+        "org.springframework.beans.factory.support.AbstractBeanFactory",
+        "org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory",
+        "org.springframework.beans.factory.support.DefaultListableBeanFactory");
+
+    ignores.put(kind, true, "org.springframework.boot.*");
+    // More runnables to deal with
+    ignores.put(
+        kind,
+        false,
+        "org.springframework.boot.autoconfigure.BackgroundPreinitializer$*",
+        "org.springframework.boot.autoconfigure.condition.OnClassCondition$*",
+        "org.springframework.boot.web.embedded.netty.NettyWebServer$*",
+        "org.springframework.boot.web.embedded.tomcat.TomcatWebServer$1*",
+        "org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainer$*",
+        "org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedWebappClassLoader",
+        "org.springframework.boot.web.embedded.tomcat.TomcatEmbeddedWebappClassLoader",
+        "org.springframework.boot.context.embedded.EmbeddedWebApplicationContext",
+        "org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext",
+        "org.springframework.boot.context.embedded.AnnotationConfigEmbeddedWebApplicationContext",
+        "org.springframework.boot.web.servlet.context.AnnotationConfigServletWebServerApplicationContext");
+
+    ignores.put(kind, true, "org.springframework.cglib.*");
+    // This class contains nested Callable instance that we'd happily not touch, but
+    // unfortunately our field injection code is not flexible enough to realize that, so instead
+    // we instrument this Callable to make tests happy.
+    ignores.put(kind, false, "org.springframework.cglib.core.internal.LoadingCache$*");
+
+    ignores.put(kind, true, "org.springframework.context.*");
+    // More runnables to deal with
+    ignores.put(kind, false, "org.springframework.context.support.AbstractApplicationContext$*");
+
+    ignores.put(kind, true, "org.springframework.core.*");
+    ignores.put(kind, false, "org.springframework.core.task.*");
+
+    ignores.put(kind, true, "org.springframework.instrument.*");
+
+    ignores.put(kind, true, "org.springframework.http.*");
+    // There are some Mono implementation that get instrumented
+    ignores.put(kind, false, "org.springframework.http.server.reactive.*");
+
+    ignores.put(kind, true, "org.springframework.jms.*");
+    ignores.put(kind, false, "org.springframework.jms.listener.*");
+
+    ignores.put(kind, true, "org.springframework.util.*");
+    ignores.put(kind, false, "org.springframework.util.concurrent.*");
+
+    ignores.put(kind, true, "org.springframework.web.*");
+    ignores.put(
+        kind,
+        false,
+        "org.springframework.web.servlet.*",
+        "org.springframework.web.reactive.*",
+        "org.springframework.web.context.request.async.*",
+        "org.springframework.web.context.support.AbstractRefreshableWebApplicationContext",
+        "org.springframework.web.context.support.GenericWebApplicationContext",
+        "org.springframework.web.context.support.XmlWebApplicationContext");
 
     // xml-apis, xerces, xalan
-    if (name.startsWith("javax.xml.")
-        || name.startsWith("org.apache.bcel.")
-        || name.startsWith("org.apache.html.")
-        || name.startsWith("org.apache.regexp.")
-        || name.startsWith("org.apache.wml.")
-        || name.startsWith("org.apache.xalan.")
-        || name.startsWith("org.apache.xerces.")
-        || name.startsWith("org.apache.xml.")
-        || name.startsWith("org.apache.xpath.")
-        || name.startsWith("org.xml.")) {
-      return true;
-    }
-
-    if (name.startsWith("ch.qos.logback.")) {
-      // We instrument this Runnable
-      if (name.equals("ch.qos.logback.core.AsyncAppenderBase$Worker")) {
-        return false;
-      }
-
-      if (name.startsWith("ch.qos.logback.classic.spi.LoggingEvent")) {
-        return false;
-      }
-
-      if (name.equals("ch.qos.logback.classic.Logger")) {
-        return false;
-      }
-
-      return true;
-    }
-
-    if (name.startsWith("org.apache.log4j.")) {
-      return !name.equals("org.apache.log4j.MDC")
-          && !name.equals("org.apache.log4j.spi.LoggingEvent")
-          && !name.equals("org.apache.log4j.Category");
-    }
-
-    if (name.startsWith("com.codahale.metrics.")) {
-      // We instrument servlets
-      if (name.startsWith("com.codahale.metrics.servlets.")) {
-        return false;
-      }
-      return true;
-    }
-
-    if (name.startsWith("com.couchbase.client.deps.")) {
-      // Couchbase library includes some packaged dependencies, unfortunately some of them are
-      // instrumented by java-concurrent instrumentation
-      if (name.startsWith("com.couchbase.client.deps.io.netty.")
-          || name.startsWith("com.couchbase.client.deps.org.LatencyUtils.")
-          || name.startsWith("com.couchbase.client.deps.com.lmax.disruptor.")) {
-        return false;
-      }
-      return true;
-    }
-
-    if (name.startsWith("com.google.cloud.")
-        || name.startsWith("com.google.instrumentation.")
-        || name.startsWith("com.google.j2objc.")
-        || name.startsWith("com.google.gson.")
-        || name.startsWith("com.google.logging.")
-        || name.startsWith("com.google.longrunning.")
-        || name.startsWith("com.google.protobuf.")
-        || name.startsWith("com.google.rpc.")
-        || name.startsWith("com.google.thirdparty.")
-        || name.startsWith("com.google.type.")) {
-      return true;
-    }
-    if (name.startsWith("com.google.common.")) {
-      if (name.startsWith("com.google.common.util.concurrent.")
-          || name.equals("com.google.common.base.internal.Finalizer")) {
-        return false;
-      }
-      return true;
-    }
-    if (name.startsWith("com.google.inject.")) {
-      // We instrument Runnable there
-      if (name.startsWith("com.google.inject.internal.AbstractBindingProcessor$")
-          || name.startsWith("com.google.inject.internal.BytecodeGen$")
-          || name.startsWith("com.google.inject.internal.cglib.core.internal.$LoadingCache$")) {
-        return false;
-      }
-      return true;
-    }
-    if (name.startsWith("com.google.api.")) {
-      if (name.startsWith("com.google.api.client.http.HttpRequest")) {
-        return false;
-      }
-      return true;
-    }
-
-    if (name.startsWith("org.h2.")) {
-      if (name.equals("org.h2.Driver")
-          || name.startsWith("org.h2.jdbc.")
-          || name.startsWith("org.h2.jdbcx.")
-          // Some runnables that get instrumented
-          || name.equals("org.h2.util.Task")
-          || name.equals("org.h2.util.MathUtils$1")
-          || name.equals("org.h2.store.FileLock")
-          || name.equals("org.h2.engine.DatabaseCloser")
-          || name.equals("org.h2.engine.OnExitDatabaseCloser")) {
-        return false;
-      }
-      return true;
-    }
-
-    if (name.startsWith("com.carrotsearch.hppc.")) {
-      if (name.startsWith("com.carrotsearch.hppc.HashOrderMixing$")) {
-        return false;
-      }
-      return true;
-    }
-
-    if (name.startsWith("com.fasterxml.jackson.")) {
-      if (name.equals("com.fasterxml.jackson.module.afterburner.util.MyClassLoader")) {
-        return false;
-      }
-      return true;
-    }
+    ignores.put(
+        kind,
+        true,
+        "javax.xml.*",
+        "org.apache.bcel.*",
+        "org.apache.html.*",
+        "org.apache.regexp.*",
+        "org.apache.wml.*",
+        "org.apache.xalan.*",
+        "org.apache.xerces.*",
+        "org.apache.xml.*",
+        "org.apache.xpath.*",
+        "org.xml.*");
+
+    ignores.put(kind, true, "ch.qos.logback.*");
+    ignores.put(
+        kind,
+        false,
+        // We instrument this Runnable
+        "ch.qos.logback.core.AsyncAppenderBase$Worker",
+        "ch.qos.logback.classic.spi.LoggingEvent*",
+        "ch.qos.logback.classic.Logger");
+
+    ignores.put(kind, true, "org.apache.log4j.*");
+    ignores.put(
+        kind,
+        false,
+        "org.apache.log4j.MDC",
+        "org.apache.log4j.spi.LoggingEvent",
+        "org.apache.log4j.Category");
+
+    ignores.put(kind, true, "com.codahale.metrics.*");
+    // We instrument servlets
+    ignores.put(kind, false, "com.codahale.metrics.servlets.*");
+
+    // Couchbase library includes some packaged dependencies, unfortunately some of them are
+    // instrumented by java-concurrent instrumentation
+    ignores.put(kind, true, "com.couchbase.client.deps.*");
+    ignores.put(
+        kind,
+        false,
+        "com.couchbase.client.deps.io.netty.*",
+        "com.couchbase.client.deps.org.LatencyUtils.*",
+        "com.couchbase.client.deps.com.lmax.disruptor.*");
+
+    ignores.put(
+        kind,
+        true,
+        "com.google.cloud.*",
+        "com.google.instrumentation.*",
+        "com.google.j2objc.*",
+        "com.google.gson.*",
+        "com.google.logging.*",
+        "com.google.longrunning.*",
+        "com.google.protobuf.*",
+        "com.google.rpc.*",
+        "com.google.thirdparty.*",
+        "com.google.type.*");
+    ignores.put(kind, true, "com.google.common.*");
+    ignores.put(
+        kind,
+        false,
+        "com.google.common.util.concurrent.*",
+        "com.google.common.base.internal.Finalizer");
+    ignores.put(kind, true, "com.google.inject.*");
+    // We instrument Runnable there
+    ignores.put(
+        kind,
+        false,
+        "com.google.inject.internal.AbstractBindingProcessor$*",
+        "com.google.inject.internal.BytecodeGen$*",
+        "com.google.inject.internal.cglib.core.internal.$LoadingCache$*");
+    ignores.put(kind, true, "com.google.api.*");
+    ignores.put(kind, false, "com.google.api.client.http.HttpRequest*");
+
+    ignores.put(kind, true, "org.h2.*");
+    ignores.put(
+        kind,
+        false,
+        "org.h2.Driver",
+        "org.h2.jdbc.*",
+        "org.h2.jdbcx.*",
+        // Some runnables that get instrumented
+        "org.h2.util.Task",
+        "org.h2.util.MathUtils$1",
+        "org.h2.store.FileLock",
+        "org.h2.engine.DatabaseCloser",
+        "org.h2.engine.OnExitDatabaseCloser");
+
+    ignores.put(kind, true, "com.carrotsearch.hppc.*");
+    ignores.put(kind, false, "com.carrotsearch.hppc.HashOrderMixing$*");
+
+    ignores.put(kind, true, "com.fasterxml.jackson.*");
+    ignores.put(kind, false, "com.fasterxml.jackson.module.afterburner.util.MyClassLoader");
 
     // kotlin, note we do not ignore kotlinx because we instrument coroutins code
-    if (name.startsWith("kotlin.")) {
-      return true;
-    }
+    ignores.put(kind, true, "kotlin.*");
 
-    return false;
+    return ignores;
   }
 
   @Override
@@ -0,0 +1,165 @@
+package datadog.trace.agent.tooling.bytebuddy.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Immutable trie of class name rules, each rule being of a given kind and resolving to true or
+ * false. A rule either matches a class name exactly or, when it ends with '*', any class name
+ * starting with it. Looking up a name walks it once, without allocating, and tells for each kind of
+ * rule the outcome of the most specific one matching the name, so that exceptions can be made to a
+ * prefix by adding longer rules.
+ *
+ * <p>The result of a lookup packs two bits for each of up to 16 kinds, read with {@link
+ * #hasRule(int, int)} and {@link #outcome(int, int)}.
+ */
+public final class ClassNameTrie {
+
+  private static final int MATCHED_BITS = 0x55555555;
+
+  // nodes are numbered breadth first, so the edges of node i are [firstEdge[i], firstEdge[i + 1]),
+  // sorted by character, and edge e leads to node e + 1
+  private final int[] firstEdge;
+  private final char[] edgeChars;
+  // rules matching any name starting with the key of the node, or only the key itself
+  private final int[] prefixRules;
+  private final int[] exactRules;
+
+  private ClassNameTrie(
+      final int[] firstEdge,
+      final char[] edgeChars,
+      final int[] prefixRules,
+      final int[] exactRules) {
+    this.firstEdge = firstEdge;
+    this.edgeChars = edgeChars;
+    this.prefixRules = prefixRules;
+    this.exactRules = exactRules;
+  }
+
+  /** @return the outcomes of the most specific rules of each kind matching the class name */
+  public int apply(final String className) {
+    int rules = 0;
+    int node = 0;
+    for (int i = 0, length = className.length(); ; i++) {
+      rules = override(rules, prefixRules[node]);
+      if (i == length) {
+        return override(rules, exactRules[node]);
+      }
+      final char c = className.charAt(i);
+      final int from = firstEdge[node];
+      final int to = firstEdge[node + 1];
+      final int edge;
+      if (to - from == 1) {
+        // most nodes only have one child
+        edge = edgeChars[from] == c ? from : -1;
+      } else {
+        edge = Arrays.binarySearch(edgeChars, from, to, c);
+      }
+      if (edge < 0) {
+        return rules;
+      }
+      node = edge + 1;
+    }
+  }
+
+  /** @return true if a rule of the kind matched */
+  public static boolean hasRule(final int rules, final int kind) {
+    return ((rules >>> (kind << 1)) & 1) != 0;
+  }
+
+  /** @return the outcome of the rule of the kind which matched, or false if none did */
+  public static boolean outcome(final int rules, final int kind) {
+    return ((rules >>> (kind << 1)) & 2) != 0;
+  }
+
+  private static int override(final int rules, final int nodeRules) {
+    if (nodeRules == 0) {
+      return rules;
+    }
+    final int matched = nodeRules & MATCHED_BITS;
+    return (rules & ~(matched | (matched << 1))) | nodeRules;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    private final Node root = new Node();
+
+    private Builder() {}
+
+    /**
+     * Adds rules of the given kind, class names ending with '*' matching any class name starting
+     * with them. When the same pattern is added twice for a kind, the last outcome wins.
+     */
+    public Builder put(final int kind, final boolean outcome, final String... patterns) {
+      return put(kind, outcome, Arrays.asList(patterns));
+    }
+
+    public Builder put(final int kind, final boolean outcome, final Iterable<String> patterns) {
+      if (kind < 0 || kind >= 16) {
+        throw new IllegalArgumentException("Unsupported kind of rule: " + kind);
+      }
+      final int rule = (outcome ? 3 : 1) << (kind << 1);
+      for (final String pattern : patterns) {
+        final boolean prefix = pattern.endsWith("*");
+        final int length = prefix ? pattern.length() - 1 : pattern.length();
+        Node node = root;
+        for (int i = 0; i < length; i++) {
+          final char c = pattern.charAt(i);
+          Node child = node.children.get(c);
+          if (null == child) {
+            child = new Node();
+            node.children.put(c, child);
+          }
+          node = child;
+        }
+        if (prefix) {
+          node.prefixRules = override(node.prefixRules, rule);
+        } else {
+          node.exactRules = override(node.exactRules, rule);
+        }
+      }
+      return this;
+    }
+
+    public ClassNameTrie build() {
+      // number the nodes breadth first, so that the edges of each node are contiguous
+      final List<Node> nodes = new ArrayList<>();
+      nodes.add(root);
+      int edges = 0;
+      for (int i = 0; i < nodes.size(); i++) {
+        final Node node = nodes.get(i);
+        node.firstEdge = edges;
+        edges += node.children.size();
+        nodes.addAll(node.children.values());
+      }
+      final int[] firstEdge = new int[nodes.size() + 1];
+      final char[] edgeChars = new char[edges];
+      final int[] prefixRules = new int[nodes.size()];
+      final int[] exactRules = new int[nodes.size()];
+      for (int i = 0; i < nodes.size(); i++) {
+        final Node node = nodes.get(i);
+        firstEdge[i] = node.firstEdge;
+        prefixRules[i] = node.prefixRules;
+        exactRules[i] = node.exactRules;
+        int edge = node.firstEdge;
+        for (final Character c : node.children.keySet()) {
+          edgeChars[edge++] = c;
+        }
+      }
+      firstEdge[nodes.size()] = edges;
+      return new ClassNameTrie(firstEdge, edgeChars, prefixRules, exactRules);
+    }
+  }
+
+  private static final class Node {
+    final TreeMap<Character, Node> children = new TreeMap<>();
+    int prefixRules;
+    int exactRules;
+    int firstEdge;
+  }
+}
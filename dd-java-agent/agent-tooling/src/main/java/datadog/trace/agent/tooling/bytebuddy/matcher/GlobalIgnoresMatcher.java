@@ -1,6 +1,7 @@
 package datadog.trace.agent.tooling.bytebuddy.matcher;
 
-import java.util.regex.Pattern;
+import java.util.Collections;
+import java.util.List;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 
@@ -19,32 +20,49 @@ import net.bytebuddy.matcher.ElementMatcher;
  *   Uses {@link AdditionalLibraryIgnoresMatcher} to also ignore additional classes to minimize
  *   number of classes we apply expensive matchers to.
  * </ul>
+ *
+ * <p>Together with the classes excluded by configuration, all these name rules are compiled into a
+ * single {@link ClassNameTrie}, so that a class name is only walked once.
  */
 public class GlobalIgnoresMatcher<T extends TypeDescription>
     extends ElementMatcher.Junction.AbstractBase<T> {
 
-  private static final Pattern COM_MCHANGE_PROXY =
-      Pattern.compile("^com\\.mchange\\.v2\\.c3p0\\..*Proxy$");
+  // kinds of rules, in decreasing order of precedence
+  private static final int EXCLUDED = 0;
+  private static final int GLOBAL = 1;
+  private static final int ADDITIONAL = 2;
 
   public static <T extends TypeDescription> ElementMatcher.Junction<T> globalIgnoresMatcher(
       final boolean skipAdditionalLibraryMatcher) {
-    return new GlobalIgnoresMatcher<>(skipAdditionalLibraryMatcher);
+    return globalIgnoresMatcher(skipAdditionalLibraryMatcher, Collections.<String>emptyList());
   }
 
-  private final ElementMatcher<T> additionalLibraryIgnoreMatcher =
-      AdditionalLibraryIgnoresMatcher.additionalLibraryIgnoresMatcher();
-  private final boolean skipAdditionalLibraryMatcher;
+  /**
+   * @param excludedClasses class names, or prefixes ending with '*', to ignore whatever the other
+   *     rules
+   */
+  public static <T extends TypeDescription> ElementMatcher.Junction<T> globalIgnoresMatcher(
+      final boolean skipAdditionalLibraryMatcher, final List<String> excludedClasses) {
+    return new GlobalIgnoresMatcher<>(skipAdditionalLibraryMatcher, excludedClasses);
+  }
 
-  private final ElementMatcher<T> springClassLoaderIgnores =
-      NameMatchers.namedOneOf(
-          "org.springframework.context.support.ContextTypeMatchClassLoader",
-          "org.springframework.core.OverridingClassLoader",
-          "org.springframework.core.DecoratingClassLoader",
-          "org.springframework.instrument.classloading.SimpleThrowawayClassLoader",
-          "org.springframework.instrument.classloading.ShadowingClassLoader");
+  private final boolean skipAdditionalLibraryMatcher;
+  private final List<String> excludedClasses;
+  private final ClassNameTrie ignores;
 
-  private GlobalIgnoresMatcher(final boolean skipAdditionalLibraryMatcher) {
+  private GlobalIgnoresMatcher(
+      final boolean skipAdditionalLibraryMatcher, final List<String> excludedClasses) {
     this.skipAdditionalLibraryMatcher = skipAdditionalLibraryMatcher;
+    this.excludedClasses = excludedClasses;
+    final ClassNameTrie.Builder builder = ClassNameTrie.builder();
+    for (final String excludedClass : excludedClasses) {
+      builder.put(EXCLUDED, true, excludedClass.trim());
+    }
+    globalIgnores(builder, GLOBAL);
+    if (!skipAdditionalLibraryMatcher) {
+      AdditionalLibraryIgnoresMatcher.ignoredLibraries(builder, ADDITIONAL);
+    }
+    this.ignores = builder.build();
   }
 
   /**
@@ -55,136 +73,16 @@ public class GlobalIgnoresMatcher<T extends TypeDescription>
   @Override
   public boolean matches(final T target) {
     final String name = target.getActualName();
-    switch (name.charAt(0) - 'a') {
-        // starting at zero to get a tableswitch from javac, though it looks horrendous
-      case 'a' - 'a':
-        break;
-      case 'b' - 'a':
-        break;
-      case 'c' - 'a':
-        if (name.startsWith("com.")) {
-          if (name.startsWith("com.p6spy.")
-              || name.startsWith("com.newrelic.")
-              || name.startsWith("com.dynatrace.")
-              || name.startsWith("com.jloadtrace.")
-              || name.startsWith("com.appdynamics.")
-              || name.startsWith("com.singularity.")
-              || name.startsWith("com.jinspired.")
-              || name.startsWith("com.intellij.rt.debugger.")) {
-            return true;
-          }
-          if (name.startsWith("com.sun.")) {
-            return !name.startsWith("com.sun.messaging.")
-                && !name.startsWith("com.sun.jersey.api.client");
-          }
-          if (COM_MCHANGE_PROXY.matcher(name).matches()) {
-            return true;
-          }
-        }
-        if (name.startsWith("clojure.")) {
-          return true;
-        }
-        if (name.startsWith("cinnamon.")) {
-          return true;
-        }
-        break;
-      case 'd' - 'a':
-        if (name.startsWith("datadog.")) {
-          if (name.startsWith("datadog.opentracing.")
-              || name.startsWith("datadog.trace.core.")
-              || name.startsWith("datadog.slf4j.")) {
-            return true;
-          }
-          if (name.startsWith("datadog.trace.")) {
-            // FIXME: We should remove this once
-            // https://github.com/raphw/byte-buddy/issues/558 is fixed
-            return !name.equals(
-                "datadog.trace.bootstrap.instrumentation.java.concurrent.RunnableWrapper");
-          }
-        }
-        break;
-      case 'e' - 'a':
-        break;
-      case 'f' - 'a':
-        break;
-      case 'g' - 'a':
-        break;
-      case 'h' - 'a':
-        break;
-      case 'i' - 'a':
-        if (name.startsWith("io.micronaut.tracing.") || name.startsWith("io.micrometer.")) {
-          return true;
-        }
-        break;
-      case 'j' - 'a':
-        if (name.startsWith("jdk.")) {
-          return true;
-        }
-        if (name.startsWith("java.")) {
-          // allow exception profiling instrumentation
-          if (name.equals("java.lang.Throwable")) {
-            return false;
-          }
-          if (name.equals("java.net.URL") || name.equals("java.net.HttpURLConnection")) {
-            return false;
-          }
-          if (name.startsWith("java.rmi.") || name.startsWith("java.util.concurrent.")) {
-            return false;
-          }
-          // Concurrent instrumentation modifies the structure of
-          // Cleaner class incompatibly with java9+ modules.
-          // Working around until a long-term fix for modules can be
-          // put in place.
-          return !name.startsWith("java.util.logging.")
-              || name.equals("java.util.logging.LogManager$Cleaner");
-        }
-        break;
-      case 'k' - 'a':
-        break;
-      case 'l' - 'a':
-        break;
-      case 'm' - 'a':
-        break;
-      case 'n' - 'a':
-        if (name.startsWith("net.bytebuddy.")) {
-          return true;
-        }
-        break;
-      case 'o' - 'a':
-        if (name.startsWith("org.")) {
-          if (name.startsWith("org.aspectj.") || name.startsWith("org.jinspired.")) {
-            return true;
-          }
-          // groovy
-          if (name.startsWith("org.groovy.") || name.startsWith("org.apache.groovy.")) {
-            return true;
-          }
-          if (name.startsWith("org.codehaus.groovy.")) {
-            // We seem to instrument some classes in runtime
-            return !name.startsWith("org.codehaus.groovy.runtime.");
-          }
-          if (name.startsWith("org.springframework.")) {
-            if (springClassLoaderIgnores.matches(target)) {
-              return true;
-            }
-          }
-        }
-        break;
-      case 'p' - 'a':
-        break;
-      case 'q' - 'a':
-        break;
-      case 'r' - 'a':
-        break;
-      case 's' - 'a':
-        if (name.startsWith("sun.")) {
-          return !name.startsWith("sun.net.www.protocol.")
-              && !name.startsWith("sun.rmi.server")
-              && !name.startsWith("sun.rmi.transport")
-              && !name.equals("sun.net.www.http.HttpClient");
-        }
-        break;
-      default:
+    final int rules = ignores.apply(name);
+    if (ClassNameTrie.hasRule(rules, EXCLUDED)) {
+      return true;
+    }
+    if (ClassNameTrie.hasRule(rules, GLOBAL)) {
+      return ClassNameTrie.outcome(rules, GLOBAL);
+    }
+
+    if (name.startsWith("com.mchange.v2.c3p0.") && name.endsWith("Proxy")) {
+      return true;
     }
 
     final int firstDollar = name.indexOf('$');
@@ -204,8 +102,7 @@ public class GlobalIgnoresMatcher<T extends TypeDescription>
       if (name.contains("$JaxbAccessor")
           || name.contains("CGLIB$$")
           || name.contains("$__sisu")
-          || name.contains("$$EnhancerByProxool$$")
-          || name.startsWith("org.springframework.core.$Proxy")) {
+          || name.contains("$$EnhancerByProxool$$")) {
         return true;
       }
     }
@@ -213,12 +110,98 @@ public class GlobalIgnoresMatcher<T extends TypeDescription>
       return true;
     }
 
-    return !skipAdditionalLibraryMatcher && additionalLibraryIgnoreMatcher.matches(target);
+    return ClassNameTrie.outcome(rules, ADDITIONAL);
+  }
+
+  /**
+   * Adds the classes that are unsafe or pointless to transform as rules of the given kind: true for
+   * the classes to ignore, false for the classes to transform anyway.
+   */
+  private static void globalIgnores(final ClassNameTrie.Builder ignores, final int kind) {
+    ignores.put(
+        kind,
+        true,
+        "com.p6spy.*",
+        "com.newrelic.*",
+        "com.dynatrace.*",
+        "com.jloadtrace.*",
+        "com.appdynamics.*",
+        "com.singularity.*",
+        "com.jinspired.*",
+        "com.intellij.rt.debugger.*",
+        "clojure.*",
+        "cinnamon.*");
+
+    ignores.put(kind, true, "com.sun.*");
+    ignores.put(kind, false, "com.sun.messaging.*", "com.sun.jersey.api.client*");
+
+    ignores.put(
+        kind,
+        true,
+        "datadog.opentracing.*",
+        "datadog.trace.core.*",
+        "datadog.slf4j.*",
+        "datadog.trace.*");
+    // FIXME: We should remove this once
+    // https://github.com/raphw/byte-buddy/issues/558 is fixed
+    ignores.put(
+        kind, false, "datadog.trace.bootstrap.instrumentation.java.concurrent.RunnableWrapper");
+
+    ignores.put(kind, true, "io.micronaut.tracing.*", "io.micrometer.*");
+
+    ignores.put(kind, true, "jdk.*");
+
+    ignores.put(kind, true, "java.*");
+    ignores.put(
+        kind,
+        false,
+        // allow exception profiling instrumentation
+        "java.lang.Throwable",
+        "java.net.URL",
+        "java.net.HttpURLConnection",
+        "java.rmi.*",
+        "java.util.concurrent.*",
+        "java.util.logging.*");
+    // Concurrent instrumentation modifies the structure of
+    // Cleaner class incompatibly with java9+ modules.
+    // Working around until a long-term fix for modules can be
+    // put in place.
+    ignores.put(kind, true, "java.util.logging.LogManager$Cleaner");
+
+    ignores.put(kind, true, "net.bytebuddy.*");
+
+    ignores.put(kind, true, "org.aspectj.*", "org.jinspired.*");
+    // groovy
+    ignores.put(kind, true, "org.groovy.*", "org.apache.groovy.*", "org.codehaus.groovy.*");
+    // We seem to instrument some classes in runtime
+    ignores.put(kind, false, "org.codehaus.groovy.runtime.*");
+
+    ignores.put(
+        kind,
+        true,
+        "org.springframework.context.support.ContextTypeMatchClassLoader",
+        "org.springframework.core.OverridingClassLoader",
+        "org.springframework.core.DecoratingClassLoader",
+        "org.springframework.instrument.classloading.SimpleThrowawayClassLoader",
+        "org.springframework.instrument.classloading.ShadowingClassLoader",
+        "org.springframework.core.$Proxy*");
+
+    ignores.put(kind, true, "sun.*");
+    ignores.put(
+        kind,
+        false,
+        "sun.net.www.protocol.*",
+        "sun.rmi.server*",
+        "sun.rmi.transport*",
+        "sun.net.www.http.HttpClient");
   }
 
   @Override
   public String toString() {
-    return "globalIgnoresMatcher(" + additionalLibraryIgnoreMatcher.toString() + ")";
+    return "globalIgnoresMatcher("
+        + (skipAdditionalLibraryMatcher ? "" : "additionalLibraryIgnoresMatcher()")
+        + (excludedClasses.isEmpty() ? "" : ", excludedClasses=" + excludedClasses)
+        + ")";
   }
 
   @Override
@@ -230,13 +213,14 @@ public class GlobalIgnoresMatcher<T extends TypeDescription>
     } else if (getClass() != other.getClass()) {
       return false;
     } else {
-      return additionalLibraryIgnoreMatcher.equals(
-          ((GlobalIgnoresMatcher) other).additionalLibraryIgnoreMatcher);
+      final GlobalIgnoresMatcher<?> that = (GlobalIgnoresMatcher<?>) other;
+      return skipAdditionalLibraryMatcher == that.skipAdditionalLibraryMatcher
+          && excludedClasses.equals(that.excludedClasses);
     }
   }
 
   @Override
   public int hashCode() {
-    return 17 * 31 + additionalLibraryIgnoreMatcher.hashCode();
+    return (17 * 31 + (skipAdditionalLibraryMatcher ? 1 : 0)) * 31 + excludedClasses.hashCode();
   }
 }
@@ -2,6 +2,7 @@ package datadog.trace.agent.tooling.bytebuddy.matcher;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -138,6 +139,19 @@ public final class NameMatchers<T extends NamedElement>
     }
   }
 
+  /** @return the names matched exactly, or null if other names can match */
+  @SuppressWarnings("unchecked")
+  Collection<String> exactNames() {
+    switch (mode) {
+      case NAMED:
+        return Collections.singleton((String) data);
+      case NAMED_ONE_OF:
+        return (Set<String>) data;
+      default:
+        return null;
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private boolean namedOneOf(String name) {
     return ((Set<String>) data).contains(name);
@@ -0,0 +1,78 @@
+package datadog.trace.agent.tooling.bytebuddy.matcher;
+
+import java.security.ProtectionDomain;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Indexes the instrumentations which only match types by their exact names. The agent builder still
+ * asks the matcher of each instrumentation in turn, and each indexed matcher looks the type's name
+ * up in the shared index and tests its own bit, instead of comparing the name against each of its
+ * own. Matching keeps no state between calls, so it's safe for any number of threads loading
+ * classes at once. Class loader matchers, which can be expensive the first time they see a class
+ * loader, only run for the types an instrumentation targets.
+ *
+ * <p>Must be fully built before the agent is installed.
+ */
+public final class TypeMatchingIndex {
+
+  private final Map<String, BitSet> instrumentationsByName = new HashMap<>();
+  private int instrumentations;
+
+  /**
+   * @return a matcher equivalent to matching the type then the class loader, or null if the type
+   *     matcher doesn't only match exact names
+   */
+  public AgentBuilder.RawMatcher index(
+      final ElementMatcher<?> typeMatcher, final ElementMatcher<ClassLoader> classLoaderMatcher) {
+    if (!(typeMatcher instanceof NameMatchers)) {
+      return null;
+    }
+    Collection<String> names = ((NameMatchers<?>) typeMatcher).exactNames();
+    if (null == names) {
+      return null;
+    }
+    int id = instrumentations++;
+    for (String name : names) {
+      BitSet matching = instrumentationsByName.get(name);
+      if (null == matching) {
+        matching = new BitSet();
+        instrumentationsByName.put(name, matching);
+      }
+      matching.set(id);
+    }
+    return new IndexedMatcher(id, classLoaderMatcher);
+  }
+
+  private boolean matches(final TypeDescription type, final int id) {
+    BitSet matching = instrumentationsByName.get(type.getActualName());
+    return null != matching && matching.get(id);
+  }
+
+  private final class IndexedMatcher implements AgentBuilder.RawMatcher {
+    private final int id;
+    private final ElementMatcher<ClassLoader> classLoaderMatcher;
+
+    IndexedMatcher(final int id, final ElementMatcher<ClassLoader> classLoaderMatcher) {
+      this.id = id;
+      this.classLoaderMatcher = classLoaderMatcher;
+    }
+
+    @Override
+    public boolean matches(
+        final TypeDescription typeDescription,
+        final ClassLoader classLoader,
+        final JavaModule module,
+        final Class<?> classBeingRedefined,
+        final ProtectionDomain protectionDomain) {
+      return TypeMatchingIndex.this.matches(typeDescription, id)
+          && classLoaderMatcher.matches(classLoader);
+    }
+  }
+}
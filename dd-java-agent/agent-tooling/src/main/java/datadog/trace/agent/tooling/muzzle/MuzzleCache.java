@@ -0,0 +1,463 @@
+package datadog.trace.agent.tooling.muzzle;
+
+import static datadog.trace.util.AgentThreadFactory.AGENT_THREAD_GROUP;
+import static net.bytebuddy.dynamic.loading.ClassLoadingStrategy.BOOTSTRAP_LOADER;
+
+import datadog.trace.agent.tooling.AgentTooling;
+import datadog.trace.agent.tooling.Utils;
+import datadog.trace.api.Function;
+import datadog.trace.bootstrap.WeakCache;
+import datadog.trace.util.AgentTaskScheduler;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers muzzle results in a file, so that a JVM restarted with the same agent and the same
+ * class path doesn't check the references of each instrumentation again.
+ *
+ * <p>Results are keyed by a digest of the agent version and of the jars visible to the class loader
+ * and its parents, each jar being described by the names, CRCs and sizes of its entries as listed
+ * in its central directory. Class loaders whose class path can't be described this way, or which
+ * load classes from directories, are not cached.
+ *
+ * <p>Class paths are digested in the background, starting with the system class loader's as soon as
+ * the cache is loaded, so that matching never waits on reading jars. Until a class loader's class
+ * path has been digested, its references are checked as if there were no cache, and the results are
+ * recorded once the digest is known.
+ *
+ * <p>New results are written to the file in the background, a few seconds after they are found, and
+ * when the JVM shuts down, so that matching never waits on the file. Writes hold a lock on the
+ * file, so that JVMs sharing it don't interleave their results.
+ */
+public final class MuzzleCache {
+  private static final Logger log = LoggerFactory.getLogger(MuzzleCache.class);
+
+  public static final MuzzleCache DISABLED = new MuzzleCache(null, "");
+
+  // start over rather than let results for old class paths accumulate
+  private static final long MAX_FILE_SIZE = 1 << 20;
+  private static final String NOT_CACHEABLE = "";
+  private static final long WRITE_DELAY_SECONDS = 5;
+
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int END_SIZE = 22;
+  private static final int CENTRAL_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+
+  // digests of the central directories of the jars read so far, by path, size and modification
+  // time, so that jars shared by many class loaders are only read once
+  private static final ConcurrentHashMap<String, byte[]> JAR_DIGESTS = new ConcurrentHashMap<>();
+
+  private final File file;
+  private final String agentVersion;
+  private final ConcurrentHashMap<String, Boolean> results = new ConcurrentHashMap<>();
+  private final WeakCache<ClassLoader, ClassPath> classPaths;
+  private final ConcurrentLinkedQueue<String> unwritten = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+  MuzzleCache(final File file, final String agentVersion) {
+    this.file = file;
+    this.agentVersion = agentVersion;
+    this.classPaths = null == file ? null : AgentTooling.<ClassLoader, ClassPath>newWeakCache();
+  }
+
+  /** @return a cache backed by the given file, or {@link #DISABLED} if none is given */
+  public static MuzzleCache load(final String fileName, final String agentVersion) {
+    if (null == fileName || fileName.isEmpty()) {
+      return DISABLED;
+    }
+    final MuzzleCache cache = new MuzzleCache(new File(fileName), agentVersion);
+    cache.load();
+    // most classes are loaded by the system class loader or its children
+    cache.classPath(ClassLoader.getSystemClassLoader());
+    try {
+      Runtime.getRuntime().addShutdownHook(new WriteOnShutdown(cache));
+    } catch (final IllegalStateException e) {
+      // the JVM is shutting down
+    }
+    return cache;
+  }
+
+  /**
+   * @param instrumentation name of the instrumentation the references belong to
+   * @return whether the references match the class loader's class path, as recorded by a previous
+   *     JVM if possible
+   */
+  public boolean matches(
+      final ReferenceMatcher muzzle, final ClassLoader loader, final String instrumentation) {
+    if (null == file) {
+      return muzzle.matches(loader);
+    }
+    final ClassPath classPath = classPath(loader);
+    final String classPathKey = classPath.key;
+    if (null == classPathKey) {
+      final boolean matched = muzzle.matches(loader);
+      classPath.pending.put(instrumentation, matched);
+      if (null != classPath.key) {
+        // the digest may have been known too late to pick this result up
+        classPath.recordPending();
+      }
+      return matched;
+    }
+    if (NOT_CACHEABLE.equals(classPathKey)) {
+      return muzzle.matches(loader);
+    }
+    final String key = classPathKey + ' ' + instrumentation;
+    final Boolean recorded = results.get(key);
+    if (null != recorded) {
+      return recorded;
+    }
+    final boolean matched = muzzle.matches(loader);
+    record(key, matched);
+    return matched;
+  }
+
+  int size() {
+    return results.size();
+  }
+
+  /** @return whether the class loader's class path has been digested, starting if it hasn't */
+  boolean isDigested(final ClassLoader loader) {
+    return null != classPath(loader).key;
+  }
+
+  private void record(final String key, final boolean matched) {
+    if (null == results.putIfAbsent(key, matched)) {
+      unwritten.offer(key + (matched ? " 1\n" : " 0\n"));
+      if (writeScheduled.compareAndSet(false, true)) {
+        AgentTaskScheduler.INSTANCE.schedule(
+            WriteTask.INSTANCE, this, WRITE_DELAY_SECONDS, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  private void load() {
+    if (!file.isFile()) {
+      return;
+    }
+    if (file.length() > MAX_FILE_SIZE) {
+      log.debug("Discarding muzzle cache {} of {} bytes", file, file.length());
+      delete();
+      return;
+    }
+    try (final BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      if (!agentVersion.equals(reader.readLine())) {
+        log.debug("Discarding muzzle cache {} written by another agent version", file);
+        reader.close();
+        delete();
+        return;
+      }
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        // <class path digest> <instrumentation> <0|1>, possibly cut short by a crash
+        final int end = line.length() - 2;
+        if (end > 0 && line.charAt(end) == ' ') {
+          final char matched = line.charAt(end + 1);
+          if (matched == '0' || matched == '1') {
+            results.put(line.substring(0, end), matched == '1');
+          }
+        }
+      }
+      log.debug("Loaded {} muzzle results from {}", results.size(), file);
+    } catch (final IOException e) {
+      log.debug("Unable to read muzzle cache {}", file, e);
+    }
+  }
+
+  private void delete() {
+    if (!file.delete()) {
+      log.debug("Unable to delete muzzle cache {}", file);
+    }
+  }
+
+  /** Appends the results found since the last write to the file. */
+  synchronized void write() {
+    // results found from now on schedule another write
+    writeScheduled.set(false);
+    if (unwritten.isEmpty()) {
+      return;
+    }
+    final StringBuilder lines = new StringBuilder();
+    for (String line = unwritten.poll(); null != line; line = unwritten.poll()) {
+      lines.append(line);
+    }
+    try (final FileOutputStream out = new FileOutputStream(file, true);
+        final FileLock lock = out.getChannel().lock()) {
+      // another JVM may have created the file since this one loaded it
+      if (out.getChannel().size() == 0) {
+        lines.insert(0, agentVersion + '\n');
+      }
+      out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (final IOException | OverlappingFileLockException e) {
+      log.debug("Unable to write muzzle cache {}", file, e);
+    }
+  }
+
+  private static final class WriteTask implements AgentTaskScheduler.Task<MuzzleCache> {
+    static final WriteTask INSTANCE = new WriteTask();
+
+    @Override
+    public void run(final MuzzleCache cache) {
+      cache.write();
+    }
+  }
+
+  private static final class WriteOnShutdown extends Thread {
+    private final MuzzleCache cache;
+
+    WriteOnShutdown(final MuzzleCache cache) {
+      super(AGENT_THREAD_GROUP, "dd-muzzle-cache-shutdown-hook");
+      this.cache = cache;
+    }
+
+    @Override
+    public void run() {
+      cache.write();
+    }
+  }
+
+  private ClassPath classPath(final ClassLoader loader) {
+    final ClassPath classPath =
+        classPaths.computeIfAbsent(
+            loader == BOOTSTRAP_LOADER ? Utils.getBootstrapProxy() : loader,
+            // Can't use a function reference because of Java7 support
+            new Function<ClassLoader, ClassPath>() {
+              @Override
+              public ClassPath apply(final ClassLoader key) {
+                return new ClassPath(key);
+              }
+            });
+    if (!classPath.digestScheduled.get() && classPath.digestScheduled.compareAndSet(false, true)) {
+      AgentTaskScheduler.INSTANCE.execute(classPath);
+    }
+    return classPath;
+  }
+
+  /** The digest of a class loader's class path, and the results found before it was known. */
+  private final class ClassPath implements Runnable {
+    // not kept from being collected by the cache's value
+    private final WeakReference<ClassLoader> loader;
+    final AtomicBoolean digestScheduled = new AtomicBoolean();
+    volatile String key;
+    // by instrumentation
+    final ConcurrentHashMap<String, Boolean> pending = new ConcurrentHashMap<>();
+
+    ClassPath(final ClassLoader loader) {
+      this.loader = new WeakReference<>(loader);
+    }
+
+    @Override
+    public void run() {
+      final ClassLoader classLoader = loader.get();
+      String digested = NOT_CACHEABLE;
+      if (null != classLoader) {
+        try {
+          digested = digest(classLoader);
+        } catch (final Throwable e) {
+          log.debug("Unable to digest the class path of {}", classLoader, e);
+        }
+      }
+      key = digested;
+      recordPending();
+    }
+
+    void recordPending() {
+      for (final Map.Entry<String, Boolean> result : pending.entrySet()) {
+        if (pending.remove(result.getKey(), result.getValue()) && !NOT_CACHEABLE.equals(key)) {
+          record(key + ' ' + result.getKey(), result.getValue());
+        }
+      }
+    }
+  }
+
+  private String digest(final ClassLoader loader) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (final NoSuchAlgorithmException e) {
+      return NOT_CACHEABLE;
+    }
+    update(digest, agentVersion);
+    for (ClassLoader cl = loader; cl != BOOTSTRAP_LOADER; cl = cl.getParent()) {
+      update(digest, cl.getClass().getName());
+      if (cl == ClassLoader.getSystemClassLoader()) {
+        if (!updateClassPath(digest, System.getProperty("java.class.path"))) {
+          return NOT_CACHEABLE;
+        }
+      } else if (cl instanceof URLClassLoader) {
+        for (final URL url : ((URLClassLoader) cl).getURLs()) {
+          if (!update(digest, url)) {
+            return NOT_CACHEABLE;
+          }
+        }
+      } else if (null != cl.getParent() || !isPlatformClassLoader(cl)) {
+        return NOT_CACHEABLE;
+      }
+    }
+    update(digest, System.getProperty("java.home"));
+    update(digest, System.getProperty("java.version"));
+    if (!updateClassPath(digest, System.getProperty("sun.boot.class.path"))) {
+      return NOT_CACHEABLE;
+    }
+    return toHex(digest.digest());
+  }
+
+  private static boolean isPlatformClassLoader(final ClassLoader loader) {
+    return "jdk.internal.loader.ClassLoaders$PlatformClassLoader"
+        .equals(loader.getClass().getName());
+  }
+
+  private static boolean updateClassPath(final MessageDigest digest, final String classPath) {
+    if (null == classPath) {
+      return true;
+    }
+    int start = 0;
+    while (start <= classPath.length()) {
+      int end = classPath.indexOf(File.pathSeparatorChar, start);
+      if (end < 0) {
+        end = classPath.length();
+      }
+      if (end > start && !update(digest, new File(classPath.substring(start, end)))) {
+        return false;
+      }
+      start = end + 1;
+    }
+    return true;
+  }
+
+  private static boolean update(final MessageDigest digest, final URL url) {
+    update(digest, url.toExternalForm());
+    String location = url.toExternalForm();
+    if ("jar".equals(url.getProtocol())) {
+      // nested jars are identified by the outermost one
+      final int separator = location.indexOf("!/");
+      location = location.substring("jar:".length(), separator < 0 ? location.length() : separator);
+    }
+    if (!location.startsWith("file:")) {
+      return false;
+    }
+    try {
+      return update(digest, new File(new URL(location).toURI()));
+    } catch (final IOException | URISyntaxException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static boolean update(final MessageDigest digest, final File file) {
+    if (file.isDirectory()) {
+      // its classes can change without the directory changing
+      return false;
+    }
+    update(digest, file.getAbsolutePath());
+    if (!file.isFile()) {
+      // missing from the class path, until it's created
+      update(digest, "");
+      return true;
+    }
+    final String jar = file.getAbsolutePath() + ' ' + file.length() + ' ' + file.lastModified();
+    byte[] jarDigest = JAR_DIGESTS.get(jar);
+    if (null == jarDigest) {
+      try {
+        jarDigest = digestCentralDirectory(file);
+      } catch (final IOException | NoSuchAlgorithmException e) {
+        jarDigest = null;
+      }
+      if (null == jarDigest) {
+        return false;
+      }
+      JAR_DIGESTS.put(jar, jarDigest);
+    }
+    digest.update(jarDigest);
+    return true;
+  }
+
+  /**
+   * @return a digest of the name, CRC and sizes of each entry of the jar, read from its central
+   *     directory, or null if the file isn't a jar this can read
+   */
+  static byte[] digestCentralDirectory(final File file)
+      throws IOException, NoSuchAlgorithmException {
+    try (final RandomAccessFile jar = new RandomAccessFile(file, "r")) {
+      final long length = jar.length();
+      // the end of central directory record is only followed by a comment of up to 64k
+      final int tailLength = (int) Math.min(length, END_SIZE + 0xFFFF);
+      final byte[] tail = new byte[tailLength];
+      jar.seek(length - tailLength);
+      jar.readFully(tail);
+      final ByteBuffer end = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+      int position = tailLength - END_SIZE;
+      while (position >= 0 && end.getInt(position) != END_SIGNATURE) {
+        position--;
+      }
+      if (position < 0) {
+        return null;
+      }
+      final long size = end.getInt(position + 12) & 0xFFFFFFFFL;
+      final long offset = end.getInt(position + 16) & 0xFFFFFFFFL;
+      // zip64 jars aren't expected on class paths
+      if (size > Integer.MAX_VALUE || offset + size > length) {
+        return null;
+      }
+      final byte[] directory = new byte[(int) size];
+      jar.seek(offset);
+      jar.readFully(directory);
+      final ByteBuffer entries = ByteBuffer.wrap(directory).order(ByteOrder.LITTLE_ENDIAN);
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      int entry = 0;
+      while (entry + CENTRAL_HEADER_SIZE <= directory.length) {
+        if (entries.getInt(entry) != CENTRAL_SIGNATURE) {
+          return null;
+        }
+        final int nameLength = entries.getShort(entry + 28) & 0xFFFF;
+        final int extraLength = entries.getShort(entry + 30) & 0xFFFF;
+        final int commentLength = entries.getShort(entry + 32) & 0xFFFF;
+        if (entry + CENTRAL_HEADER_SIZE + nameLength > directory.length) {
+          return null;
+        }
+        // the CRC, then the compressed and uncompressed sizes
+        digest.update(directory, entry + 16, 12);
+        digest.update(directory, entry + CENTRAL_HEADER_SIZE, nameLength);
+        entry += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+      }
+      return digest.digest();
+    }
+  }
+
+  private static void update(final MessageDigest digest, final String value) {
+    digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static String toHex(final byte[] bytes) {
+    final char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+      hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+    }
+    return new String(hex);
+  }
+}
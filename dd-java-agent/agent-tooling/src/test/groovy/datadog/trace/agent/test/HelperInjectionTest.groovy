@@ -71,6 +71,47 @@ class HelperInjectionTest extends DDSpecification {
     helperClass.getClassLoader() == BOOTSTRAP_CLASSLOADER
   }
 
+  def "helpers injected on bootstrap classloader share one temp folder"() {
+    setup:
+    ByteBuddyAgent.install()
+    AgentInstaller.installBytebuddyAgent(ByteBuddyAgent.getInstrumentation())
+    String helperClassName = HelperInjectionTest.getPackage().getName() + '.HelperClass'
+    String otherHelperClassName = HelperInjectionTest.getPackage().getName() + '.OtherHelperClass'
+    URLClassLoader bootstrapChild = new URLClassLoader(new URL[0], (ClassLoader) null)
+    def tempDirs = {
+      new File(System.getProperty("java.io.tmpdir")).listFiles().findAll {
+        it.name.startsWith("datadog-temp-jars")
+      } as Set
+    }
+    def before = tempDirs()
+
+    when:
+    new HelperInjector("test", helperClassName).transform(null, null, BOOTSTRAP_CLASSLOADER, null)
+    new HelperInjector("other", otherHelperClassName).transform(null, null, BOOTSTRAP_CLASSLOADER, null)
+
+    then:
+    bootstrapChild.loadClass(helperClassName).getClassLoader() == BOOTSTRAP_CLASSLOADER
+    bootstrapChild.loadClass(otherHelperClassName).getClassLoader() == BOOTSTRAP_CLASSLOADER
+    (tempDirs() - before).size() <= 1
+  }
+
+  def "helper bytes are read once"() {
+    setup:
+    String helperClassName = HelperInjectionTest.getPackage().getName() + '.HelperClass'
+    HelperInjector injector = new HelperInjector("test", helperClassName)
+
+    when:
+    injector.transform(null, null, new URLClassLoader(new URL[0], (ClassLoader) null), null)
+    def helperMap = injector.helperMap
+    def loader = new URLClassLoader(new URL[0], (ClassLoader) null)
+    injector.transform(null, null, loader, null)
+
+    then:
+    helperMap.keySet() == [helperClassName] as Set
+    injector.helperMap.is(helperMap)
+    isClassLoaded(helperClassName, loader)
+  }
+
   def "check hard references on class injection"() {
     setup:
     String helperClassName = HelperInjectionTest.getPackage().getName() + '.HelperClass'
@@ -161,8 +161,8 @@ class CacheProviderTest extends DDSpecification {
 
   def "test capacity"() {
     setup:
-    def poolStrat = new DDCachingPoolStrategy()
     def capacity = DDCachingPoolStrategy.TYPE_CAPACITY
+    def poolStrat = new DDCachingPoolStrategy(true, capacity, DDCachingPoolStrategy.HOT_TYPE_CAPACITY)
 
     def loader1 = newClassLoader()
     def loaderHash1 = loader1.hashCode()
@@ -198,6 +198,60 @@ class CacheProviderTest extends DDSpecification {
     then:
     // cache will start to proactively free slots & size calc is approximate
     poolStrat.approximateSize() > 0.8 * capacity
+    poolStrat.approximateSize() <= capacity
+    poolStrat.sharedResolutionCache.evictions.get() > 0
+  }
+
+  def "test capacity adapts to the rate of registrations"() {
+    setup:
+    def poolStrat = new DDCachingPoolStrategy(false, 1024, 16)
+    def cache = poolStrat.sharedResolutionCache
+    def cacheProvider = poolStrat.createCacheProvider(DDCachingPoolStrategy.BOOTSTRAP_HASH, null)
+
+    when:
+    (DDCachingPoolStrategy.STARTUP_REGISTRATION_RATE * DDCachingPoolStrategy.ADAPT_FREQUENCY_SECONDS).times {
+      cacheProvider.register("foo${it}", newVoid())
+    }
+
+    then:
+    poolStrat.approximateSize() == 1024
+    poolStrat.registrations() == DDCachingPoolStrategy.STARTUP_REGISTRATION_RATE * DDCachingPoolStrategy.ADAPT_FREQUENCY_SECONDS
+    cache.evictions.get() == poolStrat.registrations() - 1024
+
+    when:
+    cache.adaptCapacity()
+
+    then:
+    poolStrat.approximateSize() == 1024
+
+    when:
+    cache.adaptCapacity()
+
+    then:
+    poolStrat.approximateSize() == DDCachingPoolStrategy.TYPE_CAPACITY
+  }
+
+  def "test types hit often survive eviction"() {
+    setup:
+    def poolStrat = new DDCachingPoolStrategy(false, DDCachingPoolStrategy.TYPE_CAPACITY, 16)
+    def cache = poolStrat.sharedResolutionCache
+    def cacheProvider = poolStrat.createCacheProvider(DDCachingPoolStrategy.BOOTSTRAP_HASH, null)
+
+    when:
+    cacheProvider.register("hot", newVoid())
+    DDCachingPoolStrategy.HOT_TYPE_HITS.times {
+      cacheProvider.find("hot")
+    }
+    (DDCachingPoolStrategy.TYPE_CAPACITY * 2).times {
+      cacheProvider.register("cold${it}", newVoid())
+      cacheProvider.find("cold${it}")
+    }
+
+    then:
+    cacheProvider.find("hot") != null
+    cacheProvider.find("cold0") == null
+    cache.promotions.get() == 1
+    cache.hits.get() == DDCachingPoolStrategy.HOT_TYPE_HITS + DDCachingPoolStrategy.TYPE_CAPACITY * 2 + 1
   }
 
   static newVoid() {
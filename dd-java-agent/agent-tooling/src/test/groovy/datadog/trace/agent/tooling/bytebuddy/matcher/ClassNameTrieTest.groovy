@@ -0,0 +1,73 @@
+package datadog.trace.agent.tooling.bytebuddy.matcher
+
+import datadog.trace.test.util.DDSpecification
+
+class ClassNameTrieTest extends DDSpecification {
+
+  def "the most specific rule of each kind decides"() {
+    setup:
+    def trie = ClassNameTrie.builder()
+      .put(0, true, "com.example.*", "org.Exact")
+      .put(0, false, "com.example.internal.*", "com.example.Kept")
+      .put(0, true, "com.example.internal.Ignored")
+      .put(1, true, "com.*")
+      .build()
+
+    when:
+    def rules = trie.apply(name)
+
+    then:
+    ClassNameTrie.hasRule(rules, 0) == hasRule
+    ClassNameTrie.outcome(rules, 0) == outcome
+    ClassNameTrie.hasRule(rules, 1) == name.startsWith("com.")
+    ClassNameTrie.outcome(rules, 1) == name.startsWith("com.")
+
+    where:
+    name                                  | hasRule | outcome
+    "com.example.Foo"                     | true    | true
+    "com.example."                        | true    | true
+    "com.example"                         | false   | false
+    "com.example.internal.Foo"            | true    | false
+    "com.example.internal.Ignored"        | true    | true
+    "com.example.internal.Ignored\$Inner" | true    | false
+    "com.example.Kept"                    | true    | false
+    "com.example.Kept\$Inner"             | true    | true
+    "org.Exact"                           | true    | true
+    "org.Exact\$Inner"                    | false   | false
+    "org.Ex"                              | false   | false
+    "net.Other"                           | false   | false
+    ""                                    | false   | false
+  }
+
+  def "a single star matches every name"() {
+    setup:
+    def trie = ClassNameTrie.builder().put(3, true, "*").build()
+
+    expect:
+    ClassNameTrie.outcome(trie.apply(name), 3)
+    !ClassNameTrie.hasRule(trie.apply(name), 0)
+
+    where:
+    name << ["", "a", "java.lang.String"]
+  }
+
+  def "the last outcome added for a pattern wins"() {
+    setup:
+    def trie = ClassNameTrie.builder()
+      .put(0, true, "com.example.*")
+      .put(0, false, "com.example.*")
+      .build()
+
+    expect:
+    ClassNameTrie.hasRule(trie.apply("com.example.Foo"), 0)
+    !ClassNameTrie.outcome(trie.apply("com.example.Foo"), 0)
+  }
+
+  def "kinds are limited to 16"() {
+    when:
+    ClassNameTrie.builder().put(16, true, "com.*")
+
+    then:
+    thrown IllegalArgumentException
+  }
+}
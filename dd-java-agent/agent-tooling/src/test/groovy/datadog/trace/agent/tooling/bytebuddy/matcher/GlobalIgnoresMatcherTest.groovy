@@ -0,0 +1,89 @@
+package datadog.trace.agent.tooling.bytebuddy.matcher
+
+import datadog.trace.test.util.DDSpecification
+import net.bytebuddy.description.type.TypeDescription
+
+import static datadog.trace.agent.tooling.bytebuddy.matcher.GlobalIgnoresMatcher.globalIgnoresMatcher
+
+class GlobalIgnoresMatcherTest extends DDSpecification {
+
+  def "global ignores are applied with their exceptions"() {
+    setup:
+    def matcher = globalIgnoresMatcher(false)
+
+    expect:
+    matcher.matches(type(name)) == ignored
+
+    where:
+    name                                                                      | ignored
+    "java.lang.String"                                                        | true
+    "java.lang.Throwable"                                                     | false
+    "java.util.concurrent.ThreadPoolExecutor"                                 | false
+    "java.util.logging.Logger"                                                | false
+    "java.util.logging.LogManager\$Cleaner"                                   | true
+    "com.sun.jersey.api.client.Client"                                        | false
+    "com.sun.proxy.\$Proxy1"                                                  | true
+    "datadog.trace.bootstrap.instrumentation.java.concurrent.RunnableWrapper" | false
+    "datadog.trace.core.CoreTracer"                                           | true
+    "org.codehaus.groovy.runtime.Foo"                                         | false
+    "org.codehaus.groovy.Foo"                                                 | true
+    "org.springframework.core.OverridingClassLoader"                          | true
+    "com.mchange.v2.c3p0.impl.C3P0PooledConnectionProxy"                      | true
+    "com.mchange.v2.c3p0.impl.NewProxyConnection"                             | false
+    "sun.net.www.http.HttpClient"                                             | false
+    "sun.misc.Unsafe"                                                         | true
+    "my.app.Foo\$\$EnhancerByCGLIB\$\$1"                                      | true
+    "my.app.Foo\$fn__1234"                                                    | true
+    "my.app.javassist.Foo"                                                    | true
+    "my.app.Foo"                                                              | false
+  }
+
+  def "additional library ignores are only applied if not skipped"() {
+    expect:
+    globalIgnoresMatcher(false).matches(type(name)) == ignored
+    !globalIgnoresMatcher(true).matches(type(name))
+    AdditionalLibraryIgnoresMatcher.additionalLibraryIgnoresMatcher().matches(type(name)) == ignored
+
+    where:
+    name                                                                   | ignored
+    "org.springframework.beans.BeanUtils"                                  | true
+    "org.springframework.beans.factory.support.DefaultListableBeanFactory" | false
+    "org.springframework.amqp.core.Message"                                | false
+    "org.springframework.web.servlet.DispatcherServlet"                    | false
+    "org.springframework.Foo"                                              | false
+    "ch.qos.logback.classic.spi.LoggingEventVO"                            | false
+    "org.h2.jdbcx.JdbcDataSource"                                          | false
+    "org.h2.value.Value"                                                   | true
+    "kotlin.collections.CollectionsKt"                                     | true
+    "kotlinx.coroutines.Job"                                               | false
+  }
+
+  def "configured excludes take precedence"() {
+    setup:
+    def matcher = globalIgnoresMatcher(false, ["my.app.*", " my.other.Excluded ", "java.util.concurrent.*"])
+
+    expect:
+    matcher.matches(type(name)) == ignored
+
+    where:
+    name                                      | ignored
+    "my.app.Foo"                              | true
+    "my.other.Excluded"                       | true
+    "my.other.Excluded\$Inner"                | false
+    "my.other.Kept"                           | false
+    "java.util.concurrent.ThreadPoolExecutor" | true
+    "java.lang.Throwable"                     | false
+  }
+
+  def "matchers with the same configuration are equal"() {
+    expect:
+    globalIgnoresMatcher(false, ["a.*"]) == globalIgnoresMatcher(false, ["a.*"])
+    globalIgnoresMatcher(false, ["a.*"]).hashCode() == globalIgnoresMatcher(false, ["a.*"]).hashCode()
+    globalIgnoresMatcher(false, ["a.*"]) != globalIgnoresMatcher(false, ["b.*"])
+    globalIgnoresMatcher(false) != globalIgnoresMatcher(true)
+  }
+
+  static TypeDescription type(String name) {
+    return new TypeDescription.Latent(name, 0, null)
+  }
+}
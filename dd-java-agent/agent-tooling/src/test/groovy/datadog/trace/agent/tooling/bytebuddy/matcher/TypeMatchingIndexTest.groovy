@@ -0,0 +1,90 @@
+package datadog.trace.agent.tooling.bytebuddy.matcher
+
+import datadog.trace.test.util.DDSpecification
+import net.bytebuddy.description.type.TypeDescription
+import net.bytebuddy.matcher.ElementMatcher
+
+import static datadog.trace.agent.tooling.bytebuddy.matcher.DDElementMatchers.extendsClass
+import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.nameStartsWith
+import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.named
+import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.namedOneOf
+import static net.bytebuddy.matcher.ElementMatchers.any
+
+class TypeMatchingIndexTest extends DDSpecification {
+
+  def index = new TypeMatchingIndex()
+
+  def "only exact name matchers are indexed"() {
+    expect:
+    (index.index(matcher, any()) != null) == indexed
+
+    where:
+    matcher                                  | indexed
+    named("java.lang.String")                | true
+    namedOneOf("java.lang.String", "a.B")    | true
+    nameStartsWith("java.lang.")             | false
+    named("java.lang.String").or(named("B")) | false
+    extendsClass(named("java.lang.Number"))  | false
+  }
+
+  def "indexed matchers accept the types they name"() {
+    setup:
+    def string = index.index(named(String.name), any())
+    def numbers = index.index(namedOneOf(Integer.name, Long.name), any())
+    def alsoString = index.index(namedOneOf(String.name, Integer.name), any())
+
+    expect:
+    matches(string, type) == (type == String)
+    matches(numbers, type) == (type in [Integer, Long])
+    matches(alsoString, type) == (type in [String, Integer])
+
+    where:
+    type << [String, Integer, Long, Object]
+  }
+
+  def "class loader matchers only run for the named types"() {
+    setup:
+    def classLoaderMatcher = Mock(ElementMatcher)
+    def matcher = index.index(named(String.name), classLoaderMatcher)
+
+    when:
+    def matched = matches(matcher, Object)
+
+    then:
+    !matched
+    0 * classLoaderMatcher.matches(_)
+
+    when:
+    matched = matches(matcher, String)
+
+    then:
+    !matched
+    1 * classLoaderMatcher.matches(_) >> false
+  }
+
+  def "types loaded in parallel are each matched against their own name"() {
+    setup:
+    def string = index.index(named(String.name), any())
+    def integer = index.index(named(Integer.name), any())
+    def stringType = TypeDescription.ForLoadedType.of(String)
+    def integerType = TypeDescription.ForLoadedType.of(Integer)
+
+    when:
+    def matchedHere = [string.matches(stringType, null, null, null, null)]
+    def matchedThere = []
+    // another class being loaded in between the matchers asked about this one
+    Thread.start {
+      matchedThere << string.matches(integerType, null, null, null, null)
+      matchedThere << integer.matches(integerType, null, null, null, null)
+    }.join()
+    matchedHere << integer.matches(stringType, null, null, null, null)
+
+    then:
+    matchedHere == [true, false]
+    matchedThere == [false, true]
+  }
+
+  static boolean matches(matcher, Class<?> type) {
+    return matcher.matches(TypeDescription.ForLoadedType.of(type), type.classLoader, null, null, null)
+  }
+}
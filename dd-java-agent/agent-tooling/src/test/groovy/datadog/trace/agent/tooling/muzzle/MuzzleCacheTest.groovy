@@ -0,0 +1,238 @@
+package datadog.trace.agent.tooling.muzzle
+
+import datadog.trace.agent.test.utils.ClasspathUtils
+import datadog.trace.agent.tooling.muzzle.TestAdviceClasses.MethodBodyAdvice
+import datadog.trace.test.util.DDSpecification
+import spock.lang.Shared
+import spock.util.concurrent.PollingConditions
+
+class MuzzleCacheTest extends DDSpecification {
+
+  @Shared
+  URL safeJar = ClasspathUtils.createJarWithClasses(MethodBodyAdvice.A,
+  MethodBodyAdvice.B,
+  MethodBodyAdvice.SomeInterface,
+  MethodBodyAdvice.SkipLevel,
+  MethodBodyAdvice.HasMethod,
+  MethodBodyAdvice.SomeImplementation)
+
+  @Shared
+  URL unsafeJar = ClasspathUtils.createJarWithClasses(MethodBodyAdvice.A,
+  MethodBodyAdvice.SomeInterface,
+  MethodBodyAdvice.SomeImplementation)
+
+  @Shared
+  Reference[] refs = ReferenceCreator.createReferencesFrom(MethodBodyAdvice.getName(), MuzzleCacheTest.getClassLoader()).values().toArray(new Reference[0])
+
+  File file = File.createTempFile("muzzle", ".cache")
+
+  def setup() {
+    file.delete()
+  }
+
+  def cleanup() {
+    file.delete()
+  }
+
+  def "results are reused by the next JVM"() {
+    setup:
+    def cache = MuzzleCache.load(file.path, "1.0")
+    def safe = new CountingClassLoader(safeJar)
+    def unsafe = new CountingClassLoader(unsafeJar)
+    awaitDigested(cache, safe, unsafe)
+
+    expect:
+    cache.matches(new ReferenceMatcher(refs), safe, "test")
+    !cache.matches(new ReferenceMatcher(refs), unsafe, "test")
+    safe.count > 0
+    unsafe.count > 0
+
+    when:
+    cache.write()
+    def restarted = MuzzleCache.load(file.path, "1.0")
+    safe = new CountingClassLoader(safeJar)
+    unsafe = new CountingClassLoader(unsafeJar)
+    awaitDigested(restarted, safe, unsafe)
+
+    then:
+    restarted.size() == 2
+    restarted.matches(new ReferenceMatcher(refs), safe, "test")
+    !restarted.matches(new ReferenceMatcher(refs), unsafe, "test")
+    safe.count == 0
+    unsafe.count == 0
+  }
+
+  def "results are only written in the background"() {
+    setup:
+    def cache = MuzzleCache.load(file.path, "1.0")
+    def loader = new CountingClassLoader(safeJar)
+    awaitDigested(cache, loader)
+
+    when:
+    cache.matches(new ReferenceMatcher(refs), loader, "test")
+
+    then:
+    !file.exists()
+
+    when:
+    cache.write()
+
+    then:
+    file.exists()
+    MuzzleCache.load(file.path, "1.0").size() == 1
+  }
+
+  def "results are checked again when the content of a jar changes"() {
+    setup:
+    def jar = copyOf(safeJar)
+    def cache = MuzzleCache.load(file.path, "1.0")
+    def previous = new CountingClassLoader(jar.toURI().toURL())
+    awaitDigested(cache, previous)
+    cache.matches(new ReferenceMatcher(refs), previous, "test")
+    cache.write()
+    jar.bytes = new File(unsafeJar.toURI()).bytes
+    jar.setLastModified(jar.lastModified() - 60000)
+    def loader = new CountingClassLoader(jar.toURI().toURL())
+    def restarted = MuzzleCache.load(file.path, "1.0")
+    awaitDigested(restarted, loader)
+
+    when:
+    def matched = restarted.matches(new ReferenceMatcher(refs), loader, "test")
+
+    then:
+    !matched
+    loader.count > 0
+
+    cleanup:
+    jar.delete()
+  }
+
+  def "results are kept when a jar is touched without changing"() {
+    setup:
+    def jar = copyOf(safeJar)
+    def cache = MuzzleCache.load(file.path, "1.0")
+    def previous = new CountingClassLoader(jar.toURI().toURL())
+    awaitDigested(cache, previous)
+    cache.matches(new ReferenceMatcher(refs), previous, "test")
+    cache.write()
+    jar.setLastModified(jar.lastModified() - 60000)
+    def loader = new CountingClassLoader(jar.toURI().toURL())
+    def restarted = MuzzleCache.load(file.path, "1.0")
+    awaitDigested(restarted, loader)
+
+    when:
+    def matched = restarted.matches(new ReferenceMatcher(refs), loader, "test")
+
+    then:
+    matched
+    loader.count == 0
+
+    cleanup:
+    jar.delete()
+  }
+
+  def "results of another agent version are discarded"() {
+    setup:
+    def previous = MuzzleCache.load(file.path, "1.0")
+    def loader = new CountingClassLoader(safeJar)
+    awaitDigested(previous, loader)
+    previous.matches(new ReferenceMatcher(refs), loader, "test")
+    previous.write()
+    assert file.exists()
+
+    when:
+    def cache = MuzzleCache.load(file.path, "2.0")
+
+    then:
+    cache.size() == 0
+    !file.exists()
+  }
+
+  def "class loaders with an unknown class path are not cached"() {
+    setup:
+    def cache = MuzzleCache.load(file.path, "1.0")
+    def loader = new AddableClassLoader()
+    awaitDigested(cache, loader)
+
+    when:
+    def matched = cache.matches(new ReferenceMatcher(refs), loader, "test")
+
+    then:
+    !matched
+    cache.size() == 0
+
+    when:
+    cache.write()
+
+    then:
+    !file.exists()
+  }
+
+  def "results found before the class path is digested are recorded once it is"() {
+    setup:
+    def cache = MuzzleCache.load(file.path, "1.0")
+    def loader = new CountingClassLoader(safeJar)
+
+    when:
+    def matched = cache.matches(new ReferenceMatcher(refs), loader, "test")
+
+    then:
+    matched
+    new PollingConditions(timeout: 5).eventually {
+      assert cache.size() == 1
+    }
+  }
+
+  def "JVMs sharing the file append their results to the same file"() {
+    setup:
+    def first = MuzzleCache.load(file.path, "1.0")
+    def second = MuzzleCache.load(file.path, "1.0")
+    def safe = new CountingClassLoader(safeJar)
+    def unsafe = new CountingClassLoader(unsafeJar)
+    awaitDigested(first, safe)
+    awaitDigested(second, unsafe)
+
+    when:
+    first.matches(new ReferenceMatcher(refs), safe, "test")
+    second.matches(new ReferenceMatcher(refs), unsafe, "test")
+    first.write()
+    second.write()
+
+    then:
+    file.readLines().count { it == "1.0" } == 1
+    MuzzleCache.load(file.path, "1.0").size() == 2
+  }
+
+  def "no file means no cache"() {
+    expect:
+    MuzzleCache.load(null, "1.0") == MuzzleCache.DISABLED
+    MuzzleCache.DISABLED.matches(new ReferenceMatcher(refs), new CountingClassLoader(safeJar), "test")
+    MuzzleCache.DISABLED.size() == 0
+  }
+
+  static void awaitDigested(MuzzleCache cache, ClassLoader... loaders) {
+    new PollingConditions(timeout: 5).eventually {
+      loaders.each { assert cache.isDigested(it) }
+    }
+  }
+
+  static File copyOf(URL jar) {
+    def copy = File.createTempFile("muzzle", ".jar")
+    copy.bytes = new File(jar.toURI()).bytes
+    return copy
+  }
+
+  static class CountingClassLoader extends URLClassLoader {
+    int count = 0
+
+    CountingClassLoader(URL url) {
+      super([url] as URL[], (ClassLoader) null)
+    }
+
+    @Override
+    URL getResource(String name) {
+      count++
+      return super.getResource(name)
+    }
+  }
+}
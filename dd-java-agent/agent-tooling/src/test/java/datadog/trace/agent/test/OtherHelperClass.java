@@ -0,0 +1,4 @@
+package datadog.trace.agent.test;
+
+/** Used by {@link HelperInjectionTest}. Must not be loaded outside of that test. */
+public class OtherHelperClass {}
@@ -0,0 +1,93 @@
+package datadog.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Loads the benchmark classes in a new class loader each time, as happens for every class while an
+ * application starts, so that the agent matches them against all its instrumentations, including
+ * the class loader matchers which only run once per class loader.
+ */
+public class ClassLoadingBenchmark {
+
+  private static final String[] CLASS_NAMES = {
+    "datadog.benchmark.classes.A",
+    "datadog.benchmark.classes.B",
+    "datadog.benchmark.classes.C",
+    "datadog.benchmark.classes.D",
+    "datadog.benchmark.classes.E",
+    "datadog.benchmark.classes.F",
+    "datadog.benchmark.classes.UntracedClass",
+    "datadog.benchmark.classes.TracedClass"
+  };
+
+  @Benchmark
+  public Class<?> loadClasses() throws ClassNotFoundException {
+    ClassLoader loader = new IsolatingClassLoader(ClassLoadingBenchmark.class.getClassLoader());
+    Class<?> loaded = null;
+    for (String className : CLASS_NAMES) {
+      loaded = Class.forName(className, true, loader);
+    }
+    return loaded;
+  }
+
+  /** Defines the benchmark classes itself instead of delegating to its parent. */
+  private static final class IsolatingClassLoader extends ClassLoader {
+    IsolatingClassLoader(final ClassLoader parent) {
+      super(parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve)
+        throws ClassNotFoundException {
+      if (!name.startsWith("datadog.benchmark.classes.")) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> loaded = findLoadedClass(name);
+        if (null == loaded) {
+          byte[] bytes = readClassFile(name);
+          loaded = defineClass(name, bytes, 0, bytes.length);
+        }
+        if (resolve) {
+          resolveClass(loaded);
+        }
+        return loaded;
+      }
+    }
+
+    private byte[] readClassFile(final String name) throws ClassNotFoundException {
+      try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+        if (null == in) {
+          throw new ClassNotFoundException(name);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+          out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+      } catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
+    }
+  }
+
+  @Fork(jvmArgsAppend = "-javaagent:/path/to/dd-java-agent-master.jar")
+  public static class WithAgentMaster extends ClassLoadingBenchmark {}
+
+  @Fork(
+      jvmArgsAppend =
+          "-javaagent:/path/to/dd-trace-java/dd-java-agent/build/libs/dd-java-agent.jar")
+  public static class WithAgent extends ClassLoadingBenchmark {}
+
+  @Fork(
+      jvmArgsAppend = {
+        "-javaagent:/path/to/dd-trace-java/dd-java-agent/build/libs/dd-java-agent.jar",
+        "-Ddd.type.matching.index.enabled=false"
+      })
+  public static class WithAgentWithoutTypeMatchingIndex extends ClassLoadingBenchmark {}
+}
@@ -35,4 +35,11 @@ public class ClassRetransformingBenchmark {
       jvmArgsAppend =
           "-javaagent:/path/to/dd-trace-java/dd-java-agent/build/libs/dd-java-agent.jar")
   public static class WithAgent extends ClassRetransformingBenchmark {}
+
+  @Fork(
+      jvmArgsAppend = {
+        "-javaagent:/path/to/dd-trace-java/dd-java-agent/build/libs/dd-java-agent.jar",
+        "-Ddd.type.matching.index.enabled=false"
+      })
+  public static class WithAgentWithoutTypeMatchingIndex extends ClassRetransformingBenchmark {}
 }
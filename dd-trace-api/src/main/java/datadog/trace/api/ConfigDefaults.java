@@ -43,6 +43,8 @@ public final class ConfigDefaults {
   static final String DEFAULT_PROPAGATION_STYLE_INJECT = PropagationStyle.DATADOG.name();
   static final boolean DEFAULT_JMX_FETCH_ENABLED = true;
   static final boolean DEFAULT_TRACE_AGENT_V05_ENABLED = false;
+  static final int DEFAULT_TRACE_SERIALIZATION_SHARDS = 1;
+  static final int DEFAULT_TRACE_AGENT_MAX_PAYLOADS_IN_FLIGHT = 0;
 
   static final int DEFAULT_JMX_FETCH_STATSD_PORT = 8125;
 
@@ -6,18 +6,23 @@ import java.util.concurrent.atomic.AtomicLong;
 public enum IdGenerationStrategy {
   RANDOM {
     @Override
-    public DDId generate() {
-      return DDId.from(ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+    public long generateLong() {
+      return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
     }
   },
   SEQUENTIAL {
     private final AtomicLong id = new AtomicLong(0);
 
     @Override
-    public DDId generate() {
-      return DDId.from(id.incrementAndGet());
+    public long generateLong() {
+      return id.incrementAndGet();
     }
   };
 
-  public abstract DDId generate();
+  public DDId generate() {
+    return DDId.from(generateLong());
+  }
+
+  /** Generates an id without allocating a {@link DDId} for it. */
+  public abstract long generateLong();
 }
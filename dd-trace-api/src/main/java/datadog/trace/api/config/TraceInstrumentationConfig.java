@@ -52,6 +52,8 @@ public final class TraceInstrumentationConfig {
   public static final String TEMP_JARS_CLEAN_ON_BOOT = "temp.jars.clean.on.boot";
 
   public static final String RESOLVER_USE_LOADCLASS = "resolver.use.loadclass";
+  public static final String TYPE_MATCHING_INDEX_ENABLED = "type.matching.index.enabled";
+  public static final String MUZZLE_CACHE_FILE = "muzzle.cache.file";
 
   private TraceInstrumentationConfig() {}
 }
@@ -33,6 +33,7 @@ public final class TracerConfig {
   public static final String TRACE_SAMPLING_OPERATION_RULES = "trace.sampling.operation.rules";
   public static final String TRACE_SAMPLE_RATE = "trace.sample.rate";
   public static final String TRACE_RATE_LIMIT = "trace.rate.limit";
+  public static final String TRACE_SAMPLING_SPANS_PER_SECOND = "trace.sampling.spans.per.second";
   public static final String TRACE_REPORT_HOSTNAME = "trace.report-hostname";
   public static final String HEADER_TAGS = "trace.header.tags";
   public static final String HTTP_SERVER_ERROR_STATUSES = "http.server.error.statuses";
@@ -45,11 +46,19 @@ public final class TracerConfig {
   public static final String SCOPE_INHERIT_ASYNC_PROPAGATION =
       "trace.scope.inherit.async.propagation";
   public static final String PARTIAL_FLUSH_MIN_SPANS = "trace.partial.flush.min.spans";
+  public static final String PARTIAL_FLUSH_MAX_RETAINED_SPANS =
+      "trace.partial.flush.max.retained.spans";
   public static final String TRACE_STRICT_WRITES_ENABLED = "trace.strict.writes.enabled";
+  public static final String TRACE_DEFERRED_COMPLETION_ENABLED =
+      "trace.deferred.completion.enabled";
+  public static final String TRACE_TAG_RECYCLING_ENABLED = "trace.tag.recycling.enabled";
   public static final String PROPAGATION_STYLE_EXTRACT = "propagation.style.extract";
   public static final String PROPAGATION_STYLE_INJECT = "propagation.style.inject";
 
   public static final String ENABLE_TRACE_AGENT_V05 = "trace.agent.v0.5.enabled";
+  public static final String TRACE_SERIALIZATION_SHARDS = "trace.serialization.shards";
+  public static final String TRACE_AGENT_MAX_PAYLOADS_IN_FLIGHT =
+      "trace.agent.max.payloads.in.flight";
 
   private TracerConfig() {}
 }
@@ -0,0 +1,121 @@
+package datadog.trace.common.metrics;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.common.writer.ListWriter;
+import datadog.trace.core.CoreSpan;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/** Publishes measured spans to the metrics aggregator, in spans per second. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConflatingMetricsAggregatorBenchmark {
+
+  @Param({"4", "64"})
+  int distinctKeys;
+
+  private CoreTracer tracer;
+  private ConflatingMetricsAggregator aggregator;
+  private List<List<? extends CoreSpan<?>>> traces;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+
+  @Setup(Level.Trial)
+  public void init() {
+    tracer = CoreTracer.builder().writer(new ListWriter()).build();
+    aggregator =
+        new ConflatingMetricsAggregator(new NullSink(), new NullWriter(), 2048, 2048, 10, SECONDS);
+    aggregator.start();
+    traces = new ArrayList<>(distinctKeys);
+    for (int i = 0; i < distinctKeys; ++i) {
+      DDSpan span =
+          (DDSpan)
+              tracer
+                  .buildSpan("operation")
+                  .withServiceName("service")
+                  .withResourceName("GET /resource/" + i)
+                  .withSpanType("web")
+                  .start();
+      span.setMeasured(true);
+      traces.add(Collections.singletonList(span));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    aggregator.close();
+    tracer.close();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public boolean publish1(Cursor cursor) {
+    return publish(cursor);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public boolean publish8(Cursor cursor) {
+    return publish(cursor);
+  }
+
+  @Benchmark
+  @Threads(32)
+  public boolean publish32(Cursor cursor) {
+    return publish(cursor);
+  }
+
+  private boolean publish(Cursor cursor) {
+    int next = cursor.next;
+    cursor.next = next + 1 == traces.size() ? 0 : next + 1;
+    return aggregator.publish(traces.get(next));
+  }
+
+  private static final class NullSink implements Sink {
+    @Override
+    public void register(EventListener listener) {}
+
+    @Override
+    public boolean validate() {
+      return true;
+    }
+
+    @Override
+    public void accept(int messageCount, ByteBuffer buffer) {}
+  }
+
+  private static final class NullWriter implements MetricWriter {
+    @Override
+    public void startBucket(int metricCount, long start, long duration) {}
+
+    @Override
+    public void add(MetricKey key, AggregateMetric aggregate) {}
+
+    @Override
+    public void finishBucket() {}
+
+    @Override
+    public void reset() {}
+  }
+}
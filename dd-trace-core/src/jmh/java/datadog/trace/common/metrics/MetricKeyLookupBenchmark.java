@@ -0,0 +1,64 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Looks up keys which have been seen before, by building a {@link MetricKey} and with a {@link
+ * MetricKeyProbe}. Run with {@code -prof gc}: the probe should allocate nothing per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricKeyLookupBenchmark {
+
+  @Param({"4", "64"})
+  int distinctKeys;
+
+  private final ConcurrentHashMap<MetricKey, MetricKey> keys = new ConcurrentHashMap<>();
+  private final MetricKeyProbe probe = new MetricKeyProbe();
+  private CharSequence[] resources;
+  private final CharSequence service = "service";
+  private final CharSequence operation = UTF8BytesString.create("servlet.request");
+  private final CharSequence type = UTF8BytesString.create("web");
+  private int next;
+
+  @Setup
+  public void init() {
+    resources = new CharSequence[distinctKeys];
+    for (int i = 0; i < distinctKeys; ++i) {
+      resources[i] = "GET /resource/" + i;
+      MetricKey key = new MetricKey(resources[i], service, operation, type, 200);
+      keys.put(key, key);
+    }
+  }
+
+  @Benchmark
+  public MetricKey newKey() {
+    MetricKey key = new MetricKey(nextResource(), service, operation, type, 200);
+    MetricKey existing = keys.putIfAbsent(key, key);
+    return null == existing ? key : existing;
+  }
+
+  @Benchmark
+  public MetricKey probe() {
+    MetricKey key = keys.get(probe.of(nextResource(), service, operation, type, 200));
+    probe.clear();
+    return key;
+  }
+
+  private CharSequence nextResource() {
+    CharSequence resource = resources[next];
+    next = next + 1 == resources.length ? 0 : next + 1;
+    return resource;
+  }
+}
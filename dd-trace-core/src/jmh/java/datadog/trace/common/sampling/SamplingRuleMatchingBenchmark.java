@@ -0,0 +1,122 @@
+package datadog.trace.common.sampling;
+
+import datadog.trace.common.writer.ListWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Finds the sampling rule for a root span among 40 rules, most of them literals, with the regex
+ * matching rules used to do, with the compiled matchers, and with the compiled matchers behind the
+ * cache of decisions by name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SamplingRuleMatchingBenchmark {
+
+  private static final int RULES = 20;
+
+  /** whether the span matches the first rule, the last rule, or none of them */
+  @Param({"first", "last", "none"})
+  String match;
+
+  private CoreTracer tracer;
+  private DDSpan span;
+  private final List<Pattern> servicePatterns = new ArrayList<>();
+  private final List<Pattern> operationPatterns = new ArrayList<>();
+  private RuleBasedSampler<DDSpan> uncached;
+  private RuleBasedSampler<DDSpan> cached;
+
+  @Setup(Level.Trial)
+  public void init() {
+    Map<String, String> serviceRules = new LinkedHashMap<>();
+    Map<String, String> operationRules = new LinkedHashMap<>();
+    for (int i = 0; i < RULES; ++i) {
+      // mostly literals, with the odd prefix, glob and regex
+      String service =
+          i % 10 == 9
+              ? "service-" + i + "-[a-z]+"
+              : i % 5 == 4 ? "service-" + i + ".*" : "service-" + i;
+      String operation = i % 7 == 6 ? "operation.*" + i : "operation\\." + i;
+      serviceRules.put(service, "0.5");
+      operationRules.put(operation, "0.5");
+      servicePatterns.add(Pattern.compile(service));
+      operationPatterns.add(Pattern.compile(operation));
+    }
+    cached = RuleBasedSampler.build(serviceRules, operationRules, null, 100);
+    List<SamplingRule<DDSpan>> rules = new ArrayList<>();
+    for (Map.Entry<String, String> rule : serviceRules.entrySet()) {
+      rules.add(new NotCachedServiceRule(rule.getKey()));
+    }
+    for (Map.Entry<String, String> rule : operationRules.entrySet()) {
+      rules.add(
+          new SamplingRule.OperationSamplingRule<>(
+              rule.getKey(), new DeterministicSampler<DDSpan>(0.5)));
+    }
+    uncached = new RuleBasedSampler<>(rules, 100, new RateByServiceSampler<DDSpan>());
+
+    tracer = CoreTracer.builder().writer(new ListWriter()).build();
+    String serviceName = "first".equals(match) ? "service-0" : "unmatched-service";
+    String operationName = "last".equals(match) ? "operation." + (RULES - 1) : "unmatched";
+    span = (DDSpan) tracer.buildSpan(operationName).withServiceName(serviceName).start();
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public Pattern regex() {
+    for (Pattern pattern : servicePatterns) {
+      if (pattern.matcher(span.getServiceName()).matches()) {
+        return pattern;
+      }
+    }
+    for (Pattern pattern : operationPatterns) {
+      if (pattern.matcher(span.getOperationName()).matches()) {
+        return pattern;
+      }
+    }
+    return null;
+  }
+
+  @Benchmark
+  public SamplingRule<DDSpan> compiled() {
+    return uncached.findRule(span);
+  }
+
+  @Benchmark
+  public SamplingRule<DDSpan> compiledAndCached() {
+    return cached.findRule(span);
+  }
+
+  /** Looks beyond the names as far as the sampler knows, so its decisions aren't cached. */
+  private static final class NotCachedServiceRule
+      extends SamplingRule.PatternMatchSamplingRule<DDSpan> {
+    NotCachedServiceRule(String regex) {
+      super(regex, new DeterministicSampler<DDSpan>(0.5));
+    }
+
+    @Override
+    protected CharSequence getRelevantString(DDSpan span) {
+      return span.getServiceName();
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package datadog.trace.common.writer.ddagent;
+
+import datadog.trace.common.writer.ListWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import datadog.trace.core.serialization.ByteBufferConsumer;
+import datadog.trace.core.serialization.FlushingBuffer;
+import datadog.trace.core.serialization.msgpack.MsgPackWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Serializes payloads of traces with the v0.4 and v0.5 mappers. Resource names are drawn from a
+ * pool of distinct values, so the v0.5 dictionary sees both a small, recurring vocabulary and a
+ * large one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TraceMapperBenchmark {
+
+  @Param({"v0.4", "v0.5"})
+  String endpoint;
+
+  @Param({"16", "4096"})
+  int distinctResources;
+
+  @Param({"100"})
+  int tracesPerPayload;
+
+  @Param({"5"})
+  int spansPerTrace;
+
+  private CoreTracer tracer;
+  private TraceMapper mapper;
+  private MsgPackWriter packer;
+  private List<List<DDSpan>> traces;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void init(final Blackhole blackhole) {
+    tracer = CoreTracer.builder().writer(new ListWriter()).build();
+    mapper = "v0.5".equals(endpoint) ? new TraceMapperV0_5() : new TraceMapperV0_4();
+    packer =
+        new MsgPackWriter(
+            new FlushingBuffer(
+                mapper.messageBufferSize(),
+                new ByteBufferConsumer() {
+                  @Override
+                  public void accept(int messageCount, ByteBuffer buffer) {
+                    Payload payload = mapper.newPayload().withBody(messageCount, buffer);
+                    try {
+                      payload.writeTo(new BlackholeChannel(blackhole));
+                    } catch (IOException e) {
+                      throw new IllegalStateException(e);
+                    }
+                    mapper.reset();
+                  }
+                }));
+    traces = new ArrayList<>(distinctResources);
+    for (int i = 0; i < distinctResources; ++i) {
+      List<DDSpan> trace = new ArrayList<>(spansPerTrace);
+      for (int j = 0; j < spansPerTrace; ++j) {
+        trace.add(
+            (DDSpan)
+                tracer
+                    .buildSpan("operation-" + j)
+                    .withServiceName("service")
+                    .withResourceName("GET /resource/" + i)
+                    .withTag("http.method", "GET")
+                    .withTag("http.status_code", 200)
+                    .withTag("peer.hostname", "host-" + (i & 7))
+                    .start());
+      }
+      traces.add(trace);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public void serializePayload() {
+    for (int i = 0; i < tracesPerPayload; ++i) {
+      packer.format(traces.get(next), mapper);
+      next = (next + 1) % traces.size();
+    }
+    packer.flush();
+  }
+
+  private static final class BlackholeChannel implements WritableByteChannel {
+    private final Blackhole blackhole;
+
+    private BlackholeChannel(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      int remaining = src.remaining();
+      if (remaining > 0) {
+        blackhole.consume(src.get(src.limit() - 1));
+        src.position(src.limit());
+      }
+      return remaining;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,151 @@
+package datadog.trace.core;
+
+import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_MONITOR;
+
+import datadog.trace.core.util.Clock;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures how many completed traces per second can go through the pending trace buffer while a
+ * large number of long-lived traces are pending, along with the CPU time spent by the buffer worker
+ * thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PendingTraceSchedule {
+
+  @Param({"10000", "100000", "1000000"})
+  int pendingTraces;
+
+  PendingTraceBuffer buffer;
+  ThreadMXBean threadMXBean;
+  long workerId;
+  LongLivedTrace[] pending;
+
+  @Setup(Level.Trial)
+  public void init() throws InterruptedException {
+    buffer = PendingTraceBuffer.delaying();
+    buffer.start();
+    threadMXBean = ManagementFactory.getThreadMXBean();
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (TRACE_MONITOR.threadName.equals(thread.getName())) {
+        workerId = thread.getId();
+      }
+    }
+    pending = new LongLivedTrace[pendingTraces];
+    for (int i = 0; i < pendingTraces; ++i) {
+      pending[i] = new LongLivedTrace();
+      buffer.enqueue(pending[i]);
+      while (pending[i].overflowed) {
+        // the hand-off queue was full, give the worker a chance to catch up
+        pending[i].overflowed = false;
+        Thread.sleep(1);
+        buffer.enqueue(pending[i]);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    buffer.close();
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class WorkerCounters {
+    long workerCpuNanos;
+    long synchronousWrites;
+
+    private long cpuTimeAtStart;
+
+    public long workerCpuNanos() {
+      return workerCpuNanos;
+    }
+
+    public long synchronousWrites() {
+      return synchronousWrites;
+    }
+
+    @Setup(Level.Iteration)
+    public void reset(PendingTraceSchedule state) {
+      workerCpuNanos = 0;
+      synchronousWrites = 0;
+      cpuTimeAtStart = state.threadMXBean.getThreadCpuTime(state.workerId);
+    }
+
+    @TearDown(Level.Iteration)
+    public void record(PendingTraceSchedule state) {
+      workerCpuNanos = state.threadMXBean.getThreadCpuTime(state.workerId) - cpuTimeAtStart;
+    }
+  }
+
+  @Threads(4)
+  @Benchmark
+  public void enqueueCompletedTrace(WorkerCounters counters) {
+    CompletedTrace trace = new CompletedTrace(Thread.currentThread());
+    buffer.enqueue(trace);
+    if (trace.writtenSynchronously) {
+      counters.synchronousWrites++;
+    }
+  }
+
+  /** A trace with an outstanding continuation that keeps being referenced. */
+  static final class LongLivedTrace implements PendingTraceBuffer.Element {
+    volatile boolean overflowed;
+
+    @Override
+    public long oldestFinishedTime() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public long lastReferenced() {
+      return Clock.currentNanoTicks();
+    }
+
+    @Override
+    public void write() {
+      overflowed = true;
+    }
+  }
+
+  /** A trace that was last referenced long ago and is due for writing. */
+  static final class CompletedTrace implements PendingTraceBuffer.Element {
+    private final Thread producer;
+    boolean writtenSynchronously;
+
+    CompletedTrace(Thread producer) {
+      this.producer = producer;
+    }
+
+    @Override
+    public long oldestFinishedTime() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public long lastReferenced() {
+      return Clock.currentNanoTicks() - TimeUnit.SECONDS.toNanos(1);
+    }
+
+    @Override
+    public void write() {
+      writtenSynchronously = Thread.currentThread() == producer;
+    }
+  }
+}
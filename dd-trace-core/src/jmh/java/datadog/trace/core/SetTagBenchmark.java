@@ -0,0 +1,64 @@
+package datadog.trace.core;
+
+import datadog.trace.api.DDTags;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
+import datadog.trace.common.writer.ListWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Sets tags on a span, which go through the {@link datadog.trace.core.taginterceptor
+ * TagInterceptor} before reaching the context's tags.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SetTagBenchmark {
+
+  /** a plain tag, then tags the interceptor handles */
+  @Param({"custom.tag", Tags.HTTP_URL, Tags.COMPONENT, DDTags.RESOURCE_NAME, Tags.PEER_SERVICE})
+  String tag;
+
+  /**
+   * JMH hands over parameters as fresh strings, so they're only the same instances as the constants
+   * the instrumentations use once interned
+   */
+  @Param({"true", "false"})
+  boolean interned;
+
+  private String key;
+  private CoreTracer tracer;
+  private AgentSpan span;
+
+  @Setup(Level.Trial)
+  public void init() {
+    tracer = CoreTracer.builder().writer(new ListWriter()).build();
+    span = tracer.buildSpan("operation").start();
+    key = interned ? tag.intern() : new String(tag);
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public AgentSpan setStringTag() {
+    return span.setTag(key, "value");
+  }
+
+  @Benchmark
+  public AgentSpan setIntTag() {
+    return span.setTag(key, 200);
+  }
+}
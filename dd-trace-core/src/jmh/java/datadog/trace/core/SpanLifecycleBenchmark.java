@@ -0,0 +1,81 @@
+package datadog.trace.core;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentScope;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Builds, starts and finishes spans through {@link CoreTracer}, as instrumentation does for every
+ * request, writing the finished traces to a blackhole.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpanLifecycleBenchmark {
+
+  private CoreTracer tracer;
+  private AgentSpan parent;
+  private AgentScope parentScope;
+
+  @Setup(Level.Trial)
+  public void init(TraceCounters counters, Blackhole blackhole) {
+    tracer =
+        CoreTracer.builder()
+            .writer(new BlackholeWriter(blackhole, counters, 0))
+            .strictTraceWrites(false)
+            .build();
+    parent = tracer.buildSpan("parent").start();
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    parent.finish();
+    tracer.close();
+  }
+
+  @Setup(Level.Iteration)
+  public void activateParent() {
+    parentScope = tracer.activateSpan(parent);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeParent() {
+    parentScope.close();
+  }
+
+  @Benchmark
+  public AgentSpan buildSpan() {
+    return tracer.buildSpan("operation").ignoreActiveSpan().start();
+  }
+
+  @Benchmark
+  public AgentSpan rootSpan() {
+    AgentSpan span =
+        tracer
+            .buildSpan("servlet.request")
+            .ignoreActiveSpan()
+            .withServiceName("service")
+            .withResourceName("GET /resource")
+            .withSpanType("web")
+            .start();
+    span.finish();
+    return span;
+  }
+
+  @Benchmark
+  public AgentSpan childOfActiveSpan() {
+    AgentSpan span = tracer.buildSpan("child").start();
+    span.finish();
+    return span;
+  }
+}
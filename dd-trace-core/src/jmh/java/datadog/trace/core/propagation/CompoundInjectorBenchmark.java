@@ -0,0 +1,83 @@
+package datadog.trace.core.propagation;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
+import datadog.trace.common.writer.ListWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import datadog.trace.core.DDSpanContext;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Injects the same span context with every propagation style, as a service making many downstream
+ * calls for one request would. Setting a baggage item discards the context's cached header values,
+ * so without the cache a baggage item is set on the injected context before each injection, and
+ * with it on another context, so that both pay for setting it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CompoundInjectorBenchmark {
+
+  @Param({"true", "false"})
+  boolean cached;
+
+  private CoreTracer tracer;
+  private DDSpanContext context;
+  private DDSpanContext baggageContext;
+  private HttpCodec.Injector injector;
+  private final Map<String, String> injected = new HashMap<>();
+
+  @Setup(Level.Trial)
+  public void init() {
+    tracer = CoreTracer.builder().writer(new ListWriter()).build();
+    DDSpan span = (DDSpan) tracer.buildSpan("operation").start();
+    span.setBaggageItem("user-id", "some user");
+    span.setBaggageItem("session", "f3a7c2d9");
+    context = span.context();
+    baggageContext = ((DDSpan) tracer.buildSpan("other").start()).context();
+    if (!cached) {
+      baggageContext = context;
+    }
+    injector =
+        new HttpCodec.CompoundInjector(
+            Arrays.asList(
+                new DatadogHttpCodec.Injector(),
+                new B3HttpCodec.Injector(),
+                new HaystackHttpCodec.Injector()));
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public Map<String, String> inject() {
+    baggageContext.setBaggageItem("session", "f3a7c2d9");
+    injected.clear();
+    injector.inject(context, injected, MapSetter.INSTANCE);
+    return injected;
+  }
+
+  private static final class MapSetter implements AgentPropagation.Setter<Map<String, String>> {
+    static final MapSetter INSTANCE = new MapSetter();
+
+    @Override
+    public void set(Map<String, String> carrier, String key, String value) {
+      carrier.put(key, value);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package datadog.trace.core.propagation;
+
+import datadog.trace.api.PropagationStyle;
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
+import datadog.trace.common.writer.ListWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import datadog.trace.core.DDSpanContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Injects a span context into, and extracts one from, a map of headers. The extracted headers
+ * include the other headers of a typical request, which the extractors have to skip.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HttpCodecBenchmark {
+
+  @Param({"DATADOG", "B3", "HAYSTACK"})
+  PropagationStyle style;
+
+  private CoreTracer tracer;
+  private DDSpanContext context;
+  private HttpCodec.Injector injector;
+  private HttpCodec.Extractor extractor;
+  private final Map<String, String> injected = new HashMap<>();
+  private final Map<String, String> headers = new HashMap<>();
+
+  @Setup(Level.Trial)
+  public void init() {
+    tracer = CoreTracer.builder().writer(new ListWriter()).build();
+    DDSpan span = (DDSpan) tracer.buildSpan("operation").start();
+    span.setBaggageItem("baggage-key", "baggage-value");
+    context = span.context();
+    switch (style) {
+      case B3:
+        injector = new B3HttpCodec.Injector();
+        extractor = B3HttpCodec.newExtractor(Collections.<String, String>emptyMap());
+        break;
+      case HAYSTACK:
+        injector = new HaystackHttpCodec.Injector();
+        extractor = HaystackHttpCodec.newExtractor(Collections.<String, String>emptyMap());
+        break;
+      default:
+        injector = new DatadogHttpCodec.Injector();
+        extractor = DatadogHttpCodec.newExtractor(Collections.<String, String>emptyMap());
+    }
+    headers.put("accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+    headers.put("accept-encoding", "gzip, deflate, br");
+    headers.put("accept-language", "en-GB,en;q=0.5");
+    headers.put("connection", "keep-alive");
+    headers.put("host", "localhost:8080");
+    headers.put("user-agent", "Mozilla/5.0 (X11; Linux x86_64; rv:86.0) Firefox/86.0");
+    injector.inject(context, headers, MapSetter.INSTANCE);
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public Map<String, String> inject() {
+    injected.clear();
+    injector.inject(context, injected, MapSetter.INSTANCE);
+    return injected;
+  }
+
+  @Benchmark
+  public TagContext extract() {
+    return extractor.extract(headers, MapVisitor.INSTANCE);
+  }
+
+  private static final class MapSetter implements AgentPropagation.Setter<Map<String, String>> {
+    static final MapSetter INSTANCE = new MapSetter();
+
+    @Override
+    public void set(Map<String, String> carrier, String key, String value) {
+      carrier.put(key, value);
+    }
+  }
+
+  private static final class MapVisitor
+      implements AgentPropagation.ContextVisitor<Map<String, String>> {
+    static final MapVisitor INSTANCE = new MapVisitor();
+
+    @Override
+    public void forEachKey(Map<String, String> carrier, AgentPropagation.KeyClassifier classifier) {
+      for (Map.Entry<String, String> header : carrier.entrySet()) {
+        if (!classifier.accept(header.getKey(), header.getValue())) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package datadog.trace.core.scopemanager;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentScope;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.ScopeSource;
+import datadog.trace.common.writer.ListWriter;
+import datadog.trace.context.TraceScope;
+import datadog.trace.core.CoreTracer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Activates and closes scopes through the {@link ContinuableScopeManager}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScopeManagerBenchmark {
+
+  private CoreTracer tracer;
+  private AgentSpan span;
+  private AgentSpan child;
+
+  @Setup(Level.Trial)
+  public void init() {
+    tracer = CoreTracer.builder().writer(new ListWriter()).build();
+    span = tracer.buildSpan("operation").start();
+    child = tracer.buildSpan("child").asChildOf(span.context()).start();
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public AgentScope activateAndClose() {
+    AgentScope scope = tracer.activateSpan(span);
+    scope.close();
+    return scope;
+  }
+
+  @Benchmark
+  public AgentScope activateNestedAndClose() {
+    AgentScope outer = tracer.activateSpan(span);
+    AgentScope inner = tracer.activateSpan(child);
+    inner.close();
+    outer.close();
+    return inner;
+  }
+
+  @Benchmark
+  public AgentScope continueAndClose() {
+    AgentScope scope = tracer.activateSpan(span, ScopeSource.INSTRUMENTATION, true);
+    TraceScope.Continuation continuation = scope.capture();
+    scope.close();
+    TraceScope continued = continuation.activate();
+    continued.close();
+    return scope;
+  }
+}
@@ -5,10 +5,13 @@ import static datadog.trace.common.metrics.ConflatingMetricsAggregator.POISON_PI
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import datadog.trace.core.util.LRUCache;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -19,11 +22,25 @@ final class Aggregator implements Runnable {
 
   private static final Logger log = LoggerFactory.getLogger(Aggregator.class);
 
+  // how long the inbox has to stay empty before partial batches are taken from the stripes
+  static final long IDLE_SWEEP_MILLIS = 1000;
+
+  private static final Comparator<Map.Entry<MetricKey, PendingBatches>> LEAST_RECENTLY_INSTALLED =
+      new Comparator<Map.Entry<MetricKey, PendingBatches>>() {
+        @Override
+        public int compare(
+            Map.Entry<MetricKey, PendingBatches> left, Map.Entry<MetricKey, PendingBatches> right) {
+          long difference = left.getValue().lastInstalled() - right.getValue().lastInstalled();
+          return difference < 0 ? -1 : (difference == 0 ? 0 : 1);
+        }
+      };
+
   private final Queue<Batch> batchPool;
   private final BlockingQueue<Batch> inbox;
   private final LRUCache<MetricKey, AggregateMetric> aggregates;
-  private final ConcurrentHashMap<MetricKey, Batch> pending;
-  private final Set<MetricKey> commonKeys;
+  private final ConcurrentHashMap<MetricKey, PendingBatches> pending;
+  private final List<Map.Entry<MetricKey, PendingBatches>> sweep = new ArrayList<>();
+  private final List<PendingBatches> expunged = new ArrayList<>();
   private final MetricWriter writer;
   // the reporting interval controls how much history will be buffered
   // when the agent is unresponsive (only 10 pending requests will be
@@ -36,18 +53,15 @@ final class Aggregator implements Runnable {
       MetricWriter writer,
       Queue<Batch> batchPool,
       BlockingQueue<Batch> inbox,
-      ConcurrentHashMap<MetricKey, Batch> pending,
-      final Set<MetricKey> commonKeys,
+      ConcurrentHashMap<MetricKey, PendingBatches> pending,
       int maxAggregates,
       long reportingInterval,
       TimeUnit reportingIntervalTimeUnit) {
     this.writer = writer;
     this.batchPool = batchPool;
     this.inbox = inbox;
-    this.commonKeys = commonKeys;
     this.aggregates =
-        new LRUCache<>(
-            new CommonKeyCleaner(commonKeys), maxAggregates * 4 / 3, 0.75f, maxAggregates);
+        new LRUCache<>(new CommonKeyCleaner(pending), maxAggregates * 4 / 3, 0.75f, maxAggregates);
     this.pending = pending;
     this.reportingIntervalNanos = reportingIntervalTimeUnit.toNanos(reportingInterval);
   }
@@ -61,25 +75,20 @@ final class Aggregator implements Runnable {
     Thread currentThread = Thread.currentThread();
     while (!currentThread.isInterrupted()) {
       try {
-        Batch batch = inbox.take();
-        if (batch == POISON_PILL) {
+        Batch batch = inbox.poll(IDLE_SWEEP_MILLIS, MILLISECONDS);
+        if (null == batch) {
+          // take the partial batches rather than hold on to them until the next report
+          sweepPendingBatches();
+        } else if (batch == POISON_PILL) {
+          sweepPendingBatches();
           report(wallClockTime());
           break;
         } else if (batch == REPORT) {
+          sweepPendingBatches();
           report(wallClockTime());
         } else {
-          MetricKey key = batch.getKey();
-          // important that it is still *this* batch pending, must not remove otherwise
-          pending.remove(key, batch);
-          AggregateMetric aggregate = aggregates.get(key);
-          if (null == aggregate) {
-            aggregate = new AggregateMetric();
-            aggregates.put(key, aggregate);
-          }
-          batch.contributeTo(aggregate);
-          dirty = true;
-          // return the batch for reuse
-          batchPool.offer(batch);
+          // a full batch handed over by a publishing thread
+          aggregate(batch);
         }
       } catch (InterruptedException e) {
         currentThread.interrupt();
@@ -87,6 +96,41 @@ final class Aggregator implements Runnable {
     }
   }
 
+  private void aggregate(Batch batch) {
+    MetricKey key = batch.getKey();
+    AggregateMetric aggregate = aggregates.get(key);
+    if (null == aggregate) {
+      aggregate = new AggregateMetric();
+      aggregates.put(key, aggregate);
+    }
+    batch.contributeTo(aggregate);
+    dirty = true;
+    // return the batch for reuse
+    batchPool.offer(batch);
+  }
+
+  /**
+   * Takes the batches left in the stripes, least recently written keys first, so the least recently
+   * written aggregates are the first to be evicted.
+   */
+  private void sweepPendingBatches() {
+    sweep.addAll(pending.entrySet());
+    Collections.sort(sweep, LEAST_RECENTLY_INSTALLED);
+    for (Map.Entry<MetricKey, PendingBatches> entry : sweep) {
+      takeBatches(entry.getValue());
+    }
+    sweep.clear();
+  }
+
+  private void takeBatches(PendingBatches batches) {
+    for (int i = 0; i < batches.stripeCount(); ++i) {
+      Batch batch = batches.get(i);
+      if (null != batch && batches.replace(i, batch, null)) {
+        aggregate(batch);
+      }
+    }
+  }
+
   private void report(long when) {
     if (dirty) {
       try {
@@ -115,9 +159,18 @@ final class Aggregator implements Runnable {
       AggregateMetric metric = pair.getValue();
       if (metric.getHitCount() == 0) {
         it.remove();
-        commonKeys.remove(pair.getKey());
+        PendingBatches batches = pending.remove(pair.getKey());
+        if (null != batches) {
+          expunged.add(batches);
+        }
       }
     }
+    // batches installed since the sweep would never be seen again, publishers installing
+    // batches from now on see that the key was expunged and hand them over
+    for (PendingBatches batches : expunged) {
+      takeBatches(batches);
+    }
+    expunged.clear();
   }
 
   private long wallClockTime() {
@@ -127,15 +180,16 @@ final class Aggregator implements Runnable {
   private static final class CommonKeyCleaner
       implements LRUCache.ExpiryListener<MetricKey, AggregateMetric> {
 
-    private final Set<MetricKey> commonKeys;
+    private final ConcurrentHashMap<MetricKey, PendingBatches> pending;
 
-    private CommonKeyCleaner(Set<MetricKey> commonKeys) {
-      this.commonKeys = commonKeys;
+    private CommonKeyCleaner(ConcurrentHashMap<MetricKey, PendingBatches> pending) {
+      this.pending = pending;
     }
 
     @Override
     public void accept(Map.Entry<MetricKey, AggregateMetric> expired) {
-      commonKeys.remove(expired.getKey());
+      // the pending data of an evicted key is dropped along with its aggregate
+      pending.remove(expired.getKey());
     }
   }
 }
@@ -52,6 +52,8 @@ public final class Batch {
 
   public Batch reset(MetricKey key) {
     this.key = key;
+    // a batch which was never contributed still counts its committed durations
+    COMMITTED.lazySet(this, 0);
     COUNT.lazySet(this, 0);
     return this;
   }
@@ -36,11 +36,22 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
 
   private static final Integer ZERO = 0;
 
+  private static final ThreadLocal<MetricKeyProbe> PROBE =
+      new ThreadLocal<MetricKeyProbe>() {
+        @Override
+        protected MetricKeyProbe initialValue() {
+          return new MetricKeyProbe();
+        }
+      };
+
   static final Batch POISON_PILL = Batch.NULL;
 
+  // few stripes, since each one can hold a partial batch for every key, see PendingBatches
+  private static final int STRIPE_COUNT =
+      Math.min(4, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
   private final Queue<Batch> batchPool;
-  private final ConcurrentHashMap<MetricKey, Batch> pending;
-  private final ConcurrentHashMap<MetricKey, MetricKey> keys;
+  private final ConcurrentHashMap<MetricKey, PendingBatches> pending;
   private final Thread thread;
   private final BlockingQueue<Batch> inbox;
   private final Sink sink;
@@ -93,18 +104,10 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
     this.inbox = new MpscBlockingConsumerArrayQueue<>(queueSize);
     this.batchPool = new SpmcArrayQueue<>(maxAggregates);
     this.pending = new ConcurrentHashMap<>(maxAggregates * 4 / 3, 0.75f);
-    this.keys = new ConcurrentHashMap<>();
     this.sink = sink;
     this.aggregator =
         new Aggregator(
-            metricWriter,
-            batchPool,
-            inbox,
-            pending,
-            keys.keySet(),
-            maxAggregates,
-            reportingInterval,
-            timeUnit);
+            metricWriter, batchPool, inbox, pending, maxAggregates, reportingInterval, timeUnit);
     this.thread = newAgentThread(METRICS_AGGREGATOR, aggregator);
     this.reportingInterval = reportingInterval;
     this.reportingIntervalTimeUnit = timeUnit;
@@ -152,43 +155,60 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
   }
 
   private boolean publish(CoreSpan<?> span, boolean isTopLevel) {
-    MetricKey newKey =
-        new MetricKey(
-            span.getResourceName(),
-            SERVICE_NAMES.computeIfAbsent(span.getServiceName(), UTF8_ENCODE),
-            span.getOperationName(),
-            span.getType(),
-            span.getTag(Tags.HTTP_STATUS, ZERO));
+    MetricKeyProbe probe =
+        PROBE
+            .get()
+            .of(
+                span.getResourceName(),
+                span.getServiceName(),
+                span.getOperationName(),
+                span.getType(),
+                span.getTag(Tags.HTTP_STATUS, ZERO));
     boolean isNewKey = false;
-    MetricKey key = keys.putIfAbsent(newKey, newKey);
-    if (null == key) {
-      key = newKey;
-      isNewKey = true;
+    // the probe only allocates a key the first time it is seen
+    PendingBatches batches = pending.get(probe);
+    if (null == batches) {
+      String service = span.getServiceName();
+      MetricKey key =
+          probe.toKey(null == service ? null : SERVICE_NAMES.computeIfAbsent(service, UTF8_ENCODE));
+      PendingBatches created = new PendingBatches(key, STRIPE_COUNT);
+      batches = pending.putIfAbsent(key, created);
+      if (null == batches) {
+        batches = created;
+        isNewKey = true;
+      }
     }
+    probe.clear();
     long tag = (span.getError() > 0 ? ERROR_TAG : 0L) | (isTopLevel ? TOP_LEVEL_TAG : 0L);
     long durationNanos = span.getDurationNano();
-    Batch batch = pending.get(key);
-    if (null != batch) {
-      // there is a pending batch, try to win the race to add to it
+    MetricKey key = batches.getKey();
+    int stripe = batches.stripeOfCurrentThread();
+    Batch next = null;
+    while (true) {
+      Batch batch = batches.get(stripe);
       // returning false means that either the batch can't take any
-      // more data, or it has already been consumed
-      if (batch.add(tag, durationNanos)) {
-        // added to a pending batch prior to consumption
-        // so skip publishing to the queue (we also know
-        // the key isn't rare enough to override the sampler)
-        return false;
+      // more data, or it has been taken by the aggregator
+      if (null != batch && batch.add(tag, durationNanos)) {
+        // a batch this thread failed to install is left to the garbage collector, because
+        // only the aggregator thread can return batches to the pool
+        break;
+      }
+      next = null == next ? newBatch(key) : next.reset(key);
+      next.add(tag, durationNanos);
+      if (batches.replace(stripe, batch, next)) {
+        if (null != batch) {
+          // the batch is full, and now owned by this thread
+          inbox.offer(batch);
+        }
+        if (pending.get(key) != batches && batches.replace(stripe, next, null)) {
+          // the key was expunged while publishing, and the aggregator won't look at its
+          // stripes again, so hand the batch over rather than leave it there
+          inbox.offer(next);
+        }
+        break;
       }
-      // recycle the older key
-      key = batch.getKey();
-      isNewKey = false;
+      // lost the race to replace the batch, so try to add to the winner's
     }
-    batch = newBatch(key);
-    batch.add(tag, durationNanos);
-    // overwrite the last one if present, it was already full
-    // or had been consumed by the time we tried to add to it
-    pending.put(key, batch);
-    // must offer to the queue after adding to pending
-    inbox.offer(batch);
     // force keep keys we haven't seen before or errors
     return isNewKey || span.getError() > 0;
   }
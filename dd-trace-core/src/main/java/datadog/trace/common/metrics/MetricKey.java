@@ -24,14 +24,24 @@ public final class MetricKey {
     this.operationName = null == operationName ? EMPTY : UTF8BytesString.create(operationName);
     this.type = null == type ? EMPTY : UTF8BytesString.create(type);
     this.httpStatusCode = httpStatusCode;
+    this.hash =
+        hash(
+            this.resource.hashCode(),
+            this.service.hashCode(),
+            this.operationName.hashCode(),
+            this.type.hashCode(),
+            httpStatusCode);
+  }
+
+  static int hash(
+      int resourceHash, int serviceHash, int operationNameHash, int typeHash, int httpStatusCode) {
     // unrolled polynomial hashcode which avoids allocating varargs
     // the constants are 31^4, 31^3, 31^2, 31^1, 31^0
-    this.hash =
-        923521 * this.resource.hashCode()
-            + 29791 * this.service.hashCode()
-            + 961 * this.operationName.hashCode()
-            + 31 * this.type.hashCode()
-            + httpStatusCode;
+    return 923521 * resourceHash
+        + 29791 * serviceHash
+        + 961 * operationNameHash
+        + 31 * typeHash
+        + httpStatusCode;
   }
 
   public UTF8BytesString getResource() {
@@ -68,6 +78,9 @@ public final class MetricKey {
           && operationName.equals(metricKey.operationName)
           && type.equals(metricKey.type);
     }
+    if (o instanceof MetricKeyProbe) {
+      return o.equals(this);
+    }
     return false;
   }
 
@@ -0,0 +1,93 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+
+/**
+ * A reusable stand-in for a {@link MetricKey}, which hashes and compares the span's fields in place
+ * so that keys which have been seen before can be looked up without allocating. Equal to, and with
+ * the same hash code as, the {@link MetricKey} built from the same fields.
+ *
+ * <p>Not thread-safe, each thread should use its own.
+ */
+final class MetricKeyProbe {
+
+  private CharSequence resource;
+  private CharSequence service;
+  private CharSequence operationName;
+  private CharSequence type;
+  private int httpStatusCode;
+  private int hash;
+
+  MetricKeyProbe of(
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode) {
+    this.resource = resource;
+    this.service = service;
+    this.operationName = operationName;
+    this.type = type;
+    this.httpStatusCode = httpStatusCode;
+    this.hash =
+        MetricKey.hash(
+            hash(resource), hash(service), hash(operationName), hash(type), httpStatusCode);
+    return this;
+  }
+
+  MetricKey toKey(CharSequence service) {
+    return new MetricKey(resource, service, operationName, type, httpStatusCode);
+  }
+
+  /** Drops the references to the span's fields. */
+  void clear() {
+    this.resource = null;
+    this.service = null;
+    this.operationName = null;
+    this.type = null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof MetricKey) {
+      MetricKey key = (MetricKey) o;
+      return hash == key.hashCode()
+          && httpStatusCode == key.getHttpStatusCode()
+          && contentEquals(key.getResource(), resource)
+          && contentEquals(key.getService(), service)
+          && contentEquals(key.getOperationName(), operationName)
+          && contentEquals(key.getType(), type);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /** @return the same hash code as the sequence would have when converted to a String */
+  private static int hash(CharSequence sequence) {
+    if (null == sequence) {
+      return 0;
+    }
+    if (sequence instanceof String || sequence instanceof UTF8BytesString) {
+      return sequence.hashCode();
+    }
+    int hash = 0;
+    for (int i = 0; i < sequence.length(); ++i) {
+      hash = 31 * hash + sequence.charAt(i);
+    }
+    return hash;
+  }
+
+  private static boolean contentEquals(UTF8BytesString keyField, CharSequence value) {
+    if (null == value) {
+      return keyField.length() == 0;
+    }
+    if (value instanceof UTF8BytesString) {
+      return keyField.equals(value);
+    }
+    return keyField.toString().contentEquals(value);
+  }
+}
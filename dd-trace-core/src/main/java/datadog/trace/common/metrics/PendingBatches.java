@@ -0,0 +1,65 @@
+package datadog.trace.common.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The batches of a key which have yet to reach the aggregator, one per stripe. Publishing threads
+ * pick a stripe by thread id, so they rarely contend on the same batch. A full batch is handed to
+ * the aggregator by the thread which replaces it, and the aggregator takes whatever is left in the
+ * stripes at the end of each reporting interval, and whenever it has been idle for a second.
+ *
+ * <p>Each stripe holds at most one batch of 64 durations, about 600 bytes, so the pending batches
+ * take up to {@code maxAggregates * stripeCount} batches, about 5MB with the default 2048
+ * aggregates and 4 stripes, on top of the pool of up to {@code maxAggregates} batches kept for
+ * reuse.
+ */
+final class PendingBatches {
+
+  private final MetricKey key;
+  private final AtomicReferenceArray<Batch> stripes;
+  private final int mask;
+  /** When a batch was last installed, which approximates how recently the key was written to. */
+  private volatile long lastInstalled;
+
+  /** @param stripeCount must be a power of two */
+  PendingBatches(MetricKey key, int stripeCount) {
+    this.key = key;
+    this.stripes = new AtomicReferenceArray<>(stripeCount);
+    this.mask = stripeCount - 1;
+  }
+
+  MetricKey getKey() {
+    return key;
+  }
+
+  int stripeOfCurrentThread() {
+    return (int) Thread.currentThread().getId() & mask;
+  }
+
+  int stripeCount() {
+    return stripes.length();
+  }
+
+  Batch get(int stripe) {
+    return stripes.get(stripe);
+  }
+
+  /**
+   * Replaces the batch in the stripe, which the caller then owns.
+   *
+   * @return false if another thread replaced or took the batch first
+   */
+  boolean replace(int stripe, Batch expected, Batch replacement) {
+    if (stripes.compareAndSet(stripe, expected, replacement)) {
+      if (null != replacement) {
+        lastInstalled = System.nanoTime();
+      }
+      return true;
+    }
+    return false;
+  }
+
+  long lastInstalled() {
+    return lastInstalled;
+  }
+}
@@ -0,0 +1,224 @@
+package datadog.trace.common.sampling;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matches service or operation names against a sampling rule's regex. Most rules are literals, or
+ * literals with {@code .*} wildcards, so patterns are classified as exact, prefix or glob patterns,
+ * which can be matched without the regex engine, and only fall back to {@link Pattern} when they
+ * use anything else. Each matches exactly the same names as {@link
+ * java.util.regex.Matcher#matches()} would.
+ */
+abstract class NameMatcher {
+
+  private static final int ANY_CHAR = -1;
+  private static final int ANY_SEQUENCE = -2;
+
+  static NameMatcher compile(final String regex) {
+    final int[] tokens = parse(regex);
+    if (null == tokens) {
+      return new RegexMatcher(Pattern.compile(regex));
+    }
+    int literals = 0;
+    while (literals < tokens.length && tokens[literals] >= 0) {
+      ++literals;
+    }
+    if (literals == tokens.length) {
+      return new ExactMatcher(literal(tokens, literals));
+    }
+    if (literals == tokens.length - 1 && tokens[literals] == ANY_SEQUENCE) {
+      return new PrefixMatcher(literal(tokens, literals));
+    }
+    return new GlobMatcher(tokens);
+  }
+
+  abstract boolean matches(CharSequence name);
+
+  /**
+   * @return the pattern as literal chars, {@link #ANY_CHAR} and {@link #ANY_SEQUENCE}, or null if
+   *     it uses any other regex construct
+   */
+  private static int[] parse(final String regex) {
+    final int[] tokens = new int[regex.length()];
+    int size = 0;
+    for (int i = 0; i < regex.length(); ++i) {
+      final char c = regex.charAt(i);
+      switch (c) {
+        case '\\':
+          // only escaped punctuation is literal, \d, \Q, \1 and the like are left to the regex
+          if (i + 1 == regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+            return null;
+          }
+          if (isLineTerminator(regex.charAt(++i))) {
+            return null;
+          }
+          tokens[size++] = regex.charAt(i);
+          break;
+        case '.':
+          if (i + 1 < regex.length() && regex.charAt(i + 1) == '*') {
+            ++i;
+            // possessive and reluctant quantifiers are left to the regex
+            if (i + 1 < regex.length()
+                && (regex.charAt(i + 1) == '+' || regex.charAt(i + 1) == '?')) {
+              return null;
+            }
+            if (size == 0 || tokens[size - 1] != ANY_SEQUENCE) {
+              tokens[size++] = ANY_SEQUENCE;
+            }
+          } else {
+            tokens[size++] = ANY_CHAR;
+          }
+          break;
+        case '^':
+        case '$':
+        case '|':
+        case '?':
+        case '*':
+        case '+':
+        case '(':
+        case ')':
+        case '[':
+        case ']':
+        case '{':
+        case '}':
+          return null;
+        default:
+          // so that no token can match a line terminator
+          if (isLineTerminator(c)) {
+            return null;
+          }
+          tokens[size++] = c;
+      }
+    }
+    final int[] parsed = new int[size];
+    System.arraycopy(tokens, 0, parsed, 0, size);
+    return parsed;
+  }
+
+  private static String literal(final int[] tokens, final int length) {
+    final char[] chars = new char[length];
+    for (int i = 0; i < length; ++i) {
+      chars[i] = (char) tokens[i];
+    }
+    return new String(chars);
+  }
+
+  /** Neither {@code .} nor {@code .*} match line terminators. */
+  private static boolean isLineTerminator(final char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  private static boolean hasLineTerminator(final CharSequence name, final int from) {
+    for (int i = from; i < name.length(); ++i) {
+      if (isLineTerminator(name.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** {@code .} matches a whole code point */
+  private static int charCount(final CharSequence name, final int index) {
+    return Character.isHighSurrogate(name.charAt(index))
+            && index + 1 < name.length()
+            && Character.isLowSurrogate(name.charAt(index + 1))
+        ? 2
+        : 1;
+  }
+
+  static final class ExactMatcher extends NameMatcher {
+    private final String literal;
+
+    ExactMatcher(final String literal) {
+      this.literal = literal;
+    }
+
+    @Override
+    boolean matches(final CharSequence name) {
+      return literal.contentEquals(name);
+    }
+  }
+
+  static final class PrefixMatcher extends NameMatcher {
+    private final String prefix;
+
+    PrefixMatcher(final String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    boolean matches(final CharSequence name) {
+      if (name.length() < prefix.length()) {
+        return false;
+      }
+      for (int i = 0; i < prefix.length(); ++i) {
+        if (prefix.charAt(i) != name.charAt(i)) {
+          return false;
+        }
+      }
+      return !hasLineTerminator(name, prefix.length());
+    }
+  }
+
+  static final class GlobMatcher extends NameMatcher {
+    private final int[] tokens;
+
+    GlobMatcher(final int[] tokens) {
+      this.tokens = tokens;
+    }
+
+    @Override
+    boolean matches(final CharSequence name) {
+      int token = 0;
+      int position = 0;
+      // where to resume from if what follows the last .* doesn't match
+      int sequenceToken = -1;
+      int sequenceEnd = -1;
+      while (position < name.length()) {
+        if (token < tokens.length) {
+          final int expected = tokens[token];
+          if (expected == ANY_SEQUENCE) {
+            sequenceToken = ++token;
+            sequenceEnd = position;
+            continue;
+          }
+          final char c = name.charAt(position);
+          if (expected == ANY_CHAR && !isLineTerminator(c)) {
+            position += charCount(name, position);
+            ++token;
+            continue;
+          }
+          if (expected == c) {
+            ++position;
+            ++token;
+            continue;
+          }
+        }
+        // extend the last .* by one and try again
+        if (sequenceToken < 0 || isLineTerminator(name.charAt(sequenceEnd))) {
+          return false;
+        }
+        sequenceEnd += charCount(name, sequenceEnd);
+        position = sequenceEnd;
+        token = sequenceToken;
+      }
+      while (token < tokens.length && tokens[token] == ANY_SEQUENCE) {
+        ++token;
+      }
+      return token == tokens.length;
+    }
+  }
+
+  static final class RegexMatcher extends NameMatcher {
+    private final Pattern pattern;
+
+    RegexMatcher(final Pattern pattern) {
+      this.pattern = pattern;
+    }
+
+    @Override
+    boolean matches(final CharSequence name) {
+      return pattern.matcher(name).matches();
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package datadog.trace.common.sampling;
 
+import datadog.trace.api.Function;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.common.sampling.SamplingRule.AlwaysMatchesSamplingRule;
 import datadog.trace.common.sampling.SamplingRule.OperationSamplingRule;
@@ -20,6 +23,20 @@ public class RuleBasedSampler<T extends CoreSpan<T>> implements Sampler<T>, Prio
   private final PrioritySampler<T> fallbackSampler;
   private final SimpleRateLimiter rateLimiter;
   private final long rateLimit;
+  /**
+   * The first rule matching each service and operation name, looked up by service then by operation
+   * name, or null when some rule looks at more than the names, so the rules must be checked for
+   * each span.
+   */
+  private final DDCache<String, RulesByOperationName> matchedRules;
+
+  private final Function<String, RulesByOperationName> newRulesByOperationName =
+      new Function<String, RulesByOperationName>() {
+        @Override
+        public RulesByOperationName apply(final String serviceName) {
+          return new RulesByOperationName(serviceName);
+        }
+      };
 
   public static final String SAMPLING_RULE_RATE = "_dd.rule_psr";
   public static final String SAMPLING_LIMIT_RATE = "_dd.limit_psr";
@@ -33,6 +50,13 @@ public class RuleBasedSampler<T extends CoreSpan<T>> implements Sampler<T>, Prio
     rateLimiter = new SimpleRateLimiter(rateLimit);
 
     this.rateLimit = rateLimit;
+
+    boolean matchesOnNamesOnly = true;
+    for (final SamplingRule<T> samplingRule : samplingRules) {
+      matchesOnNamesOnly &= samplingRule instanceof SamplingRule.MatchesOnNames;
+    }
+    this.matchedRules =
+        matchesOnNamesOnly ? DDCaches.<String, RulesByOperationName>newFixedSizeCache(64) : null;
   }
 
   public static <T extends CoreSpan<T>> RuleBasedSampler<T> build(
@@ -86,14 +110,7 @@ public class RuleBasedSampler<T extends CoreSpan<T>> implements Sampler<T>, Prio
 
   @Override
   public void setSamplingPriority(final T span) {
-    SamplingRule<T> matchedRule = null;
-
-    for (final SamplingRule<T> samplingRule : samplingRules) {
-      if (samplingRule.matches(span)) {
-        matchedRule = samplingRule;
-        break;
-      }
-    }
+    final SamplingRule<T> matchedRule = findRule(span);
 
     if (matchedRule == null) {
       fallbackSampler.setSamplingPriority(span);
@@ -119,4 +136,53 @@ public class RuleBasedSampler<T extends CoreSpan<T>> implements Sampler<T>, Prio
       }
     }
   }
+
+  SamplingRule<T> findRule(final T span) {
+    if (null != matchedRules) {
+      final String serviceName = span.getServiceName();
+      final CharSequence operationName = span.getOperationName();
+      final String operation = null == operationName ? null : operationName.toString();
+      if (null == serviceName) {
+        // the caches don't take null keys
+        return findRuleByNames(null, operation);
+      }
+      return matchedRules.computeIfAbsent(serviceName, newRulesByOperationName).find(operation);
+    }
+    for (final SamplingRule<T> samplingRule : samplingRules) {
+      if (samplingRule.matches(span)) {
+        return samplingRule;
+      }
+    }
+    return null;
+  }
+
+  private SamplingRule<T> findRuleByNames(final String serviceName, final String operationName) {
+    for (final SamplingRule<T> samplingRule : samplingRules) {
+      if (((SamplingRule.MatchesOnNames) samplingRule).matches(serviceName, operationName)) {
+        return samplingRule;
+      }
+    }
+    return null;
+  }
+
+  /** The first rule matching each operation name of a service. */
+  private final class RulesByOperationName implements Function<String, SamplingRule<T>> {
+    private final String serviceName;
+    private final DDCache<String, SamplingRule<T>> rules = DDCaches.newFixedSizeCache(64);
+
+    RulesByOperationName(final String serviceName) {
+      this.serviceName = serviceName;
+    }
+
+    SamplingRule<T> find(final String operationName) {
+      return null == operationName
+          ? findRuleByNames(serviceName, null)
+          : rules.computeIfAbsent(operationName, this);
+    }
+
+    @Override
+    public SamplingRule<T> apply(final String operationName) {
+      return findRuleByNames(serviceName, operationName);
+    }
+  }
 }
@@ -52,6 +52,8 @@ public interface Sampler<T extends CoreSpan<T>> {
           } else if (DROP.equalsIgnoreCase(config.getPrioritySamplingForce())) {
             log.debug("Force Sampling Priority to: SAMPLER_DROP.");
             sampler = new ForcePrioritySampler<>(PrioritySampling.SAMPLER_DROP);
+          } else if (config.getTraceSamplingSpansPerSecond() > 0) {
+            sampler = new SpanBudgetSampler<>(config.getTraceSamplingSpansPerSecond());
           } else {
             sampler = new RateByServiceSampler<>();
           }
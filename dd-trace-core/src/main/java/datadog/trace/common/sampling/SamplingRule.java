@@ -1,7 +1,6 @@
 package datadog.trace.common.sampling;
 
 import datadog.trace.core.CoreSpan;
-import java.util.regex.Pattern;
 
 public abstract class SamplingRule<T extends CoreSpan<T>> {
   private final RateSampler<T> sampler;
@@ -20,7 +19,16 @@ public abstract class SamplingRule<T extends CoreSpan<T>> {
     return sampler;
   }
 
-  public static class AlwaysMatchesSamplingRule<T extends CoreSpan<T>> extends SamplingRule<T> {
+  /**
+   * Implemented by rules whose decision depends only on the span's service and operation name, so
+   * that it can be cached by name.
+   */
+  interface MatchesOnNames {
+    boolean matches(String serviceName, CharSequence operationName);
+  }
+
+  public static class AlwaysMatchesSamplingRule<T extends CoreSpan<T>> extends SamplingRule<T>
+      implements MatchesOnNames {
 
     public AlwaysMatchesSamplingRule(final RateSampler<T> sampler) {
       super(sampler);
@@ -30,28 +38,36 @@ public abstract class SamplingRule<T extends CoreSpan<T>> {
     public boolean matches(final T span) {
       return true;
     }
+
+    @Override
+    public boolean matches(final String serviceName, final CharSequence operationName) {
+      return true;
+    }
   }
 
   public abstract static class PatternMatchSamplingRule<T extends CoreSpan<T>>
       extends SamplingRule<T> {
-    private final Pattern pattern;
+    private final NameMatcher matcher;
 
     public PatternMatchSamplingRule(final String regex, final RateSampler<T> sampler) {
       super(sampler);
-      this.pattern = Pattern.compile(regex);
+      this.matcher = NameMatcher.compile(regex);
     }
 
     @Override
     public boolean matches(final T span) {
-      final CharSequence relevantString = getRelevantString(span);
-      return relevantString != null && pattern.matcher(relevantString).matches();
+      return matches(getRelevantString(span));
+    }
+
+    boolean matches(final CharSequence relevantString) {
+      return relevantString != null && matcher.matches(relevantString);
     }
 
     protected abstract CharSequence getRelevantString(T span);
   }
 
-  public static class ServiceSamplingRule<T extends CoreSpan<T>>
-      extends PatternMatchSamplingRule<T> {
+  public static class ServiceSamplingRule<T extends CoreSpan<T>> extends PatternMatchSamplingRule<T>
+      implements MatchesOnNames {
     public ServiceSamplingRule(final String regex, final RateSampler<T> sampler) {
       super(regex, sampler);
     }
@@ -60,10 +76,15 @@ public abstract class SamplingRule<T extends CoreSpan<T>> {
     protected String getRelevantString(final T span) {
       return span.getServiceName();
     }
+
+    @Override
+    public boolean matches(final String serviceName, final CharSequence operationName) {
+      return matches(serviceName);
+    }
   }
 
   public static class OperationSamplingRule<T extends CoreSpan<T>>
-      extends PatternMatchSamplingRule<T> {
+      extends PatternMatchSamplingRule<T> implements MatchesOnNames {
     public OperationSamplingRule(final String regex, final RateSampler<T> sampler) {
       super(regex, sampler);
     }
@@ -72,5 +93,10 @@ public abstract class SamplingRule<T extends CoreSpan<T>> {
     protected CharSequence getRelevantString(final T span) {
       return span.getOperationName();
     }
+
+    @Override
+    public boolean matches(final String serviceName, final CharSequence operationName) {
+      return matches(operationName);
+    }
   }
 }
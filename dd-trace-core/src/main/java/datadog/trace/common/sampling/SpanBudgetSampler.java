@@ -0,0 +1,208 @@
+package datadog.trace.common.sampling;
+
+import datadog.trace.api.sampling.PrioritySampling;
+import datadog.trace.api.time.SystemTimeSource;
+import datadog.trace.api.time.TimeSource;
+import datadog.trace.common.writer.ddagent.DDAgentResponseListener;
+import datadog.trace.core.CoreSpan;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies the agent's rates like {@link RateByServiceSampler}, and additionally holds the spans
+ * written per second to a budget, so that a traffic spike doesn't fill the writer's queues before
+ * the agent's rates catch up. Every second the budget is shared out between the (env, service)
+ * pairs: pairs producing less than an equal share keep all their traces, and the rest is split
+ * between the others, whose traces are sampled down to fit. The decision is deterministic on the
+ * trace id, like the agent's rates, so a distributed trace is kept or dropped as a whole.
+ *
+ * <p>The budget only lowers the sampling priority: like with {@link RateByServiceSampler}, dropped
+ * traces are still written so that the agent can count them.
+ */
+public class SpanBudgetSampler<T extends CoreSpan<T>>
+    implements Sampler<T>, PrioritySampler<T>, TraceCompletionListener<T>, DDAgentResponseListener {
+
+  public static final String SAMPLING_BUDGET_RATE = "_dd.budget_psr";
+
+  private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+  private static final int MAX_BUDGETS = 256;
+  // smoothed demand below which a pair is forgotten
+  private static final double IDLE = 0.5;
+
+  private static final RateSampler<?> KEEP_ALL = new DeterministicSampler<>(1.0);
+
+  private static final Comparator<Budget<?>> BY_DEMAND =
+      new Comparator<Budget<?>>() {
+        @Override
+        public int compare(Budget<?> left, Budget<?> right) {
+          return Double.compare(left.demand, right.demand);
+        }
+      };
+
+  private final RateByServiceSampler<T> agentRates;
+  private final long spansPerSecond;
+  private final TimeSource timeSource;
+  private final AtomicLong windowStart;
+  // by env, then by service
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Budget<T>>> budgets =
+      new ConcurrentHashMap<>();
+  private final AtomicInteger budgetCount = new AtomicInteger();
+  // shared by the pairs which don't fit in the map
+  private final Budget<T> others = new Budget<>();
+
+  public SpanBudgetSampler(final long spansPerSecond) {
+    this(new RateByServiceSampler<T>(), spansPerSecond, SystemTimeSource.INSTANCE);
+  }
+
+  SpanBudgetSampler(
+      final RateByServiceSampler<T> agentRates,
+      final long spansPerSecond,
+      final TimeSource timeSource) {
+    this.agentRates = agentRates;
+    this.spansPerSecond = Math.max(1, spansPerSecond);
+    this.timeSource = timeSource;
+    this.windowStart = new AtomicLong(timeSource.getNanoTime());
+  }
+
+  @Override
+  public boolean sample(final T span) {
+    return true;
+  }
+
+  @Override
+  public void setSamplingPriority(final T span) {
+    agentRates.setSamplingPriority(span);
+    if (span.samplingPriority() == PrioritySampling.SAMPLER_KEEP) {
+      RateSampler<T> sampler = budgetFor(span).sampler;
+      if (!sampler.sample(span)) {
+        span.setSamplingPriority(
+            PrioritySampling.SAMPLER_DROP, SAMPLING_BUDGET_RATE, sampler.getSampleRate());
+      }
+    }
+  }
+
+  @Override
+  public void onResponse(
+      final String endpoint, final Map<String, Map<String, Number>> responseJson) {
+    agentRates.onResponse(endpoint, responseJson);
+  }
+
+  /**
+   * Counts the spans of a completed trace, or of a chunk of it when it's flushed partially, whether
+   * it's kept or not, against the budget of its local root span's pair.
+   *
+   * @param span any span of the trace
+   */
+  @Override
+  public void onTraceComplete(final T span, final int spanCount) {
+    long now = timeSource.getNanoTime();
+    long start = windowStart.get();
+    if (now - start >= WINDOW && windowStart.compareAndSet(start, now)) {
+      shareBudget(now - start);
+    }
+    T rootSpan = span.getLocalRootSpan();
+    budgetFor(null == rootSpan ? span : rootSpan).spans.addAndGet(spanCount);
+  }
+
+  double getSampleRate(final String env, final String serviceName) {
+    Map<String, Budget<T>> byService = budgets.get(env);
+    Budget<T> budget = null == byService ? null : byService.get(serviceName);
+    return (null == budget ? others : budget).sampler.getSampleRate();
+  }
+
+  private Budget<T> budgetFor(final T span) {
+    String env = span.getTag("env", "");
+    String serviceName = span.getServiceName();
+    if (null == serviceName) {
+      serviceName = "";
+    }
+    ConcurrentHashMap<String, Budget<T>> byService = budgets.get(env);
+    Budget<T> budget = null == byService ? null : byService.get(serviceName);
+    if (null == budget) {
+      if (budgetCount.get() >= MAX_BUDGETS) {
+        return others;
+      }
+      if (null == byService) {
+        byService = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, Budget<T>> existing = budgets.putIfAbsent(env, byService);
+        if (null != existing) {
+          byService = existing;
+        }
+      }
+      budget = new Budget<>();
+      Budget<T> existing = byService.putIfAbsent(serviceName, budget);
+      if (null != existing) {
+        budget = existing;
+      } else {
+        budgetCount.incrementAndGet();
+      }
+    }
+    return budget;
+  }
+
+  private synchronized void shareBudget(final long windowNanos) {
+    List<Budget<T>> active = new ArrayList<>(budgetCount.get() + 1);
+    for (Iterator<ConcurrentHashMap<String, Budget<T>>> envs = budgets.values().iterator();
+        envs.hasNext(); ) {
+      ConcurrentHashMap<String, Budget<T>> byService = envs.next();
+      for (Iterator<Budget<T>> it = byService.values().iterator(); it.hasNext(); ) {
+        Budget<T> budget = it.next();
+        if (budget.updateDemand(windowNanos) < IDLE) {
+          it.remove();
+          budgetCount.decrementAndGet();
+        } else {
+          active.add(budget);
+        }
+      }
+      if (byService.isEmpty()) {
+        // a budget added concurrently to the removed map only misses this window's count
+        envs.remove();
+      }
+    }
+    others.updateDemand(windowNanos);
+    active.add(others);
+    Collections.sort(active, BY_DEMAND);
+    double remaining = spansPerSecond;
+    int sharing = active.size();
+    for (Budget<T> budget : active) {
+      double share = remaining / sharing--;
+      if (budget.demand <= share) {
+        remaining -= budget.demand;
+        budget.setSampleRate(1.0);
+      } else {
+        remaining -= share;
+        budget.setSampleRate(share / budget.demand);
+      }
+    }
+  }
+
+  private static final class Budget<T extends CoreSpan<T>> {
+    final AtomicLong spans = new AtomicLong();
+    // spans per second, averaged with the previous windows, only used when sharing the budget
+    double demand = -1;
+
+    @SuppressWarnings("unchecked")
+    volatile RateSampler<T> sampler = (RateSampler<T>) KEEP_ALL;
+
+    double updateDemand(final long windowNanos) {
+      double spansPerSecond = spans.getAndSet(0) * (double) WINDOW / windowNanos;
+      demand = demand < 0 ? spansPerSecond : (demand + spansPerSecond) / 2;
+      return demand;
+    }
+
+    @SuppressWarnings("unchecked")
+    void setSampleRate(final double rate) {
+      if (rate != sampler.getSampleRate()) {
+        sampler = rate >= 1 ? (RateSampler<T>) KEEP_ALL : new DeterministicSampler<T>(rate);
+      }
+    }
+  }
+}
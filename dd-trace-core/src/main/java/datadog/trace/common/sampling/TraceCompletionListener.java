@@ -0,0 +1,16 @@
+package datadog.trace.common.sampling;
+
+import datadog.trace.core.CoreSpan;
+
+/** Implemented by samplers which keep track of the traces completed, whether kept or not. */
+public interface TraceCompletionListener<T extends CoreSpan<T>> {
+
+  /**
+   * Called for each completed trace, or chunk of a trace when it's flushed partially, before it's
+   * sampled.
+   *
+   * @param span the local root span of the trace, or any span of it when it has none
+   * @param spanCount the number of spans completed
+   */
+  void onTraceComplete(T span, int spanCount);
+}
@@ -14,6 +14,7 @@ import datadog.trace.common.writer.ddagent.DDAgentApi;
 import datadog.trace.common.writer.ddagent.DDAgentFeaturesDiscovery;
 import datadog.trace.common.writer.ddagent.DDAgentResponseListener;
 import datadog.trace.common.writer.ddagent.PayloadDispatcher;
+import datadog.trace.common.writer.ddagent.PayloadSender;
 import datadog.trace.common.writer.ddagent.Prioritization;
 import datadog.trace.common.writer.ddagent.TraceProcessingWorker;
 import datadog.trace.core.DDSpan;
@@ -53,6 +54,7 @@ public class DDAgentWriter implements Writer {
   private final DDAgentApi api;
   private final TraceProcessingWorker traceProcessingWorker;
   private final PayloadDispatcher dispatcher;
+  private final PayloadSender sender;
   private final DDAgentFeaturesDiscovery discovery;
 
   private volatile boolean closed;
@@ -70,6 +72,8 @@ public class DDAgentWriter implements Writer {
     Monitoring monitoring = Monitoring.DISABLED;
     boolean traceAgentV05Enabled = Config.get().isTraceAgentV05Enabled();
     boolean metricsReportingEnabled = Config.get().isTracerMetricsEnabled();
+    int serializationShards = Config.get().getTraceSerializationShards();
+    int maxPayloadsInFlight = Config.get().getTraceAgentMaxPayloadsInFlight();
 
     private DDAgentApi agentApi;
     private Prioritization prioritization;
@@ -135,6 +139,16 @@ public class DDAgentWriter implements Writer {
       return this;
     }
 
+    public DDAgentWriterBuilder serializationShards(int serializationShards) {
+      this.serializationShards = serializationShards;
+      return this;
+    }
+
+    public DDAgentWriterBuilder maxPayloadsInFlight(int maxPayloadsInFlight) {
+      this.maxPayloadsInFlight = maxPayloadsInFlight;
+      return this;
+    }
+
     public DDAgentWriterBuilder featureDiscovery(DDAgentFeaturesDiscovery featureDiscovery) {
       this.featureDiscovery = featureDiscovery;
       return this;
@@ -154,6 +168,8 @@ public class DDAgentWriter implements Writer {
           monitoring,
           traceAgentV05Enabled,
           metricsReportingEnabled,
+          serializationShards,
+          maxPayloadsInFlight,
           featureDiscovery);
     }
   }
@@ -171,6 +187,8 @@ public class DDAgentWriter implements Writer {
       final Monitoring monitoring,
       final boolean traceAgentV05Enabled,
       boolean metricsReportingEnabled,
+      int serializationShards,
+      int maxPayloadsInFlight,
       DDAgentFeaturesDiscovery featureDiscovery) {
     HttpUrl agentUrl = HttpUrl.get("http://" + agentHost + ":" + traceAgentPort);
     OkHttpClient client =
@@ -190,10 +208,12 @@ public class DDAgentWriter implements Writer {
     }
     this.discovery = featureDiscovery;
     this.healthMetrics = healthMetrics;
-    this.dispatcher = new PayloadDispatcher(featureDiscovery, api, healthMetrics, monitoring);
+    this.sender = new PayloadSender(api, healthMetrics, maxPayloadsInFlight);
+    this.dispatcher = new PayloadDispatcher(featureDiscovery, sender, healthMetrics, monitoring);
     this.traceProcessingWorker =
         new TraceProcessingWorker(
             traceBufferSize,
+            serializationShards,
             healthMetrics,
             monitoring,
             dispatcher,
@@ -213,7 +233,8 @@ public class DDAgentWriter implements Writer {
     this.discovery = discovery;
     this.healthMetrics = healthMetrics;
     this.traceProcessingWorker = worker;
-    this.dispatcher = new PayloadDispatcher(discovery, api, healthMetrics, monitoring);
+    this.sender = PayloadSender.synchronous(api, healthMetrics);
+    this.dispatcher = new PayloadDispatcher(discovery, sender, healthMetrics, monitoring);
   }
 
   private DDAgentWriter(
@@ -226,6 +247,7 @@ public class DDAgentWriter implements Writer {
     this.api = api;
     this.healthMetrics = healthMetrics;
     this.traceProcessingWorker = worker;
+    this.sender = PayloadSender.synchronous(api, healthMetrics);
     this.dispatcher = dispatcher;
   }
 
@@ -288,6 +310,7 @@ public class DDAgentWriter implements Writer {
   @Override
   public void start() {
     if (!closed) {
+      sender.start();
       traceProcessingWorker.start();
       healthMetrics.start();
       healthMetrics.onStart((int) getCapacity());
@@ -299,6 +322,7 @@ public class DDAgentWriter implements Writer {
     final boolean flushed = flush();
     closed = true;
     traceProcessingWorker.close();
+    sender.close();
     healthMetrics.close();
     healthMetrics.onShutdown(flushed);
   }
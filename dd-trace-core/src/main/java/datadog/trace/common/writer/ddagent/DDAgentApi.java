@@ -20,7 +20,12 @@ import okhttp3.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** The API pointing to a DD agent */
+/**
+ * The API pointing to a DD agent
+ *
+ * <p>Payloads are sent one at a time, even when several serializing threads send them, so that the
+ * counters, timers and agent discovery aren't updated concurrently.
+ */
 public class DDAgentApi {
 
   private static final Logger log = LoggerFactory.getLogger(DDAgentApi.class);
@@ -75,13 +80,13 @@ public class DDAgentApi {
     this.metricsEnabled = metricsEnabled;
   }
 
-  public void addResponseListener(final DDAgentResponseListener listener) {
+  public synchronized void addResponseListener(final DDAgentResponseListener listener) {
     if (!responseListeners.contains(listener)) {
       responseListeners.add(listener);
     }
   }
 
-  Response sendSerializedTraces(final Payload payload) {
+  synchronized Response sendSerializedTraces(final Payload payload) {
     final int sizeInBytes = payload.sizeInBytes();
     String tracesEndpoint = featuresDiscovery.getTraceEndpoint();
     if (null == tracesEndpoint) {
@@ -12,14 +12,10 @@ import java.nio.ByteBuffer;
 import java.util.List;
 import org.jctools.counters.CountersFactory;
 import org.jctools.counters.FixedSizeStripedLongCounter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class PayloadDispatcher implements ByteBufferConsumer {
 
-  private static final Logger log = LoggerFactory.getLogger(PayloadDispatcher.class);
-
-  private final DDAgentApi api;
+  private final PayloadSender sender;
   private final DDAgentFeaturesDiscovery featuresDiscovery;
   private final HealthMetrics healthMetrics;
   private final Monitoring monitoring;
@@ -28,20 +24,58 @@ public class PayloadDispatcher implements ByteBufferConsumer {
   private TraceMapper traceMapper;
   private WritableFormatter packer;
 
-  private final FixedSizeStripedLongCounter droppedSpanCount =
-      CountersFactory.createFixedSizeStripedCounter(8);
-  private final FixedSizeStripedLongCounter droppedTraceCount =
-      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter droppedSpanCount;
+  private final FixedSizeStripedLongCounter droppedTraceCount;
 
   public PayloadDispatcher(
       DDAgentFeaturesDiscovery featuresDiscovery,
       DDAgentApi api,
       HealthMetrics healthMetrics,
       Monitoring monitoring) {
+    this(
+        featuresDiscovery,
+        PayloadSender.synchronous(api, healthMetrics),
+        healthMetrics,
+        monitoring);
+  }
+
+  public PayloadDispatcher(
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      PayloadSender sender,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring) {
+    this(
+        featuresDiscovery,
+        sender,
+        healthMetrics,
+        monitoring,
+        CountersFactory.createFixedSizeStripedCounter(8),
+        CountersFactory.createFixedSizeStripedCounter(8));
+  }
+
+  private PayloadDispatcher(
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      PayloadSender sender,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      FixedSizeStripedLongCounter droppedSpanCount,
+      FixedSizeStripedLongCounter droppedTraceCount) {
     this.featuresDiscovery = featuresDiscovery;
-    this.api = api;
+    this.sender = sender;
     this.healthMetrics = healthMetrics;
     this.monitoring = monitoring;
+    this.droppedSpanCount = droppedSpanCount;
+    this.droppedTraceCount = droppedTraceCount;
+  }
+
+  /**
+   * Creates a dispatcher with its own trace mapper and buffer, to be used by another serializing
+   * thread. Dropped traces are counted once across all the shards and reported with whichever
+   * payload is sent next.
+   */
+  PayloadDispatcher newShard() {
+    return new PayloadDispatcher(
+        featuresDiscovery, sender, healthMetrics, monitoring, droppedSpanCount, droppedTraceCount);
   }
 
   void flush() {
@@ -50,6 +84,11 @@ public class PayloadDispatcher implements ByteBufferConsumer {
     }
   }
 
+  /** Waits for payloads handed over to the sender thread to be sent. */
+  void awaitSent() {
+    sender.awaitSent();
+  }
+
   public void onDroppedTrace(int spanCount) {
     droppedSpanCount.inc(spanCount);
     droppedTraceCount.inc();
@@ -57,13 +96,16 @@ public class PayloadDispatcher implements ByteBufferConsumer {
 
   void addTrace(List<? extends CoreSpan<?>> trace) {
     selectTraceMapper();
-    // the call below is blocking and will trigger IO if a flush is necessary
-    // there are alternative approaches to avoid blocking here, such as
-    // introducing an unbound queue and another thread to do the IO
-    // however, we can't block the application threads from here.
+    // the call below will hand a payload over to the sender if a flush is necessary,
+    // which blocks when too many payloads are in flight, or sends it right away
+    // when there is no sender thread. We can't block the application threads from here.
     if (null == traceMapper || !packer.format(trace, traceMapper)) {
       healthMetrics.onFailedPublish(trace.get(0).samplingPriority());
     }
+    // the spans' tags have been copied into the payload, or dropped, either way they're done with
+    for (CoreSpan<?> span : trace) {
+      span.recycleTags();
+    }
   }
 
   private void selectTraceMapper() {
@@ -100,22 +142,9 @@ public class PayloadDispatcher implements ByteBufferConsumer {
     if (messageCount > 0) {
       batchTimer.reset();
       Payload payload = newPayload(messageCount, buffer);
-      final int sizeInBytes = payload.sizeInBytes();
-      healthMetrics.onSerialize(sizeInBytes);
-      DDAgentApi.Response response = api.sendSerializedTraces(payload);
+      healthMetrics.onSerialize(payload.sizeInBytes());
+      sender.send(payload);
       traceMapper.reset();
-      if (response.success()) {
-        if (log.isDebugEnabled()) {
-          log.debug("Successfully sent {} traces to the API", messageCount);
-        }
-        healthMetrics.onSend(messageCount, sizeInBytes, response);
-      } else {
-        if (log.isDebugEnabled()) {
-          log.debug(
-              "Failed to send {} traces of size {} bytes to the API", messageCount, sizeInBytes);
-        }
-        healthMetrics.onFailedSend(messageCount, sizeInBytes, response);
-      }
     }
   }
 }
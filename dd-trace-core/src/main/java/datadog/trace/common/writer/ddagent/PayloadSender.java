@@ -0,0 +1,268 @@
+package datadog.trace.common.writer.ddagent;
+
+import static datadog.trace.core.http.OkHttpUtils.msgpackRequestBodyOf;
+import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_SENDER;
+import static datadog.trace.util.AgentThreadFactory.THREAD_JOIN_TIMOUT_MS;
+import static datadog.trace.util.AgentThreadFactory.newAgentThread;
+
+import datadog.trace.core.monitor.HealthMetrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import okhttp3.RequestBody;
+import org.jctools.queues.MpmcArrayQueue;
+import org.jctools.queues.MpscBlockingConsumerArrayQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends serialized payloads to the agent.
+ *
+ * <p>When a limit of payloads in flight is set, payloads are copied into a small pool of reusable
+ * buffers and sent from a dedicated thread, so serialization can carry on filling the next buffer
+ * while the previous payload is being sent. Once the limit is reached, serialization blocks until a
+ * payload has been sent, which is reported to {@link HealthMetrics} as back pressure. Without a
+ * limit, payloads are sent on the calling thread.
+ */
+public class PayloadSender implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(PayloadSender.class);
+
+  // how often a flush checks that the sender thread is still alive while waiting for it
+  private static final long FLUSH_CHECK_MILLIS = 100;
+
+  private final DDAgentApi api;
+  private final HealthMetrics healthMetrics;
+  private final int maxPayloadsInFlight;
+
+  private final Semaphore inFlight;
+  private final MpmcArrayQueue<ByteBuffer> buffers;
+  private final MpscBlockingConsumerArrayQueue<Object> queue;
+  private final Thread senderThread;
+
+  public static PayloadSender synchronous(DDAgentApi api, HealthMetrics healthMetrics) {
+    return new PayloadSender(api, healthMetrics, 0);
+  }
+
+  public PayloadSender(DDAgentApi api, HealthMetrics healthMetrics, int maxPayloadsInFlight) {
+    this.api = api;
+    this.healthMetrics = healthMetrics;
+    this.maxPayloadsInFlight = Math.max(maxPayloadsInFlight, 0);
+    this.buffers = new MpmcArrayQueue<>(Math.max(this.maxPayloadsInFlight, 2));
+    if (this.maxPayloadsInFlight > 0) {
+      this.inFlight = new Semaphore(this.maxPayloadsInFlight);
+      // leave room for flush events from any number of serializing threads
+      this.queue = new MpscBlockingConsumerArrayQueue<>(this.maxPayloadsInFlight + 64);
+      this.senderThread = newAgentThread(TRACE_SENDER, new SendingTask());
+    } else {
+      this.inFlight = null;
+      this.queue = null;
+      this.senderThread = null;
+    }
+  }
+
+  public void start() {
+    if (null != senderThread) {
+      senderThread.start();
+    }
+  }
+
+  /**
+   * Sends the payload, or hands a copy of it over to the sender thread. The payload's buffers can
+   * be reused as soon as this method returns.
+   */
+  void send(Payload payload) {
+    if (null == senderThread || !senderThread.isAlive()) {
+      sendNow(payload);
+      return;
+    }
+    if (!inFlight.tryAcquire()) {
+      long start = System.nanoTime();
+      try {
+        inFlight.acquire();
+      } catch (InterruptedException e) {
+        // shutting down, so don't lose the payload
+        Thread.currentThread().interrupt();
+        sendNow(payload);
+        return;
+      }
+      healthMetrics.onPayloadBackPressure(System.nanoTime() - start);
+    }
+    boolean handedOver = false;
+    try {
+      CopiedPayload copy = copy(payload);
+      // flush events can take up the room left for payloads
+      handedOver = queue.offer(copy);
+      if (!handedOver) {
+        try {
+          sendNow(copy);
+        } finally {
+          buffers.offer(copy.body);
+        }
+      }
+    } finally {
+      if (!handedOver) {
+        inFlight.release();
+      }
+    }
+    healthMetrics.onPayloadsInFlight(maxPayloadsInFlight - inFlight.availablePermits());
+  }
+
+  /** Blocks until all payloads handed over so far have been sent. */
+  void awaitSent() {
+    if (null == senderThread) {
+      return;
+    }
+    CountDownLatch latch = new CountDownLatch(1);
+    FlushEvent flush = new FlushEvent(latch);
+    boolean offered;
+    do {
+      offered = queue.offer(flush);
+    } while (!offered && senderThread.isAlive());
+    if (offered) {
+      try {
+        // don't wait forever on a sender thread which has stopped
+        while (!latch.await(FLUSH_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+          if (!senderThread.isAlive()) {
+            log.debug("Datadog trace sender stopped before the flush completed");
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    if (null != senderThread) {
+      senderThread.interrupt();
+      try {
+        senderThread.join(THREAD_JOIN_TIMOUT_MS);
+      } catch (InterruptedException ignored) {
+      }
+    }
+  }
+
+  private CopiedPayload copy(Payload payload) {
+    int sizeInBytes = payload.sizeInBytes();
+    ByteBuffer buffer = buffers.poll();
+    if (null == buffer || buffer.capacity() < sizeInBytes) {
+      buffer = ByteBuffer.allocate(sizeInBytes);
+    }
+    buffer.clear();
+    try {
+      payload.writeTo(new BufferChannel(buffer));
+    } catch (IOException e) {
+      // writing to a heap buffer doesn't throw
+      throw new IllegalStateException(e);
+    }
+    buffer.flip();
+    CopiedPayload copy = new CopiedPayload();
+    copy.withBody(payload.traceCount(), buffer)
+        .withDroppedTraces(payload.droppedTraces())
+        .withDroppedSpans(payload.droppedSpans());
+    return copy;
+  }
+
+  private void sendNow(Payload payload) {
+    int traceCount = payload.traceCount();
+    // size the payload up before its buffers are consumed by the request
+    int sizeInBytes = payload.sizeInBytes();
+    DDAgentApi.Response response = api.sendSerializedTraces(payload);
+    if (response.success()) {
+      if (log.isDebugEnabled()) {
+        log.debug("Successfully sent {} traces to the API", traceCount);
+      }
+      healthMetrics.onSend(traceCount, sizeInBytes, response);
+    } else {
+      if (log.isDebugEnabled()) {
+        log.debug("Failed to send {} traces of size {} bytes to the API", traceCount, sizeInBytes);
+      }
+      healthMetrics.onFailedSend(traceCount, sizeInBytes, response);
+    }
+  }
+
+  private final class SendingTask implements Runnable {
+
+    @Override
+    public void run() {
+      Thread thread = Thread.currentThread();
+      try {
+        while (!thread.isInterrupted()) {
+          Object event = queue.take();
+          if (event instanceof CopiedPayload) {
+            sendAndRecycle((CopiedPayload) event);
+          } else if (event instanceof FlushEvent) {
+            ((FlushEvent) event).sync();
+          }
+        }
+      } catch (InterruptedException e) {
+        thread.interrupt();
+      }
+      log.debug("Datadog trace sender exited. Sending payloads stopped");
+    }
+
+    private void sendAndRecycle(CopiedPayload payload) {
+      try {
+        sendNow(payload);
+      } catch (Throwable e) {
+        log.debug("Error while sending payload", e);
+      } finally {
+        buffers.offer(payload.body);
+        inFlight.release();
+        healthMetrics.onPayloadsInFlight(maxPayloadsInFlight - inFlight.availablePermits());
+      }
+    }
+  }
+
+  /** A payload which owns a contiguous copy of its encoded bytes. */
+  private static final class CopiedPayload extends Payload {
+
+    @Override
+    int sizeInBytes() {
+      return body.remaining();
+    }
+
+    @Override
+    void writeTo(WritableByteChannel channel) throws IOException {
+      ByteBuffer buffer = body.duplicate();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    @Override
+    RequestBody toRequest() {
+      return msgpackRequestBodyOf(Collections.singletonList(body.duplicate()));
+    }
+  }
+
+  private static final class BufferChannel implements WritableByteChannel {
+    private final ByteBuffer buffer;
+
+    private BufferChannel(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      int remaining = src.remaining();
+      buffer.put(src);
+      return remaining;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,266 @@
+package datadog.trace.common.writer.ddagent;
+
+import static datadog.trace.core.serialization.Util.integerToStringBuffer;
+import static datadog.trace.core.serialization.Util.writeLongAsString;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import datadog.trace.core.serialization.GrowableBuffer;
+import datadog.trace.core.serialization.Mapper;
+import datadog.trace.core.serialization.Writable;
+import datadog.trace.core.serialization.WritableFormatter;
+import datadog.trace.core.serialization.msgpack.MsgPackWriter;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The string dictionary of v0.5 payloads.
+ *
+ * <p>Each payload carries its own dictionary, but the values written to it, along with their
+ * msgpack encoding, are kept from one payload to the next. Starting a new payload only bumps a
+ * generation counter, and the first time a value is used in a payload its cached encoding is copied
+ * into the payload's dictionary and it is given the next code. Values are looked up in an open
+ * addressing table with linear probing, with hashes, codes and generations held in primitive
+ * arrays.
+ *
+ * <p>The values kept are bounded both in number and in the estimated bytes they and their encodings
+ * retain. Once either limit is exceeded, the values which weren't used in the payload which has
+ * just been built are evicted at the end of the payload, and if the remaining values still take up
+ * more than half of either limit, the table is cleared.
+ */
+final class PersistentDictionary {
+
+  private static final int INITIAL_CAPACITY = 1 << 8;
+  static final int DEFAULT_MAX_ENTRIES = 1 << 14;
+
+  // rough shallow sizes of the values kept, and of the byte[] holding each encoding
+  private static final int ARRAY_OVERHEAD = 16;
+  private static final int STRING_OVERHEAD = 40;
+  private static final int NUMBER_SIZE = 16;
+
+  private final GrowableBuffer dictionary;
+  private final GrowableBuffer scratch = new GrowableBuffer(256);
+  private final WritableFormatter scratchWriter = new MsgPackWriter(scratch);
+  private final DictionaryMapper dictionaryMapper = new DictionaryMapper();
+  private final int maxRetainedBytes;
+  private final int maxEntries;
+
+  private Object[] values;
+  private int[] hashes;
+  private byte[][] encodings;
+  private int[] codes;
+  private int[] generations;
+  private int size;
+  private int retainedBytes;
+  private int generation;
+
+  PersistentDictionary(int bufferSize, int maxRetainedBytes) {
+    this(bufferSize, maxRetainedBytes, DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * @param maxRetainedBytes estimated bytes retained by the values and encodings kept
+   * @param maxEntries number of values kept
+   */
+  PersistentDictionary(int bufferSize, int maxRetainedBytes, int maxEntries) {
+    this.dictionary = new GrowableBuffer(bufferSize);
+    this.maxRetainedBytes = maxRetainedBytes;
+    this.maxEntries = maxEntries;
+    clear();
+  }
+
+  /**
+   * @return the code of the value in the current payload, after adding the value to the payload's
+   *     dictionary if it wasn't there yet.
+   */
+  int encode(Object value) {
+    if (!(value instanceof String
+        || value instanceof UTF8BytesString
+        || value instanceof Long
+        || value instanceof Integer)) {
+      // only immutable values are kept across payloads, and everything
+      // else is written to the dictionary as a string anyway
+      value = String.valueOf(value);
+    }
+    int hash = hash(value);
+    int slot = find(value, hash);
+    if (null == values[slot]) {
+      slot = insert(slot, value, hash);
+    }
+    if (generations[slot] != generation) {
+      dictionary.put(encodings[slot]);
+      dictionary.mark();
+      codes[slot] = dictionary.messageCount() - 1;
+      generations[slot] = generation;
+    }
+    return codes[slot];
+  }
+
+  /** @return the number of values in the current payload's dictionary */
+  int size() {
+    return dictionary.messageCount();
+  }
+
+  ByteBuffer slice() {
+    return dictionary.slice();
+  }
+
+  /** @return the number of values kept across payloads */
+  int retained() {
+    return size;
+  }
+
+  /** Starts a new payload. */
+  void reset() {
+    dictionary.reset();
+    if (retainedBytes > maxRetainedBytes || size > maxEntries) {
+      evictUnused();
+      if (retainedBytes > maxRetainedBytes >> 1 || size > maxEntries >> 1) {
+        clear();
+        return;
+      }
+    }
+    if (++generation == 0) {
+      clear();
+    }
+  }
+
+  /** Evicts the values not used in the current payload. */
+  private void evictUnused() {
+    Object[] oldValues = values;
+    int[] oldHashes = hashes;
+    byte[][] oldEncodings = encodings;
+    int[] oldCodes = codes;
+    int[] oldGenerations = generations;
+    int kept = 0;
+    for (int i = 0; i < oldValues.length; ++i) {
+      if (null != oldValues[i] && oldGenerations[i] == generation) {
+        ++kept;
+      }
+    }
+    int capacity = INITIAL_CAPACITY;
+    while (kept << 1 > capacity) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+    size = 0;
+    retainedBytes = 0;
+    for (int i = 0; i < oldValues.length; ++i) {
+      if (null != oldValues[i] && oldGenerations[i] == generation) {
+        int slot = find(oldValues[i], oldHashes[i]);
+        values[slot] = oldValues[i];
+        hashes[slot] = oldHashes[i];
+        encodings[slot] = oldEncodings[i];
+        codes[slot] = oldCodes[i];
+        generations[slot] = oldGenerations[i];
+        ++size;
+        retainedBytes += retainedBytes(oldValues[i], oldEncodings[i]);
+      }
+    }
+  }
+
+  private int find(final Object value, final int hash) {
+    int mask = values.length - 1;
+    int slot = hash & mask;
+    Object candidate;
+    while (null != (candidate = values[slot])) {
+      if (hashes[slot] == hash && (candidate == value || candidate.equals(value))) {
+        break;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private int insert(int slot, final Object value, final int hash) {
+    if ((size + 1) << 1 > values.length) {
+      resize(values.length << 1);
+      slot = find(value, hash);
+    }
+    scratch.reset();
+    scratchWriter.format(value, dictionaryMapper);
+    ByteBuffer encoded = scratch.slice();
+    byte[] encoding = new byte[encoded.remaining()];
+    encoded.get(encoding);
+    values[slot] = value;
+    hashes[slot] = hash;
+    encodings[slot] = encoding;
+    ++size;
+    retainedBytes += retainedBytes(value, encoding);
+    return slot;
+  }
+
+  private void resize(final int capacity) {
+    Object[] oldValues = values;
+    int[] oldHashes = hashes;
+    byte[][] oldEncodings = encodings;
+    int[] oldCodes = codes;
+    int[] oldGenerations = generations;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int i = 0; i < oldValues.length; ++i) {
+      if (null != oldValues[i]) {
+        int slot = oldHashes[i] & mask;
+        while (null != values[slot]) {
+          slot = (slot + 1) & mask;
+        }
+        values[slot] = oldValues[i];
+        hashes[slot] = oldHashes[i];
+        encodings[slot] = oldEncodings[i];
+        codes[slot] = oldCodes[i];
+        generations[slot] = oldGenerations[i];
+      }
+    }
+  }
+
+  private void clear() {
+    if (null == values || values.length != INITIAL_CAPACITY) {
+      allocate(INITIAL_CAPACITY);
+    } else {
+      Arrays.fill(values, null);
+      Arrays.fill(encodings, null);
+      Arrays.fill(generations, 0);
+    }
+    size = 0;
+    retainedBytes = 0;
+    generation = 1;
+  }
+
+  private void allocate(final int capacity) {
+    values = new Object[capacity];
+    hashes = new int[capacity];
+    encodings = new byte[capacity][];
+    codes = new int[capacity];
+    generations = new int[capacity];
+  }
+
+  private static int retainedBytes(final Object value, final byte[] encoding) {
+    int valueSize =
+        value instanceof CharSequence
+            // the chars of a string, and the bytes of a UTF8BytesString
+            ? STRING_OVERHEAD + (value instanceof String ? 2 : 3) * ((CharSequence) value).length()
+            : NUMBER_SIZE;
+    return valueSize + ARRAY_OVERHEAD + encoding.length;
+  }
+
+  private static int hash(final Object value) {
+    int h = value.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static class DictionaryMapper implements Mapper<Object> {
+
+    private final byte[] numberByteArray = integerToStringBuffer();
+
+    @Override
+    public void map(final Object data, final Writable packer) {
+      if (data instanceof UTF8BytesString) {
+        packer.writeObject(data, null);
+      } else if (data instanceof Long || data instanceof Integer) {
+        writeLongAsString(((Number) data).longValue(), packer, numberByteArray);
+      } else {
+        assert null != data : "enclosing mapper should not provide null values";
+        packer.writeString(String.valueOf(data), null);
+      }
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package datadog.trace.common.writer.ddagent;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import datadog.trace.core.serialization.EncodingCache;
+import datadog.trace.core.util.WellKnownTagKeys;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The UTF-8 encodings of the well known tag keys, encoded once so that serializing a tag key is a
+ * lookup rather than an encoding. Other keys are left to the writer to encode.
+ */
+final class TagKeyEncodings implements EncodingCache {
+
+  static final TagKeyEncodings INSTANCE = new TagKeyEncodings();
+
+  private final Map<String, byte[]> encodings = new HashMap<>();
+
+  private TagKeyEncodings() {
+    for (String key : WellKnownTagKeys.KEYS) {
+      encodings.put(key, key.getBytes(UTF_8));
+    }
+  }
+
+  @Override
+  public byte[] encode(final CharSequence key) {
+    return encodings.get(key);
+  }
+}
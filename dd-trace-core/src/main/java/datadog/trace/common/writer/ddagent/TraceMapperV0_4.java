@@ -10,6 +10,7 @@ import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
+import datadog.trace.core.TagMap;
 import datadog.trace.core.serialization.Writable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -50,6 +51,28 @@ public final class TraceMapperV0_4 implements TraceMapper {
     private final byte[] numberByteArray = integerToStringBuffer();
     private Writable writable;
 
+    private final TagMap.Visitor tagWriter =
+        new TagMap.Visitor() {
+          @Override
+          public void visit(String key, Object value) {
+            writable.writeString(key, TagKeyEncodings.INSTANCE);
+            if (value instanceof UTF8BytesString) {
+              writable.writeUTF8((UTF8BytesString) value);
+            } else {
+              writable.writeString(String.valueOf(value), null);
+            }
+          }
+
+          @Override
+          public void visit(String key, long value) {
+            writable.writeString(key, TagKeyEncodings.INSTANCE);
+            // TODO it would be nice not to need to do this, either because
+            //  the agent would accept variably typed tag values, or numeric
+            //  tags get moved to the metrics
+            writeLongAsString(value, writable, numberByteArray);
+          }
+        };
+
     MetaWriter withWritable(Writable writable) {
       this.writable = writable;
       return this;
@@ -88,19 +111,7 @@ public final class TraceMapperV0_4 implements TraceMapper {
       writable.writeUTF8(metadata.getThreadName());
       writable.writeUTF8(THREAD_ID);
       writeLongAsString(metadata.getThreadId(), writable, numberByteArray);
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        writable.writeString(entry.getKey(), null);
-        if (entry.getValue() instanceof Long || entry.getValue() instanceof Integer) {
-          // TODO it would be nice not to need to do this, either because
-          //  the agent would accept variably typed tag values, or numeric
-          //  tags get moved to the metrics
-          writeLongAsString(((Number) entry.getValue()).longValue(), writable, numberByteArray);
-        } else if (entry.getValue() instanceof UTF8BytesString) {
-          writable.writeUTF8((UTF8BytesString) entry.getValue());
-        } else {
-          writable.writeString(String.valueOf(entry.getValue()), null);
-        }
-      }
+      metadata.getTags().forEach(tagWriter);
     }
   }
 
@@ -122,13 +133,13 @@ public final class TraceMapperV0_4 implements TraceMapper {
       writable.writeObject(span.getResourceName(), null);
       /* 4  */
       writable.writeUTF8(TRACE_ID);
-      writable.writeLong(span.getTraceId().toLong());
+      writable.writeLong(span.getTraceIdAsLong());
       /* 5  */
       writable.writeUTF8(SPAN_ID);
-      writable.writeLong(span.getSpanId().toLong());
+      writable.writeLong(span.getSpanIdAsLong());
       /* 6  */
       writable.writeUTF8(PARENT_ID);
-      writable.writeLong(span.getParentId().toLong());
+      writable.writeLong(span.getParentIdAsLong());
       /* 7  */
       writable.writeUTF8(START);
       writable.writeLong(span.getStartTime());
@@ -1,24 +1,17 @@
 package datadog.trace.common.writer.ddagent;
 
 import static datadog.trace.core.http.OkHttpUtils.msgpackRequestBodyOf;
-import static datadog.trace.core.serialization.Util.integerToStringBuffer;
-import static datadog.trace.core.serialization.Util.writeLongAsString;
 
 import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags;
-import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
-import datadog.trace.core.serialization.GrowableBuffer;
-import datadog.trace.core.serialization.Mapper;
+import datadog.trace.core.TagMap;
 import datadog.trace.core.serialization.Writable;
-import datadog.trace.core.serialization.WritableFormatter;
-import datadog.trace.core.serialization.msgpack.MsgPackWriter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import okhttp3.RequestBody;
@@ -28,10 +21,7 @@ public final class TraceMapperV0_5 implements TraceMapper {
   static final byte[] EMPTY =
       ByteBuffer.allocate(3).put((byte) 0x92).put((byte) 0x90).put((byte) 0x90).array();
 
-  private final WritableFormatter dictionaryWriter;
-  private final DictionaryMapper dictionaryMapper = new DictionaryMapper();
-  private final Map<Object, Integer> encoding = new HashMap<>();
-  private final GrowableBuffer dictionary;
+  private final PersistentDictionary dictionary;
 
   private final MetaWriter metaWriter = new MetaWriter();
   private final int size;
@@ -41,10 +31,10 @@ public final class TraceMapperV0_5 implements TraceMapper {
   }
 
   public TraceMapperV0_5(int dictionarySize, int bufferSize) {
-    // growable buffer is implicitly bounded by the fixed size buffer
-    // the messages themselves are written into
-    this.dictionary = new GrowableBuffer(bufferSize);
-    this.dictionaryWriter = new MsgPackWriter(dictionary);
+    // the dictionary's buffer is implicitly bounded by the fixed size buffer
+    // the messages themselves are written into, and dictionarySize bounds
+    // the values and encodings kept from one payload to the next
+    this.dictionary = new PersistentDictionary(bufferSize, dictionarySize);
     this.size = bufferSize;
     reset();
   }
@@ -65,11 +55,11 @@ public final class TraceMapperV0_5 implements TraceMapper {
       /* 3  */
       writeDictionaryEncoded(writable, span.getResourceName());
       /* 4  */
-      writable.writeLong(span.getTraceId().toLong());
+      writable.writeLong(span.getTraceIdAsLong());
       /* 5  */
-      writable.writeLong(span.getSpanId().toLong());
+      writable.writeLong(span.getSpanIdAsLong());
       /* 6  */
-      writable.writeLong(span.getParentId().toLong());
+      writable.writeLong(span.getParentIdAsLong());
       /* 7  */
       writable.writeLong(span.getStartTime());
       /* 8  */
@@ -111,23 +101,12 @@ public final class TraceMapperV0_5 implements TraceMapper {
   }
 
   private void writeDictionaryEncoded(final Writable writable, final Object value) {
-    final Object target = null == value ? "" : value;
-    final Integer encoded = encoding.get(target);
-    if (null == encoded) {
-      dictionaryWriter.format(target, dictionaryMapper);
-      final int dictionaryCode = dictionary.messageCount() - 1;
-      encoding.put(target, dictionaryCode);
-      // this call can fail, but the dictionary has been written to now
-      // so should make sure dictionary state is consistent first
-      writable.writeInt(dictionaryCode);
-    } else {
-      writable.writeInt(encoded);
-    }
+    writable.writeInt(dictionary.encode(null == value ? "" : value));
   }
 
   @Override
   public Payload newPayload() {
-    return new PayloadV0_5(dictionary.slice(), dictionary.messageCount());
+    return new PayloadV0_5(dictionary.slice(), dictionary.size());
   }
 
   @Override
@@ -138,7 +117,6 @@ public final class TraceMapperV0_5 implements TraceMapper {
   @Override
   public void reset() {
     dictionary.reset();
-    encoding.clear();
   }
 
   @Override
@@ -146,23 +124,6 @@ public final class TraceMapperV0_5 implements TraceMapper {
     return "v0.5";
   }
 
-  private static class DictionaryMapper implements Mapper<Object> {
-
-    private final byte[] numberByteArray = integerToStringBuffer();
-
-    @Override
-    public void map(final Object data, final Writable packer) {
-      if (data instanceof UTF8BytesString) {
-        packer.writeObject(data, null);
-      } else if (data instanceof Long || data instanceof Integer) {
-        writeLongAsString(((Number) data).longValue(), packer, numberByteArray);
-      } else {
-        assert null != data : "enclosing mapper should not provide null values";
-        packer.writeString(String.valueOf(data), null);
-      }
-    }
-  }
-
   private static class PayloadV0_5 extends Payload {
 
     private final ByteBuffer dictionary;
@@ -211,6 +172,21 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
     private Writable writable;
 
+    private final TagMap.Visitor tagWriter =
+        new TagMap.Visitor() {
+          @Override
+          public void visit(String key, Object value) {
+            writeDictionaryEncoded(writable, key);
+            writeDictionaryEncoded(writable, value);
+          }
+
+          @Override
+          public void visit(String key, long value) {
+            writeDictionaryEncoded(writable, key);
+            writeDictionaryEncoded(writable, value);
+          }
+        };
+
     MetaWriter withWritable(final Writable writable) {
       this.writable = writable;
       return this;
@@ -249,10 +225,7 @@ public final class TraceMapperV0_5 implements TraceMapper {
       writeDictionaryEncoded(writable, metadata.getThreadName());
       writeDictionaryEncoded(writable, THREAD_ID);
       writeDictionaryEncoded(writable, String.valueOf(metadata.getThreadId()));
-      for (final Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        writeDictionaryEncoded(writable, entry.getKey());
-        writeDictionaryEncoded(writable, entry.getValue());
-      }
+      metadata.getTags().forEach(tagWriter);
     }
   }
 }
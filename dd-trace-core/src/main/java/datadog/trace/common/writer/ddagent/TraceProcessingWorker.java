@@ -24,16 +24,17 @@ import org.slf4j.LoggerFactory;
  *
  * <p>publishing to the buffer will not block the calling thread, but instead will return false if
  * the buffer is full. This is to avoid impacting an application thread.
+ *
+ * <p>Serialization can be split across several shards, each with its own queues, serializing thread
+ * and {@link PayloadDispatcher}, so the payloads of each shard are built independently. Traces are
+ * routed to a shard by trace id. The shards share one {@link PayloadSender}, and {@link DDAgentApi}
+ * sends one payload at a time.
  */
 public class TraceProcessingWorker implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(TraceProcessingWorker.class);
 
-  private final PrioritizationStrategy prioritizationStrategy;
-  private final MpscBlockingConsumerArrayQueue<Object> primaryQueue;
-  private final MpscBlockingConsumerArrayQueue<Object> secondaryQueue;
-  private final TraceSerializingHandler serializingHandler;
-  private final Thread serializerThread;
+  private final Shard[] shards;
   private final int capacity;
 
   public TraceProcessingWorker(
@@ -45,34 +46,76 @@ public class TraceProcessingWorker implements AutoCloseable {
       final Prioritization prioritization,
       final long flushInterval,
       final TimeUnit timeUnit) {
+    this(
+        capacity,
+        1,
+        healthMetrics,
+        monitoring,
+        dispatcher,
+        droppingPolicy,
+        prioritization,
+        flushInterval,
+        timeUnit);
+  }
+
+  public TraceProcessingWorker(
+      final int capacity,
+      final int shardCount,
+      final HealthMetrics healthMetrics,
+      final Monitoring monitoring,
+      final PayloadDispatcher dispatcher,
+      final DroppingPolicy droppingPolicy,
+      final Prioritization prioritization,
+      final long flushInterval,
+      final TimeUnit timeUnit) {
     this.capacity = capacity;
-    this.primaryQueue = createQueue(capacity);
-    this.secondaryQueue = createQueue(capacity);
-    this.prioritizationStrategy =
-        prioritization.create(primaryQueue, secondaryQueue, droppingPolicy);
-    this.serializingHandler =
-        new TraceSerializingHandler(
-            primaryQueue,
-            secondaryQueue,
-            healthMetrics,
-            monitoring,
-            dispatcher,
-            flushInterval,
-            timeUnit);
-    this.serializerThread = newAgentThread(TRACE_PROCESSOR, serializingHandler);
+    this.shards = new Shard[Math.max(shardCount, 1)];
+    if (shards.length == 1) {
+      shards[0] =
+          new Shard(
+              "",
+              capacity,
+              healthMetrics,
+              monitoring.newCPUTimer("tracer.duty.cycle"),
+              dispatcher,
+              droppingPolicy,
+              prioritization,
+              flushInterval,
+              timeUnit);
+    } else {
+      // split the capacity rather than multiplying it so the memory bound doesn't change
+      int shardCapacity = Math.max(capacity / shards.length, 2);
+      for (int i = 0; i < shards.length; ++i) {
+        shards[i] =
+            new Shard(
+                "-" + i,
+                shardCapacity,
+                healthMetrics,
+                monitoring.newCPUTimer("tracer.duty.cycle", "shard:" + i),
+                i == 0 ? dispatcher : dispatcher.newShard(),
+                droppingPolicy,
+                prioritization,
+                flushInterval,
+                timeUnit);
+      }
+    }
   }
 
   public void start() {
-    this.serializerThread.start();
+    for (Shard shard : shards) {
+      shard.serializerThread.start();
+    }
   }
 
   public boolean flush(long timeout, TimeUnit timeUnit) {
-    CountDownLatch latch = new CountDownLatch(1);
+    CountDownLatch latch = new CountDownLatch(shards.length);
     FlushEvent flush = new FlushEvent(latch);
-    boolean offered;
-    do {
-      offered = primaryQueue.offer(flush);
-    } while (!offered && serializerThread.isAlive());
+    for (Shard shard : shards) {
+      boolean offered;
+      do {
+        offered = shard.primaryQueue.offer(flush);
+      } while (!offered && shard.serializerThread.isAlive());
+    }
     try {
       return latch.await(timeout, timeUnit);
     } catch (InterruptedException e) {
@@ -83,16 +126,20 @@ public class TraceProcessingWorker implements AutoCloseable {
 
   @Override
   public void close() {
-    serializerThread.interrupt();
-    try {
-      serializerThread.join(THREAD_JOIN_TIMOUT_MS);
-    } catch (InterruptedException ignored) {
+    for (Shard shard : shards) {
+      shard.serializerThread.interrupt();
+    }
+    for (Shard shard : shards) {
+      try {
+        shard.serializerThread.join(THREAD_JOIN_TIMOUT_MS);
+      } catch (InterruptedException ignored) {
+      }
     }
   }
 
   public <T extends CoreSpan<T>> boolean publish(
       T root, int samplingPriority, final List<T> trace) {
-    return prioritizationStrategy.publish(root, samplingPriority, trace);
+    return selectShard(root).prioritizationStrategy.publish(root, samplingPriority, trace);
   }
 
   public int getCapacity() {
@@ -101,13 +148,61 @@ public class TraceProcessingWorker implements AutoCloseable {
 
   public long getRemainingCapacity() {
     // only advertise primary capacity (partly to keep test which aims to saturate the queue happy)
-    return primaryQueue.remainingCapacity();
+    long remainingCapacity = 0;
+    for (Shard shard : shards) {
+      remainingCapacity += shard.primaryQueue.remainingCapacity();
+    }
+    return remainingCapacity;
+  }
+
+  private Shard selectShard(CoreSpan<?> root) {
+    if (shards.length == 1) {
+      return shards[0];
+    }
+    long traceId = root.getTraceId().toLong();
+    int hash = (int) (traceId ^ (traceId >>> 32));
+    return shards[(hash & Integer.MAX_VALUE) % shards.length];
   }
 
   private static MpscBlockingConsumerArrayQueue<Object> createQueue(int capacity) {
     return new MpscBlockingConsumerArrayQueue<>(capacity);
   }
 
+  private static final class Shard {
+    final MpscBlockingConsumerArrayQueue<Object> primaryQueue;
+    final MpscBlockingConsumerArrayQueue<Object> secondaryQueue;
+    final PrioritizationStrategy prioritizationStrategy;
+    final Thread serializerThread;
+
+    Shard(
+        final String name,
+        final int capacity,
+        final HealthMetrics healthMetrics,
+        final Recording dutyCycleTimer,
+        final PayloadDispatcher dispatcher,
+        final DroppingPolicy droppingPolicy,
+        final Prioritization prioritization,
+        final long flushInterval,
+        final TimeUnit timeUnit) {
+      this.primaryQueue = createQueue(capacity);
+      this.secondaryQueue = createQueue(capacity);
+      this.prioritizationStrategy =
+          prioritization.create(primaryQueue, secondaryQueue, droppingPolicy);
+      this.serializerThread =
+          newAgentThread(
+              TRACE_PROCESSOR,
+              name,
+              new TraceSerializingHandler(
+                  primaryQueue,
+                  secondaryQueue,
+                  healthMetrics,
+                  dutyCycleTimer,
+                  dispatcher,
+                  flushInterval,
+                  timeUnit));
+    }
+  }
+
   public static class TraceSerializingHandler
       implements Runnable, MessagePassingQueue.Consumer<Object> {
 
@@ -128,10 +223,28 @@ public class TraceProcessingWorker implements AutoCloseable {
         final PayloadDispatcher payloadDispatcher,
         final long flushInterval,
         final TimeUnit timeUnit) {
+      this(
+          primaryQueue,
+          secondaryQueue,
+          healthMetrics,
+          monitoring.newCPUTimer("tracer.duty.cycle"),
+          payloadDispatcher,
+          flushInterval,
+          timeUnit);
+    }
+
+    TraceSerializingHandler(
+        final MpscBlockingConsumerArrayQueue<Object> primaryQueue,
+        final MpscBlockingConsumerArrayQueue<Object> secondaryQueue,
+        final HealthMetrics healthMetrics,
+        final Recording dutyCycleTimer,
+        final PayloadDispatcher payloadDispatcher,
+        final long flushInterval,
+        final TimeUnit timeUnit) {
       this.primaryQueue = primaryQueue;
       this.secondaryQueue = secondaryQueue;
       this.healthMetrics = healthMetrics;
-      this.dutyCycleTimer = monitoring.newCPUTimer("tracer.duty.cycle");
+      this.dutyCycleTimer = dutyCycleTimer;
       this.doTimeFlush = flushInterval > 0;
       this.payloadDispatcher = payloadDispatcher;
       if (doTimeFlush) {
@@ -154,6 +267,7 @@ public class TraceProcessingWorker implements AutoCloseable {
           payloadDispatcher.addTrace(trace);
         } else if (event instanceof FlushEvent) {
           payloadDispatcher.flush();
+          payloadDispatcher.awaitSent();
           ((FlushEvent) event).sync();
         }
       } catch (final Throwable e) {
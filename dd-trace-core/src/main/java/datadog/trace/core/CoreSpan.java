@@ -19,6 +19,12 @@ public interface CoreSpan<T extends CoreSpan<T>> {
 
   DDId getParentId();
 
+  long getTraceIdAsLong();
+
+  long getSpanIdAsLong();
+
+  long getParentIdAsLong();
+
   long getStartTime();
 
   long getDurationNano();
@@ -68,6 +74,12 @@ public interface CoreSpan<T extends CoreSpan<T>> {
 
   void processTagsAndBaggage(MetadataConsumer consumer);
 
+  /**
+   * Called once the span has been serialized, after which its tags can be reused. The span has no
+   * tags afterwards.
+   */
+  void recycleTags();
+
   T setSamplingPriority(int samplingPriority);
 
   T setSamplingPriority(int samplingPriority, CharSequence rate, double sampleRate);
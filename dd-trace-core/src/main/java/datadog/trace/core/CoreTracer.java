@@ -24,6 +24,8 @@ import datadog.trace.bootstrap.instrumentation.api.ScopeSource;
 import datadog.trace.common.metrics.MetricsAggregator;
 import datadog.trace.common.sampling.PrioritySampler;
 import datadog.trace.common.sampling.Sampler;
+import datadog.trace.common.sampling.TraceCompletionListener;
+import datadog.trace.common.writer.DDAgentWriter;
 import datadog.trace.common.writer.Writer;
 import datadog.trace.common.writer.WriterFactory;
 import datadog.trace.context.ScopeListener;
@@ -49,11 +51,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 import java.util.SortedSet;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.TimeUnit;
+import org.jctools.queues.MpmcArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,6 +76,8 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     return new CoreTracerBuilder();
   }
 
+  private static final int RECYCLED_TAG_MAPS = 1024;
+
   private static final String LANG_STATSD_TAG = "lang";
   private static final String LANG_VERSION_STATSD_TAG = "lang_version";
   private static final String LANG_INTERPRETER_STATSD_TAG = "lang_interpreter";
@@ -79,6 +85,9 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   private static final String TRACER_VERSION_STATSD_TAG = "tracer_version";
 
   private final PendingTraceBuffer pendingTraceBuffer;
+  private final TraceCompletion traceCompletion;
+  /** Tag stores of written spans, for new spans to reuse, if enabled */
+  final Queue<TagMap> recycledTags;
 
   /** Default service name if none provided on the trace or span */
   final String serviceName;
@@ -155,9 +164,12 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     private Map<String, String> serviceNameMappings;
     private Map<String, String> taggedHeaders;
     private int partialFlushMinSpans;
+    private int partialFlushMaxRetainedSpans;
     private StatsDClient statsDClient;
     private TagInterceptor tagInterceptor;
     private boolean strictTraceWrites;
+    private boolean deferredTraceCompletion;
+    private boolean tagRecycling;
 
     public CoreTracerBuilder serviceName(String serviceName) {
       this.serviceName = serviceName;
@@ -219,6 +231,15 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       return this;
     }
 
+    /**
+     * Bounds the finished spans held by all unfinished traces. Once there are more, traces holding
+     * a large part of them are partially flushed as they finish spans, whatever their size.
+     */
+    public CoreTracerBuilder partialFlushMaxRetainedSpans(int partialFlushMaxRetainedSpans) {
+      this.partialFlushMaxRetainedSpans = partialFlushMaxRetainedSpans;
+      return this;
+    }
+
     public CoreTracerBuilder statsDClient(StatsDClient statsDClient) {
       this.statsDClient = statsDClient;
       return this;
@@ -239,6 +260,26 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       return this;
     }
 
+    /**
+     * Runs trace interceptors, trace rules, stats and sampling on a worker thread instead of the
+     * thread finishing the trace. Ignored, so that traces are completed synchronously, when trace
+     * writes are strict.
+     */
+    public CoreTracerBuilder deferredTraceCompletion(boolean deferredTraceCompletion) {
+      this.deferredTraceCompletion = deferredTraceCompletion;
+      return this;
+    }
+
+    /**
+     * Reuses the tag stores of spans once the agent writer has serialized them, for spans created
+     * after that. A span whose tags have been recycled keeps working, but no longer has any tags.
+     * Only takes effect when the agent writer is the tracer's only writer.
+     */
+    public CoreTracerBuilder tagRecycling(boolean tagRecycling) {
+      this.tagRecycling = tagRecycling;
+      return this;
+    }
+
     public CoreTracerBuilder() {
       // Apply the default values from config.
       config(Config.get());
@@ -261,7 +302,10 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       serviceNameMappings(config.getServiceMapping());
       taggedHeaders(config.getHeaderTags());
       partialFlushMinSpans(config.getPartialFlushMinSpans());
+      partialFlushMaxRetainedSpans(config.getPartialFlushMaxRetainedSpans());
       strictTraceWrites(config.isTraceStrictWritesEnabled());
+      deferredTraceCompletion(config.isTraceDeferredCompletionEnabled());
+      tagRecycling(config.isTraceTagRecyclingEnabled());
 
       return this;
     }
@@ -281,9 +325,12 @@ public class CoreTracer implements AgentTracer.TracerAPI {
           serviceNameMappings,
           taggedHeaders,
           partialFlushMinSpans,
+          partialFlushMaxRetainedSpans,
           statsDClient,
           tagInterceptor,
-          strictTraceWrites);
+          strictTraceWrites,
+          deferredTraceCompletion,
+          tagRecycling);
     }
   }
 
@@ -302,9 +349,12 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       final Map<String, String> serviceNameMappings,
       final Map<String, String> taggedHeaders,
       final int partialFlushMinSpans,
+      final int partialFlushMaxRetainedSpans,
       final StatsDClient statsDClient,
       final TagInterceptor tagInterceptor,
-      final boolean strictTraceWrites) {
+      final boolean strictTraceWrites,
+      final boolean deferredTraceCompletion,
+      final boolean tagRecycling) {
 
     assert localRootSpanTags != null;
     assert defaultSpanTags != null;
@@ -359,14 +409,38 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     } else {
       this.writer = writer;
     }
+    // other writers, or writers handing the trace to several writers, may read the tags after the
+    // agent writer has serialized them
+    this.recycledTags =
+        tagRecycling && this.writer instanceof DDAgentWriter
+            ? new MpmcArrayQueue<TagMap>(RECYCLED_TAG_MAPS)
+            : null;
 
     this.pendingTraceBuffer =
         strictTraceWrites ? PendingTraceBuffer.mute() : PendingTraceBuffer.delaying();
-    pendingTraceFactory = new PendingTrace.Factory(this, pendingTraceBuffer, strictTraceWrites);
+    pendingTraceFactory =
+        new PendingTrace.Factory(
+            this,
+            pendingTraceBuffer,
+            strictTraceWrites,
+            new RetainedSpans(partialFlushMaxRetainedSpans));
     pendingTraceBuffer.start();
 
     this.writer.start();
 
+    TraceCompletion.Completer completer =
+        new TraceCompletion.Completer() {
+          @Override
+          public void complete(List<DDSpan> trace) {
+            completeTrace(trace);
+          }
+        };
+    this.traceCompletion =
+        deferredTraceCompletion && !strictTraceWrites
+            ? TraceCompletion.deferred(completer)
+            : TraceCompletion.synchronous(completer);
+    traceCompletion.start();
+
     metricsAggregator = createMetricsAggregator(config);
     // Schedule the metrics aggregator to begin reporting after a random delay of 1 to 10 seconds
     // (using milliseconds granularity.) This avoids a fleet of traced applications starting at the
@@ -543,8 +617,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   }
 
   /**
-   * We use the sampler to know if the trace has to be reported/written. The sampler is called on
-   * the first span (root span) of the trace. If the trace is marked as a sample, we report it.
+   * Hands finished spans over to be completed and written, see {@link #completeTrace(List)}.
    *
    * @param trace a list of the spans related to the same trace
    */
@@ -552,6 +625,20 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     if (trace.isEmpty()) {
       return;
     }
+    traceCompletion.enqueue(trace);
+  }
+
+  /**
+   * We use the sampler to know if the trace has to be reported/written. The sampler is called on
+   * the first span (root span) of the trace. If the trace is marked as a sample, we report it.
+   *
+   * <p>Runs after the trace interceptors and trace rules, either on the thread which finished the
+   * trace or, when completion is deferred, on the completion worker.
+   *
+   * @param trace a list of the spans related to the same trace
+   */
+  @SuppressWarnings("unchecked")
+  void completeTrace(final List<DDSpan> trace) {
     List<DDSpan> writtenTrace = trace;
     if (!interceptors.isEmpty()) {
       Collection<? extends MutableSpan> interceptedTrace = new ArrayList<>(trace);
@@ -582,6 +669,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
 
       DDSpan spanToSample = rootSpan == null ? writtenTrace.get(0) : rootSpan;
       spanToSample.forceKeep(forceKeep);
+      notifyTraceComplete(spanToSample, writtenTrace.size());
       if (forceKeep || sampler.sample(spanToSample)) {
         writer.write(writtenTrace);
       } else {
@@ -594,6 +682,13 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private void notifyTraceComplete(final DDSpan spanToSample, final int spanCount) {
+    if (sampler instanceof TraceCompletionListener) {
+      ((TraceCompletionListener<DDSpan>) sampler).onTraceComplete(spanToSample, spanCount);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   void setSamplingPriorityIfNecessary(final DDSpan rootSpan) {
     // There's a race where multiple threads can see PrioritySampling.UNSET here
@@ -641,6 +736,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   @Override
   public void close() {
     pendingTraceBuffer.close();
+    traceCompletion.close();
     writer.close();
     statsDClient.close();
     metricsAggregator.close();
@@ -649,6 +745,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   @Override
   public void flush() {
     pendingTraceBuffer.flush();
+    traceCompletion.flush();
     writer.flush();
   }
 
@@ -839,8 +936,8 @@ public class CoreTracer implements AgentTracer.TracerAPI {
      */
     private DDSpanContext buildSpanContext() {
       final DDId traceId;
-      final DDId spanId = idGenerationStrategy.generate();
-      final DDId parentSpanId;
+      final long spanId = idGenerationStrategy.generateLong();
+      final long parentSpanId;
       final Map<String, String> baggage;
       final PendingTrace parentTrace;
       final int samplingPriority;
@@ -869,7 +966,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       if (parentContext instanceof DDSpanContext) {
         final DDSpanContext ddsc = (DDSpanContext) parentContext;
         traceId = ddsc.getTraceId();
-        parentSpanId = ddsc.getSpanId();
+        parentSpanId = ddsc.getSpanIdAsLong();
         baggage = ddsc.getBaggageItems();
         parentTrace = ddsc.getTrace();
         samplingPriority = PrioritySampling.UNSET;
@@ -886,13 +983,13 @@ public class CoreTracer implements AgentTracer.TracerAPI {
           // Propagate external trace
           final ExtractedContext extractedContext = (ExtractedContext) parentContext;
           traceId = extractedContext.getTraceId();
-          parentSpanId = extractedContext.getSpanId();
+          parentSpanId = extractedContext.getSpanId().toLong();
           samplingPriority = extractedContext.getSamplingPriority();
           baggage = extractedContext.getBaggage();
         } else {
           // Start a new trace
           traceId = IdGenerationStrategy.RANDOM.generate();
-          parentSpanId = DDId.ZERO;
+          parentSpanId = 0;
           samplingPriority = PrioritySampling.UNSET;
           baggage = null;
         }
@@ -55,6 +55,9 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
 
   private boolean forceKeep;
 
+  // set when the span is written first in a part of a trace without its root span
+  private boolean partialTraceHead;
+
   /**
    * Spans should be constructed using the builder, not by calling the constructor directly.
    *
@@ -136,7 +139,7 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
    * @return true if root, false otherwise
    */
   public final boolean isRootSpan() {
-    return DDId.ZERO.equals(context.getParentId());
+    return context.getParentIdAsLong() == 0;
   }
 
   @Override
@@ -371,6 +374,21 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
     return context.getParentId();
   }
 
+  @Override
+  public long getTraceIdAsLong() {
+    return context.getTraceIdAsLong();
+  }
+
+  @Override
+  public long getSpanIdAsLong() {
+    return context.getSpanIdAsLong();
+  }
+
+  @Override
+  public long getParentIdAsLong() {
+    return context.getParentIdAsLong();
+  }
+
   @Override
   public CharSequence getResourceName() {
     return context.getResourceName();
@@ -433,6 +451,11 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
     context.processTagsAndBaggage(consumer);
   }
 
+  @Override
+  public void recycleTags() {
+    context.recycleTags();
+  }
+
   @Override
   public boolean isError() {
     return context.getErrorFlag();
@@ -457,7 +480,19 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan> {
 
   @Override
   public boolean hasSamplingPriority() {
-    return context.getTrace().getRootSpan() == this;
+    return partialTraceHead || context.getTrace().getRootSpan() == this;
+  }
+
+  /**
+   * Makes the span carry the sampling priority and origin of the trace's root span, which is
+   * written separately, so that the agent handles its part of the trace like the rest of it.
+   */
+  void setPartialTraceHead() {
+    partialTraceHead = true;
+    String origin = context.getOrigin();
+    if (null != origin) {
+      context.setTag(DDSpanContext.ORIGIN_KEY, origin);
+    }
   }
 
   @Override
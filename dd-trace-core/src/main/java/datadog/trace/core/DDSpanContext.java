@@ -8,12 +8,15 @@ import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import datadog.trace.core.propagation.InjectionCache;
 import datadog.trace.core.taginterceptor.TagInterceptor;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,18 +38,30 @@ public class DDSpanContext implements AgentSpan.Context {
       DDCaches.newFixedSizeCache(256);
 
   private static final Map<CharSequence, Number> EMPTY_METRICS = Collections.emptyMap();
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<DDSpanContext, Map> METRICS =
+      AtomicReferenceFieldUpdater.newUpdater(DDSpanContext.class, Map.class, "metrics");
+
   private static final Map<String, String> EMPTY_BAGGAGE = Collections.emptyMap();
+  private static final TagMap NO_TAGS = new TagMap(0);
+  private static final int MAX_RECYCLED_TAGS = 64;
 
   /** The collection of all span related to this one */
   private final PendingTrace trace;
 
   /** Baggage is associated with the whole trace and shared with other spans */
   private volatile Map<String, String> baggageItems;
+  /** Header values computed by the injectors, dropped when the baggage changes */
+  private volatile InjectionCache injectionCache;
 
   // Not Shared with other span contexts
   private final DDId traceId;
-  private final DDId spanId;
-  private final DDId parentId;
+  private final long spanId;
+  private final long parentId;
+  // the ids as objects are only created when asked for, most spans are written without them
+  private DDId spanIdObject;
+  private DDId parentIdObject;
 
   private final String parentServiceName;
 
@@ -62,7 +77,7 @@ public class DDSpanContext implements AgentSpan.Context {
    * rather read and accessed in a serial fashion on thread after thread. The synchronization can
    * then be wrapped around bulk operations to minimize the costly atomic operations.
    */
-  private final Map<String, Object> unsafeTags;
+  private final TagMap unsafeTags;
 
   /** The service name is required, otherwise the span are dropped by the agent */
   private volatile String serviceName;
@@ -89,7 +104,7 @@ public class DDSpanContext implements AgentSpan.Context {
   private volatile byte samplingPriorityV1 = PrioritySampling.UNSET;
   /** The origin of the trace. (eg. Synthetics) */
   private final String origin;
-  /** Metrics on the span - access synchronized on the spanId */
+  /** Metrics on the span - access synchronized on the metrics once installed */
   private volatile Map<CharSequence, Number> metrics = EMPTY_METRICS;
 
   public DDSpanContext(
@@ -107,13 +122,45 @@ public class DDSpanContext implements AgentSpan.Context {
       final CharSequence spanType,
       final int tagsSize,
       final PendingTrace trace) {
+    this(
+        traceId,
+        spanId.toLong(),
+        parentId.toLong(),
+        parentServiceName,
+        serviceName,
+        operationName,
+        resourceName,
+        samplingPriority,
+        origin,
+        baggageItems,
+        errorFlag,
+        spanType,
+        tagsSize,
+        trace);
+    this.spanIdObject = spanId;
+    this.parentIdObject = parentId;
+  }
+
+  public DDSpanContext(
+      final DDId traceId,
+      final long spanId,
+      final long parentId,
+      final CharSequence parentServiceName,
+      final String serviceName,
+      final CharSequence operationName,
+      final CharSequence resourceName,
+      final int samplingPriority,
+      final String origin,
+      final Map<String, String> baggageItems,
+      final boolean errorFlag,
+      final CharSequence spanType,
+      final int tagsSize,
+      final PendingTrace trace) {
 
     assert trace != null;
     this.trace = trace;
 
     assert traceId != null;
-    assert spanId != null;
-    assert parentId != null;
     this.traceId = traceId;
     this.spanId = spanId;
     this.parentId = parentId;
@@ -125,10 +172,18 @@ public class DDSpanContext implements AgentSpan.Context {
       this.baggageItems = new ConcurrentHashMap<>(baggageItems);
     }
 
-    // The +1 is the magic number from the tags below that we set at the end,
-    // and "* 4 / 3" is to make sure that we don't resize immediately
-    final int capacity = Math.max((tagsSize <= 0 ? 3 : (tagsSize + 1)) * 4 / 3, 8);
-    this.unsafeTags = new HashMap<>(capacity);
+    // The +1 is the magic number from the tags below that we set at the end, and instrumentation
+    // usually adds a dozen or more tags after the span has been built
+    Queue<TagMap> recycledTags = trace.getTracer().recycledTags;
+    TagMap tags = null == recycledTags ? null : recycledTags.poll();
+    if (null == tags) {
+      tags = new TagMap(Math.max(tagsSize + 1, 16));
+    } else {
+      synchronized (tags) {
+        tags.owner = this;
+      }
+    }
+    this.unsafeTags = tags;
 
     setServiceName(serviceName);
     this.operationName = operationName;
@@ -142,7 +197,9 @@ public class DDSpanContext implements AgentSpan.Context {
     }
 
     if (origin != null) {
-      this.unsafeTags.put(ORIGIN_KEY, origin);
+      synchronized (unsafeTags) {
+        this.unsafeTags.put(ORIGIN_KEY, origin);
+      }
     }
     // Additional Metadata
     final Thread current = Thread.currentThread();
@@ -156,14 +213,36 @@ public class DDSpanContext implements AgentSpan.Context {
   }
 
   public DDId getParentId() {
-    return parentId;
+    DDId id = parentIdObject;
+    if (null == id) {
+      id = DDId.from(parentId);
+      parentIdObject = id;
+    }
+    return id;
   }
 
   @Override
   public DDId getSpanId() {
+    DDId id = spanIdObject;
+    if (null == id) {
+      id = DDId.from(spanId);
+      spanIdObject = id;
+    }
+    return id;
+  }
+
+  public long getTraceIdAsLong() {
+    return traceId.toLong();
+  }
+
+  public long getSpanIdAsLong() {
     return spanId;
   }
 
+  public long getParentIdAsLong() {
+    return parentId;
+  }
+
   public String getServiceName() {
     return serviceName;
   }
@@ -319,6 +398,7 @@ public class DDSpanContext implements AgentSpan.Context {
       }
     }
     baggageItems.put(key, value);
+    injectionCache = null;
   }
 
   public String getBaggageItem(final String key) {
@@ -334,6 +414,17 @@ public class DDSpanContext implements AgentSpan.Context {
     return baggageItems.entrySet();
   }
 
+  public InjectionCache getInjectionCache() {
+    InjectionCache cache = injectionCache;
+    if (null == cache) {
+      // published before anything is computed, so a concurrent baggage change either discards it
+      // or is seen by it
+      cache = new InjectionCache();
+      injectionCache = cache;
+    }
+    return cache;
+  }
+
   @Override
   public PendingTrace getTrace() {
     return trace;
@@ -349,18 +440,19 @@ public class DDSpanContext implements AgentSpan.Context {
   }
 
   public void setMetric(final CharSequence key, final Number value) {
-    if (metrics == EMPTY_METRICS) {
-      // synchronize on spanId to not contend with sample rates being set
-      synchronized (spanId) {
-        if (metrics == EMPTY_METRICS) {
-          metrics = new HashMap<>(4);
-          metrics.put(key, value instanceof Float ? value.doubleValue() : value);
-          return;
-        }
+    final Number metric = value instanceof Float ? value.doubleValue() : value;
+    Map<CharSequence, Number> current = metrics;
+    if (current == EMPTY_METRICS) {
+      final Map<CharSequence, Number> initial = new HashMap<>(4);
+      initial.put(key, metric);
+      if (METRICS.compareAndSet(this, EMPTY_METRICS, initial)) {
+        return;
       }
+      current = metrics;
     }
-    synchronized (spanId) {
-      metrics.put(key, value instanceof Float ? value.doubleValue() : value);
+    // synchronize on the metrics to not contend with tags being set
+    synchronized (current) {
+      current.put(key, metric);
     }
   }
 
@@ -371,9 +463,14 @@ public class DDSpanContext implements AgentSpan.Context {
    * @param value the value of the tag. tags with null values are ignored.
    */
   public void setTag(final String tag, final Object value) {
+    if (!ownsTags()) {
+      return;
+    }
     if (null == value || "".equals(value)) {
       synchronized (unsafeTags) {
-        unsafeTags.remove(tag);
+        if (ownsTags()) {
+          unsafeTags.remove(tag);
+        }
       }
     } else if (!trace.getTracer().getTagInterceptor().interceptTag(this, tag, value)) {
       synchronized (unsafeTags) {
@@ -382,8 +479,40 @@ public class DDSpanContext implements AgentSpan.Context {
     }
   }
 
+  /** Like {@link #setTag(String, Object)}, but without boxing the value unless it's intercepted. */
+  public void setTag(final String tag, final int value) {
+    if (!ownsTags()) {
+      return;
+    }
+    if (trace.getTracer().getTagInterceptor().needsIntercept(tag)) {
+      setTag(tag, (Object) value);
+    } else {
+      synchronized (unsafeTags) {
+        if (ownsTags()) {
+          unsafeTags.put(tag, value);
+        }
+      }
+    }
+  }
+
+  /** Like {@link #setTag(String, Object)}, but without boxing the value unless it's intercepted. */
+  public void setTag(final String tag, final long value) {
+    if (!ownsTags()) {
+      return;
+    }
+    if (trace.getTracer().getTagInterceptor().needsIntercept(tag)) {
+      setTag(tag, (Object) value);
+    } else {
+      synchronized (unsafeTags) {
+        if (ownsTags()) {
+          unsafeTags.put(tag, value);
+        }
+      }
+    }
+  }
+
   void setAllTags(final Map<String, ? extends Object> map) {
-    if (map == null || map.isEmpty()) {
+    if (map == null || map.isEmpty() || !ownsTags()) {
       return;
     }
 
@@ -398,7 +527,9 @@ public class DDSpanContext implements AgentSpan.Context {
   }
 
   void unsafeSetTag(final String tag, final Object value) {
-    unsafeTags.put(tag, value);
+    if (ownsTags()) {
+      unsafeTags.put(tag, value);
+    }
   }
 
   Object getTag(final String key) {
@@ -409,6 +540,9 @@ public class DDSpanContext implements AgentSpan.Context {
         // maintain previously observable type of the thread name :|
         return threadName.toString();
       default:
+        if (!ownsTags()) {
+          return null;
+        }
         synchronized (unsafeTags) {
           return unsafeGetTag(key);
         }
@@ -423,22 +557,61 @@ public class DDSpanContext implements AgentSpan.Context {
    * @return the value associated with the tag
    */
   public Object unsafeGetTag(final String tag) {
-    return unsafeTags.get(tag);
+    return ownsTags() ? unsafeTags.get(tag) : null;
   }
 
   public Map<String, Object> getTags() {
-    synchronized (unsafeTags) {
-      Map<String, Object> tags = new HashMap<>(unsafeTags);
-      tags.put(DDTags.THREAD_ID, threadId);
-      tags.put(DDTags.THREAD_NAME, threadName.toString());
-      return Collections.unmodifiableMap(tags);
+    Map<String, Object> tags = new HashMap<>();
+    if (ownsTags()) {
+      synchronized (unsafeTags) {
+        if (ownsTags()) {
+          tags.putAll(unsafeTags);
+        }
+      }
     }
+    tags.put(DDTags.THREAD_ID, threadId);
+    tags.put(DDTags.THREAD_NAME, threadName.toString());
+    return Collections.unmodifiableMap(tags);
   }
 
   public void processTagsAndBaggage(final MetadataConsumer consumer) {
+    if (!ownsTags()) {
+      consumer.accept(new Metadata(threadId, threadName, NO_TAGS, baggageItems));
+      return;
+    }
+    synchronized (unsafeTags) {
+      consumer.accept(
+          new Metadata(threadId, threadName, ownsTags() ? unsafeTags : NO_TAGS, baggageItems));
+    }
+  }
+
+  /**
+   * Hands the tags over to be reused by a new span, when the tracer recycles tag stores. This must
+   * only be called once the span has been serialized, after which it has no tags and ignores new
+   * ones.
+   */
+  public void recycleTags() {
+    Queue<TagMap> recycledTags = trace.getTracer().recycledTags;
+    if (null == recycledTags || !ownsTags()) {
+      return;
+    }
     synchronized (unsafeTags) {
-      consumer.accept(new Metadata(threadId, threadName, unsafeTags, baggageItems));
+      // don't hold on to maps which grew unusually large
+      if (!ownsTags() || unsafeTags.capacity() > MAX_RECYCLED_TAGS) {
+        return;
+      }
+      unsafeTags.clear();
+      unsafeTags.owner = TagMap.RECYCLED;
     }
+    recycledTags.offer(unsafeTags);
+  }
+
+  /**
+   * Checked before taking the tags' monitor, so that a span whose tags were recycled doesn't
+   * contend with the span reusing them, and again holding it before touching the tags.
+   */
+  private boolean ownsTags() {
+    return unsafeTags.isOwnedBy(this);
   }
 
   @Override
@@ -459,20 +632,20 @@ public class DDSpanContext implements AgentSpan.Context {
             .append(getResourceName())
             .append(" metrics=");
 
-    synchronized (spanId) {
-      Map<CharSequence, Number> metricsSnapshot = new TreeMap<>(getUnsafeMetrics());
-      if (samplingPriorityV1 != PrioritySampling.UNSET) {
-        metricsSnapshot.put(PRIORITY_SAMPLING_KEY, samplingPriorityV1);
-      }
-      s.append(metricsSnapshot);
+    final Map<CharSequence, Number> current = metrics;
+    final Map<CharSequence, Number> metricsSnapshot;
+    synchronized (current) {
+      metricsSnapshot = new TreeMap<>(current);
+    }
+    if (samplingPriorityV1 != PrioritySampling.UNSET) {
+      metricsSnapshot.put(PRIORITY_SAMPLING_KEY, samplingPriorityV1);
     }
+    s.append(metricsSnapshot);
     if (errorFlag) {
       s.append(" *errored*");
     }
 
-    synchronized (unsafeTags) {
-      s.append(" tags=").append(new TreeMap<>(getTags()));
-    }
+    s.append(" tags=").append(new TreeMap<>(getTags()));
     return s.toString();
   }
 }
@@ -0,0 +1,306 @@
+package datadog.trace.core;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * An append-only buffer of the finished spans of a {@link PendingTrace}.
+ *
+ * <p>Spans are stored in chunks of growing size. A slot in the current chunk is claimed with a
+ * single atomic increment, and a new chunk is linked in with a CAS when the current one is full.
+ * Draining the buffer swaps out the whole chain of chunks, which is then handed off as a {@link
+ * List} without copying. The oldest finish time is tracked as spans are added.
+ */
+final class FinishedSpanBuffer implements Iterable<DDSpan> {
+
+  private static final int INITIAL_CHUNK_SIZE = 8;
+  private static final int MAX_CHUNK_SIZE = 512;
+
+  private static final class Chunk {
+    private static final AtomicIntegerFieldUpdater<Chunk> CLAIMED =
+        AtomicIntegerFieldUpdater.newUpdater(Chunk.class, "claimed");
+    private static final AtomicIntegerFieldUpdater<Chunk> PUBLISHED =
+        AtomicIntegerFieldUpdater.newUpdater(Chunk.class, "published");
+
+    final DDSpan[] spans;
+    /** The previous, full, chunk or null. */
+    final Chunk previous;
+
+    volatile int claimed = 0;
+    volatile int published = 0;
+    /** Whether the trace's root span is in the chunk, visible once its slot is published. */
+    boolean hasRootSpan;
+
+    Chunk(int size, Chunk previous) {
+      this.spans = new DDSpan[size];
+      this.previous = previous;
+    }
+
+    /** @return the claimed slot, which is out of bounds if the chunk is full or sealed */
+    int claim() {
+      return CLAIMED.getAndIncrement(this);
+    }
+
+    void publish(int slot, DDSpan span, boolean rootSpan) {
+      spans[slot] = span;
+      if (rootSpan) {
+        hasRootSpan = true;
+      }
+      PUBLISHED.incrementAndGet(this);
+    }
+
+    /** Stops new claims and waits for the claimed slots to be published. */
+    int seal() {
+      int count = Math.min(CLAIMED.getAndSet(this, spans.length), spans.length);
+      awaitPublished(count);
+      return count;
+    }
+
+    void awaitPublished(int count) {
+      while (published < count) {
+        // the span is being written to its slot right now
+        Thread.yield();
+      }
+    }
+  }
+
+  private static final AtomicReferenceFieldUpdater<FinishedSpanBuffer, Chunk> HEAD =
+      AtomicReferenceFieldUpdater.newUpdater(FinishedSpanBuffer.class, Chunk.class, "head");
+  private static final AtomicLongFieldUpdater<FinishedSpanBuffer> OLDEST_FINISHED_TIME =
+      AtomicLongFieldUpdater.newUpdater(FinishedSpanBuffer.class, "oldestFinishedTime");
+
+  private volatile Chunk head = null;
+  private volatile long oldestFinishedTime = Long.MAX_VALUE;
+
+  /**
+   * @param rootSpan whether the span is the trace's root span, see {@link ChunkList#hasRootSpan()}
+   */
+  void add(final DDSpan span, final boolean rootSpan) {
+    updateOldestFinishedTime(span.getStartTime() + span.getDurationNano());
+    while (true) {
+      Chunk chunk = head;
+      if (null != chunk) {
+        int slot = chunk.claim();
+        if (slot < chunk.spans.length) {
+          chunk.publish(slot, span, rootSpan);
+          return;
+        }
+      }
+      // the chunk is either full or was drained, so try to link in a new one
+      int size =
+          null == chunk ? INITIAL_CHUNK_SIZE : Math.min(chunk.spans.length << 1, MAX_CHUNK_SIZE);
+      Chunk next = new Chunk(size, chunk);
+      next.spans[0] = span;
+      next.hasRootSpan = rootSpan;
+      next.claimed = 1;
+      next.published = 1;
+      if (HEAD.compareAndSet(this, chunk, next)) {
+        return;
+      }
+    }
+  }
+
+  private void updateOldestFinishedTime(final long finishTime) {
+    long oldest = oldestFinishedTime;
+    while (finishTime < oldest && !OLDEST_FINISHED_TIME.compareAndSet(this, oldest, finishTime)) {
+      oldest = oldestFinishedTime;
+    }
+  }
+
+  /** @return Long.MAX_VALUE if no spans finished. */
+  long oldestFinishedTime() {
+    return oldestFinishedTime;
+  }
+
+  boolean isEmpty() {
+    return null == head;
+  }
+
+  /**
+   * Removes all spans from the buffer. Concurrent calls never return the same span twice.
+   *
+   * @return the removed spans, most recently finished first.
+   */
+  ChunkList drain() {
+    // reset before taking the chunks, so a span added concurrently can only make this older
+    oldestFinishedTime = Long.MAX_VALUE;
+    Chunk chunk = HEAD.getAndSet(this, null);
+    if (null == chunk) {
+      return ChunkList.EMPTY;
+    }
+    int headCount = chunk.seal();
+    int size = headCount;
+    boolean hasRootSpan = chunk.hasRootSpan;
+    for (Chunk previous = chunk.previous; null != previous; previous = previous.previous) {
+      previous.awaitPublished(previous.spans.length);
+      size += previous.spans.length;
+      hasRootSpan |= previous.hasRootSpan;
+    }
+    return new ChunkList(chunk, headCount, size, hasRootSpan);
+  }
+
+  /** Weakly consistent view of the spans in the buffer, most recently finished first. */
+  @Override
+  public Iterator<DDSpan> iterator() {
+    final Chunk chunk = head;
+    return new Iterator<DDSpan>() {
+      private Chunk current = chunk;
+      private int index = null == chunk ? -1 : Math.min(chunk.claimed, chunk.spans.length) - 1;
+      private DDSpan next = advance();
+
+      private DDSpan advance() {
+        while (null != current) {
+          while (index >= 0) {
+            DDSpan span = current.spans[index--];
+            if (null != span) {
+              return span;
+            }
+          }
+          current = current.previous;
+          index = null == current ? -1 : current.spans.length - 1;
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return null != next;
+      }
+
+      @Override
+      public DDSpan next() {
+        if (null == next) {
+          throw new NoSuchElementException();
+        }
+        DDSpan span = next;
+        next = advance();
+        return span;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * A list over a drained chain of chunks, most recently finished first, which is exclusively owned
+   * by whoever drained it.
+   *
+   * <p>Reaching an index walks the chain of chunks, so the list should be iterated rather than
+   * accessed by index.
+   */
+  static final class ChunkList extends AbstractList<DDSpan> {
+    static final ChunkList EMPTY = new ChunkList(null, 0, 0, false);
+
+    private final Chunk head;
+    private final int headCount;
+    private final int size;
+    private final boolean hasRootSpan;
+
+    private ChunkList(Chunk head, int headCount, int size, boolean hasRootSpan) {
+      this.head = head;
+      this.headCount = headCount;
+      this.size = size;
+      this.hasRootSpan = hasRootSpan;
+    }
+
+    /** @return whether the root span was added to the buffer as such and drained in this list */
+    boolean hasRootSpan() {
+      return hasRootSpan;
+    }
+
+    @Override
+    public DDSpan get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      Chunk chunk = head;
+      int count = headCount;
+      while (index >= count) {
+        index -= count;
+        chunk = chunk.previous;
+        count = chunk.spans.length;
+      }
+      return chunk.spans[count - 1 - index];
+    }
+
+    @Override
+    public DDSpan set(int index, DDSpan span) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      Chunk chunk = head;
+      int count = headCount;
+      while (index >= count) {
+        index -= count;
+        chunk = chunk.previous;
+        count = chunk.spans.length;
+      }
+      DDSpan previous = chunk.spans[count - 1 - index];
+      chunk.spans[count - 1 - index] = span;
+      return previous;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Iterator<DDSpan> iterator() {
+      return new Iterator<DDSpan>() {
+        private Chunk chunk = head;
+        // index in the chunk of the next span, which is walked from its end
+        private int slot = headCount - 1;
+        private int remaining = size;
+
+        @Override
+        public boolean hasNext() {
+          return remaining > 0;
+        }
+
+        @Override
+        public DDSpan next() {
+          if (remaining == 0) {
+            throw new NoSuchElementException();
+          }
+          if (slot < 0) {
+            chunk = chunk.previous;
+            slot = chunk.spans.length - 1;
+          }
+          remaining--;
+          return chunk.spans[slot--];
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int indexOf(Object o) {
+      int index = 0;
+      for (DDSpan span : this) {
+        if (null == o ? null == span : o.equals(span)) {
+          return index;
+        }
+        index++;
+      }
+      return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(o) >= 0;
+    }
+  }
+}
@@ -6,14 +6,11 @@ import java.util.Map;
 public class Metadata {
   private final long threadId;
   private final UTF8BytesString threadName;
-  private final Map<String, Object> tags;
+  private final TagMap tags;
   private final Map<String, String> baggage;
 
   public Metadata(
-      long threadId,
-      UTF8BytesString threadName,
-      Map<String, Object> tags,
-      Map<String, String> baggage) {
+      long threadId, UTF8BytesString threadName, TagMap tags, Map<String, String> baggage) {
     this.threadId = threadId;
     this.threadName = threadName;
     this.tags = tags;
@@ -28,7 +25,7 @@ public class Metadata {
     return threadName;
   }
 
-  public Map<String, Object> getTags() {
+  public TagMap getTags() {
     return tags;
   }
 
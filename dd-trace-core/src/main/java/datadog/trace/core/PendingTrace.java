@@ -5,9 +5,6 @@ import datadog.trace.bootstrap.instrumentation.api.AgentScope;
 import datadog.trace.bootstrap.instrumentation.api.AgentTrace;
 import datadog.trace.core.monitor.Recording;
 import datadog.trace.core.util.Clock;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import javax.annotation.Nonnull;
@@ -40,24 +37,34 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
     private final CoreTracer tracer;
     private final PendingTraceBuffer pendingTraceBuffer;
     private final boolean strictTraceWrites;
+    private final RetainedSpans retainedSpans;
 
     Factory(CoreTracer tracer, PendingTraceBuffer pendingTraceBuffer, boolean strictTraceWrites) {
+      this(tracer, pendingTraceBuffer, strictTraceWrites, RetainedSpans.UNLIMITED);
+    }
+
+    Factory(
+        CoreTracer tracer,
+        PendingTraceBuffer pendingTraceBuffer,
+        boolean strictTraceWrites,
+        RetainedSpans retainedSpans) {
       this.tracer = tracer;
       this.pendingTraceBuffer = pendingTraceBuffer;
       this.strictTraceWrites = strictTraceWrites;
+      this.retainedSpans = retainedSpans;
     }
 
     PendingTrace create(@Nonnull DDId traceId) {
-      return new PendingTrace(tracer, traceId, pendingTraceBuffer, strictTraceWrites);
+      return new PendingTrace(
+          tracer, traceId, pendingTraceBuffer, strictTraceWrites, retainedSpans);
     }
   }
 
-  private static final List<DDSpan> EMPTY = new ArrayList<>(0);
-
   private final CoreTracer tracer;
   private final DDId traceId;
   private final PendingTraceBuffer pendingTraceBuffer;
   private final boolean strictTraceWrites;
+  private final RetainedSpans retainedSpans;
 
   // TODO: consider moving these time fields into DDTracer to ensure that traces have precise
   // relative time
@@ -66,9 +73,9 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
   /** Nano second ticks value at trace start */
   private final long startNanoTicks;
 
-  private final ConcurrentLinkedDeque<DDSpan> finishedSpans = new ConcurrentLinkedDeque<>();
+  private final FinishedSpanBuffer finishedSpans = new FinishedSpanBuffer();
 
-  // We must maintain a separate count because ConcurrentLinkedDeque.size() is a linear operation.
+  // We must maintain a separate count because the span buffer doesn't track its size.
   private volatile int completedSpanCount = 0;
   private static final AtomicIntegerFieldUpdater<PendingTrace> COMPLETED_SPAN_COUNT =
       AtomicIntegerFieldUpdater.newUpdater(PendingTrace.class, "completedSpanCount");
@@ -98,11 +105,13 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
       @Nonnull CoreTracer tracer,
       @Nonnull DDId traceId,
       @Nonnull PendingTraceBuffer pendingTraceBuffer,
-      boolean strictTraceWrites) {
+      boolean strictTraceWrites,
+      @Nonnull RetainedSpans retainedSpans) {
     this.tracer = tracer;
     this.traceId = traceId;
     this.pendingTraceBuffer = pendingTraceBuffer;
     this.strictTraceWrites = strictTraceWrites;
+    this.retainedSpans = retainedSpans;
 
     startTimeNano = Clock.currentNanoTime();
     startNanoTicks = Clock.currentNanoTicks();
@@ -132,10 +141,9 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
     lastReferenced = Clock.currentNanoTicks();
   }
 
-  public boolean lastReferencedNanosAgo(long nanos) {
-    long currentNanoTicks = Clock.currentNanoTicks();
-    long age = currentNanoTicks - lastReferenced;
-    return nanos < age;
+  @Override
+  public long lastReferenced() {
+    return lastReferenced;
   }
 
   void registerSpan(final DDSpan span) {
@@ -144,12 +152,13 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
   }
 
   void addFinishedSpan(final DDSpan span) {
-    finishedSpans.addFirst(span);
+    final boolean isRootSpan = span == getRootSpan();
+    finishedSpans.add(span, isRootSpan);
     // There is a benign race here where the span added above can get written out by a writer in
     // progress before the count has been incremented. It's being taken care of in the internal
     // write method.
-    COMPLETED_SPAN_COUNT.incrementAndGet(this);
-    decrementRefAndMaybeWrite(span == getRootSpan());
+    boolean overBudget = retainedSpans.retain(COMPLETED_SPAN_COUNT.incrementAndGet(this));
+    decrementRefAndMaybeWrite(isRootSpan, overBudget);
   }
 
   public DDSpan getRootSpan() {
@@ -158,11 +167,7 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
 
   /** @return Long.MAX_VALUE if no spans finished. */
   public long oldestFinishedTime() {
-    long oldest = Long.MAX_VALUE;
-    for (DDSpan span : finishedSpans) {
-      oldest = Math.min(oldest, span.getStartTime() + span.getDurationNano());
-    }
-    return oldest;
+    return finishedSpans.oldestFinishedTime();
   }
 
   /**
@@ -176,10 +181,10 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
 
   @Override
   public void cancelContinuation(final AgentScope.Continuation continuation) {
-    decrementRefAndMaybeWrite(false);
+    decrementRefAndMaybeWrite(false, false);
   }
 
-  private void decrementRefAndMaybeWrite(boolean isRootSpan) {
+  private void decrementRefAndMaybeWrite(boolean isRootSpan, boolean overBudget) {
     final int count = PENDING_REFERENCE_COUNT.decrementAndGet(this);
     if (strictTraceWrites && count < 0) {
       throw new IllegalStateException("Pending reference count " + count + " is negative");
@@ -194,7 +199,10 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
       pendingTraceBuffer.enqueue(this);
     } else if (0 < partialFlushMinSpans && partialFlushMinSpans < size()) {
       // Trace is getting too big, write anything completed.
-      partialFlush();
+      partialFlush(partialFlushMinSpans);
+    } else if (overBudget) {
+      // Too many finished spans are held across all traces, and many of them belong to this one
+      partialFlush(0);
     } else if (rootSpanWritten) {
       // Late arrival span ... delay write
       pendingTraceBuffer.enqueue(this);
@@ -202,8 +210,8 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
   }
 
   /** Important to note: may be called multiple times. */
-  private void partialFlush() {
-    int size = write(true);
+  private void partialFlush(int minSpans) {
+    int size = write(true, minSpans);
     if (log.isDebugEnabled()) {
       log.debug("t_id={} -> wrote partial trace of size {}", traceId, size);
     }
@@ -211,38 +219,35 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
 
   /** Important to note: may be called multiple times. */
   public void write() {
-    write(false);
+    write(false, 0);
   }
 
-  private int write(boolean isPartial) {
+  private int write(boolean isPartial, int minSpans) {
     if (!finishedSpans.isEmpty()) {
       try (Recording recording = tracer.writeTimer()) {
-        // Only one writer at a time
-        final List<DDSpan> trace;
-        synchronized (this) {
-          if (!isPartial) {
-            rootSpanWritten = true;
-          }
-          int size = size();
-          // If we get here and size is below 0, then the writer before us wrote out at least one
-          // more trace than the size it had when it started. Those span(s) had been added to
-          // finishedSpans by some other thread(s) while the existing spans were being written, but
-          // the completedSpanCount has not yet been incremented. This means that eventually the
-          // count(s) will be incremented, and any new spans added during the period that the count
-          // was negative will be written by someone even if we don't write them right now.
-          if (size > 0 && (!isPartial || size > tracer.getPartialFlushMinSpans())) {
-            trace = new ArrayList<>(size);
-            DDSpan span = finishedSpans.pollFirst();
-            while (null != span) {
-              trace.add(span);
-              span = finishedSpans.pollFirst();
-            }
-          } else {
-            trace = EMPTY;
-          }
+        if (!isPartial) {
+          rootSpanWritten = true;
+        }
+        int size = size();
+        // If we get here and size is below 0, then the writer before us wrote out at least one
+        // more trace than the size it had when it started. Those span(s) had been added to
+        // finishedSpans by some other thread(s) while the existing spans were being written, but
+        // the completedSpanCount has not yet been incremented. This means that eventually the
+        // count(s) will be incremented, and any new spans added during the period that the count
+        // was negative will be written by someone even if we don't write them right now.
+        final FinishedSpanBuffer.ChunkList trace;
+        if (size > minSpans) {
+          // Concurrent writers each get a disjoint set of spans
+          trace = finishedSpans.drain();
+        } else {
+          trace = FinishedSpanBuffer.ChunkList.EMPTY;
         }
         if (!trace.isEmpty()) {
           COMPLETED_SPAN_COUNT.addAndGet(this, -trace.size());
+          retainedSpans.release(trace.size());
+          if (isPartial && !trace.hasRootSpan()) {
+            trace.get(0).setPartialTraceHead();
+          }
           tracer.write(trace);
           return trace.size();
         }
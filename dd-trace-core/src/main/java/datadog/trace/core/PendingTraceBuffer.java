@@ -3,7 +3,10 @@ package datadog.trace.core;
 import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_MONITOR;
 import static datadog.trace.util.AgentThreadFactory.THREAD_JOIN_TIMOUT_MS;
 import static datadog.trace.util.AgentThreadFactory.newAgentThread;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+import datadog.trace.core.util.Clock;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.jctools.queues.MessagePassingQueue;
@@ -13,17 +16,18 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
   private static final int BUFFER_SIZE = 1 << 12; // 4096
 
   public interface Element {
+    /** @return epoch time in nanoseconds of the oldest finished span or Long.MAX_VALUE. */
     long oldestFinishedTime();
 
-    boolean lastReferencedNanosAgo(long nanos);
+    /** @return nano ticks value of the last time this element was referenced. */
+    long lastReferenced();
 
     void write();
   }
 
   private static class DelayingPendingTraceBuffer extends PendingTraceBuffer {
-    private static final long FORCE_SEND_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final long FORCE_SEND_DELAY_NS = TimeUnit.SECONDS.toNanos(5);
     private static final long SEND_DELAY_NS = TimeUnit.MILLISECONDS.toNanos(500);
-    private static final long SLEEP_TIME_MS = 100;
 
     private final MpscBlockingConsumerArrayQueue<Element> queue;
     private final Thread worker;
@@ -100,52 +104,154 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
       }
 
       @Override
-      public boolean lastReferencedNanosAgo(long nanos) {
-        return false;
+      public long lastReferenced() {
+        return 0;
       }
 
       @Override
       public void write() {}
     }
 
-    private final class Worker implements Runnable {
+    /**
+     * Hashed timing wheel owned by the worker thread. Each element sits in the bucket of the tick
+     * when its deadline expires, so the worker only looks at an element when it might be due
+     * instead of cycling through every pending trace.
+     */
+    private static final class TimingWheel {
+      private static final long TICK_NS = TimeUnit.MILLISECONDS.toNanos(10);
+      // must be a power of two spanning more than SEND_DELAY_NS
+      private static final int WHEEL_SIZE = 64;
+      private static final int MASK = WHEEL_SIZE - 1;
+
+      private final long startNanoTicks;
+      private final Element[][] buckets = new Element[WHEEL_SIZE][];
+      private final int[] bucketSizes = new int[WHEEL_SIZE];
+      private Element[] spare = new Element[16];
+      private long currentTick = 0;
+      private int size = 0;
+
+      TimingWheel(long startNanoTicks) {
+        this.startNanoTicks = startNanoTicks;
+        for (int i = 0; i < WHEEL_SIZE; ++i) {
+          buckets[i] = new Element[16];
+        }
+      }
 
-      @Override
-      public void run() {
-        try {
-          while (!closed && !Thread.currentThread().isInterrupted()) {
+      boolean isEmpty() {
+        return size == 0;
+      }
 
-            Element pendingTrace = queue.take(); // block until available.
+      long nanosUntilNextTick(long nowNanoTicks) {
+        return startNanoTicks + currentTick * TICK_NS - nowNanoTicks;
+      }
 
-            if (pendingTrace instanceof FlushElement) {
-              // Since this is an MPSC queue, the drain needs to be called on the consumer thread
-              queue.drain(WriteDrain.WRITE_DRAIN);
-              flushCounter.incrementAndGet();
-              continue;
-            }
+      void schedule(Element element, long deadlineNanoTicks) {
+        // round up so that an element is never fired before its deadline
+        long tick = (deadlineNanoTicks - startNanoTicks + TICK_NS - 1) / TICK_NS;
+        // elements beyond the span of the wheel are re-evaluated when the wheel comes around
+        tick = Math.min(Math.max(tick, currentTick), currentTick + MASK);
+        int index = (int) (tick & MASK);
+        Element[] bucket = buckets[index];
+        int bucketSize = bucketSizes[index];
+        if (bucketSize == bucket.length) {
+          bucket = Arrays.copyOf(bucket, bucketSize << 1);
+          buckets[index] = bucket;
+        }
+        bucket[bucketSize] = element;
+        bucketSizes[index] = bucketSize + 1;
+        ++size;
+      }
 
-            long oldestFinishedTime = pendingTrace.oldestFinishedTime();
+      /** Passes every element whose tick has expired to the consumer, which may reschedule it. */
+      void advance(long nowNanoTicks, MessagePassingQueue.Consumer<Element> consumer) {
+        long nowTick = (nowNanoTicks - startNanoTicks) / TICK_NS;
+        while (size > 0 && currentTick <= nowTick) {
+          int index = (int) (currentTick & MASK);
+          ++currentTick;
+          fire(index, consumer);
+        }
+        if (size == 0) {
+          // nothing to catch up with, so skip the idle ticks
+          currentTick = Math.max(currentTick, nowTick + 1);
+        }
+      }
 
-            long finishTimestampMillis = TimeUnit.NANOSECONDS.toMillis(oldestFinishedTime);
-            if (finishTimestampMillis <= System.currentTimeMillis() - FORCE_SEND_DELAY_MS) {
-              // Root span is getting old. Send the trace to avoid being discarded by agent.
-              pendingTrace.write();
-              continue;
-            }
+      /** Passes every element in the wheel to the consumer, regardless of its deadline. */
+      void drain(MessagePassingQueue.Consumer<Element> consumer) {
+        for (int i = 0; i < WHEEL_SIZE; ++i) {
+          fire(i, consumer);
+        }
+      }
 
-            if (pendingTrace.lastReferencedNanosAgo(SEND_DELAY_NS)) {
-              // Trace has been unmodified long enough, go ahead and write whatever is finished.
-              pendingTrace.write();
+      private void fire(int index, MessagePassingQueue.Consumer<Element> consumer) {
+        int bucketSize = bucketSizes[index];
+        if (bucketSize == 0) {
+          return;
+        }
+        // swap the bucket out first since the consumer may schedule new elements
+        Element[] firing = buckets[index];
+        buckets[index] = spare;
+        bucketSizes[index] = 0;
+        size -= bucketSize;
+        for (int i = 0; i < bucketSize; ++i) {
+          Element element = firing[i];
+          firing[i] = null;
+          consumer.accept(element);
+        }
+        spare = firing;
+      }
+    }
+
+    private final class Worker implements Runnable, MessagePassingQueue.Consumer<Element> {
+
+      private final TimingWheel wheel = new TimingWheel(Clock.currentNanoTicks());
+
+      @Override
+      public void run() {
+        try {
+          while (!closed && !Thread.currentThread().isInterrupted()) {
+            Element pendingTrace;
+            if (wheel.isEmpty()) {
+              pendingTrace = queue.take(); // block until available.
             } else {
-              // Trace is too new.  Requeue it and sleep to avoid a hot loop.
-              enqueue(pendingTrace);
-              Thread.sleep(SLEEP_TIME_MS);
+              long timeout = wheel.nanosUntilNextTick(Clock.currentNanoTicks());
+              pendingTrace = timeout > 0 ? queue.poll(timeout, NANOSECONDS) : queue.poll();
+            }
+            if (null != pendingTrace) {
+              accept(pendingTrace);
+              queue.drain(this);
             }
+            wheel.advance(Clock.currentNanoTicks(), this);
           }
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
         }
       }
+
+      @Override
+      public void accept(Element pendingTrace) {
+        if (pendingTrace instanceof FlushElement) {
+          // everything enqueued before the flush element is already in the wheel
+          wheel.drain(WriteDrain.WRITE_DRAIN);
+          flushCounter.incrementAndGet();
+          return;
+        }
+        long now = Clock.currentNanoTicks();
+        // Write whatever is finished once the trace has been unmodified long enough.
+        long deadline = pendingTrace.lastReferenced() + SEND_DELAY_NS;
+        long oldestFinishedTime = pendingTrace.oldestFinishedTime();
+        if (oldestFinishedTime != Long.MAX_VALUE) {
+          // Don't let the root span get too old, to avoid it being discarded by the agent.
+          long age = Clock.currentNanoTime() - oldestFinishedTime;
+          deadline = Math.min(deadline, now + FORCE_SEND_DELAY_NS - age);
+        }
+        if (deadline - now <= 0) {
+          pendingTrace.write();
+        } else {
+          // Trace is too new. Look at it again once its deadline has passed.
+          wheel.schedule(pendingTrace, deadline);
+        }
+      }
     }
 
     public DelayingPendingTraceBuffer(int bufferSize) {
@@ -0,0 +1,49 @@
+package datadog.trace.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the finished spans held by the unfinished traces of a tracer, so that they can be bounded
+ * whatever the size of each trace. When there are too many, a trace holding at least a sixteenth of
+ * the limit is flushed early as it finishes spans: many small traces over the limit will soon
+ * finish on their own, but a few very long ones would otherwise hold on to their spans until then.
+ */
+final class RetainedSpans {
+
+  static final RetainedSpans UNLIMITED = new RetainedSpans(0);
+
+  private static final int LARGE_TRACE_SHARE = 16;
+
+  private final long limit;
+  private final long largeTrace;
+  private final AtomicLong retained = new AtomicLong();
+
+  /** @param limit the maximum number of finished spans to hold, or 0 for no limit */
+  RetainedSpans(final int limit) {
+    this.limit = limit;
+    this.largeTrace = Math.max(1, limit / LARGE_TRACE_SHARE);
+  }
+
+  /**
+   * Counts a span which finished in a trace holding {@code traceSpans} finished spans.
+   *
+   * @return true if the trace should be flushed now
+   */
+  boolean retain(final int traceSpans) {
+    if (limit <= 0) {
+      return false;
+    }
+    return retained.incrementAndGet() > limit && traceSpans >= largeTrace;
+  }
+
+  /** Stops counting spans which have been written. */
+  void release(final int spans) {
+    if (limit > 0) {
+      retained.addAndGet(-spans);
+    }
+  }
+
+  long retained() {
+    return retained.get();
+  }
+}
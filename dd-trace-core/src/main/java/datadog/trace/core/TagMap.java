@@ -0,0 +1,304 @@
+package datadog.trace.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact map for span tags. Entries are kept in flat arrays in insertion order, with a separate
+ * open-addressed table of positions for lookups, so adding a tag allocates nothing until the arrays
+ * are full and serialization iterates a dense array rather than chasing map nodes. {@code int} and
+ * {@code long} values are kept unboxed.
+ *
+ * <p>Tag keys are usually constants, and therefore interned, so keys are compared by identity
+ * before falling back to {@link String#equals(Object)}.
+ *
+ * <p>Not thread-safe, {@link DDSpanContext} synchronizes access.
+ */
+public final class TagMap extends AbstractMap<String, Object> {
+
+  /** Receives each tag, with numeric values unboxed. */
+  public abstract static class Visitor {
+    public abstract void visit(String key, Object value);
+
+    public abstract void visit(String key, long value);
+  }
+
+  private static final byte OBJECT = 0;
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+
+  // entries, a removed entry has a null key until the arrays are compacted
+  private String[] keys;
+  private int[] hashes;
+  private Object[] values;
+  private long[] numbers;
+  private byte[] kinds;
+  // position + 1 of each entry, or 0 for a free slot
+  private int[] index;
+  private int end;
+  private int size;
+  private EntrySet entrySet;
+  static final Object RECYCLED = new Object();
+
+  // the span context the map was reused by, or RECYCLED while it waits to be reused, and null
+  // when it was never recycled; written holding the map's monitor, and volatile so that contexts
+  // which no longer own the map can tell without taking it
+  volatile Object owner;
+
+  public TagMap(final int expectedSize) {
+    allocate(Math.max(expectedSize, 4));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    return key instanceof String && find((String) key) >= 0;
+  }
+
+  @Override
+  public Object get(final Object key) {
+    if (key instanceof String) {
+      int position = find((String) key);
+      return position < 0 ? null : valueAt(position);
+    }
+    return null;
+  }
+
+  @Override
+  public Object put(final String key, final Object value) {
+    int position = positionForPut(key);
+    Object previous = null == keys[position] ? null : valueAt(position);
+    keys[position] = key;
+    if (value instanceof Integer) {
+      setNumber(position, INT, (Integer) value);
+    } else if (value instanceof Long) {
+      setNumber(position, LONG, (Long) value);
+    } else {
+      kinds[position] = OBJECT;
+      values[position] = value;
+    }
+    return previous;
+  }
+
+  public void put(final String key, final int value) {
+    int position = positionForPut(key);
+    keys[position] = key;
+    setNumber(position, INT, value);
+  }
+
+  public void put(final String key, final long value) {
+    int position = positionForPut(key);
+    keys[position] = key;
+    setNumber(position, LONG, value);
+  }
+
+  @Override
+  public Object remove(final Object key) {
+    if (key instanceof String) {
+      int position = find((String) key);
+      if (position >= 0) {
+        Object previous = valueAt(position);
+        removeAt(position);
+        return previous;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, 0, end, null);
+    Arrays.fill(values, 0, end, null);
+    Arrays.fill(index, 0);
+    end = 0;
+    size = 0;
+  }
+
+  boolean isOwnedBy(final Object context) {
+    return null == owner || owner == context;
+  }
+
+  /** @return how many tags fit before the map has to grow */
+  int capacity() {
+    return keys.length;
+  }
+
+  /** Passes each tag to the visitor, in insertion order, without boxing numeric values. */
+  public void forEach(final Visitor visitor) {
+    for (int i = 0; i < end; ++i) {
+      String key = keys[i];
+      if (null != key) {
+        if (kinds[i] == OBJECT) {
+          visitor.visit(key, values[i]);
+        } else {
+          visitor.visit(key, numbers[i]);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    if (null == entrySet) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  private void allocate(final int capacity) {
+    keys = new String[capacity];
+    hashes = new int[capacity];
+    values = new Object[capacity];
+    numbers = new long[capacity];
+    kinds = new byte[capacity];
+    // keep the table at most half full, counting removed entries
+    index = new int[Integer.highestOneBit(capacity - 1) << 2];
+  }
+
+  private static int spread(final int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private int find(final String key) {
+    int hash = key.hashCode();
+    int mask = index.length - 1;
+    for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+      int entry = index[slot];
+      if (entry == 0) {
+        return -1;
+      }
+      int position = entry - 1;
+      String candidate = keys[position];
+      if (candidate == key
+          || (null != candidate && hashes[position] == hash && candidate.equals(key))) {
+        return position;
+      }
+    }
+  }
+
+  /** @return the position of the key, which is appended if it is not present */
+  private int positionForPut(final String key) {
+    int position = find(key);
+    if (position >= 0) {
+      return position;
+    }
+    if (end == keys.length) {
+      // compact if enough entries have been removed, grow otherwise
+      resize(size < (end >> 1) ? keys.length : keys.length << 1);
+    }
+    int hash = key.hashCode();
+    position = end++;
+    hashes[position] = hash;
+    insertIntoIndex(position, hash);
+    ++size;
+    return position;
+  }
+
+  private void insertIntoIndex(final int position, final int hash) {
+    int mask = index.length - 1;
+    int slot = spread(hash) & mask;
+    while (index[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    index[slot] = position + 1;
+  }
+
+  private void resize(final int capacity) {
+    String[] oldKeys = keys;
+    int[] oldHashes = hashes;
+    Object[] oldValues = values;
+    long[] oldNumbers = numbers;
+    byte[] oldKinds = kinds;
+    int oldEnd = end;
+    allocate(capacity);
+    end = 0;
+    for (int i = 0; i < oldEnd; ++i) {
+      if (null != oldKeys[i]) {
+        int position = end++;
+        keys[position] = oldKeys[i];
+        hashes[position] = oldHashes[i];
+        values[position] = oldValues[i];
+        numbers[position] = oldNumbers[i];
+        kinds[position] = oldKinds[i];
+        insertIntoIndex(position, oldHashes[i]);
+      }
+    }
+  }
+
+  private void setNumber(final int position, final byte kind, final long value) {
+    kinds[position] = kind;
+    numbers[position] = value;
+    values[position] = null;
+  }
+
+  private Object valueAt(final int position) {
+    switch (kinds[position]) {
+      case INT:
+        return (int) numbers[position];
+      case LONG:
+        return numbers[position];
+      default:
+        return values[position];
+    }
+  }
+
+  private void removeAt(final int position) {
+    // the slot in the index stays behind until the next resize so probe sequences aren't broken
+    keys[position] = null;
+    values[position] = null;
+    --size;
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Iterator<Entry<String, Object>> iterator() {
+      return new Iterator<Entry<String, Object>>() {
+        private int next = advance(0);
+        private int current = -1;
+
+        private int advance(int position) {
+          while (position < end && null == keys[position]) {
+            ++position;
+          }
+          return position;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next < end;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+          if (next >= end) {
+            throw new NoSuchElementException();
+          }
+          current = next;
+          next = advance(next + 1);
+          return new SimpleImmutableEntry<>(keys[current], valueAt(current));
+        }
+
+        @Override
+        public void remove() {
+          if (current < 0 || null == keys[current]) {
+            throw new IllegalStateException();
+          }
+          removeAt(current);
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package datadog.trace.core;
+
+import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_COMPLETION;
+import static datadog.trace.util.AgentThreadFactory.THREAD_JOIN_TIMOUT_MS;
+import static datadog.trace.util.AgentThreadFactory.newAgentThread;
+
+import java.util.List;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpscBlockingConsumerArrayQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the work done when a trace, or part of one, is finished: trace interceptors, trace rules,
+ * stats and sampling, before the trace reaches the writer. By default this happens on the thread
+ * which finished the last span. Deferred completion hands the spans to a worker thread instead,
+ * which completes traces in the order they were handed over, so that application threads only pay
+ * for an offer to a queue. When the queue is full, application threads wait for the worker to make
+ * room rather than overtake the traces already queued.
+ */
+abstract class TraceCompletion implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(TraceCompletion.class);
+
+  private static final int BUFFER_SIZE = 1 << 12; // 4096
+
+  interface Completer {
+    void complete(List<DDSpan> trace);
+  }
+
+  private static final class SynchronousTraceCompletion extends TraceCompletion {
+    private final Completer completer;
+
+    SynchronousTraceCompletion(Completer completer) {
+      this.completer = completer;
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void enqueue(List<DDSpan> trace) {
+      completer.complete(trace);
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+
+  private static final class DeferredTraceCompletion extends TraceCompletion {
+    private static final Object FLUSH = new Object();
+
+    private final Completer completer;
+    private final MpscBlockingConsumerArrayQueue<Object> queue;
+    private final Thread worker;
+
+    private volatile boolean closed = false;
+    private volatile long flushCount = 0;
+
+    DeferredTraceCompletion(Completer completer, int bufferSize) {
+      this.completer = completer;
+      this.queue = new MpscBlockingConsumerArrayQueue<>(bufferSize);
+      this.worker = newAgentThread(TRACE_COMPLETION, new Worker());
+    }
+
+    @Override
+    public void start() {
+      worker.start();
+    }
+
+    /**
+     * If the queue is full, waits until the worker has made room, so the trace doesn't overtake the
+     * ones already queued. The trace is completed on the calling thread once closed, or if the
+     * worker isn't running.
+     */
+    @Override
+    public void enqueue(List<DDSpan> trace) {
+      int loop = 1;
+      while (closed || !queue.offer(trace)) {
+        if (closed || !worker.isAlive()) {
+          completer.complete(trace);
+          return;
+        }
+        yieldOrSleep(loop++);
+      }
+    }
+
+    /** Waits until the traces enqueued before the call have been completed. */
+    @Override
+    public void flush() {
+      if (worker.isAlive()) {
+        long count = flushCount;
+        int loop = 1;
+        while (!closed && !queue.offer(FLUSH)) {
+          yieldOrSleep(loop++);
+        }
+        while (!closed && flushCount == count) {
+          yieldOrSleep(loop++);
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      worker.interrupt();
+      try {
+        worker.join(THREAD_JOIN_TIMOUT_MS);
+      } catch (InterruptedException ignored) {
+      }
+    }
+
+    private void yieldOrSleep(final int loop) {
+      if (loop <= 3) {
+        Thread.yield();
+      } else {
+        try {
+          Thread.sleep(10);
+        } catch (Throwable ignored) {
+        }
+      }
+    }
+
+    private final class Worker implements Runnable, MessagePassingQueue.Consumer<Object> {
+
+      @Override
+      public void run() {
+        try {
+          while (!closed && !Thread.currentThread().isInterrupted()) {
+            accept(queue.take());
+            queue.drain(this);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        // complete whatever was enqueued before closing, so it reaches the writer
+        queue.drain(this);
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public void accept(Object element) {
+        if (element == FLUSH) {
+          ++flushCount;
+          return;
+        }
+        try {
+          completer.complete((List<DDSpan>) element);
+        } catch (Throwable e) {
+          log.debug("Error while completing trace", e);
+        }
+      }
+    }
+  }
+
+  static TraceCompletion synchronous(Completer completer) {
+    return new SynchronousTraceCompletion(completer);
+  }
+
+  static TraceCompletion deferred(Completer completer) {
+    return deferred(completer, BUFFER_SIZE);
+  }
+
+  static TraceCompletion deferred(Completer completer, int bufferSize) {
+    return new DeferredTraceCompletion(completer, bufferSize);
+  }
+
+  public abstract void start();
+
+  /** Completes the trace, now or later. */
+  public abstract void enqueue(List<DDSpan> trace);
+
+  public abstract void flush();
+
+  @Override
+  public abstract void close();
+}
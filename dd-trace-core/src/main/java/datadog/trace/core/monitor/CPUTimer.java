@@ -1,5 +1,7 @@
 package datadog.trace.core.monitor;
 
+import static datadog.trace.core.monitor.Utils.mergeTags;
+
 import com.timgroup.statsd.StatsDClient;
 import datadog.trace.core.util.SystemAccess;
 
@@ -8,13 +10,23 @@ public class CPUTimer extends Timer {
   private final StatsDClient statsd;
 
   private final String name;
-  private final String[] tags = getTags();
+  private final String[] tags;
   private long start;
   private long cpuTime = 0;
 
   CPUTimer(String name, StatsDClient statsd, long flushAfterNanos) {
-    super(name, getTags(), statsd, flushAfterNanos);
+    this(name, null, statsd, flushAfterNanos);
+  }
+
+  CPUTimer(String name, String[] tags, StatsDClient statsd, long flushAfterNanos) {
+    this(name, statsd, flushAfterNanos, mergeTags(getTags(), tags));
+  }
+
+  private CPUTimer(
+      String name, StatsDClient statsd, long flushAfterNanos, String[] threadAndCustomTags) {
+    super(name, threadAndCustomTags, statsd, flushAfterNanos);
     this.name = name + ".cpu";
+    this.tags = threadAndCustomTags;
     this.statsd = statsd;
   }
 
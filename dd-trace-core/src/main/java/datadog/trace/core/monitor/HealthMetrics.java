@@ -4,6 +4,7 @@ import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_DROP;
 import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_KEEP;
 import static datadog.trace.api.sampling.PrioritySampling.USER_DROP;
 import static datadog.trace.api.sampling.PrioritySampling.USER_KEEP;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.timgroup.statsd.StatsDClient;
@@ -72,6 +73,11 @@ public class HealthMetrics implements AutoCloseable {
   private final FixedSizeStripedLongCounter enqueuedSpans =
       CountersFactory.createFixedSizeStripedCounter(8);
 
+  private final FixedSizeStripedLongCounter backPressuredPayloads =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter backPressureMicros =
+      CountersFactory.createFixedSizeStripedCounter(8);
+
   private final StatsDClient statsd;
   private final long interval;
   private final TimeUnit units;
@@ -151,6 +157,15 @@ public class HealthMetrics implements AutoCloseable {
     statsd.count("queue.enqueued.bytes", serializedSizeInBytes, NO_TAGS);
   }
 
+  public void onPayloadBackPressure(final long blockedNanos) {
+    backPressuredPayloads.inc();
+    backPressureMicros.inc(NANOSECONDS.toMicros(blockedNanos));
+  }
+
+  public void onPayloadsInFlight(final int payloadsInFlight) {
+    statsd.gauge("queue.payloads.in_flight", payloadsInFlight, NO_TAGS);
+  }
+
   public void onFailedSerialize(final List<DDSpan> trace, final Throwable optionalCause) {
     // TODO - DQH - make a new stat for serialization failure -- or maybe count this towards
     // api.errors???
@@ -228,6 +243,10 @@ public class HealthMetrics implements AutoCloseable {
       reportIfChanged(
           target.statsd, "queue.dropped.traces", target.unsetPriorityDroppedTraces, UNSET_TAG);
       reportIfChanged(target.statsd, "queue.enqueued.spans", target.enqueuedSpans, NO_TAGS);
+      reportIfChanged(
+          target.statsd, "queue.payloads.backpressure", target.backPressuredPayloads, NO_TAGS);
+      reportIfChanged(
+          target.statsd, "queue.payloads.backpressure.micros", target.backPressureMicros, NO_TAGS);
     }
 
     private void reportIfChanged(
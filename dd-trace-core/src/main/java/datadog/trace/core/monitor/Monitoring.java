@@ -60,6 +60,13 @@ public final class Monitoring {
     return new CPUTimer(name, statsd, flushAfterNanos);
   }
 
+  public Recording newCPUTimer(final String name, final String... tags) {
+    if (!enabled || !isJavaVersionAtLeast(8)) {
+      return NoOpRecording.NO_OP;
+    }
+    return new CPUTimer(name, tags, statsd, flushAfterNanos);
+  }
+
   public Counter newCounter(final String name) {
     if (!enabled) {
       return NoOpCounter.NO_OP;
@@ -6,6 +6,7 @@ import datadog.trace.api.DDId;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.core.DDSpanContext;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 import org.slf4j.Logger;
@@ -38,9 +39,19 @@ class B3HttpCodec {
     public <C> void inject(
         final DDSpanContext context, final C carrier, final AgentPropagation.Setter<C> setter) {
       try {
-        String injectedTraceId = context.getTraceId().toHexString().toLowerCase();
+        InjectionCache cache = context.getInjectionCache();
+        String injectedTraceId = cache.b3TraceId;
+        if (null == injectedTraceId) {
+          injectedTraceId = context.getTraceId().toHexString().toLowerCase();
+          cache.b3TraceId = injectedTraceId;
+        }
+        String injectedSpanId = cache.b3SpanId;
+        if (null == injectedSpanId) {
+          injectedSpanId = context.getSpanId().toHexString().toLowerCase();
+          cache.b3SpanId = injectedSpanId;
+        }
         setter.set(carrier, TRACE_ID_KEY, injectedTraceId);
-        setter.set(carrier, SPAN_ID_KEY, context.getSpanId().toHexString().toLowerCase());
+        setter.set(carrier, SPAN_ID_KEY, injectedSpanId);
 
         if (context.lockSamplingPriority()) {
           setter.set(
@@ -79,33 +90,39 @@ class B3HttpCodec {
     private static final int SPAN_ID = 1;
     private static final int TAGS = 2;
     private static final int SAMPLING_PRIORITY = 3;
+    private static final int FORWARDING = 4;
     private static final int IGNORE = -1;
 
+    private static final HeaderClassifier HEADERS = headerClassifier();
+
     private B3ContextInterpreter(Map<String, String> taggedHeaders) {
       super(taggedHeaders);
     }
 
+    private static HeaderClassifier headerClassifier() {
+      Map<String, Integer> classes = new HashMap<>();
+      classes.put(TRACE_ID_KEY, TRACE_ID);
+      classes.put(SPAN_ID_KEY, SPAN_ID);
+      classes.put(SAMPLING_PRIORITY_KEY, SAMPLING_PRIORITY);
+      classes.put(HttpCodec.FORWARDED_FOR_KEY, FORWARDING);
+      classes.put(HttpCodec.FORWARDED_PORT_KEY, FORWARDING);
+      return new HeaderClassifier(classes);
+    }
+
     @Override
     public boolean accept(String key, String value) {
       if (null == key || key.isEmpty()) {
         return true;
       }
-      String lowerCaseKey = null;
-      int classification = IGNORE;
-      if (Character.toLowerCase(key.charAt(0)) == 'x') {
-        if (TRACE_ID_KEY.equalsIgnoreCase(key)) {
-          classification = TRACE_ID;
-        } else if (SPAN_ID_KEY.equalsIgnoreCase(key)) {
-          classification = SPAN_ID;
-        } else if (SAMPLING_PRIORITY_KEY.equalsIgnoreCase(key)) {
-          classification = SAMPLING_PRIORITY;
-        } else if (handledForwarding(key, value)) {
-          return true;
-        }
+      int classification = HEADERS.classify(key);
+      if (classification == FORWARDING) {
+        handledForwarding(key, value);
+        return true;
       }
-      if (!taggedHeaders.isEmpty() && classification == IGNORE) {
-        lowerCaseKey = toLowerCase(key);
-        if (taggedHeaders.containsKey(lowerCaseKey)) {
+      String mappedKey = null;
+      if (classification == IGNORE) {
+        mappedKey = mappedTag(key);
+        if (null != mappedKey) {
           classification = TAGS;
         }
       }
@@ -138,13 +155,10 @@ class B3HttpCodec {
                 break;
               case TAGS:
                 {
-                  String mappedKey = taggedHeaders.get(lowerCaseKey);
-                  if (null != mappedKey) {
-                    if (tags.isEmpty()) {
-                      tags = new TreeMap<>();
-                    }
-                    tags.put(mappedKey, HttpCodec.decode(firstValue));
+                  if (tags.isEmpty()) {
+                    tags = new TreeMap<>();
                   }
+                  tags.put(mappedKey, HttpCodec.decode(firstValue));
                   break;
                 }
             }
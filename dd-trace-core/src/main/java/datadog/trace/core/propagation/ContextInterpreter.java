@@ -17,6 +17,8 @@ import java.util.Map;
 public abstract class ContextInterpreter implements AgentPropagation.KeyClassifier {
 
   protected final Map<String, String> taggedHeaders;
+  private final HeaderClassifier taggedHeaderClassifier;
+  private final String[] mappedTags;
 
   protected DDId traceId;
   protected DDId spanId;
@@ -36,9 +38,25 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
 
   protected ContextInterpreter(Map<String, String> taggedHeaders) {
     this.taggedHeaders = taggedHeaders;
+    Map<String, Integer> classes = new HashMap<>(taggedHeaders.size() * 4 / 3);
+    this.mappedTags = new String[taggedHeaders.size()];
+    for (Map.Entry<String, String> association : taggedHeaders.entrySet()) {
+      mappedTags[classes.size()] = association.getValue();
+      classes.put(association.getKey(), classes.size());
+    }
+    this.taggedHeaderClassifier = new HeaderClassifier(classes);
     reset();
   }
 
+  /** @return the tag the header is mapped to, or null if it isn't a tagged header */
+  protected final String mappedTag(String key) {
+    if (mappedTags.length == 0) {
+      return null;
+    }
+    int index = taggedHeaderClassifier.classify(key);
+    return index == HeaderClassifier.UNKNOWN ? null : mappedTags[index];
+  }
+
   public abstract static class Factory {
 
     public ContextInterpreter create(Map<String, String> tagsMapping) {
@@ -3,8 +3,10 @@ package datadog.trace.core.propagation;
 import static datadog.trace.core.propagation.HttpCodec.firstHeaderValue;
 
 import datadog.trace.api.DDId;
+import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.core.DDSpanContext;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 import org.slf4j.Logger;
@@ -20,6 +22,9 @@ class DatadogHttpCodec {
   private static final String SAMPLING_PRIORITY_KEY = "x-datadog-sampling-priority";
   private static final String ORIGIN_KEY = "x-datadog-origin";
 
+  private static final HttpCodec.BaggageHeaders BAGGAGE_HEADERS =
+      new HttpCodec.BaggageHeaders(OT_BAGGAGE_PREFIX);
+
   private DatadogHttpCodec() {
     // This class should not be created. This also makes code coverage checks happy.
   }
@@ -33,15 +38,31 @@ class DatadogHttpCodec {
       setter.set(carrier, TRACE_ID_KEY, context.getTraceId().toString());
       setter.set(carrier, SPAN_ID_KEY, context.getSpanId().toString());
       if (context.lockSamplingPriority()) {
-        setter.set(carrier, SAMPLING_PRIORITY_KEY, String.valueOf(context.getSamplingPriority()));
+        setter.set(carrier, SAMPLING_PRIORITY_KEY, samplingPriority(context.getSamplingPriority()));
       }
       final String origin = context.getOrigin();
       if (origin != null) {
         setter.set(carrier, ORIGIN_KEY, origin);
       }
 
-      for (final Map.Entry<String, String> entry : context.baggageItems()) {
-        setter.set(carrier, OT_BAGGAGE_PREFIX + entry.getKey(), HttpCodec.encode(entry.getValue()));
+      final String[] baggage = HttpCodec.encodedBaggage(context);
+      for (int i = 0; i < baggage.length; i += 2) {
+        setter.set(carrier, BAGGAGE_HEADERS.forKey(baggage[i]), baggage[i + 1]);
+      }
+    }
+
+    private static String samplingPriority(final int samplingPriority) {
+      switch (samplingPriority) {
+        case PrioritySampling.USER_DROP:
+          return "-1";
+        case PrioritySampling.SAMPLER_DROP:
+          return "0";
+        case PrioritySampling.SAMPLER_KEEP:
+          return "1";
+        case PrioritySampling.USER_KEEP:
+          return "2";
+        default:
+          return String.valueOf(samplingPriority);
       }
     }
   }
@@ -65,45 +86,44 @@ class DatadogHttpCodec {
     private static final int SAMPLING_PRIORITY = 3;
     private static final int TAGS = 4;
     private static final int OT_BAGGAGE = 5;
+    private static final int FORWARDING = 6;
     private static final int IGNORE = -1;
 
+    private static final HeaderClassifier HEADERS = headerClassifier();
+
     private DatadogContextInterpreter(Map<String, String> taggedHeaders) {
       super(taggedHeaders);
     }
 
+    private static HeaderClassifier headerClassifier() {
+      Map<String, Integer> classes = new HashMap<>();
+      classes.put(TRACE_ID_KEY, TRACE_ID);
+      classes.put(SPAN_ID_KEY, SPAN_ID);
+      classes.put(SAMPLING_PRIORITY_KEY, SAMPLING_PRIORITY);
+      classes.put(ORIGIN_KEY, ORIGIN);
+      classes.put(HttpCodec.FORWARDED_FOR_KEY, FORWARDING);
+      classes.put(HttpCodec.FORWARDED_PORT_KEY, FORWARDING);
+      return new HeaderClassifier(classes);
+    }
+
     @Override
     public boolean accept(String key, String value) {
       if (null == key || key.isEmpty()) {
         return true;
       }
-      String lowerCaseKey = null;
-      int classification = IGNORE;
-      char first = Character.toLowerCase(key.charAt(0));
-      switch (first) {
-        case 'x':
-          if (TRACE_ID_KEY.equalsIgnoreCase(key)) {
-            classification = TRACE_ID;
-          } else if (SPAN_ID_KEY.equalsIgnoreCase(key)) {
-            classification = SPAN_ID;
-          } else if (SAMPLING_PRIORITY_KEY.equalsIgnoreCase(key)) {
-            classification = SAMPLING_PRIORITY;
-          } else if (ORIGIN_KEY.equalsIgnoreCase(key)) {
-            classification = ORIGIN;
-          } else if (handledForwarding(key, value)) {
-            return true;
-          }
-          break;
-        case 'o':
-          lowerCaseKey = toLowerCase(key);
-          if (lowerCaseKey.startsWith(OT_BAGGAGE_PREFIX)) {
-            classification = OT_BAGGAGE;
-          }
-          break;
-        default:
+      int classification = HEADERS.classify(key);
+      if (classification == FORWARDING) {
+        handledForwarding(key, value);
+        return true;
+      }
+      if (classification == IGNORE
+          && key.regionMatches(true, 0, OT_BAGGAGE_PREFIX, 0, OT_BAGGAGE_PREFIX.length())) {
+        classification = OT_BAGGAGE;
       }
-      if (!taggedHeaders.isEmpty() && classification == IGNORE) {
-        lowerCaseKey = toLowerCase(key);
-        if (taggedHeaders.containsKey(lowerCaseKey)) {
+      String mappedKey = null;
+      if (classification == IGNORE) {
+        mappedKey = mappedTag(key);
+        if (null != mappedKey) {
           classification = TAGS;
         }
       }
@@ -126,13 +146,10 @@ class DatadogHttpCodec {
                 break;
               case TAGS:
                 {
-                  String mappedKey = taggedHeaders.get(lowerCaseKey);
-                  if (null != mappedKey) {
-                    if (tags.isEmpty()) {
-                      tags = new TreeMap<>();
-                    }
-                    tags.put(mappedKey, HttpCodec.decode(value));
+                  if (tags.isEmpty()) {
+                    tags = new TreeMap<>();
                   }
+                  tags.put(mappedKey, HttpCodec.decode(value));
                   break;
                 }
               case OT_BAGGAGE:
@@ -141,7 +158,8 @@ class DatadogHttpCodec {
                     baggage = new TreeMap<>();
                   }
                   baggage.put(
-                      lowerCaseKey.substring(OT_BAGGAGE_PREFIX.length()), HttpCodec.decode(value));
+                      toLowerCase(key).substring(OT_BAGGAGE_PREFIX.length()),
+                      HttpCodec.decode(value));
                 }
                 break;
               default:
@@ -7,6 +7,7 @@ import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.core.DDSpanContext;
 import de.thetaphi.forbiddenapis.SuppressForbidden;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 import org.slf4j.Logger;
@@ -31,6 +32,9 @@ public class HaystackHttpCodec {
   private static final String DD_SPAN_ID_BAGGAGE_KEY = OT_BAGGAGE_PREFIX + "Datadog-Span-Id";
   private static final String DD_PARENT_ID_BAGGAGE_KEY = OT_BAGGAGE_PREFIX + "Datadog-Parent-Id";
 
+  private static final HttpCodec.BaggageHeaders BAGGAGE_HEADERS =
+      new HttpCodec.BaggageHeaders(OT_BAGGAGE_PREFIX);
+
   private static final String HAYSTACK_TRACE_ID_BAGGAGE_KEY = "Haystack-Trace-ID";
   private static final String HAYSTACK_SPAN_ID_BAGGAGE_KEY = "Haystack-Span-ID";
   private static final String HAYSTACK_PARENT_ID_BAGGAGE_KEY = "Haystack-Parent-ID";
@@ -56,6 +60,12 @@ public class HaystackHttpCodec {
         // Baggage, and it is equal
         //  to the converted value in BigInteger, use that instead.
         //  this will preserve the complete UUID/GUID without losing the most significant bit part
+        InjectionCache cache = context.getInjectionCache();
+        String convertedTraceId = cache.haystackTraceId;
+        if (null == convertedTraceId) {
+          convertedTraceId = convertBigIntToUUID(context.getTraceId());
+          cache.haystackTraceId = convertedTraceId;
+        }
         String originalHaystackTraceId =
             getBaggageItemIgnoreCase(context.getBaggageItems(), HAYSTACK_TRACE_ID_BAGGAGE_KEY);
         String injectedTraceId;
@@ -63,22 +73,30 @@ public class HaystackHttpCodec {
             && convertUUIDToBigInt(originalHaystackTraceId).equals(context.getTraceId())) {
           injectedTraceId = originalHaystackTraceId;
         } else {
-          injectedTraceId = convertBigIntToUUID(context.getTraceId());
+          injectedTraceId = convertedTraceId;
+        }
+        String injectedSpanId = cache.haystackSpanId;
+        if (null == injectedSpanId) {
+          injectedSpanId = convertBigIntToUUID(context.getSpanId());
+          cache.haystackSpanId = injectedSpanId;
+        }
+        String injectedParentId = cache.haystackParentId;
+        if (null == injectedParentId) {
+          injectedParentId = convertBigIntToUUID(context.getParentId());
+          cache.haystackParentId = injectedParentId;
         }
         setter.set(carrier, TRACE_ID_KEY, injectedTraceId);
         context.setTag(HAYSTACK_TRACE_ID_BAGGAGE_KEY, injectedTraceId);
-        setter.set(
-            carrier, DD_TRACE_ID_BAGGAGE_KEY, HttpCodec.encode(context.getTraceId().toString()));
-        setter.set(carrier, SPAN_ID_KEY, convertBigIntToUUID(context.getSpanId()));
-        setter.set(
-            carrier, DD_SPAN_ID_BAGGAGE_KEY, HttpCodec.encode(context.getSpanId().toString()));
-        setter.set(carrier, PARENT_ID_KEY, convertBigIntToUUID(context.getParentId()));
-        setter.set(
-            carrier, DD_PARENT_ID_BAGGAGE_KEY, HttpCodec.encode(context.getParentId().toString()));
+        // decimal ids never need URL encoding
+        setter.set(carrier, DD_TRACE_ID_BAGGAGE_KEY, context.getTraceId().toString());
+        setter.set(carrier, SPAN_ID_KEY, injectedSpanId);
+        setter.set(carrier, DD_SPAN_ID_BAGGAGE_KEY, context.getSpanId().toString());
+        setter.set(carrier, PARENT_ID_KEY, injectedParentId);
+        setter.set(carrier, DD_PARENT_ID_BAGGAGE_KEY, context.getParentId().toString());
 
-        for (final Map.Entry<String, String> entry : context.baggageItems()) {
-          setter.set(
-              carrier, OT_BAGGAGE_PREFIX + entry.getKey(), HttpCodec.encode(entry.getValue()));
+        final String[] baggage = HttpCodec.encodedBaggage(context);
+        for (int i = 0; i < baggage.length; i += 2) {
+          setter.set(carrier, BAGGAGE_HEADERS.forKey(baggage[i]), baggage[i + 1]);
         }
         log.debug(
             "{} - Haystack parent context injected - {}", context.getTraceId(), injectedTraceId);
@@ -118,52 +136,43 @@ public class HaystackHttpCodec {
     private static final int PARENT_ID = 2;
     private static final int TAGS = 3;
     private static final int BAGGAGE = 4;
+    private static final int FORWARDING = 5;
     private static final int IGNORE = -1;
 
+    private static final HeaderClassifier HEADERS = headerClassifier();
+
     private HaystackContextInterpreter(Map<String, String> taggedHeaders) {
       super(taggedHeaders);
     }
 
+    private static HeaderClassifier headerClassifier() {
+      Map<String, Integer> classes = new HashMap<>();
+      classes.put(TRACE_ID_KEY, TRACE_ID);
+      classes.put(SPAN_ID_KEY, SPAN_ID);
+      classes.put(PARENT_ID_KEY, PARENT_ID);
+      classes.put(HttpCodec.FORWARDED_FOR_KEY, FORWARDING);
+      classes.put(HttpCodec.FORWARDED_PORT_KEY, FORWARDING);
+      return new HeaderClassifier(classes);
+    }
+
     @Override
     public boolean accept(String key, String value) {
       if (null == key || key.isEmpty()) {
         return true;
       }
-      char first = Character.toLowerCase(key.charAt(0));
-      String lowerCaseKey = null;
-      int classification = IGNORE;
-      switch (first) {
-        case 't':
-          if (TRACE_ID_KEY.equalsIgnoreCase(key)) {
-            classification = TRACE_ID;
-          }
-          break;
-        case 's':
-          if (SPAN_ID_KEY.equalsIgnoreCase(key)) {
-            classification = SPAN_ID;
-          }
-          break;
-        case 'p':
-          if (PARENT_ID_KEY.equalsIgnoreCase(key)) {
-            classification = PARENT_ID;
-          }
-          break;
-        case 'x':
-          if (handledForwarding(key, value)) {
-            return true;
-          }
-          break;
-        case 'b':
-          lowerCaseKey = toLowerCase(key);
-          if (lowerCaseKey.startsWith(BAGGAGE_PREFIX_LC)) {
-            classification = BAGGAGE;
-          }
-          break;
-        default:
+      int classification = HEADERS.classify(key);
+      if (classification == FORWARDING) {
+        handledForwarding(key, value);
+        return true;
+      }
+      if (classification == IGNORE
+          && key.regionMatches(true, 0, BAGGAGE_PREFIX_LC, 0, BAGGAGE_PREFIX_LC.length())) {
+        classification = BAGGAGE;
       }
-      if (!taggedHeaders.isEmpty() && classification == IGNORE) {
-        lowerCaseKey = toLowerCase(key);
-        if (taggedHeaders.containsKey(lowerCaseKey)) {
+      String mappedKey = null;
+      if (classification == IGNORE) {
+        mappedKey = mappedTag(key);
+        if (null != mappedKey) {
           classification = TAGS;
         }
       }
@@ -185,19 +194,17 @@ public class HaystackHttpCodec {
                 break;
               case TAGS:
                 {
-                  String mappedKey = taggedHeaders.get(lowerCaseKey);
-                  if (null != mappedKey) {
-                    if (tags.isEmpty()) {
-                      tags = new TreeMap<>();
-                    }
-                    tags.put(mappedKey, HttpCodec.decode(value));
+                  if (tags.isEmpty()) {
+                    tags = new TreeMap<>();
                   }
+                  tags.put(mappedKey, HttpCodec.decode(value));
                   break;
                 }
               case BAGGAGE:
                 {
                   addBaggageItem(
-                      lowerCaseKey.substring(BAGGAGE_PREFIX_LC.length()), HttpCodec.decode(value));
+                      toLowerCase(key).substring(BAGGAGE_PREFIX_LC.length()),
+                      HttpCodec.decode(value));
                   break;
                 }
               default:
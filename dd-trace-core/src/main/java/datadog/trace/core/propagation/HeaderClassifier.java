@@ -0,0 +1,81 @@
+package datadog.trace.core.propagation;
+
+import java.util.Map;
+
+/**
+ * Classifies header names case-insensitively without lower casing them. The table is grown until no
+ * two known names share a slot, so a lookup hashes the name once and finds a known name in its own
+ * slot. An unknown name is compared with the names in the run of occupied slots starting at its
+ * slot, which is short since the table is less than half full.
+ */
+final class HeaderClassifier {
+
+  static final int UNKNOWN = -1;
+
+  private static final int MAX_CAPACITY = 1 << 12;
+
+  private final String[] names;
+  private final int[] classes;
+  private final int mask;
+
+  /** @param classes the class of each header name */
+  HeaderClassifier(final Map<String, Integer> classes) {
+    int capacity = Integer.highestOneBit(Math.max(classes.size(), 1)) << 2;
+    while (capacity < MAX_CAPACITY && collides(classes, capacity - 1)) {
+      capacity <<= 1;
+    }
+    this.names = new String[capacity];
+    this.classes = new int[capacity];
+    this.mask = capacity - 1;
+    for (Map.Entry<String, Integer> entry : classes.entrySet()) {
+      // only probes if there were too many names to avoid collisions altogether
+      int slot = hash(entry.getKey()) & mask;
+      while (null != names[slot]) {
+        slot = (slot + 1) & mask;
+      }
+      names[slot] = entry.getKey();
+      this.classes[slot] = entry.getValue();
+    }
+  }
+
+  /** @return the class of the header name, or {@link #UNKNOWN} */
+  int classify(final String name) {
+    for (int slot = hash(name) & mask; ; slot = (slot + 1) & mask) {
+      String candidate = names[slot];
+      if (null == candidate) {
+        return UNKNOWN;
+      }
+      if (candidate.length() == name.length()
+          && candidate.regionMatches(true, 0, name, 0, name.length())) {
+        return classes[slot];
+      }
+    }
+  }
+
+  private static boolean collides(final Map<String, Integer> classes, final int mask) {
+    boolean[] used = new boolean[mask + 1];
+    for (String name : classes.keySet()) {
+      int slot = hash(name) & mask;
+      if (used[slot]) {
+        return true;
+      }
+      used[slot] = true;
+    }
+    return false;
+  }
+
+  /** The same for any two names which are equal ignoring case. */
+  private static int hash(final String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); ++i) {
+      char c = name.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        c = (char) (c | 0x20);
+      } else if (c >= 0x80) {
+        c = Character.toLowerCase(Character.toUpperCase(c));
+      }
+      hash = 31 * hash + c;
+    }
+    return hash ^ (hash >>> 16);
+  }
+}
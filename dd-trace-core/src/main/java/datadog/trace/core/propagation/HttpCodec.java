@@ -1,13 +1,17 @@
 package datadog.trace.core.propagation;
 
 import datadog.trace.api.Config;
+import datadog.trace.api.Function;
 import datadog.trace.api.PropagationStyle;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.core.DDSpanContext;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
@@ -89,14 +93,21 @@ public class HttpCodec {
   public static class CompoundExtractor implements Extractor {
 
     private final List<Extractor> extractors;
+    // set when every extractor interprets headers, so they can share one pass over the carrier
+    private final ThreadLocal<InterpreterChain> interpreterChain;
 
     public CompoundExtractor(final List<Extractor> extractors) {
       this.extractors = extractors;
+      this.interpreterChain =
+          interpretsHeaders(extractors) ? newInterpreterChain(extractors) : null;
     }
 
     @Override
     public <C> TagContext extract(
         final C carrier, final AgentPropagation.ContextVisitor<C> setter) {
+      if (null != interpreterChain) {
+        return interpreterChain.get().extract(carrier, setter);
+      }
       TagContext context = null;
       for (final Extractor extractor : extractors) {
         context = extractor.extract(carrier, setter);
@@ -107,10 +118,123 @@ public class HttpCodec {
       }
       return context;
     }
+
+    private static boolean interpretsHeaders(final List<Extractor> extractors) {
+      if (extractors.size() < 2) {
+        return false;
+      }
+      for (final Extractor extractor : extractors) {
+        if (extractor.getClass() != TagContextExtractor.class) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static ThreadLocal<InterpreterChain> newInterpreterChain(
+        final List<Extractor> extractors) {
+      return new ThreadLocal<InterpreterChain>() {
+        @Override
+        protected InterpreterChain initialValue() {
+          final ContextInterpreter[] interpreters = new ContextInterpreter[extractors.size()];
+          for (int i = 0; i < interpreters.length; ++i) {
+            interpreters[i] = ((TagContextExtractor) extractors.get(i)).interpreter();
+          }
+          return new InterpreterChain(interpreters);
+        }
+      };
+    }
+  }
+
+  /**
+   * Passes each header to every interpreter which is still accepting headers, and picks a context
+   * the same way {@link CompoundExtractor} does when running the extractors one after another.
+   */
+  private static final class InterpreterChain implements AgentPropagation.KeyClassifier {
+    private final ContextInterpreter[] interpreters;
+    private final boolean[] accepting;
+    private int remaining;
+
+    InterpreterChain(final ContextInterpreter[] interpreters) {
+      this.interpreters = interpreters;
+      this.accepting = new boolean[interpreters.length];
+    }
+
+    <C> TagContext extract(final C carrier, final AgentPropagation.ContextVisitor<C> getter) {
+      for (final ContextInterpreter interpreter : interpreters) {
+        interpreter.reset();
+      }
+      Arrays.fill(accepting, true);
+      remaining = interpreters.length;
+      getter.forEachKey(carrier, this);
+      TagContext context = null;
+      for (final ContextInterpreter interpreter : interpreters) {
+        context = interpreter.build();
+        // Use incomplete TagContext only as last resort
+        if (context instanceof ExtractedContext) {
+          return context;
+        }
+      }
+      return context;
+    }
+
+    @Override
+    public boolean accept(final String key, final String value) {
+      for (int i = 0; i < interpreters.length; ++i) {
+        if (accepting[i] && !interpreters[i].accept(key, value)) {
+          accepting[i] = false;
+          if (--remaining == 0) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * @return the context's baggage as alternating keys and URL encoded values, which are cached
+   *     until the baggage changes
+   */
+  static String[] encodedBaggage(final DDSpanContext context) {
+    InjectionCache cache = context.getInjectionCache();
+    String[] encoded = cache.encodedBaggage;
+    if (null == encoded) {
+      List<String> items = new ArrayList<>();
+      for (final Map.Entry<String, String> entry : context.baggageItems()) {
+        items.add(entry.getKey());
+        items.add(encode(entry.getValue()));
+      }
+      encoded = items.isEmpty() ? InjectionCache.NO_BAGGAGE : items.toArray(new String[0]);
+      cache.encodedBaggage = encoded;
+    }
+    return encoded;
+  }
+
+  /** Prefixes baggage keys to make header names, caching them as baggage keys are few */
+  static final class BaggageHeaders implements Function<String, String> {
+    private final String prefix;
+    private final DDCache<String, String> headers = DDCaches.newFixedSizeCache(64);
+
+    BaggageHeaders(final String prefix) {
+      this.prefix = prefix;
+    }
+
+    String forKey(final String key) {
+      return headers.computeIfAbsent(key, this);
+    }
+
+    @Override
+    public String apply(final String key) {
+      return prefix + key;
+    }
   }
 
   /** URL encode value */
   static String encode(final String value) {
+    if (isUrlSafe(value)) {
+      return value;
+    }
     String encoded = value;
     try {
       encoded = URLEncoder.encode(value, "UTF-8");
@@ -120,6 +244,23 @@ public class HttpCodec {
     return encoded;
   }
 
+  /** @return true if URL encoding would leave the value as it is */
+  private static boolean isUrlSafe(final String value) {
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (!((c >= 'a' && c <= 'z')
+          || (c >= 'A' && c <= 'Z')
+          || (c >= '0' && c <= '9')
+          || c == '.'
+          || c == '-'
+          || c == '*'
+          || c == '_')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /** URL decode value */
   static String decode(final String value) {
     String decoded = value;
@@ -0,0 +1,19 @@
+package datadog.trace.core.propagation;
+
+/**
+ * Header values computed by the injectors for a span context. A context is often injected into many
+ * outgoing requests, and the values only depend on its ids, which never change, and its baggage,
+ * which discards the cache when it changes, so each value is only computed once.
+ */
+public final class InjectionCache {
+
+  static final String[] NO_BAGGAGE = new String[0];
+
+  volatile String b3TraceId;
+  volatile String b3SpanId;
+  volatile String haystackTraceId;
+  volatile String haystackSpanId;
+  volatile String haystackParentId;
+  // alternating baggage keys and URL encoded values
+  volatile String[] encodedBaggage;
+}
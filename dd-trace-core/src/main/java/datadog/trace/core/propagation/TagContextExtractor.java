@@ -21,6 +21,11 @@ public class TagContextExtractor implements HttpCodec.Extractor {
         };
   }
 
+  /** @return this thread's interpreter, which {@link #extract} resets before each use */
+  ContextInterpreter interpreter() {
+    return ctxInterpreter.get();
+  }
+
   @Override
   public <C> TagContext extract(final C carrier, final AgentPropagation.ContextVisitor<C> getter) {
     ContextInterpreter interpreter = this.ctxInterpreter.get().reset();
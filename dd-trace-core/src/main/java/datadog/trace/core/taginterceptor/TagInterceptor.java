@@ -18,14 +18,36 @@ import datadog.trace.api.env.CapturedEnvironment;
 import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
 import datadog.trace.core.DDSpanContext;
+import datadog.trace.core.util.WellKnownTagKeys;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
 public class TagInterceptor {
 
+  private static final byte NO_ACTION = 0;
+  private static final byte RESOURCE_NAME_ACTION = 1;
+  private static final byte DB_STATEMENT_ACTION = 2;
+  private static final byte SERVICE_NAME_ACTION = 3;
+  private static final byte PEER_SERVICE_ACTION = 4;
+  private static final byte MANUAL_KEEP_ACTION = 5;
+  private static final byte MANUAL_DROP_ACTION = 6;
+  private static final byte SERVLET_CONTEXT_ACTION = 7;
+  private static final byte SPAN_TYPE_ACTION = 8;
+  private static final byte ANALYTICS_SAMPLE_RATE_ACTION = 9;
+  private static final byte ERROR_ACTION = 10;
+  private static final byte SPLIT_SERVICE_ACTION = 11;
+
+  private static final Set<String> WELL_KNOWN_KEYS = wellKnownKeys();
+
   private final RuleFlags ruleFlags;
   private final boolean isServiceNameSetByUser;
   private final String inferredServiceName;
   private final Set<String> splitServiceTags;
+  // open-addressed table from interned tag keys to their actions
+  private final String[] knownKeys;
+  private final byte[] knownActions;
+  private final int knownKeysMask;
 
   public TagInterceptor(RuleFlags ruleFlags) {
     this(
@@ -44,42 +66,111 @@ public class TagInterceptor {
     this.inferredServiceName = inferredServiceName;
     this.splitServiceTags = splitServiceTags;
     this.ruleFlags = ruleFlags;
+    // resolve the action for every well known tag key up front, keyed by identity: keys are
+    // interned, as are the string literals instrumentations pass in, so those never reach the
+    // string switch, while any other key falls through to resolveAction
+    Set<String> keys = new HashSet<>(WELL_KNOWN_KEYS);
+    for (String tag : splitServiceTags) {
+      keys.add(tag.intern());
+    }
+    int capacity = Integer.highestOneBit(Math.max(keys.size(), 1) - 1 | 1) << 3;
+    this.knownKeys = new String[capacity];
+    this.knownActions = new byte[capacity];
+    this.knownKeysMask = capacity - 1;
+    for (String key : keys) {
+      int slot = key.hashCode() & knownKeysMask;
+      while (null != knownKeys[slot]) {
+        slot = (slot + 1) & knownKeysMask;
+      }
+      knownKeys[slot] = key;
+      knownActions[slot] = resolveAction(key);
+    }
   }
 
   public boolean interceptTag(DDSpanContext span, String tag, Object value) {
+    switch (actionFor(tag)) {
+      case RESOURCE_NAME_ACTION:
+        return interceptResourceName(span, value);
+      case DB_STATEMENT_ACTION:
+        return interceptDbStatement(span, value);
+      case SERVICE_NAME_ACTION:
+        return interceptServiceName(SERVICE_NAME, span, value);
+      case PEER_SERVICE_ACTION:
+        return interceptServiceName(PEER_SERVICE, span, value);
+      case MANUAL_KEEP_ACTION:
+        return interceptSamplingPriority(FORCE_MANUAL_KEEP, USER_KEEP, span, value);
+      case MANUAL_DROP_ACTION:
+        return interceptSamplingPriority(FORCE_MANUAL_DROP, USER_DROP, span, value);
+      case SERVLET_CONTEXT_ACTION:
+        return interceptServletContext(span, value);
+      case SPAN_TYPE_ACTION:
+        return interceptSpanType(span, value);
+      case ANALYTICS_SAMPLE_RATE_ACTION:
+        return interceptAnalyticsSampleRate(span, value);
+      case ERROR_ACTION:
+        return interceptError(span, value);
+      case SPLIT_SERVICE_ACTION:
+        return interceptSplitServiceTag(span, value);
+      default:
+        return false;
+    }
+  }
+
+  /** @return false if {@link #interceptTag} is certain to leave the tag alone */
+  public boolean needsIntercept(String tag) {
+    return actionFor(tag) != NO_ACTION;
+  }
+
+  private byte actionFor(String tag) {
+    // String caches its hash code, so for a constant key this is one identity check
+    for (int slot = tag.hashCode() & knownKeysMask; ; slot = (slot + 1) & knownKeysMask) {
+      String key = knownKeys[slot];
+      if (key == tag) {
+        return knownActions[slot];
+      }
+      if (null == key) {
+        return resolveAction(tag);
+      }
+    }
+  }
+
+  private byte resolveAction(String tag) {
     switch (tag) {
       case DDTags.RESOURCE_NAME:
-        return interceptResourceName(span, value);
+        return RESOURCE_NAME_ACTION;
       case Tags.DB_STATEMENT:
-        return interceptDbStatement(span, value);
+        return DB_STATEMENT_ACTION;
       case DDTags.SERVICE_NAME:
       case "service":
-        return interceptServiceName(SERVICE_NAME, span, value);
+        return SERVICE_NAME_ACTION;
       case Tags.PEER_SERVICE:
-        return interceptServiceName(PEER_SERVICE, span, value);
+        return PEER_SERVICE_ACTION;
       case DDTags.MANUAL_KEEP:
-        return interceptSamplingPriority(FORCE_MANUAL_KEEP, USER_KEEP, span, value);
+        return MANUAL_KEEP_ACTION;
       case DDTags.MANUAL_DROP:
-        return interceptSamplingPriority(FORCE_MANUAL_DROP, USER_DROP, span, value);
+        return MANUAL_DROP_ACTION;
       case InstrumentationTags.SERVLET_CONTEXT:
-        return interceptServletContext(span, value);
+        return SERVLET_CONTEXT_ACTION;
       case SPAN_TYPE:
-        return interceptSpanType(span, value);
+        return SPAN_TYPE_ACTION;
       case ANALYTICS_SAMPLE_RATE:
-        return interceptAnalyticsSampleRate(span, value);
+        return ANALYTICS_SAMPLE_RATE_ACTION;
       case Tags.ERROR:
-        return interceptError(span, value);
+        return ERROR_ACTION;
       default:
-        return intercept(span, tag, value);
+        return splitServiceTags.contains(tag) ? SPLIT_SERVICE_ACTION : NO_ACTION;
     }
   }
 
-  private boolean intercept(DDSpanContext span, String tag, Object value) {
-    if (splitServiceTags.contains(tag)) {
-      span.setServiceName(String.valueOf(value));
-      return true;
-    }
-    return false;
+  private static Set<String> wellKnownKeys() {
+    Set<String> keys = new HashSet<>(WellKnownTagKeys.KEYS);
+    keys.add("service");
+    return Collections.unmodifiableSet(keys);
+  }
+
+  private boolean interceptSplitServiceTag(DDSpanContext span, Object value) {
+    span.setServiceName(String.valueOf(value));
+    return true;
   }
 
   private boolean interceptResourceName(DDSpanContext span, Object value) {
@@ -0,0 +1,47 @@
+package datadog.trace.core.util;
+
+import datadog.trace.api.DDTags;
+import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The tag keys declared as constants by {@link Tags}, {@link DDTags} and {@link
+ * InstrumentationTags}.
+ */
+public final class WellKnownTagKeys {
+
+  /** The well known tag keys, interned. */
+  public static final Set<String> KEYS = wellKnownKeys();
+
+  private WellKnownTagKeys() {}
+
+  private static Set<String> wellKnownKeys() {
+    Set<String> keys = new HashSet<>();
+    addConstants(keys, Tags.class);
+    addConstants(keys, DDTags.class);
+    addConstants(keys, InstrumentationTags.class);
+    return Collections.unmodifiableSet(keys);
+  }
+
+  private static void addConstants(Set<String> keys, Class<?> constants) {
+    for (Field field : constants.getFields()) {
+      int modifiers = field.getModifiers();
+      if (Modifier.isStatic(modifiers)
+          && Modifier.isFinal(modifiers)
+          && field.getType() == String.class) {
+        try {
+          String key = (String) field.get(null);
+          if (null != key) {
+            keys.add(key.intern());
+          }
+        } catch (IllegalAccessException ignored) {
+        }
+      }
+    }
+  }
+}
@@ -5,6 +5,7 @@ import datadog.trace.core.CoreSpan
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Requires
 import spock.lang.Shared
+import spock.util.concurrent.PollingConditions
 
 import java.util.concurrent.CountDownLatch
 
@@ -148,6 +149,52 @@ class ConflatingMetricAggregatorTest extends DDSpecification {
     count << [10, 100]
   }
 
+  def "spans published concurrently are all aggregated"() {
+    setup:
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    sink.validate() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(
+      sink, writer, 10, 4096, reportingInterval, SECONDS)
+    long duration = 100
+    aggregator.start()
+    Map<MetricKey, Integer> hitCounts = [:]
+
+    when:
+    CountDownLatch start = new CountDownLatch(1)
+    List<Thread> publishers = (0..<threads).collect { thread ->
+      Thread.start {
+        start.await()
+        for (int i = 0; i < spansPerThread; ++i) {
+          aggregator.publish([
+            new SimpleSpan("service" + (i % 4), "operation", "resource", "type", true, false, false, 0, duration)
+          ])
+        }
+      }
+    }
+    start.countDown()
+    publishers*.join()
+    CountDownLatch latch = new CountDownLatch(1)
+    aggregator.report()
+    latch.await(2, SECONDS)
+
+    then:
+    1 * writer.startBucket(4, _, _)
+    4 * writer.add(_, _) >> { MetricKey key, AggregateMetric value ->
+      hitCounts.put(key, value.getHitCount())
+    }
+    1 * writer.finishBucket() >> { latch.countDown() }
+    hitCounts.size() == 4
+    hitCounts.values().every { it == threads * spansPerThread / 4 }
+
+    cleanup:
+    aggregator.close()
+
+    where:
+    threads = 8
+    spansPerThread = 10_000
+  }
+
   def "test least recently written to aggregate flushed when size limit exceeded"() {
     setup:
     int maxAggregates = 10
@@ -279,6 +326,77 @@ class ConflatingMetricAggregatorTest extends DDSpecification {
     aggregator.close()
   }
 
+  def "aggregate expunged after an idle reporting interval is reported when it comes back"() {
+    setup:
+    int maxAggregates = 10
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    sink.validate() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(
+      sink, writer, maxAggregates, queueSize, reportingInterval, SECONDS)
+    long duration = 100
+    MetricKey key = new MetricKey("resource", "service", "operation", "type", 0)
+    aggregator.start()
+
+    when: "the key is seen once then goes idle for an interval"
+    aggregator.publish([
+      new SimpleSpan("service", "operation", "resource", "type", false, true, false, 0, duration)
+    ])
+    reportAndWaitUntilEmpty(aggregator)
+    reportAndWaitUntilEmpty(aggregator)
+
+    then:
+    1 * writer.startBucket(1, _, SECONDS.toNanos(reportingInterval))
+    1 * writer.add(key, _)
+    1 * writer.finishBucket()
+
+    when: "the key comes back"
+    CountDownLatch latch = new CountDownLatch(1)
+    for (int i = 0; i < 3; ++i) {
+      aggregator.publish([
+        new SimpleSpan("service", "operation", "resource", "type", false, true, false, 0, duration)
+      ])
+    }
+    aggregator.report()
+    latch.await(2, SECONDS)
+
+    then: "nothing published after the key was expunged is lost"
+    1 * writer.startBucket(1, _, SECONDS.toNanos(reportingInterval))
+    1 * writer.add(key, { AggregateMetric value ->
+      value.getHitCount() == 3 && value.getDuration() == 3 * duration
+    })
+    1 * writer.finishBucket() >> { latch.countDown() }
+
+    cleanup:
+    aggregator.close()
+  }
+
+  def "partial batches are taken from the stripes when the aggregator is idle"() {
+    setup:
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    sink.validate() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(
+      sink, writer, 10, queueSize, reportingInterval, SECONDS)
+    PollingConditions conditions = new PollingConditions(timeout: 5)
+    aggregator.start()
+
+    when:
+    aggregator.publish([
+      new SimpleSpan("service", "operation", "resource", "type", false, true, false, 0, 100)
+    ])
+
+    then: "the partial batch is taken without waiting for a report"
+    conditions.eventually {
+      PendingBatches batches = aggregator.pending.values().first()
+      assert (0..<batches.stripeCount()).every { batches.get(it) == null }
+    }
+    0 * writer.finishBucket()
+
+    cleanup:
+    aggregator.close()
+  }
+
   def "should report periodically"() {
     setup:
     int maxAggregates = 10
@@ -0,0 +1,60 @@
+package datadog.trace.common.metrics
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
+import datadog.trace.test.util.DDSpecification
+
+import java.util.concurrent.ConcurrentHashMap
+
+class MetricKeyProbeTest extends DDSpecification {
+
+  def "probe is equal to and hashes like the key built from the same fields"() {
+    setup:
+    MetricKey key = new MetricKey(resource, service, operation, type, status)
+    MetricKeyProbe probe = new MetricKeyProbe().of(resource, service, operation, type, status)
+
+    expect:
+    probe.hashCode() == key.hashCode()
+    probe == key
+    key == probe
+    probe.toKey(service) == key
+
+    where:
+    resource                           | service                       | operation                           | type  | status
+    "resource"                         | "service"                     | "operation"                         | "web" | 200
+    UTF8BytesString.create("resource") | "service"                     | UTF8BytesString.create("operation") | null  | 0
+    new StringBuilder("resource")      | UTF8BytesString.create("svc") | "operation"                         | "db"  | 404
+    null                               | null                          | null                                | null  | 0
+    ""                                 | null                          | ""                                  | ""    | 500
+  }
+
+  def "probe differs from keys with different fields"() {
+    setup:
+    MetricKey key = new MetricKey("resource", "service", "operation", "web", 200)
+
+    expect:
+    new MetricKeyProbe().of(resource, service, operation, type, status) != key
+
+    where:
+    resource    | service    | operation   | type  | status
+    "resource2" | "service"  | "operation" | "web" | 200
+    "resource"  | "service2" | "operation" | "web" | 200
+    "resource"  | "service"  | "op"        | "web" | 200
+    "resource"  | "service"  | "operation" | null  | 200
+    "resource"  | "service"  | "operation" | "web" | 500
+  }
+
+  def "probe finds interned keys in a concurrent hash map"() {
+    setup:
+    ConcurrentHashMap<MetricKey, String> keys = new ConcurrentHashMap<>()
+    (0..<1000).each {
+      keys.put(new MetricKey("resource" + it, "service", "operation", "web", 200), "value" + it)
+    }
+    MetricKeyProbe probe = new MetricKeyProbe()
+
+    expect:
+    (0..<1000).every {
+      keys.get(probe.of(UTF8BytesString.create("resource" + it), "service", "operation", "web", 200)) == "value" + it
+    }
+    keys.get(probe.of("resource", "service", "operation", "web", 200)) == null
+  }
+}
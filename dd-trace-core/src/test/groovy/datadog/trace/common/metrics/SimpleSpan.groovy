@@ -72,6 +72,21 @@ class SimpleSpan implements CoreSpan<SimpleSpan> {
     return DDId.ZERO
   }
 
+  @Override
+  long getTraceIdAsLong() {
+    return 0
+  }
+
+  @Override
+  long getSpanIdAsLong() {
+    return 0
+  }
+
+  @Override
+  long getParentIdAsLong() {
+    return 0
+  }
+
   @Override
   long getStartTime() {
     return startTime
@@ -230,4 +245,8 @@ class SimpleSpan implements CoreSpan<SimpleSpan> {
   int samplingPriority() {
     return 0
   }
+
+  @Override
+  void recycleTags() {
+  }
 }
@@ -0,0 +1,82 @@
+package datadog.trace.common.sampling
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
+import datadog.trace.test.util.DDSpecification
+
+import java.util.regex.Pattern
+
+class NameMatcherTest extends DDSpecification {
+
+  def "#regex is compiled to #type"() {
+    expect:
+    NameMatcher.compile(regex).class == type
+
+    where:
+    regex             | type
+    "service"         | NameMatcher.ExactMatcher
+    "servlet\\.req"   | NameMatcher.ExactMatcher
+    ""                | NameMatcher.ExactMatcher
+    "servlet.*"       | NameMatcher.PrefixMatcher
+    ".*"              | NameMatcher.PrefixMatcher
+    ".*.*"            | NameMatcher.PrefixMatcher
+    "servlet.request" | NameMatcher.GlobMatcher
+    ".*request"       | NameMatcher.GlobMatcher
+    "s.*e.*"          | NameMatcher.GlobMatcher
+    "[a-z]+"          | NameMatcher.RegexMatcher
+    "a|b"             | NameMatcher.RegexMatcher
+    "^service\$"      | NameMatcher.RegexMatcher
+    "\\d+"            | NameMatcher.RegexMatcher
+    "s.*?"            | NameMatcher.RegexMatcher
+    "s.*+"            | NameMatcher.RegexMatcher
+    "a\nb"            | NameMatcher.RegexMatcher
+  }
+
+  def "#regex matches #name like the regex"() {
+    setup:
+    def matcher = NameMatcher.compile(regex)
+    def expected = Pattern.compile(regex).matcher(name).matches()
+
+    expect:
+    matcher.matches(name) == expected
+    matcher.matches(UTF8BytesString.create(name)) == expected
+
+    where:
+    [regex, name] << [
+      [
+        "service",
+        "servlet\\.request",
+        "servlet.request",
+        "servlet.*",
+        ".*",
+        ".*request",
+        ".*vice",
+        "s.*e",
+        "s.*e.*e",
+        ".*r.*q.*",
+        "a.*b.*c",
+        "a.b",
+        ".",
+        "",
+        "[a-z]+"
+      ],
+      [
+        "",
+        "service",
+        "servic",
+        "services",
+        "servlet.request",
+        "servletxrequest",
+        "servlet.request.other",
+        "servlet\nrequest",
+        "request\n",
+        "abc",
+        "aXbYc",
+        "abcbc",
+        "acb",
+        "a b",
+        "a😀b",
+        "😀"
+      ]
+    ].combinations()
+  }
+}
@@ -213,4 +213,62 @@ class RuleBasedSamplingTest extends DDCoreSpecification {
     cleanup:
     tracer.close()
   }
+
+  def "rules which look beyond the names are checked for every span"() {
+    setup:
+    def tracer = tracerBuilder().writer(new ListWriter()).build()
+    SamplingRule<DDSpan> envRule = new SamplingRule<DDSpan>(new DeterministicSampler<DDSpan>(0)) {
+        @Override
+        boolean matches(DDSpan span) {
+          return span.getTag("env") == "drop"
+        }
+      }
+    def sampler = new RuleBasedSampler<DDSpan>([envRule], 50, new ForcePrioritySampler<DDSpan>(SAMPLER_KEEP))
+
+    when:
+    DDSpan span1 = tracer.buildSpan("operation")
+      .withServiceName("service")
+      .withTag("env", "drop")
+      .ignoreActiveSpan().start()
+    DDSpan span2 = tracer.buildSpan("operation")
+      .withServiceName("service")
+      .withTag("env", "keep")
+      .ignoreActiveSpan().start()
+    sampler.setSamplingPriority(span1)
+    sampler.setSamplingPriority(span2)
+
+    then:
+    span1.getSamplingPriority() == SAMPLER_DROP
+    span2.getSamplingPriority() == SAMPLER_KEEP
+
+    cleanup:
+    tracer.close()
+  }
+
+  def "decisions for repeated names are the same"() {
+    setup:
+    def tracer = tracerBuilder().writer(new ListWriter()).build()
+    Properties properties = new Properties()
+    properties.setProperty(TRACE_SAMPLING_SERVICE_RULES, "xx:1,serv.*:0")
+    properties.setProperty(TRACE_SAMPLING_OPERATION_RULES, "operation:1")
+    Sampler sampler = Sampler.Builder.forConfig(properties)
+
+    when:
+    def spans = (1..10).collect {
+      DDSpan span = tracer.buildSpan(it % 2 == 0 ? "operation" : "other")
+        .withServiceName(it % 3 == 0 ? "service" : "foo")
+        .ignoreActiveSpan().start()
+      ((PrioritySampler) sampler).setSamplingPriority(span)
+      return span
+    }
+
+    then:
+    spans.each {
+      def expectedRate = it.getServiceName() == "service" ? 0 : it.getOperationName().toString() == "operation" ? 1.0 : null
+      assert it.getUnsafeMetrics().get(RuleBasedSampler.SAMPLING_RULE_RATE) == expectedRate
+    }
+
+    cleanup:
+    tracer.close()
+  }
 }
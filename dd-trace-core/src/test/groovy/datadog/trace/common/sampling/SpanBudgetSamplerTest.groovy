@@ -0,0 +1,146 @@
+package datadog.trace.common.sampling
+
+import datadog.trace.api.sampling.PrioritySampling
+import datadog.trace.api.time.ControllableTimeSource
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.DDSpan
+import datadog.trace.core.propagation.ExtractedContext
+import datadog.trace.core.test.DDCoreSpecification
+
+import java.util.concurrent.TimeUnit
+
+class SpanBudgetSamplerTest extends DDCoreSpecification {
+
+  def tracer = tracerBuilder().writer(new ListWriter()).build()
+  def timeSource = new ControllableTimeSource()
+
+  def cleanup() {
+    tracer.close()
+  }
+
+  def "traces are kept while under budget"() {
+    setup:
+    def sampler = new SpanBudgetSampler<DDSpan>(new RateByServiceSampler<DDSpan>(), 100, timeSource)
+
+    when:
+    produce(sampler, "busy", 90, 3)
+    def span = newSpan("busy")
+    sampler.setSamplingPriority(span)
+
+    then:
+    sampler.getSampleRate("", "busy") == 1.0
+    span.getSamplingPriority() == PrioritySampling.SAMPLER_KEEP
+    sampler.sample(span)
+  }
+
+  def "the budget is shared between services"() {
+    setup:
+    def sampler = new SpanBudgetSampler<DDSpan>(new RateByServiceSampler<DDSpan>(), 100, timeSource)
+
+    when:
+    3.times {
+      10.times { sampler.onTraceComplete(newSpan("quiet"), 1) }
+      300.times { sampler.onTraceComplete(newSpan("busy"), 3) }
+      timeSource.advance(TimeUnit.SECONDS.toNanos(1))
+    }
+    sampler.onTraceComplete(newSpan("busy"), 0)
+
+    then:
+    sampler.getSampleRate("", "quiet") == 1.0
+    Math.abs(sampler.getSampleRate("", "busy") - 0.1) < 1e-9
+
+    when:
+    def kept = 0
+    def written = 0
+    1000.times {
+      def span = newSpan("busy")
+      sampler.setSamplingPriority(span)
+      if (span.getSamplingPriority() == PrioritySampling.SAMPLER_KEEP) {
+        kept++
+      }
+      if (sampler.sample(span)) {
+        written++
+      }
+    }
+
+    then:
+    kept > 50 && kept < 150
+    written == 1000
+  }
+
+  def "the decision is deterministic on the trace id"() {
+    setup:
+    def upstream = new SpanBudgetSampler<DDSpan>(new RateByServiceSampler<DDSpan>(), 10, timeSource)
+    produce(upstream, "busy", 100, 1)
+    upstream.onTraceComplete(newSpan("busy"), 0)
+    // another process, with its own clock, seeing the same traffic
+    def otherTimeSource = new ControllableTimeSource()
+    def downstream = new SpanBudgetSampler<DDSpan>(new RateByServiceSampler<DDSpan>(), 10, otherTimeSource)
+    100.times { downstream.onTraceComplete(newSpan("busy"), 1) }
+    otherTimeSource.advance(TimeUnit.SECONDS.toNanos(1))
+    downstream.onTraceComplete(newSpan("busy"), 0)
+    def priorities = [] as Set
+
+    expect:
+    100.times {
+      def span = newSpan("busy")
+      upstream.setSamplingPriority(span)
+      def extracted = new ExtractedContext(span.getTraceId(), span.getSpanId(), PrioritySampling.UNSET, null, null, null, [:], [:])
+      def child = tracer.buildSpan("downstream").withServiceName("busy").asChildOf(extracted).start()
+      downstream.setSamplingPriority(child)
+      assert child.getSamplingPriority() == span.getSamplingPriority()
+      priorities.add(span.getSamplingPriority())
+    }
+    priorities == [PrioritySampling.SAMPLER_KEEP, PrioritySampling.SAMPLER_DROP] as Set
+  }
+
+  def "chunks count against the budget of the local root span"() {
+    setup:
+    def sampler = new SpanBudgetSampler<DDSpan>(new RateByServiceSampler<DDSpan>(), 10, timeSource)
+    def root = newSpan("busy")
+    def child = tracer.buildSpan("child").withServiceName("downstream").asChildOf(root).start()
+
+    when:
+    2.times {
+      100.times { sampler.onTraceComplete(child, 1) }
+      timeSource.advance(TimeUnit.SECONDS.toNanos(1))
+    }
+    sampler.onTraceComplete(root, 0)
+
+    then:
+    sampler.getSampleRate("", "busy") < 1.0
+    sampler.getSampleRate("", "downstream") == 1.0
+  }
+
+  def "idle services are forgotten"() {
+    setup:
+    def sampler = new SpanBudgetSampler<DDSpan>(new RateByServiceSampler<DDSpan>(), 10, timeSource)
+    produce(sampler, "busy", 100, 1)
+    sampler.onTraceComplete(newSpan("other"), 0)
+
+    expect:
+    sampler.getSampleRate("", "busy") < 1.0
+
+    when:
+    4.times {
+      timeSource.advance(TimeUnit.SECONDS.toNanos(1))
+      sampler.onTraceComplete(newSpan("other"), 0)
+    }
+
+    then:
+    sampler.getSampleRate("", "busy") == 1.0
+  }
+
+  def produce(SpanBudgetSampler<DDSpan> sampler, String service, int spans, int seconds) {
+    seconds.times {
+      spans.times {
+        sampler.onTraceComplete(newSpan(service), 1)
+      }
+      timeSource.advance(TimeUnit.SECONDS.toNanos(1))
+    }
+  }
+
+  def newSpan(String service) {
+    return tracer.buildSpan("operation").withServiceName(service).ignoreActiveSpan().start()
+  }
+}
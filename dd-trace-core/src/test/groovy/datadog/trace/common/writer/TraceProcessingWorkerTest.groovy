@@ -1,6 +1,7 @@
 package datadog.trace.common.writer
 
 import com.timgroup.statsd.NoOpStatsDClient
+import datadog.trace.api.DDId
 import datadog.trace.common.writer.ddagent.PayloadDispatcher
 import datadog.trace.common.writer.ddagent.TraceProcessingWorker
 import datadog.trace.core.DDSpan
@@ -10,6 +11,7 @@ import datadog.trace.test.util.DDSpecification
 import spock.lang.Shared
 import spock.util.concurrent.PollingConditions
 
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicInteger
 
@@ -100,14 +102,14 @@ class TraceProcessingWorkerTest extends DDSpecification {
     when: "there is pending work it is completed before a flush"
     // processing this span will throw an exception, but it should be caught
     // and not disrupt the flush
-    worker.primaryQueue.offer([Mock(DDSpan)])
+    worker.shards[0].primaryQueue.offer([Mock(DDSpan)])
     worker.start()
     boolean flushed = worker.flush(10, TimeUnit.SECONDS)
 
     then: "the flush succeeds, triggers a dispatch, and the queue is empty"
     flushed
     flushCount.get() == 1
-    worker.primaryQueue.isEmpty()
+    worker.shards[0].primaryQueue.isEmpty()
 
     cleanup:
     worker.close()
@@ -219,7 +221,7 @@ class TraceProcessingWorkerTest extends DDSpecification {
     worker.start()
     worker.close()
     int queueSize = 0
-    while (worker.primaryQueue.offer([Mock(DDSpan)])) {
+    while (worker.shards[0].primaryQueue.offer([Mock(DDSpan)])) {
       queueSize++
     }
 
@@ -229,4 +231,78 @@ class TraceProcessingWorkerTest extends DDSpecification {
     !flushed
   }
 
+  def "traces are routed to shards by trace id and every shard is flushed"() {
+    setup:
+    def tracesByShard = new ConcurrentHashMap<Integer, Set<Long>>()
+    AtomicInteger flushCount = new AtomicInteger()
+    def shardDispatcher = { int shard ->
+      tracesByShard.put(shard, Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>()))
+      PayloadDispatcher dispatcher = Mock(PayloadDispatcher)
+      dispatcher.addTrace(_) >> { args ->
+        tracesByShard.get(shard).add(args[0][0].getTraceId().toLong())
+      }
+      dispatcher.flush() >> {
+        flushCount.incrementAndGet()
+      }
+      return dispatcher
+    }
+    PayloadDispatcher dispatcher = shardDispatcher(0)
+    int created = 0
+    dispatcher.newShard() >> {
+      shardDispatcher(++created)
+    }
+    TraceProcessingWorker worker = new TraceProcessingWorker(1024, shardCount, Stub(HealthMetrics),
+      monitoring, dispatcher, {
+        false
+      }, FAST_LANE, 100, TimeUnit.SECONDS) // prevent heartbeats from helping the flush happen
+    worker.start()
+
+    when: "traces with the same trace ids are published twice"
+    int submitted = 0
+    for (int round = 0; round < 2; ++round) {
+      for (long id = 1; id <= traceCount; ++id) {
+        DDSpan span = Stub(DDSpan)
+        span.getTraceId() >> DDId.from(id)
+        submitted += worker.publish(span, USER_KEEP, [span]) ? 1 : 0
+      }
+    }
+    boolean flushed = worker.flush(10, TimeUnit.SECONDS)
+
+    then: "each trace id is serialized by exactly one shard, and all shards are flushed"
+    submitted == 2 * traceCount
+    flushed
+    flushCount.get() == shardCount
+    tracesByShard.size() == shardCount
+    tracesByShard.values().every { !it.isEmpty() }
+    tracesByShard.values().sum { it.size() } == traceCount
+
+    cleanup:
+    worker.close()
+
+    where:
+    shardCount | traceCount
+    2          | 100
+    4          | 100
+    8          | 200
+  }
+
+  def "each shard's serializing thread has its own name"() {
+    setup:
+    PayloadDispatcher dispatcher = Mock(PayloadDispatcher)
+    dispatcher.newShard() >> {
+      Mock(PayloadDispatcher)
+    }
+    TraceProcessingWorker worker = new TraceProcessingWorker(1024, shardCount, Stub(HealthMetrics),
+      monitoring, dispatcher, {
+        false
+      }, FAST_LANE, 100, TimeUnit.SECONDS)
+
+    expect:
+    worker.shards.collect { it.serializerThread.name } == threadNames
+
+    where:
+    shardCount | threadNames
+    1          | ["dd-trace-processor"]
+    3          | ["dd-trace-processor-0", "dd-trace-processor-1", "dd-trace-processor-2"]
+  }
 }
@@ -0,0 +1,201 @@
+package datadog.trace.common.writer.ddagent
+
+import com.timgroup.statsd.NoOpStatsDClient
+import datadog.trace.api.DDId
+import datadog.trace.api.sampling.PrioritySampling
+import datadog.trace.core.CoreTracer
+import datadog.trace.core.DDSpan
+import datadog.trace.core.DDSpanContext
+import datadog.trace.core.PendingTrace
+import datadog.trace.core.monitor.HealthMetrics
+import datadog.trace.core.monitor.Monitoring
+import datadog.trace.test.util.DDSpecification
+import okhttp3.HttpUrl
+import okhttp3.RequestBody
+import spock.lang.Shared
+import spock.lang.Timeout
+
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.channels.WritableByteChannel
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class PayloadSenderTest extends DDSpecification {
+
+  @Shared
+  Monitoring monitoring = new Monitoring(new NoOpStatsDClient(), 1, TimeUnit.SECONDS)
+
+  def "payloads are sent from the sender thread with the same bytes"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Mock(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> traceEndpoint
+    List<byte[]> sent = []
+    List<String> senderThreads = []
+    DDAgentApi api = Mock(DDAgentApi)
+    api.sendSerializedTraces(_) >> { Payload payload ->
+      senderThreads.add(Thread.currentThread().getName())
+      sent.add(bytesOf(payload))
+      return DDAgentApi.Response.success(200)
+    }
+    PayloadSender sender = new PayloadSender(api, healthMetrics, 2)
+    sender.start()
+    PayloadDispatcher async = new PayloadDispatcher(discovery, sender, healthMetrics, monitoring)
+    PayloadDispatcher sync = new PayloadDispatcher(discovery, api, healthMetrics, monitoring)
+    List<DDSpan> trace = [realSpan()]
+
+    when:
+    for (int i = 0; i < traceCount; ++i) {
+      async.addTrace(trace)
+      sync.addTrace(trace)
+    }
+    async.flush()
+    async.awaitSent()
+    sync.flush()
+
+    then:
+    sent.size() == 2
+    senderThreads[0] == "dd-trace-sender"
+    senderThreads[1] == Thread.currentThread().getName()
+    sent[0] == sent[1]
+    2 * healthMetrics.onSend(traceCount, { it == sent[0].length }, _)
+
+    cleanup:
+    sender.close()
+
+    where:
+    traceEndpoint | traceCount
+    "v0.4/traces" | 1
+    "v0.4/traces" | 100
+    "v0.5/traces" | 1
+    "v0.5/traces" | 100
+  }
+
+  @Timeout(10)
+  def "serialization is held back when too many payloads are in flight"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Mock(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> "v0.4/traces"
+    CountDownLatch agentResponds = new CountDownLatch(1)
+    AtomicInteger sendCount = new AtomicInteger()
+    // a mock would hold spock's lock while waiting for the agent to respond
+    DDAgentApi api = new DDAgentApi(null, HttpUrl.get("http://localhost:8126"), discovery, monitoring, false) {
+        @Override
+        DDAgentApi.Response sendSerializedTraces(Payload payload) {
+          agentResponds.await()
+          sendCount.incrementAndGet()
+          return DDAgentApi.Response.success(200)
+        }
+      }
+    PayloadSender sender = new PayloadSender(api, healthMetrics, 1)
+    sender.start()
+    PayloadDispatcher dispatcher = new PayloadDispatcher(discovery, sender, healthMetrics, monitoring)
+    List<DDSpan> trace = [realSpan()]
+
+    when: "a payload is in flight"
+    dispatcher.addTrace(trace)
+    dispatcher.flush()
+
+    then: "serialization carries on"
+    sendCount.get() == 0
+    1 * healthMetrics.onPayloadsInFlight(1)
+
+    when: "another payload is ready before the agent responds"
+    dispatcher.addTrace(trace)
+    Thread serializer = Thread.start {
+      dispatcher.flush()
+    }
+    serializer.join(200)
+
+    then: "serialization waits for the payload in flight"
+    serializer.isAlive()
+
+    when: "the agent responds"
+    agentResponds.countDown()
+    serializer.join()
+    dispatcher.awaitSent()
+
+    then:
+    sendCount.get() == 2
+    1 * healthMetrics.onPayloadBackPressure({ it > 0 })
+    2 * healthMetrics.onSend(1, _, _)
+
+    cleanup:
+    agentResponds.countDown()
+    sender.close()
+  }
+
+  @Timeout(10)
+  def "a payload which can't be copied doesn't hold on to its slot"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentApi api = Mock(DDAgentApi)
+    PayloadSender sender = new PayloadSender(api, healthMetrics, 1)
+    sender.start()
+    Payload broken = new Payload() {
+        @Override
+        int sizeInBytes() {
+          return 16
+        }
+
+        @Override
+        void writeTo(WritableByteChannel channel) throws IOException {
+          throw new IOException("broken")
+        }
+
+        @Override
+        RequestBody toRequest() {
+          return null
+        }
+      }
+    ByteBuffer body = ByteBuffer.wrap([0x90] as byte[])
+    Payload valid = new PayloadSender.CopiedPayload().withBody(0, body)
+
+    when:
+    sender.send(broken)
+
+    then:
+    thrown IllegalStateException
+
+    when:
+    sender.send(valid)
+    sender.awaitSent()
+
+    then:
+    1 * api.sendSerializedTraces(_) >> DDAgentApi.Response.success(200)
+
+    cleanup:
+    sender.close()
+  }
+
+  static byte[] bytesOf(Payload payload) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream()
+    payload.writeTo(Channels.newChannel(out))
+    return out.toByteArray()
+  }
+
+  def realSpan() {
+    CoreTracer tracer = Mock(CoreTracer)
+    tracer.mapServiceName(_) >> { String serviceName -> serviceName }
+    PendingTrace trace = Mock(PendingTrace)
+    trace.getTracer() >> tracer
+    return new DDSpan(0, new DDSpanContext(
+      DDId.from(1),
+      DDId.from(1),
+      DDId.ZERO,
+      null,
+      "",
+      "",
+      "",
+      PrioritySampling.UNSET,
+      "",
+      [:],
+      false,
+      "",
+      0,
+      trace))
+  }
+}
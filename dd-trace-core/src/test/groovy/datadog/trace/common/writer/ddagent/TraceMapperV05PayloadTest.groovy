@@ -1,6 +1,7 @@
 package datadog.trace.common.writer.ddagent
 
 import datadog.trace.api.DDId
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
 import datadog.trace.core.serialization.ByteBufferConsumer
 import datadog.trace.core.serialization.FlushingBuffer
 import datadog.trace.core.serialization.msgpack.MsgPackWriter
@@ -128,6 +129,104 @@ class TraceMapperV05PayloadTest extends DDSpecification {
     100 << 10  | 100 << 10      | 10         | false
     100 << 10  | 100 << 10      | 100        | false
     100 << 10  | 100 << 10      | 1000       | false
+    2 << 10    | 0              | 100        | true
+    2 << 10    | 100 << 10      | 100        | true
+    2 << 10    | 0              | 100        | false
+    2 << 10    | 100 << 10      | 100        | false
+  }
+
+  def "dictionary codes restart in each payload and encodings are kept"() {
+    setup:
+    PersistentDictionary dictionary = new PersistentDictionary(1 << 10, maxRetainedBytes)
+
+    when:
+    def first = ["a", "b", "a", UTF8BytesString.create("c"), 1L].collect { dictionary.encode(it) }
+
+    then:
+    first == [0, 1, 0, 2, 3]
+    dictionary.size() == 4
+
+    when:
+    dictionary.reset()
+    def second = ["b", "d", "b", 2L, new StringBuilder("a")].collect { dictionary.encode(it) }
+
+    then:
+    second == [0, 1, 0, 2, 3]
+    dictionary.size() == 4
+    unpackStrings(dictionary.slice(), dictionary.size()) == ["b", "d", "2", "a"]
+
+    where:
+    maxRetainedBytes << [0, 1 << 10]
+  }
+
+  def "dictionary grows past its initial capacity"() {
+    setup:
+    PersistentDictionary dictionary = new PersistentDictionary(1 << 10, 1 << 20)
+    def values = (0..<1000).collect { "value-" + it }
+
+    expect:
+    values.collect { dictionary.encode(it) } == (0..<1000)
+    values.collect { dictionary.encode(it) } == (0..<1000)
+    unpackStrings(dictionary.slice(), dictionary.size()) == values
+
+    when:
+    dictionary.reset()
+
+    then:
+    values.reverse().collect { dictionary.encode(it) } == (0..<1000)
+  }
+
+  def "values not used in the last payload are evicted once the dictionary has too many"() {
+    setup:
+    PersistentDictionary dictionary = new PersistentDictionary(1 << 10, 1 << 20, 100)
+    def recent = (0..<20).collect { "recent-" + it }
+    def stale = (0..<60).collect { "stale-" + it }
+
+    when: "the dictionary is within its limits"
+    (recent + stale).each { dictionary.encode(it) }
+    dictionary.reset()
+
+    then:
+    dictionary.retained() == 80
+
+    when: "more values are added than can be kept"
+    (recent + (0..<30).collect { "new-" + it }).each { dictionary.encode(it) }
+    dictionary.reset()
+
+    then: "only the values used in the payload are kept"
+    dictionary.retained() == 50
+    (recent + stale).collect { dictionary.encode(it) } == (0..<80)
+    dictionary.retained() == 110
+    unpackStrings(dictionary.slice(), dictionary.size()) == recent + stale
+
+    when: "the values used in the payload alone are over half the limit"
+    dictionary.reset()
+
+    then: "everything is evicted"
+    dictionary.retained() == 0
+    recent.collect { dictionary.encode(it) } == (0..<20)
+  }
+
+  def "values are evicted once the bytes they and their encodings retain are over the limit"() {
+    setup:
+    PersistentDictionary dictionary = new PersistentDictionary(1 << 14, 16 << 10)
+    def used = (0..<10).collect { "used-" + it }
+
+    when: "each payload adds a large value"
+    ["a", "b", "c"].each {
+      used.each { dictionary.encode(it) }
+      dictionary.encode(it * 2000)
+      dictionary.reset()
+    }
+
+    then: "the large values not used in the last payload are evicted"
+    dictionary.retained() == 11
+    (used + ["c" * 2000]).collect { dictionary.encode(it) } == (0..<11)
+  }
+
+  private static List<String> unpackStrings(ByteBuffer buffer, int count) {
+    MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(buffer)
+    return (0..<count).collect { unpacker.unpackString() }
   }
 
   private static final class PayloadVerifier implements ByteBufferConsumer, WritableByteChannel {
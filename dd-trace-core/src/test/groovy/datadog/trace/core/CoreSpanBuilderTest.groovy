@@ -161,7 +161,7 @@ class CoreSpanBuilderTest extends DDCoreSpecification {
 
     final DDSpanContext mockedContext = Mock()
     1 * mockedContext.getTraceId() >> spanId
-    1 * mockedContext.getSpanId() >> spanId
+    1 * mockedContext.getSpanIdAsLong() >> spanId.toLong()
     _ * mockedContext.getServiceName() >> "foo"
     1 * mockedContext.getBaggageItems() >> [:]
     1 * mockedContext.getTrace() >> tracer.pendingTraceFactory.create(DDId.ONE)
@@ -295,8 +295,8 @@ class CoreSpanBuilderTest extends DDCoreSpecification {
     expect:
     root.context().getTrace().rootSpan == root
     root.context().getTrace().size() == nbSamples
-    root.context().getTrace().finishedSpans.containsAll(spans)
-    spans[(int) (Math.random() * nbSamples)].context.trace.finishedSpans.containsAll(spans)
+    root.context().getTrace().finishedSpans.asList().containsAll(spans)
+    spans[(int) (Math.random() * nbSamples)].context.trace.finishedSpans.asList().containsAll(spans)
   }
 
   def "ExtractedContext should populate new span details"() {
@@ -1,7 +1,10 @@
 package datadog.trace.core
 
 import datadog.trace.api.DDTags
+import datadog.trace.common.writer.DDAgentWriter
 import datadog.trace.common.writer.ListWriter
+import datadog.trace.common.writer.MultiWriter
+import datadog.trace.common.writer.Writer
 import datadog.trace.core.test.DDCoreSpecification
 
 class DDSpanContextTest extends DDCoreSpecification {
@@ -134,6 +137,82 @@ class DDSpanContextTest extends DDCoreSpecification {
     Integer | 0x55
   }
 
+  def "tags are kept after serialization unless recycling is enabled"() {
+    setup:
+    def span = tracer.buildSpan("fakeOperation").start()
+    def context = span.context()
+    context.setTag("some.tag", "asdf")
+
+    when:
+    context.recycleTags()
+
+    then:
+    context.getTag("some.tag") == "asdf"
+  }
+
+  def "recycled tags are reused by a new span and ignored by the old one"() {
+    setup:
+    def recyclingTracer = tracerBuilder()
+      .writer(DDAgentWriter.builder().flushFrequencySeconds(-1).build())
+      .tagRecycling(true)
+      .build()
+    def first = recyclingTracer.buildSpan("first").start().context()
+    first.setTag("some.tag", "asdf")
+    def tags = first.@unsafeTags
+
+    when:
+    first.recycleTags()
+    def second = recyclingTracer.buildSpan("second").start().context()
+    first.setTag("other.tag", "qwerty")
+    first.setTag("int.tag", 1)
+    second.setTag("second.tag", "zxcv")
+
+    then:
+    second.@unsafeTags.is(tags)
+    first.getTag("some.tag") == null
+    first.getTag("other.tag") == null
+    first.getTag("int.tag") == null
+    assertTagmap(second.getTags(), [
+      "second.tag"        : "zxcv",
+      (DDTags.THREAD_NAME): Thread.currentThread().name,
+      (DDTags.THREAD_ID)  : Thread.currentThread().id
+    ])
+
+    when:
+    first.recycleTags()
+
+    then: "only the current owner can recycle the tags"
+    second.getTag("second.tag") == "zxcv"
+
+    cleanup:
+    recyclingTracer.close()
+  }
+
+  def "tags are only recycled when the agent writer is the only writer"() {
+    setup:
+    def recyclingTracer = tracerBuilder().writer(writer).tagRecycling(true).build()
+    def context = recyclingTracer.buildSpan("first").start().context()
+    context.setTag("some.tag", "asdf")
+
+    when:
+    context.recycleTags()
+
+    then:
+    context.getTag("some.tag") == "asdf"
+
+    cleanup:
+    recyclingTracer.close()
+
+    where:
+    writer << [
+      new ListWriter(),
+      new MultiWriter([
+        DDAgentWriter.builder().flushFrequencySeconds(-1).build(),
+        new ListWriter()
+      ] as Writer[])
+    ]
+  }
+
   static void assertTagmap(Map source, Map comparison) {
     def sourceWithoutCommonTags = new HashMap(source)
     sourceWithoutCommonTags.remove("runtime-id")
@@ -217,6 +217,27 @@ class DDSpanTest extends DDCoreSpecification {
     new ExtractedContext(DDId.from(123), DDId.from(456), 1, "789", null, null, [:], [:]) | false
   }
 
+  def "ids match as longs and as objects"() {
+    setup:
+    def extractedContext = new ExtractedContext(DDId.from(123), DDId.from(456), 1, null, null, null, [:], [:])
+    def root = tracer.buildSpan("root").asChildOf((AgentSpan.Context) extractedContext).start()
+    def child = tracer.buildSpan("child").asChildOf(root).start()
+
+    expect:
+    root.getTraceIdAsLong() == 123
+    root.getParentIdAsLong() == 456
+    root.getParentId() == DDId.from(456)
+    root.getSpanId().toLong() == root.getSpanIdAsLong()
+    root.getSpanId().is(root.getSpanId())
+    child.getTraceId() == DDId.from(123)
+    child.getParentIdAsLong() == root.getSpanIdAsLong()
+    child.getParentId() == root.getSpanId()
+
+    cleanup:
+    child.finish()
+    root.finish()
+  }
+
   def "getApplicationRootSpan() in and not in the context of distributed tracing"() {
     setup:
     def root = tracer.buildSpan("root").asChildOf((AgentSpan.Context) extractedContext).start()
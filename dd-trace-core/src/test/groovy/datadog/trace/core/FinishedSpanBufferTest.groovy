@@ -0,0 +1,134 @@
+package datadog.trace.core
+
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+import spock.lang.Timeout
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class FinishedSpanBufferTest extends DDCoreSpecification {
+
+  def writer = new ListWriter()
+  def tracer = tracerBuilder().writer(writer).build()
+
+  def cleanup() {
+    tracer?.close()
+  }
+
+  def "drain returns spans most recently finished first across chunks"() {
+    setup:
+    def buffer = new FinishedSpanBuffer()
+    def spans = (1..count).collect { tracer.buildSpan("span-$it").start() }
+
+    expect:
+    buffer.isEmpty()
+    buffer.drain().isEmpty()
+
+    when:
+    spans.each { buffer.add(it, false) }
+
+    then:
+    !buffer.isEmpty()
+    buffer.asList() == spans.reverse()
+    buffer.oldestFinishedTime() == spans*.startTime.min()
+
+    when:
+    def drained = buffer.drain()
+
+    then:
+    drained == spans.reverse()
+    drained.size() == count
+    drained.iterator().toList() == (0..<count).collect { drained.get(it) }
+    drained.indexOf(spans.first()) == count - 1
+    drained.contains(spans.last())
+    !drained.contains(tracer.buildSpan("other").start())
+    buffer.isEmpty()
+    buffer.drain().isEmpty()
+    buffer.oldestFinishedTime() == Long.MAX_VALUE
+    !drained.hasRootSpan()
+
+    when:
+    drained.sort { it.operationName.toString() }
+
+    then:
+    drained*.operationName*.toString() == spans*.operationName*.toString().sort()
+
+    where:
+    count << [1, 8, 9, 100, 2000]
+  }
+
+  def "only the drain which takes the root span reports it"() {
+    setup:
+    def buffer = new FinishedSpanBuffer()
+    def spans = (1..count).collect { tracer.buildSpan("span-$it").start() }
+
+    when:
+    spans.eachWithIndex { span, i -> buffer.add(span, i == root) }
+    def first = buffer.drain()
+    buffer.add(tracer.buildSpan("late").start(), false)
+    def second = buffer.drain()
+
+    then:
+    first.hasRootSpan()
+    !second.hasRootSpan()
+
+    where:
+    count | root
+    1     | 0
+    20    | 0
+    20    | 19
+  }
+
+  @Timeout(value = 30, unit = TimeUnit.SECONDS)
+  def "concurrent adds and drains never lose or duplicate spans"() {
+    setup:
+    def buffer = new FinishedSpanBuffer()
+    def spans = (1..threads * perThread).collect { tracer.buildSpan("span").start() }
+    def drained = Collections.newSetFromMap(new ConcurrentHashMap<DDSpan, Boolean>())
+    def duplicates = Collections.synchronizedList([])
+    def start = new CountDownLatch(1)
+    def done = new CountDownLatch(threads)
+    def drain = {
+      for (DDSpan span : buffer.drain()) {
+        if (!drained.add(span)) {
+          duplicates.add(span)
+        }
+      }
+    }
+
+    when:
+    def producers = (0..<threads).collect { thread ->
+      Thread.start {
+        start.await()
+        for (int i = 0; i < perThread; ++i) {
+          buffer.add(spans[thread * perThread + i], false)
+          if (i % 97 == 0) {
+            drain()
+          }
+        }
+        done.countDown()
+      }
+    }
+    def consumer = Thread.start {
+      start.await()
+      while (done.count > 0) {
+        drain()
+      }
+    }
+    start.countDown()
+    producers*.join()
+    consumer.join()
+    drain()
+
+    then:
+    duplicates.isEmpty()
+    drained.size() == spans.size()
+    buffer.isEmpty()
+
+    where:
+    threads = 8
+    perThread = 5000
+  }
+}
@@ -7,6 +7,7 @@ import datadog.trace.bootstrap.instrumentation.api.ScopeSource
 import datadog.trace.context.TraceScope
 import datadog.trace.core.monitor.Monitoring
 import datadog.trace.core.scopemanager.ContinuableScopeManager
+import datadog.trace.core.util.Clock
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Subject
 import spock.lang.Timeout
@@ -252,8 +253,8 @@ class PendingTraceBufferTest extends DDSpecification {
         }
 
         @Override
-        boolean lastReferencedNanosAgo(long nanos) {
-          return false
+        long lastReferenced() {
+          return Clock.currentNanoTicks()
         }
 
         @Override
@@ -277,6 +278,46 @@ class PendingTraceBufferTest extends DDSpecification {
     counter.get() == 3
   }
 
+  def "element is written once its send delay has passed"() {
+    setup:
+    buffer.start()
+    def latch = new CountDownLatch(1)
+    def counter = new AtomicInteger(0)
+    def lastReferenced = Clock.currentNanoTicks()
+    def element = new PendingTraceBuffer.Element() {
+        @Override
+        long oldestFinishedTime() {
+          return Long.MAX_VALUE
+        }
+
+        @Override
+        long lastReferenced() {
+          return lastReferenced
+        }
+
+        @Override
+        void write() {
+          counter.incrementAndGet()
+          latch.countDown()
+        }
+      }
+
+    when:
+    buffer.enqueue(element)
+
+    then:
+    counter.get() == 0
+
+    when:
+    latch.await()
+    // give the worker a chance to misbehave
+    Thread.sleep(100)
+
+    then:
+    counter.get() == 1
+    Clock.currentNanoTicks() - lastReferenced >= TimeUnit.MILLISECONDS.toNanos(500)
+  }
+
   def addContinuation(DDSpan span) {
     def scope = scopeManager.activate(span, ScopeSource.INSTRUMENTATION, true)
     continuations << scope.capture()
@@ -204,6 +204,45 @@ abstract class PendingTraceTestBase extends DDCoreSpecification {
     quickTracer.close()
   }
 
+  def "partial flush when too many finished spans are retained"() {
+    setup:
+    def boundedTracer = tracerBuilder().writer(writer).partialFlushMaxRetainedSpans(4).build()
+    def otherRoot = boundedTracer.buildSpan("other").start()
+    def rootSpan = boundedTracer.buildSpan("root").start()
+    def children = (1..4).collect {
+      boundedTracer.buildSpan("child" + it).asChildOf(rootSpan).start()
+    }
+
+    when:
+    boundedTracer.buildSpan("otherChild").asChildOf(otherRoot).start().finish()
+    children.take(3)*.finish()
+
+    then:
+    writer == []
+
+    when:
+    children.last().finish()
+    writer.waitForTraces(1)
+
+    then:
+    writer.size() == 1
+    writer[0] as Set == children as Set
+    writer[0].count { it.hasSamplingPriority() } == 1
+    writer[0][0].hasSamplingPriority()
+    writer[0][0].samplingPriority() == rootSpan.samplingPriority()
+
+    when:
+    rootSpan.finish()
+    writer.waitForTraces(2)
+
+    then:
+    writer[1] == [rootSpan]
+    rootSpan.hasSamplingPriority()
+
+    cleanup:
+    boundedTracer.close()
+  }
+
   def "partial flush concurrency test"() {
     // reduce logging noise
     def logger = (Logger) LoggerFactory.getLogger("datadog.trace")
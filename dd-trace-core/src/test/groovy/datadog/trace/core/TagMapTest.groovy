@@ -0,0 +1,141 @@
+package datadog.trace.core
+
+import datadog.trace.test.util.DDSpecification
+
+class TagMapTest extends DDSpecification {
+
+  def "numeric values keep their type"() {
+    setup:
+    def tags = new TagMap(4)
+
+    when:
+    tags.put("int", 200)
+    tags.put("long", 200L)
+    tags.put("boxed.int", Integer.valueOf(404))
+    tags.put("boxed.long", Long.valueOf(404L))
+    tags.put("double", 0.5d)
+    tags.put("string", "value")
+
+    then:
+    tags.size() == 6
+    tags.get("int") instanceof Integer && tags.get("int") == 200
+    tags.get("long") instanceof Long && tags.get("long") == 200L
+    tags.get("boxed.int") instanceof Integer && tags.get("boxed.int") == 404
+    tags.get("boxed.long") instanceof Long && tags.get("boxed.long") == 404L
+    tags.get("double") == 0.5d
+    tags.get("string") == "value"
+  }
+
+  def "replacing a value returns the previous one"() {
+    setup:
+    def tags = new TagMap(4)
+    tags.put("key", 1)
+
+    expect:
+    tags.put("key", "value") == 1
+    tags.put("key", "other") == "value"
+    tags.get("key") == "other"
+    tags.size() == 1
+  }
+
+  def "tags are visited in insertion order without boxing"() {
+    setup:
+    def tags = new TagMap(2)
+    (0..<20).each {
+      if (it % 2 == 0) {
+        tags.put("tag." + it, (long) it)
+      } else {
+        tags.put("tag." + it, "value." + it)
+      }
+    }
+    tags.remove("tag.3")
+    def visited = []
+    def numbers = []
+
+    when:
+    tags.forEach(new TagMap.Visitor() {
+        @Override
+        void visit(String key, Object value) {
+          visited << key
+        }
+
+        @Override
+        void visit(String key, long value) {
+          visited << key
+          numbers << value
+        }
+      })
+
+    then:
+    visited == (0..<20).findAll { it != 3 }.collect { "tag." + it }
+    numbers == (0..<20).findAll { it % 2 == 0 }.collect { (long) it }
+  }
+
+  def "behaves like a HashMap"() {
+    setup:
+    def tags = new TagMap(4)
+    def expected = new HashMap<String, Object>()
+    def random = new Random(seed)
+
+    when:
+    1000.times {
+      String key = "key." + random.nextInt(40)
+      switch (random.nextInt(4)) {
+        case 0:
+          assert tags.remove(key) == expected.remove(key)
+          break
+        case 1:
+          int value = random.nextInt()
+          tags.put(key, value)
+          expected.put(key, value)
+          break
+        default:
+          assert tags.put(key, key) == expected.put(key, key)
+      }
+      assert tags.size() == expected.size()
+    }
+
+    then:
+    tags == expected
+    expected == tags
+    new HashMap<>(tags) == expected
+    expected.keySet().every { tags.containsKey(it) }
+    !tags.containsKey("missing")
+
+    where:
+    seed << [0L, 1L, 42L]
+  }
+
+  def "entries can be removed while iterating"() {
+    setup:
+    def tags = new TagMap(4)
+    (0..<10).each { tags.put("tag." + it, it) }
+
+    when:
+    def iterator = tags.entrySet().iterator()
+    while (iterator.hasNext()) {
+      if (iterator.next().getValue() % 2 == 1) {
+        iterator.remove()
+      }
+    }
+
+    then:
+    tags.size() == 5
+    tags.keySet() == (0..<10).findAll { it % 2 == 0 }.collect { "tag." + it } as Set
+  }
+
+  def "cleared map can be reused"() {
+    setup:
+    def tags = new TagMap(4)
+    (0..<10).each { tags.put("tag." + it, it) }
+
+    when:
+    tags.clear()
+    tags.put("tag.1", "value")
+
+    then:
+    tags.size() == 1
+    tags.get("tag.1") == "value"
+    tags.get("tag.2") == null
+  }
+}
@@ -0,0 +1,194 @@
+package datadog.trace.core
+
+import datadog.trace.api.interceptor.MutableSpan
+import datadog.trace.api.interceptor.TraceInterceptor
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+import spock.lang.Timeout
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+
+import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_COMPLETION
+
+@Timeout(10)
+class TraceCompletionTest extends DDCoreSpecification {
+
+  def "synchronous completion runs on the calling thread"() {
+    setup:
+    List<String> threads = []
+    def completion = TraceCompletion.synchronous(new TraceCompletion.Completer() {
+        @Override
+        void complete(List<DDSpan> trace) {
+          threads.add(Thread.currentThread().getName())
+        }
+      })
+    completion.start()
+
+    when:
+    completion.enqueue([])
+
+    then:
+    threads == [Thread.currentThread().getName()]
+
+    cleanup:
+    completion.close()
+  }
+
+  def "deferred completion completes traces in order on the worker"() {
+    setup:
+    List<List<DDSpan>> completed = new CopyOnWriteArrayList<>()
+    Set<String> threads = Collections.synchronizedSet(new HashSet<String>())
+    def completion = TraceCompletion.deferred(new TraceCompletion.Completer() {
+        @Override
+        void complete(List<DDSpan> trace) {
+          threads.add(Thread.currentThread().getName())
+          completed.add(trace)
+        }
+      })
+    completion.start()
+    def traces = (1..100).collect { [Mock(DDSpan)] }
+
+    when:
+    traces.each { completion.enqueue(it) }
+    completion.flush()
+
+    then:
+    completed.size() == traces.size()
+    (0..<traces.size()).every { completed[it].is(traces[it]) }
+    threads == [TRACE_COMPLETION.threadName] as Set
+
+    cleanup:
+    completion.close()
+  }
+
+  def "a full queue holds up enqueuing instead of completing out of order"() {
+    setup:
+    def blocked = new CountDownLatch(1)
+    def release = new CountDownLatch(1)
+    List<List<DDSpan>> completed = new CopyOnWriteArrayList<>()
+    Set<String> threads = Collections.synchronizedSet(new HashSet<String>())
+    def completion = TraceCompletion.deferred(new TraceCompletion.Completer() {
+        @Override
+        void complete(List<DDSpan> trace) {
+          if (completed.isEmpty()) {
+            blocked.countDown()
+            release.await()
+          }
+          threads.add(Thread.currentThread().getName())
+          completed.add(trace)
+        }
+      }, 2)
+    completion.start()
+    def traces = (1..10).collect { [Mock(DDSpan)] }
+
+    when:
+    completion.enqueue(traces[0])
+    blocked.await()
+    def producer = Thread.start {
+      traces.drop(1).each { completion.enqueue(it) }
+    }
+    Thread.sleep(100)
+
+    then:
+    producer.isAlive()
+    completed.isEmpty()
+
+    when:
+    release.countDown()
+    producer.join()
+    completion.flush()
+
+    then:
+    completed.size() == traces.size()
+    (0..<traces.size()).every { completed[it].is(traces[it]) }
+    threads == [TRACE_COMPLETION.threadName] as Set
+
+    cleanup:
+    completion.close()
+  }
+
+  def "traces enqueued before closing are completed"() {
+    setup:
+    def blocked = new CountDownLatch(1)
+    List<List<DDSpan>> completed = new CopyOnWriteArrayList<>()
+    TraceCompletion completion
+    completion = TraceCompletion.deferred(new TraceCompletion.Completer() {
+        @Override
+        void complete(List<DDSpan> trace) {
+          if (completed.isEmpty()) {
+            blocked.countDown()
+            // hold the worker up until it is closed, without being interruptible
+            while (!completion.closed) {
+              Thread.yield()
+            }
+          }
+          completed.add(trace)
+        }
+      })
+    completion.start()
+
+    when:
+    completion.enqueue([])
+    blocked.await()
+    completion.enqueue([])
+    completion.enqueue([])
+    completion.close()
+
+    then:
+    completed.size() == 3
+  }
+
+  def "tracer completes traces on the worker when deferred"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder()
+      .writer(writer)
+      .strictTraceWrites(false)
+      .deferredTraceCompletion(true)
+      .build()
+    Set<String> threads = Collections.synchronizedSet(new HashSet<String>())
+    tracer.addTraceInterceptor(new TraceInterceptor() {
+        @Override
+        Collection<? extends MutableSpan> onTraceComplete(Collection<? extends MutableSpan> trace) {
+          threads.add(Thread.currentThread().getName())
+          return trace
+        }
+
+        @Override
+        int priority() {
+          return 123
+        }
+      })
+
+    when:
+    tracer.buildSpan("operation").start().finish()
+    writer.waitForTraces(1)
+
+    then:
+    threads == [TRACE_COMPLETION.threadName] as Set
+    writer.firstTrace().size() == 1
+
+    cleanup:
+    tracer.close()
+  }
+
+  def "strict trace writes complete traces synchronously"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder()
+      .writer(writer)
+      .strictTraceWrites(true)
+      .deferredTraceCompletion(true)
+      .build()
+
+    when:
+    tracer.buildSpan("operation").start().finish()
+
+    then:
+    writer.size() == 1
+
+    cleanup:
+    tracer.close()
+  }
+}
@@ -124,6 +124,38 @@ class HealthMetricsTest extends DDSpecification {
     bytes = ThreadLocalRandom.current().nextInt(10000)
   }
 
+  def "test onPayloadBackPressure"() {
+    setup:
+    def statsD = Mock(StatsDClient)
+    def healthMetrics = new HealthMetrics(statsD, 100, TimeUnit.MILLISECONDS)
+    healthMetrics.start()
+
+    when:
+    healthMetrics.onPayloadBackPressure(TimeUnit.MILLISECONDS.toNanos(3))
+    healthMetrics.onPayloadBackPressure(TimeUnit.MILLISECONDS.toNanos(4))
+    Thread.sleep(110)
+
+    then:
+    1 * statsD.count('queue.payloads.backpressure', 2)
+    1 * statsD.count('queue.payloads.backpressure.micros', 7000)
+    0 * _
+
+    cleanup:
+    healthMetrics.close()
+  }
+
+  def "test onPayloadsInFlight"() {
+    when:
+    healthMetrics.onPayloadsInFlight(payloadsInFlight)
+
+    then:
+    1 * statsD.gauge('queue.payloads.in_flight', payloadsInFlight)
+    0 * _
+
+    where:
+    payloadsInFlight << [0, 1, 2]
+  }
+
   def "test onFailedSerialize"() {
     when:
     healthMetrics.onFailedSerialize(null, null)
@@ -119,5 +119,25 @@ class TimingTest extends DDSpecification {
     cleanup:
     SystemAccess.disableJmx()
   }
-}
 
+  def "cpu timer tags are added to the thread tag"() {
+    setup:
+    Assume.assumeTrue(getThreadMXBean().isCurrentThreadCpuTimeSupported())
+    StatsDClient statsd = Mock(StatsDClient)
+    Monitoring monitoring = new Monitoring(statsd, 100, MILLISECONDS)
+    def timer = monitoring.newCPUTimer("my_timer", "shard:1")
+    when:
+    SystemAccess.enableJmx()
+    Recording recording = timer.start()
+    Thread.sleep(200)
+    recording.close()
+    then:
+    1 * statsd.gauge("my_timer", _, { it[0] == "stat:p50" && it[1].startsWith("thread:") && it[2] == "shard:1" })
+    1 * statsd.gauge("my_timer", _, { it[0] == "stat:p99" && it[1].startsWith("thread:") && it[2] == "shard:1" })
+    1 * statsd.gauge("my_timer", _, { it[0] == "stat:max" && it[1].startsWith("thread:") && it[2] == "shard:1" })
+    1 * statsd.gauge("my_timer.cpu", { it > 0 }, { it[0].startsWith("thread:") && it[1] == "shard:1" })
+    0 * _
+    cleanup:
+    SystemAccess.disableJmx()
+  }
+}
@@ -66,4 +66,43 @@ class DatadogHttpInjectorTest extends DDCoreSpecification {
     "$TRACE_ID_MAX"       | "${TRACE_ID_MAX - 1}" | PrioritySampling.UNSET        | "saipan"
     "${TRACE_ID_MAX - 1}" | "$TRACE_ID_MAX"       | PrioritySampling.SAMPLER_KEEP | null
   }
+
+  def "reinjecting reflects baggage changes"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    final DDSpanContext context =
+      new DDSpanContext(
+      DDId.from(1),
+      DDId.from(2),
+      DDId.ZERO,
+      null,
+      "fakeService",
+      "fakeOperation",
+      "fakeResource",
+      PrioritySampling.UNSET,
+      null,
+      ["k1" : "some value"],
+      false,
+      "fakeType",
+      0,
+      tracer.pendingTraceFactory.create(DDId.ONE))
+    def first = [:]
+    def second = [:]
+    def third = [:]
+
+    when:
+    injector.inject(context, first, MapSetter.INSTANCE)
+    injector.inject(context, second, MapSetter.INSTANCE)
+    context.setBaggageItem("k2", "v2")
+    injector.inject(context, third, MapSetter.INSTANCE)
+
+    then:
+    first[OT_BAGGAGE_PREFIX + "k1"] == "some+value"
+    second == first
+    third == first + [(OT_BAGGAGE_PREFIX + "k2"): "v2"]
+
+    cleanup:
+    tracer.close()
+  }
 }
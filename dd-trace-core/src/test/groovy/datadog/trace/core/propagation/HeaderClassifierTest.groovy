@@ -0,0 +1,47 @@
+package datadog.trace.core.propagation
+
+import datadog.trace.test.util.DDSpecification
+
+class HeaderClassifierTest extends DDSpecification {
+
+  def "classifies #name as #expected"() {
+    setup:
+    def classifier = new HeaderClassifier([
+      "x-datadog-trace-id" : 0,
+      "x-datadog-parent-id": 1,
+      "X-B3-TraceId"       : 2,
+      "x-forwarded-for"    : 3
+    ])
+
+    expect:
+    classifier.classify(name) == expected
+
+    where:
+    name                  | expected
+    "x-datadog-trace-id"  | 0
+    "X-Datadog-Trace-Id"  | 0
+    "X-DATADOG-PARENT-ID" | 1
+    "x-b3-traceid"        | 2
+    "X-B3-TRACEID"        | 2
+    "X-Forwarded-For"     | 3
+    "x-datadog-trace-i"   | HeaderClassifier.UNKNOWN
+    "x-datadog-trace-idx" | HeaderClassifier.UNKNOWN
+    "user-agent"          | HeaderClassifier.UNKNOWN
+    ""                    | HeaderClassifier.UNKNOWN
+  }
+
+  def "classifies many names"() {
+    setup:
+    def names = (0..<500).collectEntries { ["header-" + it, it] }
+    def classifier = new HeaderClassifier(names)
+
+    expect:
+    names.every { name, index -> classifier.classify(name.toUpperCase()) == index }
+    classifier.classify("header-500") == HeaderClassifier.UNKNOWN
+  }
+
+  def "empty classifier knows no names"() {
+    expect:
+    new HeaderClassifier([:]).classify("anything") == HeaderClassifier.UNKNOWN
+  }
+}
@@ -2,6 +2,7 @@ package datadog.trace.core.propagation
 
 import datadog.trace.api.Config
 import datadog.trace.api.DDId
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation
 import datadog.trace.bootstrap.instrumentation.api.ContextVisitors
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Shared
@@ -79,4 +80,35 @@ class HttpExtractorTest extends DDSpecification {
     [DATADOG, B3] | "1"               | "2"               | "a"               | outOfRangeTraceId | "1"             | "2"            | true             | false               | false
     // spotless:on
   }
+
+  def "extractors share one pass over the carrier"() {
+    setup:
+    Config config = Mock(Config) {
+      getPropagationStylesToExtract() >> [DATADOG, B3]
+    }
+    HttpCodec.Extractor extractor = HttpCodec.createExtractor(config, [:])
+    def headers = [
+      (B3HttpCodec.TRACE_ID_KEY)     : "a",
+      (B3HttpCodec.SPAN_ID_KEY)      : "b",
+      (DatadogHttpCodec.ORIGIN_KEY)  : "saipan",
+      "user-agent"                   : "test"
+    ]
+    int passes = 0
+    def visitor = new AgentPropagation.ContextVisitor<Map<String, String>>() {
+        @Override
+        void forEachKey(Map<String, String> carrier, AgentPropagation.KeyClassifier classifier) {
+          passes++
+          ContextVisitors.stringValuesMap().forEachKey(carrier, classifier)
+        }
+      }
+
+    when:
+    final TagContext context = extractor.extract(headers, visitor)
+
+    then:
+    passes == 1
+    context instanceof ExtractedContext
+    context.traceId == DDId.from("10")
+    context.spanId == DDId.from("11")
+  }
 }
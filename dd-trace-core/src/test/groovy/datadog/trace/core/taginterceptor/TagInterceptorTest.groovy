@@ -413,6 +413,53 @@ class TagInterceptorTest extends DDCoreSpecification {
     "spanType"     | DDTags.SPAN_TYPE     | "my-span-type"
   }
 
+  def "#attribute interceptors apply to keys which are not interned"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+
+    when:
+    def span = tracer.buildSpan("interceptor.test").start()
+    span.setTag(new String(name), value)
+    span.finish()
+    writer.waitForTraces(1)
+
+    then:
+    span.context()."$attribute" == value
+    !span.getTags().containsKey(name)
+
+    cleanup:
+    tracer.close()
+
+    where:
+    attribute      | name                 | value
+    "serviceName"  | DDTags.SERVICE_NAME  | "my-service"
+    "resourceName" | DDTags.RESOURCE_NAME | "my-resource"
+    "spanType"     | DDTags.SPAN_TYPE     | "my-span-type"
+  }
+
+  def "needs intercept for #tag"() {
+    setup:
+    def splitServiceTags = ["sn.tag1", new String(Tags.MESSAGE_BUS_DESTINATION)] as Set
+    def interceptor = new TagInterceptor(true, "my-service", splitServiceTags, new RuleFlags())
+
+    expect:
+    interceptor.needsIntercept(tag) == expected
+    interceptor.needsIntercept(new String(tag)) == expected
+
+    where:
+    tag                          | expected
+    DDTags.RESOURCE_NAME         | true
+    Tags.DB_STATEMENT            | true
+    "service"                    | true
+    Tags.ERROR                   | true
+    "sn.tag1"                    | true
+    Tags.MESSAGE_BUS_DESTINATION | true
+    Tags.HTTP_URL                | false
+    Tags.COMPONENT               | false
+    "custom.tag"                 | false
+  }
+
   def "decorators apply to builder too"() {
     setup:
     def writer = new ListWriter()
@@ -7,6 +7,7 @@ import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
 import datadog.trace.core.CoreSpan
 import datadog.trace.core.Metadata
 import datadog.trace.core.MetadataConsumer
+import datadog.trace.core.TagMap
 
 import java.util.concurrent.ThreadLocalRandom
 import java.util.concurrent.TimeUnit
@@ -131,8 +132,10 @@ class TraceGenerator {
       this.metrics = metrics
       this.type = type
       this.measured = measured
+      TagMap tagMap = new TagMap(tags.size())
+      tagMap.putAll(tags)
       this.metadata = new Metadata(Thread.currentThread().getId(),
-        UTF8BytesString.create(Thread.currentThread().getName()), tags, baggage)
+        UTF8BytesString.create(Thread.currentThread().getName()), tagMap, baggage)
     }
 
     @Override
@@ -170,6 +173,21 @@ class TraceGenerator {
       return parentId
     }
 
+    @Override
+    long getTraceIdAsLong() {
+      return traceId.toLong()
+    }
+
+    @Override
+    long getSpanIdAsLong() {
+      return spanId.toLong()
+    }
+
+    @Override
+    long getParentIdAsLong() {
+      return parentId.toLong()
+    }
+
     @Override
     long getStartTime() {
       return start
@@ -323,6 +341,10 @@ class TraceGenerator {
       return 0
     }
 
+    @Override
+    void recycleTags() {
+    }
+
     @Override
     <U> U getTag(CharSequence name, U defaultValue) {
       U value = getTag(name)
@@ -39,6 +39,7 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_SCOPE_DEPTH_LIMIT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_SERIALVERSIONUID_FIELD_INJECTION;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_SERVICE_NAME;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_SITE;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_AGENT_MAX_PAYLOADS_IN_FLIGHT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_AGENT_PORT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_AGENT_V05_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_ANALYTICS_ENABLED;
@@ -49,6 +50,7 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_METHODS;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RATE_LIMIT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_REPORT_HOSTNAME;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RESOLVER_ENABLED;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_SERIALIZATION_SHARDS;
 import static datadog.trace.api.DDTags.HOST_TAG;
 import static datadog.trace.api.DDTags.INTERNAL_HOST_NAME;
 import static datadog.trace.api.DDTags.LANGUAGE_TAG_KEY;
@@ -121,6 +123,7 @@ import static datadog.trace.api.config.TraceInstrumentationConfig.KAFKA_CLIENT_B
 import static datadog.trace.api.config.TraceInstrumentationConfig.KAFKA_CLIENT_PROPAGATION_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.LOGS_INJECTION_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.LOGS_MDC_TAGS_INJECTION_ENABLED;
+import static datadog.trace.api.config.TraceInstrumentationConfig.MUZZLE_CACHE_FILE;
 import static datadog.trace.api.config.TraceInstrumentationConfig.OSGI_SEARCH_DEPTH;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_USE_LOADCLASS;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RUNTIME_CONTEXT_FIELD_INJECTION;
@@ -134,6 +137,7 @@ import static datadog.trace.api.config.TraceInstrumentationConfig.TRACE_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.TRACE_EXECUTORS;
 import static datadog.trace.api.config.TraceInstrumentationConfig.TRACE_EXECUTORS_ALL;
 import static datadog.trace.api.config.TraceInstrumentationConfig.TRACE_METHODS;
+import static datadog.trace.api.config.TraceInstrumentationConfig.TYPE_MATCHING_INDEX_ENABLED;
 import static datadog.trace.api.config.TracerConfig.AGENT_HOST;
 import static datadog.trace.api.config.TracerConfig.AGENT_PORT_LEGACY;
 import static datadog.trace.api.config.TracerConfig.AGENT_TIMEOUT;
@@ -143,6 +147,7 @@ import static datadog.trace.api.config.TracerConfig.HEADER_TAGS;
 import static datadog.trace.api.config.TracerConfig.HTTP_CLIENT_ERROR_STATUSES;
 import static datadog.trace.api.config.TracerConfig.HTTP_SERVER_ERROR_STATUSES;
 import static datadog.trace.api.config.TracerConfig.ID_GENERATION_STRATEGY;
+import static datadog.trace.api.config.TracerConfig.PARTIAL_FLUSH_MAX_RETAINED_SPANS;
 import static datadog.trace.api.config.TracerConfig.PARTIAL_FLUSH_MIN_SPANS;
 import static datadog.trace.api.config.TracerConfig.PRIORITY_SAMPLING;
 import static datadog.trace.api.config.TracerConfig.PRIORITY_SAMPLING_FORCE;
@@ -155,16 +160,21 @@ import static datadog.trace.api.config.TracerConfig.SCOPE_STRICT_MODE;
 import static datadog.trace.api.config.TracerConfig.SERVICE_MAPPING;
 import static datadog.trace.api.config.TracerConfig.SPAN_TAGS;
 import static datadog.trace.api.config.TracerConfig.SPLIT_BY_TAGS;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_MAX_PAYLOADS_IN_FLIGHT;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_PORT;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_URL;
 import static datadog.trace.api.config.TracerConfig.TRACE_ANALYTICS_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_DEFERRED_COMPLETION_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_RATE_LIMIT;
 import static datadog.trace.api.config.TracerConfig.TRACE_REPORT_HOSTNAME;
 import static datadog.trace.api.config.TracerConfig.TRACE_RESOLVER_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLE_RATE;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_OPERATION_RULES;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_SERVICE_RULES;
+import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_SPANS_PER_SECOND;
+import static datadog.trace.api.config.TracerConfig.TRACE_SERIALIZATION_SHARDS;
 import static datadog.trace.api.config.TracerConfig.TRACE_STRICT_WRITES_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_TAG_RECYCLING_ENABLED;
 import static datadog.trace.api.config.TracerConfig.WRITER_TYPE;
 import static datadog.trace.util.Strings.toEnvVar;
 
@@ -275,7 +285,10 @@ public class Config {
   private final boolean scopeStrictMode;
   private final boolean scopeInheritAsyncPropagation;
   private final int partialFlushMinSpans;
+  private final int partialFlushMaxRetainedSpans;
   private final boolean traceStrictWritesEnabled;
+  private final boolean traceDeferredCompletionEnabled;
+  private final boolean traceTagRecyclingEnabled;
   private final boolean runtimeContextFieldInjection;
   private final boolean serialVersionUIDFieldInjection;
   private final Set<PropagationStyle> propagationStylesToExtract;
@@ -318,6 +331,7 @@ public class Config {
   private final Map<String, String> traceSamplingOperationRules;
   private final Double traceSampleRate;
   private final int traceRateLimit;
+  private final int traceSamplingSpansPerSecond;
 
   private final boolean profilingEnabled;
   private final boolean profilingAgentless;
@@ -351,6 +365,8 @@ public class Config {
   private final boolean tempJarsCleanOnBoot;
 
   private final boolean traceAgentV05Enabled;
+  private final int traceSerializationShards;
+  private final int traceAgentMaxPayloadsInFlight;
 
   private final boolean debugEnabled;
   private final String configFile;
@@ -360,6 +376,8 @@ public class Config {
   private final boolean internalExitOnFailure;
 
   private final boolean resolverUseLoadClassEnabled;
+  private final boolean typeMatchingIndexEnabled;
+  private final String muzzleCacheFile;
 
   private final String jdbcPreparedStatementClassName;
   private final String jdbcConnectionClassName;
@@ -550,9 +568,15 @@ public class Config {
 
     partialFlushMinSpans =
         configProvider.getInteger(PARTIAL_FLUSH_MIN_SPANS, DEFAULT_PARTIAL_FLUSH_MIN_SPANS);
+    partialFlushMaxRetainedSpans = configProvider.getInteger(PARTIAL_FLUSH_MAX_RETAINED_SPANS, 0);
 
     traceStrictWritesEnabled = configProvider.getBoolean(TRACE_STRICT_WRITES_ENABLED, false);
 
+    traceDeferredCompletionEnabled =
+        configProvider.getBoolean(TRACE_DEFERRED_COMPLETION_ENABLED, false);
+
+    traceTagRecyclingEnabled = configProvider.getBoolean(TRACE_TAG_RECYCLING_ENABLED, false);
+
     runtimeContextFieldInjection =
         configProvider.getBoolean(
             RUNTIME_CONTEXT_FIELD_INJECTION, DEFAULT_RUNTIME_CONTEXT_FIELD_INJECTION);
@@ -607,6 +631,11 @@ public class Config {
 
     traceAgentV05Enabled =
         configProvider.getBoolean(ENABLE_TRACE_AGENT_V05, DEFAULT_TRACE_AGENT_V05_ENABLED);
+    traceSerializationShards =
+        configProvider.getInteger(TRACE_SERIALIZATION_SHARDS, DEFAULT_TRACE_SERIALIZATION_SHARDS);
+    traceAgentMaxPayloadsInFlight =
+        configProvider.getInteger(
+            TRACE_AGENT_MAX_PAYLOADS_IN_FLIGHT, DEFAULT_TRACE_AGENT_MAX_PAYLOADS_IN_FLIGHT);
 
     traceAnnotations = configProvider.getString(TRACE_ANNOTATIONS, DEFAULT_TRACE_ANNOTATIONS);
 
@@ -623,6 +652,7 @@ public class Config {
     traceSamplingOperationRules = configProvider.getMergedMap(TRACE_SAMPLING_OPERATION_RULES);
     traceSampleRate = configProvider.getDouble(TRACE_SAMPLE_RATE);
     traceRateLimit = configProvider.getInteger(TRACE_RATE_LIMIT, DEFAULT_TRACE_RATE_LIMIT);
+    traceSamplingSpansPerSecond = configProvider.getInteger(TRACE_SAMPLING_SPANS_PER_SECOND, 0);
 
     profilingEnabled = configProvider.getBoolean(PROFILING_ENABLED, DEFAULT_PROFILING_ENABLED);
     profilingAgentless =
@@ -724,6 +754,8 @@ public class Config {
     internalExitOnFailure = configProvider.getBoolean(INTERNAL_EXIT_ON_FAILURE, false);
 
     resolverUseLoadClassEnabled = configProvider.getBoolean(RESOLVER_USE_LOADCLASS, true);
+    typeMatchingIndexEnabled = configProvider.getBoolean(TYPE_MATCHING_INDEX_ENABLED, true);
+    muzzleCacheFile = configProvider.getString(MUZZLE_CACHE_FILE);
 
     // Setting this last because we have a few places where this can come from
     apiKey = tmpApiKey;
@@ -864,10 +896,22 @@ public class Config {
     return partialFlushMinSpans;
   }
 
+  public int getPartialFlushMaxRetainedSpans() {
+    return partialFlushMaxRetainedSpans;
+  }
+
   public boolean isTraceStrictWritesEnabled() {
     return traceStrictWritesEnabled;
   }
 
+  public boolean isTraceDeferredCompletionEnabled() {
+    return traceDeferredCompletionEnabled;
+  }
+
+  public boolean isTraceTagRecyclingEnabled() {
+    return traceTagRecyclingEnabled;
+  }
+
   public boolean isRuntimeContextFieldInjection() {
     return runtimeContextFieldInjection;
   }
@@ -996,6 +1040,10 @@ public class Config {
     return traceRateLimit;
   }
 
+  public int getTraceSamplingSpansPerSecond() {
+    return traceSamplingSpansPerSecond;
+  }
+
   public boolean isProfilingEnabled() {
     return profilingEnabled;
   }
@@ -1092,6 +1140,14 @@ public class Config {
     return traceAgentV05Enabled;
   }
 
+  public int getTraceSerializationShards() {
+    return traceSerializationShards;
+  }
+
+  public int getTraceAgentMaxPayloadsInFlight() {
+    return traceAgentMaxPayloadsInFlight;
+  }
+
   public boolean isDebugEnabled() {
     return debugEnabled;
   }
@@ -1112,6 +1168,14 @@ public class Config {
     return resolverUseLoadClassEnabled;
   }
 
+  public boolean isTypeMatchingIndexEnabled() {
+    return typeMatchingIndexEnabled;
+  }
+
+  public String getMuzzleCacheFile() {
+    return muzzleCacheFile;
+  }
+
   public String getJdbcPreparedStatementClassName() {
     return jdbcPreparedStatementClassName;
   }
@@ -1631,8 +1695,14 @@ public class Config {
         + scopeInheritAsyncPropagation
         + ", partialFlushMinSpans="
         + partialFlushMinSpans
+        + ", partialFlushMaxRetainedSpans="
+        + partialFlushMaxRetainedSpans
         + ", traceStrictWritesEnabled="
         + traceStrictWritesEnabled
+        + ", traceDeferredCompletionEnabled="
+        + traceDeferredCompletionEnabled
+        + ", traceTagRecyclingEnabled="
+        + traceTagRecyclingEnabled
         + ", runtimeContextFieldInjection="
         + runtimeContextFieldInjection
         + ", serialVersionUIDFieldInjection="
@@ -1702,6 +1772,8 @@ public class Config {
         + traceSampleRate
         + ", traceRateLimit="
         + traceRateLimit
+        + ", traceSamplingSpansPerSecond="
+        + traceSamplingSpansPerSecond
         + ", profilingEnabled="
         + profilingEnabled
         + ", profilingAgentless="
@@ -1759,6 +1831,10 @@ public class Config {
         + tempJarsCleanOnBoot
         + ", traceAgentV05Enabled="
         + traceAgentV05Enabled
+        + ", traceSerializationShards="
+        + traceSerializationShards
+        + ", traceAgentMaxPayloadsInFlight="
+        + traceAgentMaxPayloadsInFlight
         + ", debugEnabled="
         + debugEnabled
         + ", configFile='"
@@ -1770,6 +1846,10 @@ public class Config {
         + internalExitOnFailure
         + ", resolverUseLoadClassEnabled="
         + resolverUseLoadClassEnabled
+        + ", typeMatchingIndexEnabled="
+        + typeMatchingIndexEnabled
+        + ", muzzleCacheFile="
+        + muzzleCacheFile
         + ", jdbcPreparedStatementClassName='"
         + jdbcPreparedStatementClassName
         + '\''
@@ -15,7 +15,9 @@ public final class AgentThreadFactory implements ThreadFactory {
 
     TRACE_STARTUP("dd-agent-startup-datadog-tracer"),
     TRACE_MONITOR("dd-trace-monitor"),
+    TRACE_COMPLETION("dd-trace-completion"),
     TRACE_PROCESSOR("dd-trace-processor"),
+    TRACE_SENDER("dd-trace-sender"),
     TRACE_CASSANDRA_ASYNC_SESSION("dd-cassandra-session-executor"),
 
     METRICS_AGGREGATOR("dd-metrics-aggregator"),
@@ -57,7 +59,21 @@ public final class AgentThreadFactory implements ThreadFactory {
    * @param runnable work to run on the new thread.
    */
   public static Thread newAgentThread(final AgentThread agentThread, final Runnable runnable) {
-    final Thread thread = new Thread(AGENT_THREAD_GROUP, runnable, agentThread.threadName);
+    return newAgentThread(agentThread, "", runnable);
+  }
+
+  /**
+   * Constructs a new agent {@code Thread} as a daemon with a null ContextClassLoader, telling apart
+   * several threads of the same kind by the suffix added to their name.
+   *
+   * @param agentThread the agent thread to create.
+   * @param nameSuffix added to the agent thread's name.
+   * @param runnable work to run on the new thread.
+   */
+  public static Thread newAgentThread(
+      final AgentThread agentThread, final String nameSuffix, final Runnable runnable) {
+    final String threadName = agentThread.threadName + nameSuffix;
+    final Thread thread = new Thread(AGENT_THREAD_GROUP, runnable, threadName);
     thread.setDaemon(true);
     thread.setContextClassLoader(null);
     thread.setUncaughtExceptionHandler(
@@ -65,7 +81,7 @@ public final class AgentThreadFactory implements ThreadFactory {
           @Override
           public void uncaughtException(final Thread thread, final Throwable e) {
             LoggerFactory.getLogger(runnable.getClass())
-                .error("Uncaught exception in {}", agentThread.threadName, e);
+                .error("Uncaught exception in {}", threadName, e);
           }
         });
     return thread;